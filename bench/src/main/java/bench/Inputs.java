@@ -0,0 +1,170 @@
+package bench;
+
+import java.util.Comparator;
+import java.util.Random;
+
+/**
+ * Input distributions and element types for the benchmarks.
+ *
+ * @author Wenfei Lin
+ */
+public class Inputs {
+
+  // +-------+-------------------------------------------------------
+  // | Types |
+  // +-------+
+
+  /**
+   * A record sorted by a composite comparator, standing in for rows of a
+   * table.
+   */
+  public record Row(int group, String name, long timestamp) {
+  } // record Row
+
+  /**
+   * Rows by group, then name, then timestamp.
+   */
+  public static final Comparator<Row> ROW_ORDER =
+      Comparator.comparingInt(Row::group)
+          .thenComparing(Row::name)
+          .thenComparingLong(Row::timestamp);
+
+  // +-------------+-------------------------------------------------
+  // | Constructor |
+  // +-------------+
+
+  private Inputs() {
+  } // Inputs()
+
+  // +---------+-----------------------------------------------------
+  // | Methods |
+  // +---------+
+
+  /**
+   * Generate n keys following a distribution.
+   *
+   * @param distribution One of random, sorted, reversed, sawtooth,
+   *                     organ-pipe, few-unique or mostly-sorted.
+   * @param n The number of keys.
+   * @param perturbation For mostly-sorted, the percentage of keys moved
+   *                     out of place.
+   * @param rand The source of randomness.
+   * @return The keys.
+   */
+  public static int[] keys(String distribution, int n, int perturbation,
+                           Random rand) {
+    int[] keys = new int[n];
+    // Teeth of the sawtooth are about sqrt(n) long
+    int tooth = Math.max(2, (int) Math.sqrt(n));
+
+    for (int i = 0; i < n; i++) {
+      switch (distribution) {
+        case "random":
+          keys[i] = rand.nextInt();
+          break;
+        case "sorted":
+        case "mostly-sorted":
+          keys[i] = i;
+          break;
+        case "reversed":
+          keys[i] = n - i;
+          break;
+        case "sawtooth":
+          keys[i] = i % tooth;
+          break;
+        case "organ-pipe":
+          keys[i] = (i < n / 2) ? i : n - i;
+          break;
+        case "few-unique":
+          keys[i] = rand.nextInt(16);
+          break;
+        default:
+          throw new IllegalArgumentException("Unknown distribution: "
+              + distribution);
+      } // switch
+    } // for
+
+    if (distribution.equals("mostly-sorted") && n > 1) {
+      // Each swap moves two keys out of place
+      long swaps = (long) n * perturbation / 200;
+      for (long s = 0; s < swaps; s++) {
+        int i = rand.nextInt(n);
+        int j = rand.nextInt(n);
+        int tmp = keys[i];
+        keys[i] = keys[j];
+        keys[j] = tmp;
+      } // for
+    } // if
+
+    return keys;
+  } // keys(String, int, int, Random)
+
+  /**
+   * Turn keys into elements of a type, such that the elements sort in the
+   * same order as the keys.
+   *
+   * @param type One of Integer, String or Row.
+   * @param keys The keys.
+   * @return The elements.
+   */
+  public static Object[] elements(String type, int[] keys) {
+    int n = keys.length;
+    switch (type) {
+      case "Integer": {
+        Integer[] vals = new Integer[n];
+        for (int i = 0; i < n; i++) {
+          vals[i] = keys[i];
+        } // for
+        return vals;
+      } // case
+      case "String": {
+        // Offset so negative keys also sort correctly as strings
+        String[] vals = new String[n];
+        for (int i = 0; i < n; i++) {
+          vals[i] = pad(Long.toString((long) keys[i] - Integer.MIN_VALUE));
+        } // for
+        return vals;
+      } // case
+      case "Row": {
+        Row[] vals = new Row[n];
+        for (int i = 0; i < n; i++) {
+          int k = keys[i];
+          vals[i] = new Row(k >> 6, "name-" + (char) ('a' + (k & 63) / 3),
+                            k & 63);
+        } // for
+        return vals;
+      } // case
+      default:
+        throw new IllegalArgumentException("Unknown type: " + type);
+    } // switch
+  } // elements(String, int[])
+
+  /**
+   * Get the comparator for elements of a type.
+   *
+   * @param type One of Integer, String or Row.
+   * @return A comparator for that type.
+   */
+  @SuppressWarnings("unchecked")
+  public static Comparator<Object> order(String type) {
+    switch (type) {
+      case "Integer":
+        return (Comparator<Object>) (Comparator<?>) Comparator
+            .<Integer>naturalOrder();
+      case "String":
+        return (Comparator<Object>) (Comparator<?>) Comparator
+            .<String>naturalOrder();
+      case "Row":
+        return (Comparator<Object>) (Comparator<?>) ROW_ORDER;
+      default:
+        throw new IllegalArgumentException("Unknown type: " + type);
+    } // switch
+  } // order(String)
+
+  /**
+   * Left-pad a string of digits with zeros to ten characters.
+   */
+  private static String pad(String digits) {
+    return "0000000000".substring(digits.length()) + digits;
+  } // pad(String)
+} // class Inputs
@@ -0,0 +1,161 @@
+package bench;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH benchmarks of RadixSort against the comparison sorters for each
+ * key width: int, long, String and byte[].
+ *
+ * Radix and primitive sorters sort int[] and long[] directly; comparison
+ * sorters sort the same keys boxed.  Strings are ten-digit padded
+ * numbers, and the byte[] keys are their bytes.  Combinations that do
+ * not exist (e.g., PrimitiveQuicksort on Strings) fail in setup.
+ *
+ * For example:
+ *   java -jar target/benchmarks.jar KeyWidthBenchmarks \
+ *       -p key=int,long -p n=10000000
+ *
+ * @author Wenfei Lin
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class KeyWidthBenchmarks {
+
+  // +-----------+---------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  // Spreads int keys over all 64 bits without changing which are equal
+  static final long SPREAD = 0x9E3779B97F4A7C15L;
+
+  // +------------+--------------------------------------------------
+  // | Parameters |
+  // +------------+
+
+  @Param({ "RadixSort", "RadixSort.WIDE", "PrimitiveQuicksort",
+           "BranchlessQuicksort", "PrimitiveLinWenfeiSort",
+           "Quicksort.DUAL_PIVOT",
+           "LinWenfeiSort" })
+  public String sorter;
+
+  @Param({ "int", "long", "String", "bytes" })
+  public String key;
+
+  @Param({ "1000", "100000", "10000000" })
+  public int n;
+
+  @Param({ "random", "few-unique" })
+  public String distribution;
+
+  // +-------+-------------------------------------------------------
+  // | State |
+  // +-------+
+
+  MethodHandle sort;
+  Object input;
+  Object work;
+
+  /**
+   * Elements sorted, normalized like the primary result, so that its
+   * score is the time per element.
+   */
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.OPERATIONS)
+  public static class PerElement {
+    public long elements;
+  } // class PerElement
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    int[] keys = Inputs.keys(this.distribution, this.n, 1, new Random(42));
+    String[] strings = (String[]) Inputs.elements("String", keys);
+    boolean comparison = this.sorter.startsWith("Quicksort")
+        || this.sorter.startsWith("LinWenfeiSort");
+
+    Object primitive;
+    Object boxed;
+    Comparator<?> order;
+    switch (this.key) {
+      case "int":
+        primitive = keys;
+        boxed = Arrays.stream(keys).boxed().toArray(Integer[]::new);
+        order = Comparator.<Integer>naturalOrder();
+        break;
+      case "long": {
+        long[] longs = new long[this.n];
+        for (int i = 0; i < this.n; i++) {
+          longs[i] = keys[i] * SPREAD;
+        } // for
+        primitive = longs;
+        boxed = Arrays.stream(longs).boxed().toArray(Long[]::new);
+        order = Comparator.<Long>naturalOrder();
+        break;
+      } // case
+      case "String":
+        primitive = strings;
+        boxed = strings;
+        order = Comparator.<String>naturalOrder();
+        break;
+      case "bytes": {
+        byte[][] bytes = new byte[this.n][];
+        for (int i = 0; i < this.n; i++) {
+          bytes[i] = strings[i].getBytes(StandardCharsets.US_ASCII);
+        } // for
+        primitive = bytes;
+        boxed = bytes;
+        order = (Comparator<byte[]>) Arrays::compareUnsigned;
+        break;
+      } // case
+      default:
+        throw new IllegalArgumentException("Unknown key: " + this.key);
+    } // switch
+
+    if (comparison) {
+      this.input = boxed;
+      this.sort = MethodHandles.insertArguments(Sorters.lookup(this.sorter),
+          1, order).asType(MethodType.methodType(void.class, Object.class));
+    } else {
+      this.input = primitive;
+      this.sort = Sorters.lookup(this.sorter, primitive.getClass());
+    } // if/else
+    this.work = Array.newInstance(this.input.getClass().getComponentType(),
+                                  this.n);
+  } // setUp()
+
+  // +------------+--------------------------------------------------
+  // | Benchmarks |
+  // +------------+
+
+  @Benchmark
+  public Object sort(PerElement counter) throws Throwable {
+    System.arraycopy(this.input, 0, this.work, 0, this.n);
+    this.sort.invokeExact(this.work);
+    counter.elements += this.n;
+    return this.work;
+  } // sort(PerElement)
+} // class KeyWidthBenchmarks
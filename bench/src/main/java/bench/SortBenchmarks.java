@@ -0,0 +1,153 @@
+package bench;
+
+import java.lang.invoke.MethodHandle;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH benchmarks of every Sorter across element types, sizes and input
+ * distributions.
+ *
+ * Each benchmark sorts a fresh copy of the same input; copyOnly measures
+ * the copy by itself.  The "elements" counter of sort is the time per
+ * element, and comparisons / elements from sortCounted is the number of
+ * comparisons per element.  Add -prof gc for the allocation rate.
+ *
+ * For example:
+ *   java -jar target/benchmarks.jar SortBenchmarks.sort -prof gc \
+ *       -p sorter=LinWenfeiSort,MergeSort -p n=1000000
+ *
+ * n = 100000000 needs a large heap (e.g., -jvmArgs -Xmx24g).
+ *
+ * @author Wenfei Lin
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SortBenchmarks {
+
+  // +-----------+---------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  // InsertionSort is quadratic; larger inputs would take hours
+  static final int INSERTION_SORT_LIMIT = 100_000;
+
+  // +------------+--------------------------------------------------
+  // | Parameters |
+  // +------------+
+
+  @Param({ "Quicksort", "Quicksort.INTROSORT", "Quicksort.THREE_WAY",
+           "Quicksort.DUAL_PIVOT", "MergeSort", "InsertionSort",
+           "LinWenfeiSort", "ParallelLinWenfeiSort", "ParallelMergeSort",
+           "InPlaceMergeSort", "InPlaceMergeSort.IN_PLACE" })
+  public String sorter;
+
+  @Param({ "Integer", "String", "Row" })
+  public String type;
+
+  @Param({ "10", "1000", "100000", "10000000", "100000000" })
+  public int n;
+
+  @Param({ "random", "sorted", "reversed", "sawtooth", "organ-pipe",
+           "few-unique", "mostly-sorted" })
+  public String distribution;
+
+  // Percentage of elements out of place in mostly-sorted input
+  @Param({ "1" })
+  public int perturbation;
+
+  // +-------+-------------------------------------------------------
+  // | State |
+  // +-------+
+
+  MethodHandle sort;
+  Comparator<Object> order;
+  Object[] input;
+  Object[] work;
+
+  /**
+   * Elements sorted, normalized like the primary result, so that its
+   * score is the time per element.
+   */
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.OPERATIONS)
+  public static class PerElement {
+    public long elements;
+  } // class PerElement
+
+  /**
+   * Raw totals, whose ratio is the comparisons per element.
+   */
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.EVENTS)
+  public static class Comparisons {
+    public long comparisons;
+    public long elements;
+  } // class Comparisons
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    if (this.sorter.startsWith("InsertionSort")
+        && this.n > INSERTION_SORT_LIMIT) {
+      throw new IllegalStateException("InsertionSort is too slow for n = "
+          + this.n);
+    } // if
+
+    this.sort = Sorters.lookup(this.sorter);
+    this.order = Inputs.order(this.type);
+    int[] keys = Inputs.keys(this.distribution, this.n, this.perturbation,
+                             new Random(42));
+    this.input = Inputs.elements(this.type, keys);
+    this.work = this.input.clone();
+  } // setUp()
+
+  // +------------+--------------------------------------------------
+  // | Benchmarks |
+  // +------------+
+
+  @Benchmark
+  public Object[] sort(PerElement counter) {
+    System.arraycopy(this.input, 0, this.work, 0, this.n);
+    Sorters.sort(this.sort, this.work, this.order);
+    counter.elements += this.n;
+    return this.work;
+  } // sort(PerElement)
+
+  @Benchmark
+  public Object[] sortCounted(Comparisons counter) {
+    System.arraycopy(this.input, 0, this.work, 0, this.n);
+    Comparator<Object> base = this.order;
+    long[] count = new long[1];
+    Sorters.sort(this.sort, this.work, (x, y) -> {
+      count[0]++;
+      return base.compare(x, y);
+    });
+    counter.comparisons += count[0];
+    counter.elements += this.n;
+    return this.work;
+  } // sortCounted(Comparisons)
+
+  @Benchmark
+  public Object[] copyOnly() {
+    System.arraycopy(this.input, 0, this.work, 0, this.n);
+    return this.work;
+  } // copyOnly()
+} // class SortBenchmarks
@@ -0,0 +1,106 @@
+package bench;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Comparator;
+
+/**
+ * Look up the sorters of ../src by name.  They live in the unnamed
+ * package, which JMH benchmarks cannot import from, so they are reached
+ * through a method handle on Sorter.sort instead.
+ *
+ * @author Wenfei Lin
+ */
+public class Sorters {
+
+  // +-----------+---------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  // The type of Sorter.sort after erasure
+  private static final MethodType SORT_TYPE =
+      MethodType.methodType(void.class, Object[].class, Comparator.class);
+
+  // +-------------+-------------------------------------------------
+  // | Constructor |
+  // +-------------+
+
+  private Sorters() {
+  } // Sorters()
+
+  // +---------+-----------------------------------------------------
+  // | Methods |
+  // +---------+
+
+  /**
+   * Find a sorter by name: either a class name, for its SORTER field, or
+   * "Class.FIELD" for another static field (e.g., "Quicksort.INTROSORT").
+   *
+   * @param name The name of the sorter.
+   * @return A handle that sorts (Object[], Comparator) with that sorter.
+   * @throws IllegalArgumentException If there is no such sorter.
+   */
+  public static MethodHandle lookup(String name) {
+    int dot = name.indexOf('.');
+    String className = (dot < 0) ? name : name.substring(0, dot);
+    String fieldName = (dot < 0) ? "SORTER" : name.substring(dot + 1);
+
+    try {
+      Class<?> sorterInterface = Class.forName("Sorter");
+      Object sorter = Class.forName(className).getField(fieldName).get(null);
+      return MethodHandles.publicLookup()
+          .findVirtual(sorterInterface, "sort", SORT_TYPE)
+          .bindTo(sorter);
+    } catch (ReflectiveOperationException e) {
+      throw new IllegalArgumentException("No such sorter: " + name, e);
+    } // try/catch
+  } // lookup(String)
+
+  /**
+   * Find a sorter by name, as lookup does, for a method that sorts one
+   * kind of array without a comparator (e.g., RadixSort's sort(int[])).
+   *
+   * @param name The name of the sorter.
+   * @param arrayType The type of array sorted.
+   * @return A handle that sorts (Object) with that sorter.
+   * @throws IllegalArgumentException If there is no such sorter or it
+   *         cannot sort that type.
+   */
+  public static MethodHandle lookup(String name, Class<?> arrayType) {
+    int dot = name.indexOf('.');
+    String className = (dot < 0) ? name : name.substring(0, dot);
+    String fieldName = (dot < 0) ? "SORTER" : name.substring(dot + 1);
+
+    try {
+      Object sorter = Class.forName(className).getField(fieldName).get(null);
+      return MethodHandles.publicLookup()
+          .findVirtual(sorter.getClass(), "sort",
+                       MethodType.methodType(void.class, arrayType))
+          .bindTo(sorter)
+          .asType(MethodType.methodType(void.class, Object.class));
+    } catch (ReflectiveOperationException e) {
+      throw new IllegalArgumentException("No " + arrayType.getSimpleName()
+          + " sorter: " + name, e);
+    } // try/catch
+  } // lookup(String, Class<?>)
+
+  /**
+   * Sort values with a handle from lookup.
+   *
+   * @param sort The handle.
+   * @param values The array to sort.
+   * @param order The comparator to sort by.
+   */
+  @SuppressWarnings({ "rawtypes" })
+  public static void sort(MethodHandle sort, Object[] values,
+                          Comparator order) {
+    try {
+      sort.invokeExact(values, order);
+    } catch (RuntimeException | Error e) {
+      throw e;
+    } catch (Throwable e) {
+      throw new IllegalStateException(e);
+    } // try/catch
+  } // sort(MethodHandle, Object[], Comparator)
+} // class Sorters
@@ -0,0 +1,384 @@
+import java.util.Comparator;
+import java.util.Random;
+
+/**
+ * A Sorter that looks at a small sample of its input and hands it to
+ * whichever of the other sorters should do best: InsertionSort for tiny
+ * arrays, LinWenfeiSort for presorted data or when stability is needed,
+ * three-way Quicksort when there are many duplicates, dual-pivot
+ * Quicksort otherwise, and ParallelLinWenfeiSort for large arrays.
+ *
+ * Each decision is reported to a MetricsSink.  The thresholds can be
+ * tuned for the current machine with calibrate().
+ *
+ * @author Wenfei Lin
+ */
+public class AdaptiveSorter implements Sorter {
+
+  // +-----------+---------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  // How many elements or pairs of elements each estimate looks at
+  static final int SAMPLE_SIZE = 64;
+
+  // +--------+------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /**
+   * The one sorter you can access (which need not be stable).
+   */
+  public static Sorter SORTER =
+      new AdaptiveSorter(false, Thresholds.DEFAULT, MetricsSink.NONE);
+
+  /**
+   * An adaptive sorter that only picks stable sorters.
+   */
+  public static Sorter STABLE =
+      new AdaptiveSorter(true, Thresholds.DEFAULT, MetricsSink.NONE);
+
+  /**
+   * Whether equal elements must keep their order.
+   */
+  private final boolean stable;
+
+  /**
+   * Where the sorter is switched.
+   */
+  private final Thresholds thresholds;
+
+  /**
+   * Where decisions are reported.
+   */
+  private final MetricsSink sink;
+
+  // +--------------+------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  /**
+   * Create an adaptive sorter.
+   *
+   * @param stable Whether equal elements must keep their order.
+   * @param thresholds Where to switch sorters.
+   * @param sink Where to report each decision.
+   */
+  public AdaptiveSorter(boolean stable, Thresholds thresholds,
+                        MetricsSink sink) {
+    this.stable = stable;
+    this.thresholds = thresholds;
+    this.sink = sink;
+  } // AdaptiveSorter(boolean, Thresholds, MetricsSink)
+
+  // +---------+-----------------------------------------------------
+  // | Methods |
+  // +---------+
+
+  /**
+   * Sort with the sorter that the sample suggests.
+   *
+   * @param values The array being sorted.
+   * @param order The comparator that determines the order.
+   * @post The array will be sorted according to the comparator, and the
+   *       decision has been reported.
+   */
+  @Override
+  public <T> void sort(T[] values, Comparator<? super T> order) {
+    Profile profile = Profile.of(values, order);
+    Decision decision = choose(profile, this.stable, this.thresholds);
+    this.sink.decision(decision);
+    decision.sorter.sort(values, order);
+  } // sort(T[], Comparator<? super T>)
+
+  /**
+   * Pick a sorter for an input with the given profile.
+   *
+   * @param profile What the sample showed.
+   * @param stable Whether the sorter must be stable.
+   * @param thresholds Where to switch sorters.
+   * @return The sorter and why it was chosen.
+   */
+  static Decision choose(Profile profile, boolean stable,
+                         Thresholds thresholds) {
+    boolean parallel = profile.length >= thresholds.parallelMin
+        && Runtime.getRuntime().availableProcessors() > 1;
+
+    if (profile.length <= thresholds.insertionMax) {
+      return new Decision(profile, "InsertionSort", InsertionSort.SORTER,
+          "tiny input");
+    } else if (profile.descentRatio <= thresholds.presortedDescents
+        || (profile.descentRatio >= 1 - thresholds.presortedDescents
+            && profile.inversionRatio >= 1 - thresholds.presortedDescents)) {
+      return new Decision(profile, "LinWenfeiSort", LinWenfeiSort.SORTER,
+          "long runs");
+    } else if (parallel) {
+      return new Decision(profile, "ParallelLinWenfeiSort",
+          ParallelLinWenfeiSort.SORTER, "large input");
+    } else if (stable) {
+      return new Decision(profile, "LinWenfeiSort", LinWenfeiSort.SORTER,
+          "stability requested");
+    } else if (profile.duplicateRatio >= thresholds.duplicates) {
+      return new Decision(profile, "Quicksort.THREE_WAY",
+          Quicksort.THREE_WAY, "many duplicates");
+    } else {
+      return new Decision(profile, "Quicksort.DUAL_PIVOT",
+          Quicksort.DUAL_PIVOT, "no exploitable structure");
+    } // if/else
+  } // choose(Profile, boolean, Thresholds)
+
+  /**
+   * Measure where the thresholds should be on this machine by timing the
+   * candidate sorters on synthetic inputs.  Takes a few seconds.
+   *
+   * @param maxLength The largest array to time (at least 1024), which
+   *                  bounds parallelMin.
+   * @return Thresholds tuned for this machine.
+   */
+  public static Thresholds calibrate(int maxLength) {
+    Random rand = new Random(42);
+    Comparator<Integer> order = Integer::compare;
+    Thresholds base = Thresholds.DEFAULT;
+
+    // The largest size at which insertion sort still wins
+    int insertionMax = 1;
+    for (int n = 4; n <= 256; n *= 2) {
+      Integer[] input = randomInts(n, Integer.MAX_VALUE, rand);
+      if (time(InsertionSort.SORTER, input, order, 20_000 / n)
+          > time(LinWenfeiSort.SORTER, input, order, 20_000 / n)) {
+        break;
+      } // if
+      insertionMax = n;
+    } // for
+
+    // The duplicate ratio at which three-way partitioning stops winning
+    int n = Math.min(maxLength, 1 << 16);
+    double duplicates = 1.0;
+    for (int distinct = 2; distinct <= n; distinct *= 4) {
+      Integer[] input = randomInts(n, distinct, rand);
+      if (time(Quicksort.THREE_WAY, input, order, 5)
+          > time(Quicksort.DUAL_PIVOT, input, order, 5)) {
+        break;
+      } // if
+      // A sample with no duplicates says nothing about where to switch
+      double ratio = Profile.of(input, order).duplicateRatio;
+      if (ratio > 0) {
+        duplicates = ratio;
+      } // if
+    } // for
+
+    // The smallest size at which the parallel sort wins
+    int parallelMin = Integer.MAX_VALUE;
+    for (int len = 1 << 10; len <= maxLength; len *= 4) {
+      Integer[] input = randomInts(len, Integer.MAX_VALUE, rand);
+      int reps = Math.max(3, (1 << 20) / len);
+      if (time(ParallelLinWenfeiSort.SORTER, input, order, reps)
+          < time(LinWenfeiSort.SORTER, input, order, reps)) {
+        parallelMin = len;
+        break;
+      } // if
+    } // for
+
+    return new Thresholds(insertionMax, base.presortedDescents, duplicates,
+                          parallelMin);
+  } // calibrate(int)
+
+  /**
+   * Time the best of reps sorts of copies of input, after as many
+   * warm-up sorts.
+   */
+  private static long time(Sorter sorter, Integer[] input,
+                           Comparator<Integer> order, int reps) {
+    long best = Long.MAX_VALUE;
+    for (int r = 0; r < 2 * Math.max(1, reps); r++) {
+      Integer[] vals = input.clone();
+      long start = System.nanoTime();
+      sorter.sort(vals, order);
+      best = Math.min(best, System.nanoTime() - start);
+    } // for
+    return best;
+  } // time(Sorter, Integer[], Comparator<Integer>, int)
+
+  /**
+   * Make n random Integers drawn from [0, bound).
+   */
+  private static Integer[] randomInts(int n, int bound, Random rand) {
+    Integer[] vals = new Integer[n];
+    for (int i = 0; i < n; i++) {
+      vals[i] = rand.nextInt(bound);
+    } // for
+    return vals;
+  } // randomInts(int, int, Random)
+
+  // +---------------+-----------------------------------------------
+  // | Inner Classes |
+  // +---------------+
+
+  /**
+   * Where an AdaptiveSorter switches from one sorter to another.
+   */
+  public static class Thresholds {
+    /**
+     * Defaults measured on a typical x86 machine.
+     */
+    public static final Thresholds DEFAULT =
+        new Thresholds(16, 0.05, 0.25, 1 << 16);
+
+    /**
+     * Arrays of at most this many elements are insertion sorted.
+     */
+    public final int insertionMax;
+
+    /**
+     * Inputs whose sampled neighbours are out of order at most this
+     * often count as presorted, and those whose neighbours and distant
+     * pairs are both out of order at least 1 minus this often count as
+     * reversed.
+     */
+    public final double presortedDescents;
+
+    /**
+     * Inputs whose sample is at least this fraction duplicates use
+     * three-way partitioning.
+     */
+    public final double duplicates;
+
+    /**
+     * Arrays of at least this many elements are sorted in parallel.
+     */
+    public final int parallelMin;
+
+    public Thresholds(int insertionMax, double presortedDescents,
+                      double duplicates, int parallelMin) {
+      this.insertionMax = insertionMax;
+      this.presortedDescents = presortedDescents;
+      this.duplicates = duplicates;
+      this.parallelMin = parallelMin;
+    } // Thresholds(int, double, double, int)
+
+    @Override
+    public String toString() {
+      return "insertionMax=" + this.insertionMax
+          + " presortedDescents=" + this.presortedDescents
+          + " duplicates=" + this.duplicates
+          + " parallelMin=" + this.parallelMin;
+    } // toString()
+  } // class Thresholds
+
+  /**
+   * What a sample of an input shows about it.
+   */
+  public static class Profile {
+    /**
+     * The number of elements.
+     */
+    public final int length;
+
+    /**
+     * The fraction of sampled neighbours that are out of order, which
+     * estimates runs per element.
+     */
+    public final double descentRatio;
+
+    /**
+     * The fraction of sampled pairs that are out of order, which
+     * estimates inversions per pair.
+     */
+    public final double inversionRatio;
+
+    /**
+     * The fraction of sampled elements equal to another sampled element.
+     */
+    public final double duplicateRatio;
+
+    Profile(int length, double descentRatio, double inversionRatio,
+            double duplicateRatio) {
+      this.length = length;
+      this.descentRatio = descentRatio;
+      this.inversionRatio = inversionRatio;
+      this.duplicateRatio = duplicateRatio;
+    } // Profile(int, double, double, double)
+
+    /**
+     * Sample an array.  Uses O(SAMPLE_SIZE log SAMPLE_SIZE) comparisons
+     * and does not change the array.
+     *
+     * @param values The array to sample.
+     * @param order The comparator it will be sorted by.
+     * @return The profile of the array.
+     */
+    @SuppressWarnings("unchecked")
+    static <T> Profile of(T[] values, Comparator<? super T> order) {
+      int n = values.length;
+      if (n < 2) {
+        return new Profile(n, 0, 0, 0);
+      } // if
+
+      // Neighbours at evenly spaced positions
+      int pairs = Math.min(SAMPLE_SIZE, n - 1);
+      int descents = 0;
+      for (int s = 0; s < pairs; s++) {
+        int i = (int) ((long) s * (n - 1) / pairs);
+        if (order.compare(values[i], values[i + 1]) > 0) {
+          descents++;
+        } // if
+      } // for
+
+      // Pairs half the array apart, and the elements at their left ends
+      int half = n / 2;
+      int samples = Math.min(SAMPLE_SIZE, half);
+      T[] sample = (T[]) new Object[samples];
+      int inversions = 0;
+      for (int s = 0; s < samples; s++) {
+        int i = (int) ((long) s * half / samples);
+        sample[s] = values[i];
+        if (order.compare(values[i], values[i + half]) > 0) {
+          inversions++;
+        } // if
+      } // for
+
+      // Duplicates show up next to each other once the sample is sorted
+      LinWenfeiSort.insertionSort(sample, order, 0, samples - 1);
+      int duplicates = 0;
+      for (int s = 1; s < samples; s++) {
+        if (order.compare(sample[s - 1], sample[s]) == 0) {
+          duplicates++;
+        } // if
+      } // for
+
+      return new Profile(n, (double) descents / pairs,
+                         (double) inversions / samples,
+                         (double) duplicates / samples);
+    } // of(T[], Comparator<? super T>)
+
+    @Override
+    public String toString() {
+      return "n=" + this.length
+          + " descents=" + this.descentRatio
+          + " inversions=" + this.inversionRatio
+          + " duplicates=" + this.duplicateRatio;
+    } // toString()
+  } // class Profile
+
+  /**
+   * The sorter an AdaptiveSorter picked, and why.
+   */
+  public static class Decision {
+    public final Profile profile;
+    public final String name;
+    public final Sorter sorter;
+    public final String reason;
+
+    Decision(Profile profile, String name, Sorter sorter, String reason) {
+      this.profile = profile;
+      this.name = name;
+      this.sorter = sorter;
+      this.reason = reason;
+    } // Decision(Profile, String, Sorter, String)
+
+    @Override
+    public String toString() {
+      return this.name + " (" + this.reason + "; " + this.profile + ")";
+    } // toString()
+  } // class Decision
+} // class AdaptiveSorter
@@ -0,0 +1,96 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of AdaptiveSorter.
+ */
+public class AdaptiveSorterTester extends SortTester {
+
+  // +--------------+------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  public AdaptiveSorterTester() {
+    super();
+    this.sorter = AdaptiveSorter.SORTER;
+  } // AdaptiveSorterTester()
+
+  // +-------+-------------------------------------------------------
+  // | Tests |
+  // +-------+
+
+  @Test
+  public void decisionsTest() {
+    // Parallel sorting is switched off so the choices do not depend on
+    // the machine
+    AdaptiveSorter.Thresholds thresholds =
+        new AdaptiveSorter.Thresholds(16, 0.05, 0.25, Integer.MAX_VALUE);
+    List<AdaptiveSorter.Decision> decisions = new ArrayList<>();
+    MetricsSink sink = new MetricsSink() {
+      @Override
+      public void record(SortMetrics metrics) {
+      } // record(SortMetrics)
+
+      @Override
+      public void decision(AdaptiveSorter.Decision decision) {
+        decisions.add(decision);
+      } // decision(AdaptiveSorter.Decision)
+    };
+    Sorter adaptive = new AdaptiveSorter(false, thresholds, sink);
+    Random rand = new Random(5);
+    int n = 10_000;
+
+    Integer[] sorted = new Integer[n];
+    Arrays.setAll(sorted, (i) -> i);
+    Integer[] reversed = new Integer[n];
+    Arrays.setAll(reversed, (i) -> n - i);
+    Integer[] fewUnique = new Integer[n];
+    Arrays.setAll(fewUnique, (i) -> rand.nextInt(4));
+    Integer[] random = new Integer[n];
+    Arrays.setAll(random, (i) -> rand.nextInt());
+
+    for (Integer[] vals : List.of(new Integer[] { 3, 1, 2 }, sorted, reversed,
+                                  fewUnique, random)) {
+      Integer[] expected = vals.clone();
+      Arrays.sort(expected);
+      adaptive.sort(vals, Integer::compare);
+      assertArrayEquals(expected, vals);
+    } // for
+
+    assertEquals("InsertionSort", decisions.get(0).name);
+    assertEquals("LinWenfeiSort", decisions.get(1).name);
+    assertEquals("LinWenfeiSort", decisions.get(2).name);
+    assertEquals("Quicksort.THREE_WAY", decisions.get(3).name);
+    assertEquals("Quicksort.DUAL_PIVOT", decisions.get(4).name);
+  } // decisionsTest
+
+  @Test
+  public void stableTest() {
+    Random rand = new Random(6);
+    Integer[][] original = new Integer[20_000][];
+    for (int i = 0; i < original.length; i++) {
+      original[i] = new Integer[] { rand.nextInt(10), i };
+    } // for
+    Comparator<Integer[]> byKey = (x, y) -> x[0].compareTo(y[0]);
+    Integer[][] expected = original.clone();
+    Arrays.sort(expected, byKey);
+    AdaptiveSorter.STABLE.sort(original, byKey);
+    assertArrayEquals(expected, original);
+  } // stableTest
+
+  @Test
+  public void calibrateTest() {
+    AdaptiveSorter.Thresholds thresholds = AdaptiveSorter.calibrate(1 << 12);
+    assertTrue(thresholds.insertionMax >= 1
+        && thresholds.insertionMax <= 256);
+    assertTrue(thresholds.duplicates > 0 && thresholds.duplicates <= 1);
+    assertTrue(thresholds.parallelMin >= 1 << 10);
+  } // calibrateTest
+} // class AdaptiveSorterTester
@@ -0,0 +1,328 @@
+import java.util.Comparator;
+
+/**
+ * Compute the sorted permutation of an array (the indices of its elements
+ * in sorted order) without moving the elements, and apply a permutation
+ * to any number of parallel arrays in place.
+ *
+ * Indices are sorted as an int[] by a port of MergeSort, so nothing is
+ * boxed, and equal elements keep their original order.  Int keys are
+ * packed with their index into longs and radix sorted instead.
+ *
+ * @author Wenfei Lin
+ */
+public class Argsort {
+
+  // +-----------+---------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  // Runs of indices this short are insertion sorted
+  static final int INSERTION_THRESHOLD = 32;
+
+  // +--------------+------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  private Argsort() {
+  } // Argsort()
+
+  // +---------+-----------------------------------------------------
+  // | Methods |
+  // +---------+
+
+  /**
+   * Find the order of the elements of values.
+   *
+   * @param values The array (not modified).
+   * @param order The comparator that determines the order.
+   * @return perm such that values[perm[0]], values[perm[1]], ... is sorted,
+   *         with equal elements in order of index.
+   */
+  public static <T> int[] argsort(T[] values, Comparator<? super T> order) {
+    return sortIndices(values.length,
+        (i, j) -> order.compare(values[i], values[j]));
+  } // argsort(T[], Comparator<? super T>)
+
+  /**
+   * Find the ascending order of the elements of keys.
+   *
+   * @param keys The array (not modified).
+   * @return perm such that keys[perm[0]] <= keys[perm[1]] <= ..., with
+   *         equal keys in order of index.
+   */
+  public static int[] argsort(int[] keys) {
+    // The key above the index orders by key, then by index
+    int n = keys.length;
+    long[] packed = new long[n];
+    for (int i = 0; i < n; i++) {
+      packed[i] = ((long) keys[i] << 32) | i;
+    } // for
+    RadixSort.SORTER.sort(packed);
+
+    int[] perm = new int[n];
+    for (int i = 0; i < n; i++) {
+      perm[i] = (int) packed[i];
+    } // for
+    return perm;
+  } // argsort(int[])
+
+  /**
+   * Find the ascending order of the elements of keys.
+   *
+   * @param keys The array (not modified).
+   * @return perm such that keys[perm[0]] <= keys[perm[1]] <= ..., with
+   *         equal keys in order of index.
+   */
+  public static int[] argsort(long[] keys) {
+    return sortIndices(keys.length, (i, j) -> Long.compare(keys[i], keys[j]));
+  } // argsort(long[])
+
+  /**
+   * Find the order of the elements of keys, as Double.compare orders them.
+   *
+   * @param keys The array (not modified).
+   * @return perm such that keys[perm[0]], keys[perm[1]], ... is sorted,
+   *         with equal keys in order of index.
+   */
+  public static int[] argsort(double[] keys) {
+    return sortIndices(keys.length,
+        (i, j) -> Double.compare(keys[i], keys[j]));
+  } // argsort(double[])
+
+  /**
+   * Rearrange arrays in place so that each column[k] becomes the old
+   * column[perm[k]], following the cycles of perm so that each array needs
+   * only one element of extra space.
+   *
+   * @param perm The permutation, as argsort returns it.
+   * @param columns Arrays of objects, ints, longs or doubles, each as long
+   *                as perm.
+   * @pre perm holds each of 0 .. perm.length - 1 once.
+   * @post perm is unchanged.
+   */
+  public static void apply(int[] perm, Object... columns) {
+    int n = perm.length;
+    Column[] cols = new Column[columns.length];
+    for (int c = 0; c < columns.length; c++) {
+      cols[c] = Column.of(columns[c]);
+      if (cols[c].length() != n) {
+        throw new IllegalArgumentException("column " + c + " has length "
+            + cols[c].length() + " but the permutation has " + n);
+      } // if
+    } // for
+
+    // Visited entries of perm are complemented, then restored at the end
+    for (int start = 0; start < n; start++) {
+      if (perm[start] < 0 || perm[start] == start) {
+        continue;
+      } // if
+      for (Column col : cols) {
+        col.save(start);
+      } // for
+      int j = start;
+      int next = perm[j];
+      while (next != start) {
+        for (Column col : cols) {
+          col.move(next, j);
+        } // for
+        perm[j] = ~next;
+        j = next;
+        next = perm[j];
+      } // while
+      for (Column col : cols) {
+        col.restore(j);
+      } // for
+      perm[j] = ~next;
+    } // for
+
+    for (int i = 0; i < n; i++) {
+      if (perm[i] < 0) {
+        perm[i] = ~perm[i];
+      } // if
+    } // for
+  } // apply(int[], Object...)
+
+  /**
+   * Stably merge sort the indices 0 .. n - 1 by order.
+   *
+   * @param n The number of indices.
+   * @param order Compares two indices.
+   * @return The sorted indices.
+   */
+  static int[] sortIndices(int n, IndexOrder order) {
+    int[] perm = new int[n];
+    for (int i = 0; i < n; i++) {
+      perm[i] = i;
+    } // for
+    sortIndices(perm, order, 0, n, new int[n / 2]);
+    return perm;
+  } // sortIndices(int, IndexOrder)
+
+  /**
+   * Sort perm[lo..hi) as MergeSort.mergeSort does, insertion sorting short
+   * ranges and skipping merges of halves that are already in order.
+   */
+  private static void sortIndices(int[] perm, IndexOrder order, int lo,
+      int hi, int[] scratch) {
+    if (hi - lo <= INSERTION_THRESHOLD) {
+      for (int i = lo + 1; i < hi; i++) {
+        int idx = perm[i];
+        int j = i;
+        while (j > lo && order.compare(perm[j - 1], idx) > 0) {
+          perm[j] = perm[j - 1];
+          j--;
+        } // while
+        perm[j] = idx;
+      } // for
+      return;
+    } // if
+
+    int mid = lo + (hi - lo) / 2;
+    sortIndices(perm, order, lo, mid, scratch);
+    sortIndices(perm, order, mid, hi, scratch);
+    if (order.compare(perm[mid - 1], perm[mid]) <= 0) {
+      return;
+    } // if
+
+    // Copy out the left half and merge over it, as MergeSort.merge does
+    int leftSize = mid - lo;
+    System.arraycopy(perm, lo, scratch, 0, leftSize);
+    int left = 0;
+    int right = mid;
+    int dest = lo;
+    while (left != leftSize && right != hi) {
+      if (order.compare(scratch[left], perm[right]) <= 0) {
+        perm[dest++] = scratch[left++];
+      } else {
+        perm[dest++] = perm[right++];
+      } // if/else
+    } // while
+    System.arraycopy(scratch, left, perm, dest, leftSize - left);
+  } // sortIndices(int[], IndexOrder, int, int, int[])
+
+  // +---------------+-----------------------------------------------
+  // | Inner Classes |
+  // +---------------+
+
+  /**
+   * A comparison of the elements at two indices.
+   */
+  interface IndexOrder {
+    int compare(int i, int j);
+  } // interface IndexOrder
+
+  /**
+   * One array being permuted, with room for the single element that is
+   * saved while its cycle is followed.
+   */
+  abstract static class Column {
+    abstract int length();
+
+    /**
+     * Remember the element at i.
+     */
+    abstract void save(int i);
+
+    /**
+     * Copy the element at from to to.
+     */
+    abstract void move(int from, int to);
+
+    /**
+     * Put the remembered element at i.
+     */
+    abstract void restore(int i);
+
+    static Column of(Object array) {
+      if (array instanceof Object[]) {
+        Object[] a = (Object[]) array;
+        return new Column() {
+          Object saved;
+
+          int length() {
+            return a.length;
+          } // length()
+
+          void save(int i) {
+            this.saved = a[i];
+          } // save(int)
+
+          void move(int from, int to) {
+            a[to] = a[from];
+          } // move(int, int)
+
+          void restore(int i) {
+            a[i] = this.saved;
+            this.saved = null;
+          } // restore(int)
+        };
+      } else if (array instanceof int[]) {
+        int[] a = (int[]) array;
+        return new Column() {
+          int saved;
+
+          int length() {
+            return a.length;
+          } // length()
+
+          void save(int i) {
+            this.saved = a[i];
+          } // save(int)
+
+          void move(int from, int to) {
+            a[to] = a[from];
+          } // move(int, int)
+
+          void restore(int i) {
+            a[i] = this.saved;
+          } // restore(int)
+        };
+      } else if (array instanceof long[]) {
+        long[] a = (long[]) array;
+        return new Column() {
+          long saved;
+
+          int length() {
+            return a.length;
+          } // length()
+
+          void save(int i) {
+            this.saved = a[i];
+          } // save(int)
+
+          void move(int from, int to) {
+            a[to] = a[from];
+          } // move(int, int)
+
+          void restore(int i) {
+            a[i] = this.saved;
+          } // restore(int)
+        };
+      } else if (array instanceof double[]) {
+        double[] a = (double[]) array;
+        return new Column() {
+          double saved;
+
+          int length() {
+            return a.length;
+          } // length()
+
+          void save(int i) {
+            this.saved = a[i];
+          } // save(int)
+
+          void move(int from, int to) {
+            a[to] = a[from];
+          } // move(int, int)
+
+          void restore(int i) {
+            a[i] = this.saved;
+          } // restore(int)
+        };
+      } // if/else
+      throw new IllegalArgumentException("cannot permute "
+          + ((array == null) ? "null" : array.getClass().getSimpleName()));
+    } // of(Object)
+  } // class Column
+} // class Argsort
@@ -0,0 +1,125 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of Argsort.
+ *
+ * @author Wenfei Lin
+ */
+public class ArgsortTester {
+
+  // +-----------+---------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  static final int[] SIZES = { 0, 1, 2, 31, 32, 33, 1000, 10_000 };
+
+  // +-------+-------------------------------------------------------
+  // | Tests |
+  // +-------+
+
+  @Test
+  public void objectsTest() {
+    Random rand = new Random(43);
+    for (int n : SIZES) {
+      String[] vals = new String[n];
+      for (int i = 0; i < n; i++) {
+        vals[i] = Integer.toString(rand.nextInt(100));
+      } // for
+      String[] copy = vals.clone();
+      int[] perm = Argsort.argsort(vals, Comparator.naturalOrder());
+      assertArrayEquals(copy, vals);
+      assertArrayEquals(expected(n, (i, j) -> vals[i].compareTo(vals[j])),
+          perm);
+    } // for
+  } // objectsTest
+
+  @Test
+  public void intsTest() {
+    Random rand = new Random(47);
+    for (int n : SIZES) {
+      int[] keys = rand.ints(n, -50, 50).toArray();
+      if (n > 0) {
+        keys[n / 2] = Integer.MIN_VALUE;
+      } // if
+      assertArrayEquals(
+          expected(n, (i, j) -> Integer.compare(keys[i], keys[j])),
+          Argsort.argsort(keys));
+    } // for
+  } // intsTest
+
+  @Test
+  public void longsTest() {
+    Random rand = new Random(53);
+    for (int n : SIZES) {
+      long[] keys = rand.longs(n, -5, 5).toArray();
+      assertArrayEquals(
+          expected(n, (i, j) -> Long.compare(keys[i], keys[j])),
+          Argsort.argsort(keys));
+    } // for
+  } // longsTest
+
+  @Test
+  public void doublesTest() {
+    double[] keys = { 1.5, Double.NaN, -0.0, 0.0, -1.0, Double.NaN,
+                      Double.NEGATIVE_INFINITY, 0.0, -0.0 };
+    assertArrayEquals(new int[] { 6, 4, 2, 8, 3, 7, 0, 1, 5 },
+        Argsort.argsort(keys));
+  } // doublesTest
+
+  @Test
+  public void applyTest() {
+    Random rand = new Random(59);
+    for (int n : SIZES) {
+      long[] keys = rand.longs(n, 0, 20).toArray();
+      String[] names = new String[n];
+      double[] weights = new double[n];
+      int[] ids = new int[n];
+      for (int i = 0; i < n; i++) {
+        names[i] = "name" + i;
+        weights[i] = i / 2.0;
+        ids[i] = i;
+      } // for
+
+      int[] perm = Argsort.argsort(keys);
+      int[] copy = perm.clone();
+      Argsort.apply(perm, keys, names, weights, ids);
+
+      assertArrayEquals(copy, perm);
+      assertArrayEquals(copy, ids);
+      for (int k = 0; k < n; k++) {
+        assertArrayEquals(new Object[] { "name" + copy[k], copy[k] / 2.0 },
+            new Object[] { names[k], weights[k] });
+      } // for
+      long[] sorted = keys.clone();
+      Arrays.sort(sorted);
+      assertArrayEquals(sorted, keys);
+    } // for
+  } // applyTest
+
+  @Test
+  public void applyBadColumnTest() {
+    assertThrows(IllegalArgumentException.class,
+        () -> Argsort.apply(new int[] { 1, 0 }, new int[3]));
+    assertThrows(IllegalArgumentException.class,
+        () -> Argsort.apply(new int[] { 1, 0 }, new char[2]));
+  } // applyBadColumnTest
+
+  // +---------+-----------------------------------------------------
+  // | Helpers |
+  // +---------+
+
+  /**
+   * Stably sort boxed indices by order.
+   */
+  static int[] expected(int n, Argsort.IndexOrder order) {
+    Integer[] idx = IntStream.range(0, n).boxed().toArray(Integer[]::new);
+    MergeSort.SORTER.sort(idx, order::compare);
+    return Arrays.stream(idx).mapToInt(Integer::intValue).toArray();
+  } // expected(int, Argsort.IndexOrder)
+} // class ArgsortTester
@@ -0,0 +1,419 @@
+import java.util.Arrays;
+
+/**
+ * Sort arrays of ints, longs and doubles with a quicksort whose inner
+ * loops have no data-dependent branches, so that the JIT can compile them
+ * to conditional moves and min/max instructions instead of mispredicted
+ * jumps:
+ *
+ *   - partitioning is a branchless Lomuto scheme: every element is
+ *     swapped into place and the boundary advances by the result of its
+ *     comparison, the scalar counterpart of a compress-store;
+ *   - subarrays of up to BASE_SIZE elements are cut into blocks of
+ *     NETWORK_SIZE, each sorted by a fixed Batcher odd-even merge network
+ *     of min/max pairs, and the blocks are combined by branchless merges.
+ *
+ * As in pattern-defeating quicksort, a pivot equal to the element just
+ * before the subarray (the pivot of an enclosing partition) means every
+ * element no greater than it is equal to it, so they are set aside in one
+ * pass; runs of duplicates therefore cost linear time.  Partitions that
+ * recurse too deeply fall back to PrimitiveLinWenfeiSort.
+ *
+ * Doubles are mapped to longs whose order is Double.compare's and sorted
+ * as longs.
+ *
+ * @author Wenfei Lin
+ */
+public class BranchlessQuicksort implements IntSorter, LongSorter,
+    DoubleSorter {
+
+  // +-----------+---------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  // The width of the sorting network
+  static final int NETWORK_SIZE = 16;
+
+  // Subarrays this small are sorted by networks and merges
+  static final int BASE_SIZE = 64;
+
+  // The comparators of the network, as pairs of positions, in order
+  static final int[] NETWORK = oddEvenMergeNetwork(NETWORK_SIZE);
+
+  // +--------+------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /**
+   * The one sorter you can access.
+   */
+  public static BranchlessQuicksort SORTER = new BranchlessQuicksort();
+
+  // +--------------+------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  /**
+   * Create a sorter.
+   */
+  BranchlessQuicksort() {
+  } // BranchlessQuicksort()
+
+  // +---------+-----------------------------------------------------
+  // | Methods |
+  // +---------+
+
+  @Override
+  public void sort(int[] values) {
+    quickSort(values, 0, values.length, depthLimit(values.length), true,
+        new int[BASE_SIZE]);
+  } // sort(int[])
+
+  @Override
+  public void sort(long[] values) {
+    quickSort(values, 0, values.length, depthLimit(values.length), true,
+        new long[BASE_SIZE]);
+  } // sort(long[])
+
+  @Override
+  public void sort(double[] values) {
+    // Negative numbers have every bit but the sign flipped, so that the
+    // signed order of the longs is Double.compare's
+    int n = values.length;
+    long[] keys = new long[n];
+    for (int i = 0; i < n; i++) {
+      long bits = Double.doubleToLongBits(values[i]);
+      keys[i] = bits ^ ((bits >> 63) & Long.MAX_VALUE);
+    } // for
+    sort(keys);
+    for (int i = 0; i < n; i++) {
+      long key = keys[i];
+      values[i] = Double.longBitsToDouble(key ^ ((key >> 63) & Long.MAX_VALUE));
+    } // for
+  } // sort(double[])
+
+  /**
+   * Find how many levels of partitioning to allow before giving up on
+   * quicksort: twice the log of the length.
+   */
+  static int depthLimit(int n) {
+    return 2 * (31 - Integer.numberOfLeadingZeros(Math.max(1, n)));
+  } // depthLimit(int)
+
+  /**
+   * Build Batcher's odd-even merge sort network for n inputs.
+   *
+   * @param n The number of inputs, a power of two.
+   * @return The comparators, as consecutive pairs (lower, upper).
+   */
+  static int[] oddEvenMergeNetwork(int n) {
+    int[] pairs = new int[n * n];
+    int count = 0;
+    for (int p = 1; p < n; p <<= 1) {
+      for (int k = p; k >= 1; k >>= 1) {
+        for (int j = k % p; j + k < n; j += 2 * k) {
+          for (int i = 0; i < k && i + j + k < n; i++) {
+            if ((i + j) / (2 * p) == (i + j + k) / (2 * p)) {
+              pairs[count++] = i + j;
+              pairs[count++] = i + j + k;
+            } // if
+          } // for
+        } // for
+      } // for
+    } // for
+    return Arrays.copyOf(pairs, count);
+  } // oddEvenMergeNetwork(int)
+
+  // +------+--------------------------------------------------------
+  // | ints |
+  // +------+
+
+  /**
+   * Sort values[lo..hi).
+   *
+   * @param values The array being sorted.
+   * @param lo The lower bound (inclusive) of the subarray.
+   * @param hi The upper bound (exclusive) of the subarray.
+   * @param depth The levels of partitioning left before falling back.
+   * @param leftmost Whether nothing precedes the subarray; otherwise
+   *                 values[lo - 1] is no greater than any of it.
+   * @param scratch BASE_SIZE elements of scratch space.
+   * @post values[lo..hi) is sorted.
+   */
+  static void quickSort(int[] values, int lo, int hi, int depth,
+      boolean leftmost, int[] scratch) {
+    while (hi - lo > BASE_SIZE) {
+      if (depth-- == 0) {
+        PrimitiveLinWenfeiSort.timSort(values, lo, hi);
+        return;
+      } // if
+      choosePivot(values, lo, hi);
+
+      // Everything no greater than a repeated pivot equals it
+      if (!leftmost && values[lo - 1] == values[hi - 1]) {
+        lo = partitionLessEqual(values, lo, hi) + 1;
+        continue;
+      } // if
+
+      int p = partitionLess(values, lo, hi);
+      SortProbe.enter();
+      if (p - lo < hi - p) {
+        quickSort(values, lo, p, depth, leftmost, scratch);
+        lo = p + 1;
+        leftmost = false;
+      } else {
+        quickSort(values, p + 1, hi, depth, false, scratch);
+        hi = p;
+      } // if/else
+      SortProbe.exit();
+    } // while
+    baseSort(values, lo, hi, scratch);
+  } // quickSort(int[], int, int, int, boolean, int[])
+
+  /**
+   * Move the median of the first, middle and last elements of
+   * values[lo..hi) to values[hi - 1].
+   */
+  static void choosePivot(int[] values, int lo, int hi) {
+    int mid = lo + (hi - lo) / 2;
+    int a = values[lo];
+    int b = values[mid];
+    int c = values[hi - 1];
+    values[lo] = Math.min(Math.min(a, b), c);
+    values[mid] = Math.max(Math.max(a, b), c);
+    values[hi - 1] = Math.max(Math.min(a, b), Math.min(Math.max(a, b), c));
+  } // choosePivot(int[], int, int)
+
+  /**
+   * Partition values[lo..hi) around the pivot at values[hi - 1] into the
+   * elements less than it, the pivot, and the rest.
+   *
+   * @return The final position of the pivot.
+   */
+  static int partitionLess(int[] values, int lo, int hi) {
+    int pivot = values[hi - 1];
+    int j = lo;
+    for (int i = lo; i < hi - 1; i++) {
+      int x = values[i];
+      values[i] = values[j];
+      values[j] = x;
+      j += (x < pivot) ? 1 : 0;
+    } // for
+    values[hi - 1] = values[j];
+    values[j] = pivot;
+    return j;
+  } // partitionLess(int[], int, int)
+
+  /**
+   * Partition values[lo..hi) around the pivot at values[hi - 1] into the
+   * elements no greater than it, the pivot, and the rest.
+   *
+   * @return The final position of the pivot.
+   */
+  static int partitionLessEqual(int[] values, int lo, int hi) {
+    int pivot = values[hi - 1];
+    int j = lo;
+    for (int i = lo; i < hi - 1; i++) {
+      int x = values[i];
+      values[i] = values[j];
+      values[j] = x;
+      j += (x <= pivot) ? 1 : 0;
+    } // for
+    values[hi - 1] = values[j];
+    values[j] = pivot;
+    return j;
+  } // partitionLessEqual(int[], int, int)
+
+  /**
+   * Sort values[lo..hi), of at most BASE_SIZE elements, by sorting
+   * blocks with the network and merging them.
+   */
+  static void baseSort(int[] values, int lo, int hi, int[] scratch) {
+    for (int start = lo; start < hi; start += NETWORK_SIZE) {
+      int end = Math.min(start + NETWORK_SIZE, hi);
+      // A short block is padded with the largest value
+      System.arraycopy(values, start, scratch, 0, end - start);
+      Arrays.fill(scratch, end - start, NETWORK_SIZE,
+          Integer.MAX_VALUE);
+      for (int c = 0; c < NETWORK.length; c += 2) {
+        int x = scratch[NETWORK[c]];
+        int y = scratch[NETWORK[c + 1]];
+        scratch[NETWORK[c]] = Math.min(x, y);
+        scratch[NETWORK[c + 1]] = Math.max(x, y);
+      } // for
+      System.arraycopy(scratch, 0, values, start, end - start);
+    } // for
+
+    for (int width = NETWORK_SIZE; width < hi - lo; width *= 2) {
+      for (int start = lo; start < hi; start += 2 * width) {
+        int mid = Math.min(start + width, hi);
+        int end = Math.min(start + 2 * width, hi);
+        merge(values, start, mid, end, scratch, start - lo);
+      } // for
+      System.arraycopy(scratch, 0, values, lo, hi - lo);
+    } // for
+  } // baseSort(int[], int, int, int[])
+
+  /**
+   * Merge src[lo..mid) and src[mid..hi) into dst[out..), taking the
+   * next element from whichever side is smaller without branching on
+   * which side it is.
+   */
+  static void merge(int[] src, int lo, int mid, int hi, int[] dst,
+      int out) {
+    int i = lo;
+    int j = mid;
+    while (i < mid && j < hi) {
+      int x = src[i];
+      int y = src[j];
+      int right = (y < x) ? 1 : 0;
+      dst[out++] = (y < x) ? y : x;
+      j += right;
+      i += 1 - right;
+    } // while
+    System.arraycopy(src, i, dst, out, mid - i);
+    System.arraycopy(src, j, dst, out + (mid - i), hi - j);
+  } // merge(int[], int, int, int, int[], int)
+
+  // +-------+-------------------------------------------------------
+  // | longs |
+  // +-------+
+
+  /**
+   * Sort values[lo..hi), as quickSort(int[], ...) does.
+   */
+  static void quickSort(long[] values, int lo, int hi, int depth,
+      boolean leftmost, long[] scratch) {
+    while (hi - lo > BASE_SIZE) {
+      if (depth-- == 0) {
+        PrimitiveLinWenfeiSort.timSort(values, lo, hi);
+        return;
+      } // if
+      choosePivot(values, lo, hi);
+
+      // Everything no greater than a repeated pivot equals it
+      if (!leftmost && values[lo - 1] == values[hi - 1]) {
+        lo = partitionLessEqual(values, lo, hi) + 1;
+        continue;
+      } // if
+
+      int p = partitionLess(values, lo, hi);
+      SortProbe.enter();
+      if (p - lo < hi - p) {
+        quickSort(values, lo, p, depth, leftmost, scratch);
+        lo = p + 1;
+        leftmost = false;
+      } else {
+        quickSort(values, p + 1, hi, depth, false, scratch);
+        hi = p;
+      } // if/else
+      SortProbe.exit();
+    } // while
+    baseSort(values, lo, hi, scratch);
+  } // quickSort(long[], int, int, int, boolean, long[])
+
+  /**
+   * Move the median of the first, middle and last elements of
+   * values[lo..hi) to values[hi - 1].
+   */
+  static void choosePivot(long[] values, int lo, int hi) {
+    int mid = lo + (hi - lo) / 2;
+    long a = values[lo];
+    long b = values[mid];
+    long c = values[hi - 1];
+    values[lo] = Math.min(Math.min(a, b), c);
+    values[mid] = Math.max(Math.max(a, b), c);
+    values[hi - 1] = Math.max(Math.min(a, b), Math.min(Math.max(a, b), c));
+  } // choosePivot(long[], int, int)
+
+  /**
+   * Partition values[lo..hi) around the pivot at values[hi - 1] into the
+   * elements less than it, the pivot, and the rest.
+   *
+   * @return The final position of the pivot.
+   */
+  static int partitionLess(long[] values, int lo, int hi) {
+    long pivot = values[hi - 1];
+    int j = lo;
+    for (int i = lo; i < hi - 1; i++) {
+      long x = values[i];
+      values[i] = values[j];
+      values[j] = x;
+      j += (x < pivot) ? 1 : 0;
+    } // for
+    values[hi - 1] = values[j];
+    values[j] = pivot;
+    return j;
+  } // partitionLess(long[], int, int)
+
+  /**
+   * Partition values[lo..hi) around the pivot at values[hi - 1] into the
+   * elements no greater than it, the pivot, and the rest.
+   *
+   * @return The final position of the pivot.
+   */
+  static int partitionLessEqual(long[] values, int lo, int hi) {
+    long pivot = values[hi - 1];
+    int j = lo;
+    for (int i = lo; i < hi - 1; i++) {
+      long x = values[i];
+      values[i] = values[j];
+      values[j] = x;
+      j += (x <= pivot) ? 1 : 0;
+    } // for
+    values[hi - 1] = values[j];
+    values[j] = pivot;
+    return j;
+  } // partitionLessEqual(long[], int, int)
+
+  /**
+   * Sort values[lo..hi), of at most BASE_SIZE elements, by sorting
+   * blocks with the network and merging them.
+   */
+  static void baseSort(long[] values, int lo, int hi, long[] scratch) {
+    for (int start = lo; start < hi; start += NETWORK_SIZE) {
+      int end = Math.min(start + NETWORK_SIZE, hi);
+      // A short block is padded with the largest value
+      System.arraycopy(values, start, scratch, 0, end - start);
+      Arrays.fill(scratch, end - start, NETWORK_SIZE,
+          Long.MAX_VALUE);
+      for (int c = 0; c < NETWORK.length; c += 2) {
+        long x = scratch[NETWORK[c]];
+        long y = scratch[NETWORK[c + 1]];
+        scratch[NETWORK[c]] = Math.min(x, y);
+        scratch[NETWORK[c + 1]] = Math.max(x, y);
+      } // for
+      System.arraycopy(scratch, 0, values, start, end - start);
+    } // for
+
+    for (int width = NETWORK_SIZE; width < hi - lo; width *= 2) {
+      for (int start = lo; start < hi; start += 2 * width) {
+        int mid = Math.min(start + width, hi);
+        int end = Math.min(start + 2 * width, hi);
+        merge(values, start, mid, end, scratch, start - lo);
+      } // for
+      System.arraycopy(scratch, 0, values, lo, hi - lo);
+    } // for
+  } // baseSort(long[], int, int, long[])
+
+  /**
+   * Merge src[lo..mid) and src[mid..hi) into dst[out..), taking the
+   * next element from whichever side is smaller without branching on
+   * which side it is.
+   */
+  static void merge(long[] src, int lo, int mid, int hi, long[] dst,
+      int out) {
+    int i = lo;
+    int j = mid;
+    while (i < mid && j < hi) {
+      long x = src[i];
+      long y = src[j];
+      int right = (y < x) ? 1 : 0;
+      dst[out++] = (y < x) ? y : x;
+      j += right;
+      i += 1 - right;
+    } // while
+    System.arraycopy(src, i, dst, out, mid - i);
+    System.arraycopy(src, j, dst, out + (mid - i), hi - j);
+  } // merge(long[], int, int, int, long[], int)
+} // class BranchlessQuicksort
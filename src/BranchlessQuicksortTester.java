@@ -0,0 +1,101 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of BranchlessQuicksort.
+ *
+ * @author Wenfei Lin
+ */
+public class BranchlessQuicksortTester extends PrimitiveSortTester {
+
+  // +--------------+------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  public BranchlessQuicksortTester() {
+    super();
+    this.intSorter = BranchlessQuicksort.SORTER;
+    this.longSorter = BranchlessQuicksort.SORTER;
+    this.doubleSorter = BranchlessQuicksort.SORTER;
+  } // BranchlessQuicksortTester()
+
+  // +-------+-------------------------------------------------------
+  // | Tests |
+  // +-------+
+
+  @Test
+  public void networkSortsEveryZeroOneInputTest() {
+    // By the zero-one principle, a network that sorts every input of
+    // zeros and ones sorts every input
+    int n = BranchlessQuicksort.NETWORK_SIZE;
+    int[] network = BranchlessQuicksort.NETWORK;
+    for (int bits = 0; bits < (1 << n); bits++) {
+      int[] vals = new int[n];
+      for (int i = 0; i < n; i++) {
+        vals[i] = (bits >>> i) & 1;
+      } // for
+      for (int c = 0; c < network.length; c += 2) {
+        int x = vals[network[c]];
+        int y = vals[network[c + 1]];
+        vals[network[c]] = Math.min(x, y);
+        vals[network[c + 1]] = Math.max(x, y);
+      } // for
+      for (int i = 1; i < n; i++) {
+        assertTrue(vals[i - 1] <= vals[i]);
+      } // for
+    } // for
+  } // networkSortsEveryZeroOneInputTest
+
+  @Test
+  public void everySmallSizeTest() {
+    Random rand = new Random(67);
+    for (int n = 0; n <= 3 * BranchlessQuicksort.BASE_SIZE; n++) {
+      int[] ints = rand.ints(n, -n, n + 1).toArray();
+      int[] expectedInts = ints.clone();
+      Arrays.sort(expectedInts);
+      BranchlessQuicksort.SORTER.sort(ints);
+      assertArrayEquals(expectedInts, ints);
+
+      long[] longs = rand.longs(n).toArray();
+      long[] expectedLongs = longs.clone();
+      Arrays.sort(expectedLongs);
+      BranchlessQuicksort.SORTER.sort(longs);
+      assertArrayEquals(expectedLongs, longs);
+    } // for
+  } // everySmallSizeTest
+
+  @Test
+  public void patternsTest() {
+    int n = 100_000;
+    Random rand = new Random(71);
+    int[][] inputs = new int[6][n];
+    for (int i = 0; i < n; i++) {
+      inputs[0][i] = i;
+      inputs[1][i] = n - i;
+      inputs[2][i] = 7;
+      inputs[3][i] = Math.min(i, n - i);
+      inputs[4][i] = rand.nextInt(3);
+      inputs[5][i] = (i % 100 == 0) ? rand.nextInt() : i;
+    } // for
+    for (int[] input : inputs) {
+      int[] expected = input.clone();
+      Arrays.sort(expected);
+      BranchlessQuicksort.SORTER.sort(input);
+      assertArrayEquals(expected, input);
+    } // for
+  } // patternsTest
+
+  @Test
+  public void depthLimitTest() {
+    // With no levels of partitioning allowed, every subarray falls back
+    int[] vals = new Random(73).ints(1000).toArray();
+    int[] expected = vals.clone();
+    Arrays.sort(expected);
+    BranchlessQuicksort.quickSort(vals, 0, vals.length, 0, true,
+        new int[BranchlessQuicksort.BASE_SIZE]);
+    assertArrayEquals(expected, vals);
+  } // depthLimitTest
+} // class BranchlessQuicksortTester
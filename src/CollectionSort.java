@@ -0,0 +1,121 @@
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.RandomAccess;
+import java.util.stream.Collector;
+
+/**
+ * Sorting Lists, Collections and Streams with any Sorter.  A SortBuffer
+ * is sorted in its own backing array; any other list is copied to an
+ * array once, sorted there, and written back in place.  The collectors
+ * gather a stream into a SortBuffer and sort it there, without copying
+ * it again when the sorter can sort a range (see SortBuffer).
+ *
+ * @author Wenfei Lin
+ */
+class CollectionSort {
+
+  // +---------+-----------------------------------------------------
+  // | Methods |
+  // +---------+
+
+  /**
+   * Sort a list in place.
+   *
+   * @param sorter The sorter to use.
+   * @param list The list being sorted, whose set must work.
+   * @param order The order of the elements.
+   * @post list is sorted.
+   */
+  @SuppressWarnings("unchecked")
+  static <T> void sort(Sorter sorter, List<T> list,
+      Comparator<? super T> order) {
+    if (list instanceof SortBuffer) {
+      ((SortBuffer<T>) list).sort(sorter, order);
+      return;
+    } // if
+
+    T[] array = (T[]) list.toArray();
+    sorter.sort(array, order);
+    if (list instanceof RandomAccess) {
+      for (int i = 0; i < array.length; i++) {
+        list.set(i, array[i]);
+      } // for
+    } else {
+      ListIterator<T> it = list.listIterator();
+      for (T value : array) {
+        it.next();
+        it.set(value);
+      } // for
+    } // if/else
+  } // sort(Sorter, List<T>, Comparator<? super T>)
+
+  /**
+   * Sort the elements of a collection into a new list.
+   *
+   * @param sorter The sorter to use.
+   * @param values The collection (not modified).
+   * @param order The order of the elements.
+   * @return A sorted SortBuffer of the elements.
+   */
+  static <T> SortBuffer<T> sortedCopy(Sorter sorter,
+      Collection<? extends T> values, Comparator<? super T> order) {
+    SortBuffer<T> buffer = new SortBuffer<T>(values);
+    buffer.sort(sorter, order);
+    return buffer;
+  } // sortedCopy(Sorter, Collection<? extends T>, Comparator<? super T>)
+
+  /**
+   * Collect into one buffer and sort it once at the end.
+   *
+   * @param sorter The sorter to use.
+   * @param order The order of the elements.
+   * @return The collector.
+   */
+  static <T> Collector<T, SortBuffer<T>, List<T>> toSortedList(
+      Sorter sorter, Comparator<? super T> order) {
+    return Collector.of(SortBuffer::new, SortBuffer::add,
+        (left, right) -> {
+          left.addAll(right);
+          return left;
+        },
+        (buffer) -> {
+          buffer.sort(sorter, order);
+          return buffer;
+        });
+  } // toSortedList(Sorter, Comparator<? super T>)
+
+  /**
+   * Collect each partition of a parallel stream into its own buffer,
+   * sort the partitions as they are combined, and merge them.
+   *
+   * @param sorter The sorter to use for each partition.
+   * @param order The order of the elements.
+   * @return The collector.
+   */
+  static <T> Collector<T, SortBuffer<T>, List<T>> toSortedListMerging(
+      Sorter sorter, Comparator<? super T> order) {
+    return Collector.of(SortBuffer::new, SortBuffer::add,
+        (left, right) -> {
+          sortIfNeeded(sorter, left, order);
+          sortIfNeeded(sorter, right, order);
+          left.mergeFrom(right, order);
+          return left;
+        },
+        (buffer) -> {
+          sortIfNeeded(sorter, buffer, order);
+          return buffer;
+        });
+  } // toSortedListMerging(Sorter, Comparator<? super T>)
+
+  /**
+   * Sort a buffer unless it is already sorted.
+   */
+  private static <T> void sortIfNeeded(Sorter sorter, SortBuffer<T> buffer,
+      Comparator<? super T> order) {
+    if (!buffer.sorted) {
+      buffer.sort(sorter, order);
+    } // if
+  } // sortIfNeeded(Sorter, SortBuffer<T>, Comparator<? super T>)
+} // class CollectionSort
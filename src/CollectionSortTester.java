@@ -0,0 +1,144 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of the List, Collection and Stream methods of Sorter.
+ *
+ * @author Wenfei Lin
+ */
+public class CollectionSortTester {
+
+  // +-------+-------------------------------------------------------
+  // | Tests |
+  // +-------+
+
+  @Test
+  public void listsTest() {
+    List<Integer> original = randomInts(1000, new Random(101));
+    List<Integer> expected = new ArrayList<Integer>(original);
+    expected.sort(Comparator.naturalOrder());
+
+    List<List<Integer>> lists = List.of(new ArrayList<Integer>(original),
+        new LinkedList<Integer>(original),
+        Arrays.asList(original.toArray(new Integer[0])),
+        new SortBuffer<Integer>(original));
+    for (List<Integer> list : lists) {
+      Quicksort.SORTER.sort(list, Comparator.naturalOrder());
+      assertEquals(expected, list);
+    } // for
+  } // listsTest
+
+  @Test
+  public void sortBufferTest() {
+    SortBuffer<String> buffer = new SortBuffer<String>(1);
+    for (String s : new String[] { "d", "b", "a", "c" }) {
+      buffer.add(s);
+    } // for
+    LinWenfeiSort.SORTER.sort(buffer, Comparator.naturalOrder());
+    assertEquals(List.of("a", "b", "c", "d"), buffer);
+    buffer.add("b");
+    buffer.set(0, "e");
+    InsertionSort.SORTER.sort(buffer, Comparator.naturalOrder());
+    assertEquals(List.of("b", "b", "c", "d", "e"), buffer);
+  } // sortBufferTest
+
+  @Test
+  public void sortBufferInPlaceTest() {
+    Random rand = new Random(107);
+    for (Sorter sorter : new Sorter[] { LinWenfeiSort.SORTER,
+        LinWenfeiSort.POOLED, MergeSort.SORTER, Quicksort.SORTER,
+        Quicksort.THREE_WAY, InsertionSort.SORTER }) {
+      // 1000 elements in room for 1024, so there is capacity to spare
+      SortBuffer<Integer> buffer = new SortBuffer<Integer>(1);
+      List<Integer> expected = randomInts(1000, rand);
+      buffer.addAll(expected);
+      expected.sort(Comparator.naturalOrder());
+      sorter.sort(buffer, Comparator.naturalOrder());
+      assertEquals(expected, buffer);
+      assertEquals(1024, buffer.capacity());
+    } // for
+  } // sortBufferInPlaceTest
+
+  @Test
+  public void rangeSortersTest() {
+    Random rand = new Random(109);
+    for (Sorter sorter : new Sorter[] { LinWenfeiSort.SORTER,
+        MergeSort.SORTER, Quicksort.SORTER, Quicksort.DUAL_PIVOT,
+        InsertionSort.SORTER }) {
+      for (int n : new int[] { 0, 1, 20, 1000 }) {
+        Integer[] vals = randomInts(n + 20, rand).toArray(new Integer[0]);
+        Integer[] expected = vals.clone();
+        Arrays.sort(expected, 10, n + 10);
+        ((RangeSorter) sorter).sort(vals, 10, n + 10,
+            Comparator.naturalOrder());
+        assertArrayEquals(expected, vals);
+      } // for
+    } // for
+  } // rangeSortersTest
+
+  @Test
+  public void sortedCopyTest() {
+    HashSet<Integer> set = new HashSet<Integer>(randomInts(500,
+        new Random(103)));
+    List<Integer> sorted = MergeSort.SORTER.sortedCopy(set,
+        Comparator.reverseOrder());
+    assertEquals(set.size(), sorted.size());
+    for (int i = 1; i < sorted.size(); i++) {
+      assertTrue(sorted.get(i - 1) > sorted.get(i));
+    } // for
+  } // sortedCopyTest
+
+  @Test
+  public void collectorsTest() {
+    List<Integer> original = randomInts(50_000, new Random(107));
+    List<Integer> expected = new ArrayList<Integer>(original);
+    expected.sort(Comparator.naturalOrder());
+
+    assertEquals(expected, original.stream()
+        .collect(Quicksort.SORTER.toSortedList(Comparator.naturalOrder())));
+    assertEquals(expected, original.parallelStream()
+        .collect(Quicksort.SORTER.toSortedList(Comparator.naturalOrder())));
+    assertEquals(expected, original.stream().collect(
+        Quicksort.SORTER.toSortedListMerging(Comparator.naturalOrder())));
+    assertEquals(expected, original.parallelStream().collect(
+        Quicksort.SORTER.toSortedListMerging(Comparator.naturalOrder())));
+    assertEquals(expected, MergeSort.SORTER.sorted(original.stream(),
+        Comparator.naturalOrder()).collect(Collectors.toList()));
+  } // collectorsTest
+
+  @Test
+  public void mergingIsStableTest() {
+    Random rand = new Random(109);
+    List<int[]> tagged = IntStream.range(0, 20_000)
+        .mapToObj((i) -> new int[] { rand.nextInt(10), i })
+        .collect(Collectors.toList());
+    Comparator<int[]> byKey = (x, y) -> Integer.compare(x[0], y[0]);
+    List<int[]> sorted = tagged.parallelStream()
+        .collect(LinWenfeiSort.SORTER.toSortedListMerging(byKey));
+    assertEquals(tagged.size(), sorted.size());
+    for (int i = 1; i < sorted.size(); i++) {
+      int[] x = sorted.get(i - 1);
+      int[] y = sorted.get(i);
+      assertTrue(x[0] < y[0] || (x[0] == y[0] && x[1] < y[1]));
+    } // for
+  } // mergingIsStableTest
+
+  // +---------+-----------------------------------------------------
+  // | Helpers |
+  // +---------+
+
+  static List<Integer> randomInts(int n, Random rand) {
+    return rand.ints(n, 0, n).boxed().collect(Collectors.toList());
+  } // randomInts(int, Random)
+} // class CollectionSortTester
@@ -0,0 +1,23 @@
+/**
+ * Things that know how to sort arrays of doubles without boxing them.
+ *
+ * The order is the one used by Double.compare: -0.0 comes before 0.0,
+ * and NaN comes after everything else, including positive infinity.
+ *
+ * @author Wenfei Lin
+ */
+public interface DoubleSorter {
+  /**
+   * Sort an array of doubles in place, in ascending order.
+   *
+   * @param values, an array to sort.
+   * @pre
+   *    VALS = values.
+   * @post
+   *    values is a permutation of VALS.
+   * @post
+   *    For all i, 0 < i < values.length,
+   *      Double.compare(values[i-1], values[i]) <= 0
+   */
+  public void sort(double[] values);
+} // interface DoubleSorter
@@ -0,0 +1,14 @@
+/**
+ * Tests of Quicksort with dual-pivot partitioning.
+ */
+public class DualPivotQuicksortTester extends SortTester {
+
+  // +--------------+------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  public DualPivotQuicksortTester() {
+    super();
+    this.sorter = Quicksort.DUAL_PIVOT;
+  } // DualPivotQuicksortTester()
+} // class DualPivotQuicksortTester
@@ -0,0 +1,521 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Sort more records than fit in memory.  Records are read into memory
+ * until the memory budget is used up, sorted with LinWenfeiSort, and
+ * spilled to a temporary file as a sorted run.  The runs are then merged
+ * fanIn at a time with a LoserTree, in as many passes as it takes to get
+ * down to fanIn runs, and the last merge is streamed to the output.
+ *
+ * Runs are only ever merged with their neighbours, in input order, so
+ * the sort is stable.
+ *
+ * @author Wenfei Lin
+ */
+public class ExternalSorter<T> {
+
+  // +-----------+---------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  // Default number of runs merged at once
+  static final int DEFAULT_FAN_IN = 64;
+
+  // Default size of the buffer in front of each run file
+  static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+
+  // Heap taken by each slot of the in-memory array
+  private static final int REFERENCE_SIZE = 8;
+
+  // Heap taken per record by the array and the merge scratch that sorts
+  // it, which is half as long
+  private static final int SLOT_SIZE = REFERENCE_SIZE + REFERENCE_SIZE / 2;
+
+  // Sorts each run where it lies in the in-memory array
+  private static final RangeSorter RUN_SORTER = new LinWenfeiSort();
+
+  // +--------+------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /**
+   * How records are written to and read from run files.
+   */
+  private final RecordCodec<T> codec;
+
+  /**
+   * The order of the records.
+   */
+  private final Comparator<? super T> order;
+
+  /**
+   * The number of bytes of heap run generation may use: the records, as
+   * the codec estimates them, and the array and merge scratch that sort
+   * them.
+   */
+  private final long memoryBudget;
+
+  /**
+   * The most runs merged at once.
+   */
+  private final int fanIn;
+
+  /**
+   * Whether run files are compressed.
+   */
+  private final boolean compress;
+
+  /**
+   * Where run files are created.
+   */
+  private final Path tempDir;
+
+  /**
+   * The size of the buffer in front of each run file.
+   */
+  private final int bufferSize;
+
+  // +--------------+------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  /**
+   * Create a sorter with the default fan-in that keeps uncompressed runs
+   * in the system temporary directory.
+   *
+   * @param codec How records are written to run files.
+   * @param order The order of the records.
+   * @param memoryBudget The bytes of heap to sort runs in.
+   */
+  public ExternalSorter(RecordCodec<T> codec, Comparator<? super T> order,
+      long memoryBudget) {
+    this(codec, order, memoryBudget, DEFAULT_FAN_IN, false,
+        Path.of(System.getProperty("java.io.tmpdir")));
+  } // ExternalSorter(RecordCodec<T>, Comparator<? super T>, long)
+
+  /**
+   * Create a sorter.
+   *
+   * @param codec How records are written to run files.
+   * @param order The order of the records.
+   * @param memoryBudget The bytes of heap to sort runs in.
+   * @param fanIn The most runs merged at once.
+   * @param compress Whether run files are compressed.
+   * @param tempDir Where run files are created.
+   * @pre memoryBudget > 0 and fanIn >= 2.
+   */
+  public ExternalSorter(RecordCodec<T> codec, Comparator<? super T> order,
+      long memoryBudget, int fanIn, boolean compress, Path tempDir) {
+    if (memoryBudget <= 0) {
+      throw new IllegalArgumentException("memoryBudget must be positive");
+    } // if
+    if (fanIn < 2) {
+      throw new IllegalArgumentException("fanIn must be at least 2");
+    } // if
+    this.codec = codec;
+    this.order = order;
+    this.memoryBudget = memoryBudget;
+    this.fanIn = fanIn;
+    this.compress = compress;
+    this.tempDir = tempDir;
+    // The merge buffers come out of the same budget as the records
+    this.bufferSize = (int) Math.max(1 << 12,
+        Math.min(DEFAULT_BUFFER_SIZE, memoryBudget / (fanIn + 1)));
+  } // ExternalSorter(RecordCodec<T>, Comparator<? super T>, long, ...)
+
+  // +---------+-----------------------------------------------------
+  // | Methods |
+  // +---------+
+
+  /**
+   * Sort records.
+   *
+   * @param input The records to sort.
+   * @param output Receives the records in sorted order.
+   * @return The number of records sorted.
+   * @throws IOException if a run file cannot be written or read.
+   * @post output has been given every record of input, in order.
+   */
+  public long sort(Iterator<? extends T> input, Consumer<? super T> output)
+      throws IOException {
+    List<Run> runs = new ArrayList<Run>();
+    try {
+      Object[] chunk = new Object[16];
+      int size = 0;
+      long records = 0;
+      long total = 0;
+
+      // Run generation.  The array is kept from run to run, and every
+      // slot of it counts against the budget, as does the merge scratch
+      // that sorting it when full would take
+      while (input.hasNext()) {
+        T value = input.next();
+        if (size == chunk.length) {
+          // Grow as far as the budget allows, up to double; if there is
+          // no room to grow at all, spill first
+          long room = (this.memoryBudget - records) / SLOT_SIZE;
+          int capacity = (int) Math.min(2L * size,
+              Math.min(room, Integer.MAX_VALUE - 8));
+          if (capacity > size) {
+            chunk = Arrays.copyOf(chunk, capacity);
+          } else {
+            runs.add(spill(chunk, size));
+            size = 0;
+            records = 0;
+          } // if/else
+        } // if
+        chunk[size++] = value;
+        records += this.codec.memorySize(value);
+        total++;
+        if (records + (long) SLOT_SIZE * chunk.length >= this.memoryBudget) {
+          runs.add(spill(chunk, size));
+          size = 0;
+          records = 0;
+        } // if
+      } // while
+
+      // Everything fit, so there is nothing to merge
+      if (runs.isEmpty()) {
+        @SuppressWarnings("unchecked")
+        T[] values = (T[]) chunk;
+        RUN_SORTER.sort(values, 0, size, this.order);
+        for (int i = 0; i < size; i++) {
+          output.accept(values[i]);
+        } // for
+        return total;
+      } // if
+      if (size > 0) {
+        runs.add(spill(chunk, size));
+      } // if
+      chunk = null;
+
+      // Intermediate passes, until one merge can finish the job
+      while (runs.size() > this.fanIn) {
+        List<Run> next = new ArrayList<Run>();
+        boolean passed = false;
+        try {
+          for (int i = 0; i < runs.size(); i += this.fanIn) {
+            List<Run> group =
+                runs.subList(i, Math.min(runs.size(), i + fanIn));
+            if (group.size() == 1) {
+              next.add(group.get(0));
+              continue;
+            } // if
+            // Added first, so a failed merge deletes its half-written run
+            Run merged = newRun();
+            next.add(merged);
+            try (RunWriter writer = new RunWriter(merged)) {
+              merge(group, writer::write);
+            } // try
+            for (Run run : group) {
+              run.delete();
+            } // for
+          } // for
+          passed = true;
+        } finally {
+          // The finally below only knows about runs, not this pass's
+          if (!passed) {
+            for (Run run : next) {
+              run.delete();
+            } // for
+          } // if
+        } // try/finally
+        runs = next;
+      } // while
+
+      merge(runs, output);
+      return total;
+    } finally {
+      for (Run run : runs) {
+        run.delete();
+      } // for
+    } // try/finally
+  } // sort(Iterator<? extends T>, Consumer<? super T>)
+
+  /**
+   * Sort the records of one file into another, both written with this
+   * sorter's codec.
+   *
+   * @param in The file of records to sort.
+   * @param out The file to write the sorted records to.
+   * @return The number of records sorted.
+   * @throws IOException if either file cannot be used.
+   */
+  public long sort(Path in, Path out) throws IOException {
+    try (FileChannel source = FileChannel.open(in, StandardOpenOption.READ);
+         FileChannel sink = FileChannel.open(out, StandardOpenOption.WRITE,
+             StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+         DataOutputStream data = new DataOutputStream(new BufferedOutputStream(
+             Channels.newOutputStream(sink), this.bufferSize))) {
+      BufferedInputStream buffered = new BufferedInputStream(
+          Channels.newInputStream(source), this.bufferSize);
+      DataInputStream input = new DataInputStream(buffered);
+      Iterator<T> records = new Iterator<T>() {
+        @Override
+        public boolean hasNext() {
+          // Peek at one byte to see whether the file has ended
+          try {
+            buffered.mark(1);
+            int next = buffered.read();
+            buffered.reset();
+            return next >= 0;
+          } catch (IOException e) {
+            throw new UncheckedIOException(e);
+          } // try/catch
+        } // hasNext()
+
+        @Override
+        public T next() {
+          try {
+            return codec.read(input);
+          } catch (IOException e) {
+            throw new UncheckedIOException(e);
+          } // try/catch
+        } // next()
+      };
+      try {
+        return sort(records, (value) -> {
+          try {
+            this.codec.write(value, data);
+          } catch (IOException e) {
+            throw new UncheckedIOException(e);
+          } // try/catch
+        });
+      } catch (UncheckedIOException e) {
+        throw e.getCause();
+      } // try/catch
+    } // try
+  } // sort(Path, Path)
+
+  /**
+   * Merge runs and hand the records to output.
+   */
+  private void merge(List<Run> runs, Consumer<? super T> output)
+      throws IOException {
+    List<RunReader> readers = new ArrayList<RunReader>();
+    try {
+      for (Run run : runs) {
+        readers.add(new RunReader(run));
+      } // for
+      LoserTree<T> tree = new LoserTree<T>(readers, this.order);
+      while (tree.hasNext()) {
+        output.accept(tree.next());
+      } // while
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    } finally {
+      for (RunReader reader : readers) {
+        reader.close();
+      } // for
+    } // try/catch/finally
+  } // merge(List<Run>, Consumer<? super T>)
+
+  /**
+   * Sort chunk[0..size) where it lies, write it out as a run, and clear
+   * it for the next run.
+   */
+  @SuppressWarnings("unchecked")
+  private Run spill(Object[] chunk, int size) throws IOException {
+    T[] values = (T[]) chunk;
+    RUN_SORTER.sort(values, 0, size, this.order);
+    Run run = write(values, 0, size);
+    Arrays.fill(chunk, 0, size, null);
+    return run;
+  } // spill(Object[], int)
+
+  /**
+   * Write values[from..to), which are already sorted, out as a run.
+   */
+  Run write(T[] values, int from, int to) throws IOException {
+    Run run = newRun();
+    try (RunWriter writer = new RunWriter(run)) {
+      for (int i = from; i < to; i++) {
+        writer.write(values[i]);
+      } // for
+    } catch (UncheckedIOException e) {
+      run.delete();
+      throw e.getCause();
+    } catch (IOException e) {
+      run.delete();
+      throw e;
+    } // try/catch
+    return run;
+  } // write(T[], int, int)
+
+  /**
+   * Write the records an iterator gives, which are already sorted, out as
+   * a run.
+   */
+  Run write(Iterator<? extends T> values) throws IOException {
+    Run run = newRun();
+    try (RunWriter writer = new RunWriter(run)) {
+      while (values.hasNext()) {
+        writer.write(values.next());
+      } // while
+    } catch (UncheckedIOException e) {
+      run.delete();
+      throw e.getCause();
+    } catch (IOException e) {
+      run.delete();
+      throw e;
+    } // try/catch
+    return run;
+  } // write(Iterator<? extends T>)
+
+  /**
+   * Start reading a run back.
+   */
+  RunReader open(Run run) throws IOException {
+    return new RunReader(run);
+  } // open(Run)
+
+  /**
+   * Create an empty run file.
+   */
+  private Run newRun() throws IOException {
+    return new Run(Files.createTempFile(this.tempDir, "sort-run-", ".bin"));
+  } // newRun()
+
+  // +---------------+-----------------------------------------------
+  // | Inner Classes |
+  // +---------------+
+
+  /**
+   * A sorted run on disk.
+   */
+  static class Run {
+    final Path path;
+    long count;
+
+    Run(Path path) {
+      this.path = path;
+    } // Run(Path)
+
+    void delete() throws IOException {
+      Files.deleteIfExists(this.path);
+    } // delete()
+  } // class Run
+
+  /**
+   * Writes records to the end of a run through a buffered channel.
+   */
+  class RunWriter implements AutoCloseable {
+    final Run run;
+    final DataOutputStream out;
+
+    // Ended on close, as DeflaterOutputStream does not end a deflater it
+    // was given (null if runs are not compressed)
+    final Deflater deflater;
+
+    RunWriter(Run run) throws IOException {
+      this.run = run;
+      OutputStream stream = Channels.newOutputStream(FileChannel.open(
+          run.path, StandardOpenOption.WRITE));
+      if (compress) {
+        this.deflater = new Deflater(Deflater.BEST_SPEED);
+        stream = new DeflaterOutputStream(stream, this.deflater, bufferSize);
+      } else {
+        this.deflater = null;
+      } // if/else
+      this.out = new DataOutputStream(new BufferedOutputStream(stream,
+          bufferSize));
+    } // RunWriter(Run)
+
+    void write(T value) {
+      try {
+        codec.write(value, this.out);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      } // try/catch
+      this.run.count++;
+    } // write(T)
+
+    @Override
+    public void close() throws IOException {
+      try {
+        this.out.close();
+      } finally {
+        if (this.deflater != null) {
+          this.deflater.end();
+        } // if
+      } // try/finally
+    } // close()
+  } // class RunWriter
+
+  /**
+   * Reads the records of a run back through a buffered channel.
+   */
+  class RunReader implements Iterator<T>, AutoCloseable {
+    final DataInputStream in;
+    long remaining;
+
+    // Ended on close, like RunWriter's deflater (null if not compressed)
+    final Inflater inflater;
+
+    RunReader(Run run) throws IOException {
+      this.remaining = run.count;
+      InputStream stream = Channels.newInputStream(FileChannel.open(
+          run.path, StandardOpenOption.READ));
+      if (compress) {
+        this.inflater = new Inflater();
+        stream = new InflaterInputStream(stream, this.inflater, bufferSize);
+      } else {
+        this.inflater = null;
+      } // if/else
+      this.in = new DataInputStream(new BufferedInputStream(stream,
+          bufferSize));
+    } // RunReader(Run)
+
+    @Override
+    public boolean hasNext() {
+      return this.remaining > 0;
+    } // hasNext()
+
+    @Override
+    public T next() {
+      if (this.remaining == 0) {
+        throw new NoSuchElementException();
+      } // if
+      this.remaining--;
+      try {
+        return codec.read(this.in);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      } // try/catch
+    } // next()
+
+    @Override
+    public void close() throws IOException {
+      try {
+        this.in.close();
+      } finally {
+        if (this.inflater != null) {
+          this.inflater.end();
+        } // if
+      } // try/finally
+    } // close()
+  } // class RunReader
+} // class ExternalSorter
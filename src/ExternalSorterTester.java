@@ -0,0 +1,260 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.io.BufferedInputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests of ExternalSorter and LoserTree.
+ *
+ * @author Wenfei Lin
+ */
+public class ExternalSorterTester {
+
+  // +-----------+---------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  static final int SIZE = 50_000;
+
+  // Small enough that SIZE longs make about a hundred runs
+  static final long BUDGET = 12_000;
+
+  // +---------+-----------------------------------------------------
+  // | Globals |
+  // +---------+
+
+  @TempDir
+  Path dir;
+
+  // +-------+-------------------------------------------------------
+  // | Tests |
+  // +-------+
+
+  @Test
+  public void inMemoryTest() throws IOException {
+    assertSortsLongs(new ExternalSorter<Long>(RecordCodec.LONGS,
+        Long::compare, Long.MAX_VALUE, 2, false, dir));
+  } // inMemoryTest
+
+  @Test
+  public void multiPassTest() throws IOException {
+    assertSortsLongs(new ExternalSorter<Long>(RecordCodec.LONGS,
+        Long::compare, BUDGET, 4, false, dir));
+  } // multiPassTest
+
+  @Test
+  public void compressedTest() throws IOException {
+    assertSortsLongs(new ExternalSorter<Long>(RecordCodec.LONGS,
+        Long::compare, BUDGET, 8, true, dir));
+  } // compressedTest
+
+  @Test
+  public void stableTest() throws IOException {
+    // Keys in the high bits, input position in the low bits
+    Random rand = new Random(3);
+    List<Long> input = new ArrayList<Long>();
+    for (int i = 0; i < SIZE; i++) {
+      input.add(((long) rand.nextInt(100) << 32) | i);
+    } // for
+    List<Long> output = new ArrayList<Long>();
+    new ExternalSorter<Long>(RecordCodec.LONGS, (x, y) -> Long.compare(x >> 32,
+        y >> 32), BUDGET, 3, false, dir).sort(input.iterator(), output::add);
+
+    Long[] expected = input.toArray(new Long[0]);
+    Arrays.sort(expected);
+    assertArrayEquals(expected, output.toArray(new Long[0]));
+  } // stableTest
+
+  @Test
+  public void fileTest() throws IOException {
+    Random rand = new Random(5);
+    String[] words = new String[SIZE];
+    Path in = dir.resolve("in.bin");
+    try (DataOutputStream out = new DataOutputStream(
+        Files.newOutputStream(in))) {
+      for (int i = 0; i < SIZE; i++) {
+        words[i] = Integer.toString(rand.nextInt(), 36);
+        RecordCodec.STRINGS.write(words[i], out);
+      } // for
+    } // try
+
+    Path out = dir.resolve("out.bin");
+    long count = new ExternalSorter<String>(RecordCodec.STRINGS,
+        String::compareTo, BUDGET, 16, true, dir).sort(in, out);
+    assertEquals(SIZE, count);
+
+    Arrays.sort(words);
+    List<String> sorted = readAll(out, RecordCodec.STRINGS);
+    assertArrayEquals(words, sorted.toArray(new String[0]));
+  } // fileTest
+
+  @Test
+  public void runFilesDeletedTest() throws IOException {
+    assertSortsLongs(new ExternalSorter<Long>(RecordCodec.LONGS,
+        Long::compare, BUDGET, 4, true, dir));
+    try (Stream<Path> files = Files.list(dir)) {
+      assertEquals(0, files.count());
+    } // try
+  } // runFilesDeletedTest
+
+  @Test
+  public void failedSortDeletesRunsTest() throws IOException {
+    // Fail while spilling the first run, and in an intermediate pass,
+    // after SIZE records have been spilled
+    for (int limit : new int[] { 10, SIZE + 1000 }) {
+      int[] writes = new int[1];
+      RecordCodec<Long> failing = new RecordCodec<Long>() {
+        @Override
+        public void write(Long value, DataOutput out) throws IOException {
+          if (++writes[0] > limit) {
+            throw new IOException("disk full");
+          } // if
+          out.writeLong(value);
+        } // write(Long, DataOutput)
+
+        @Override
+        public Long read(DataInput in) throws IOException {
+          return in.readLong();
+        } // read(DataInput)
+
+        @Override
+        public long memorySize(Long value) {
+          return RecordCodec.LONGS.memorySize(value);
+        } // memorySize(Long)
+      };
+      ExternalSorter<Long> sorter = new ExternalSorter<Long>(failing,
+          Long::compare, BUDGET, 4, true, dir);
+      Iterator<Long> input = new Random(limit).longs(SIZE).iterator();
+      assertThrows(IOException.class, () -> sorter.sort(input, (x) -> { }));
+      try (Stream<Path> files = Files.list(dir)) {
+        assertEquals(0, files.count(), "after failing at " + limit);
+      } // try
+    } // for
+  } // failedSortDeletesRunsTest
+
+  @Test
+  public void budgetCountsArraysTest() throws IOException {
+    // Note how many records were read before the first run was written
+    int[] read = { 0 };
+    int[] firstRun = { 0 };
+    RecordCodec<Long> watching = new RecordCodec<Long>() {
+      @Override
+      public void write(Long value, DataOutput out) throws IOException {
+        if (firstRun[0] == 0) {
+          firstRun[0] = read[0];
+        } // if
+        out.writeLong(value);
+      } // write(Long, DataOutput)
+
+      @Override
+      public Long read(DataInput in) throws IOException {
+        return in.readLong();
+      } // read(DataInput)
+
+      @Override
+      public long memorySize(Long value) {
+        return RecordCodec.LONGS.memorySize(value);
+      } // memorySize(Long)
+    };
+    Iterator<Long> longs = new Random(11).longs(SIZE).iterator();
+    Iterator<Long> input = new Iterator<Long>() {
+      @Override
+      public boolean hasNext() {
+        return longs.hasNext();
+      } // hasNext()
+
+      @Override
+      public Long next() {
+        read[0]++;
+        return longs.next();
+      } // next()
+    };
+    new ExternalSorter<Long>(watching, Long::compare, BUDGET, 4, false, dir)
+        .sort(input, (x) -> { });
+
+    // Each record takes its own 16 bytes, an 8-byte slot in the array,
+    // and half a slot of merge scratch
+    assertTrue(firstRun[0] > 0);
+    assertTrue(firstRun[0] * (16 + 8 + 4) <= BUDGET,
+        firstRun[0] + " records in the first run");
+  } // budgetCountsArraysTest
+
+  @Test
+  public void loserTreeTest() {
+    Random rand = new Random(11);
+    for (int k = 0; k <= 9; k++) {
+      List<Iterator<Integer>> sources = new ArrayList<Iterator<Integer>>();
+      List<Integer> all = new ArrayList<Integer>();
+      for (int s = 0; s < k; s++) {
+        Integer[] run = new Integer[rand.nextInt(20)];
+        for (int i = 0; i < run.length; i++) {
+          run[i] = rand.nextInt(30);
+        } // for
+        Arrays.sort(run);
+        all.addAll(Arrays.asList(run));
+        sources.add(Arrays.asList(run).iterator());
+      } // for
+      LoserTree<Integer> tree =
+          new LoserTree<Integer>(sources, Comparator.naturalOrder());
+      List<Integer> merged = new ArrayList<Integer>();
+      tree.forEachRemaining(merged::add);
+      all.sort(null);
+      assertEquals(all, merged);
+    } // for
+  } // loserTreeTest
+
+  // +---------+-----------------------------------------------------
+  // | Helpers |
+  // +---------+
+
+  /**
+   * Check that sorter sorts SIZE random longs.
+   */
+  static void assertSortsLongs(ExternalSorter<Long> sorter)
+      throws IOException {
+    Random rand = new Random(9);
+    Long[] input = new Long[SIZE];
+    for (int i = 0; i < SIZE; i++) {
+      input[i] = rand.nextLong();
+    } // for
+    List<Long> output = new ArrayList<Long>();
+    long count = sorter.sort(Arrays.asList(input).iterator(), output::add);
+
+    Arrays.sort(input);
+    assertEquals(SIZE, count);
+    assertArrayEquals(input, output.toArray(new Long[0]));
+  } // assertSortsLongs(ExternalSorter<Long>)
+
+  /**
+   * Read every record of a file.
+   */
+  static <T> List<T> readAll(Path file, RecordCodec<T> codec)
+      throws IOException {
+    List<T> records = new ArrayList<T>();
+    try (DataInputStream in = new DataInputStream(
+        new BufferedInputStream(Files.newInputStream(file)))) {
+      while (in.available() > 0) {
+        records.add(codec.read(in));
+      } // while
+    } // try
+    assertTrue(records.size() > 0);
+    return records;
+  } // readAll(Path, RecordCodec<T>)
+} // class ExternalSorterTester
@@ -0,0 +1,230 @@
+import java.util.Comparator;
+
+/**
+ * A stable merge sort for when memory is short.  It finds and merges runs
+ * as LinWenfeiSort does, but merges through a scratch array of at most a
+ * fixed number of elements (its budget) rather than one half the length
+ * of the array.  Merges whose shorter run fits in the budget are done as
+ * in LinWenfeiSort; longer ones are split in two, by a binary search and
+ * a rotation, until the pieces fit.
+ *
+ * A budget of about sqrt(n) elements makes few merges split.  The
+ * smallest budget, one element, sorts in O(1) extra memory (besides a
+ * stack of O(log n) frames) with O(n log n) comparisons, but moves
+ * elements O(n log^2 n) times.
+ *
+ * @author Wenfei Lin
+ */
+public class InPlaceMergeSort implements Sorter {
+
+  // +-----------+---------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  // The budget that stands for sqrt(n) elements
+  private static final int SQRT = -1;
+
+  // +--------+------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /**
+   * A sorter whose budget is sqrt(n) elements.
+   */
+  public static Sorter SORTER = new InPlaceMergeSort();
+
+  /**
+   * A sorter whose budget is a single element.
+   */
+  public static Sorter IN_PLACE = new InPlaceMergeSort(1);
+
+  /**
+   * The most elements of scratch space a sort may use (SQRT for the
+   * square root of the length of the array).
+   */
+  private final int budget;
+
+  // +--------------+------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  /**
+   * Create a sorter whose budget is sqrt(n) elements.
+   */
+  InPlaceMergeSort() {
+    this.budget = SQRT;
+  } // InPlaceMergeSort()
+
+  /**
+   * Create a sorter with a fixed budget.  Larger budgets are faster; a
+   * budget of half the array makes this sorter the same as LinWenfeiSort.
+   *
+   * @param budget The most elements of scratch space a sort may use.
+   * @pre budget >= 1.
+   */
+  public InPlaceMergeSort(int budget) {
+    if (budget < 1) {
+      throw new IllegalArgumentException("budget must be positive");
+    } // if
+    this.budget = budget;
+  } // InPlaceMergeSort(int)
+
+  // +---------+-----------------------------------------------------
+  // | Methods |
+  // +---------+
+
+  /**
+   * Sort an array stably, using at most budget elements of scratch space.
+   *
+   * @param values The array being sorted.
+   * @param order  The comparator that determines the order.
+   * @post The array is sorted, and equal elements keep their order.
+   */
+  @Override
+  public <T> void sort(T[] values, Comparator<? super T> order) {
+    LinWenfeiSort.sortRuns(new BoundedMergeState<T>(values, order,
+        scratchSize(values.length)));
+  } // sort(T[], Comparator<? super T>)
+
+  /**
+   * Find how much scratch space sorting n elements may use; never more
+   * than the n / 2 LinWenfeiSort would use.
+   */
+  int scratchSize(int n) {
+    int size = (this.budget == SQRT)
+        ? (int) Math.ceil(Math.sqrt(n))
+        : this.budget;
+    return Math.max(1, Math.min(size, n >>> 1));
+  } // scratchSize(int)
+
+  /**
+   * Rotate values[lo..hi) so that values[mid..hi) comes first, through
+   * tmp if the shorter side fits in it and by three reversals if not.
+   *
+   * @pre lo <= mid <= hi.
+   */
+  static <T> void rotate(T[] values, int lo, int mid, int hi, T[] tmp) {
+    int len1 = mid - lo;
+    int len2 = hi - mid;
+    if (len1 == 0 || len2 == 0) {
+      return;
+    } else if (len1 <= len2 && len1 <= tmp.length) {
+      System.arraycopy(values, lo, tmp, 0, len1);
+      System.arraycopy(values, mid, values, lo, len2);
+      System.arraycopy(tmp, 0, values, lo + len2, len1);
+    } else if (len2 <= tmp.length) {
+      System.arraycopy(values, mid, tmp, 0, len2);
+      System.arraycopy(values, lo, values, lo + len2, len1);
+      System.arraycopy(tmp, 0, values, lo, len2);
+    } else {
+      LinWenfeiSort.reverseRange(values, lo, mid);
+      LinWenfeiSort.reverseRange(values, mid, hi);
+      LinWenfeiSort.reverseRange(values, lo, hi);
+    } // if/else
+  } // rotate(T[], int, int, int, T[])
+
+  // +---------------+-----------------------------------------------
+  // | Inner Classes |
+  // +---------------+
+
+  /**
+   * A merge state whose scratch array never grows past a fixed size.
+   */
+  static class BoundedMergeState<T> extends LinWenfeiSort.MergeState<T> {
+
+    // The size of the scratch array, once it is needed
+    final int scratch;
+
+    BoundedMergeState(T[] values, Comparator<? super T> order,
+        int scratch) {
+      super(values, order, null);
+      this.scratch = scratch;
+    } // BoundedMergeState(T[], Comparator<? super T>, int)
+
+    @Override
+    void mergeLo(int base1, int len1, int base2, int len2) {
+      if (len1 <= this.scratch) {
+        super.mergeLo(base1, len1, base2, len2);
+      } else {
+        split(base1, len1, base2, len2);
+      } // if/else
+    } // mergeLo(int, int, int, int)
+
+    @Override
+    void mergeHi(int base1, int len1, int base2, int len2) {
+      if (len2 <= this.scratch) {
+        super.mergeHi(base1, len1, base2, len2);
+      } else {
+        split(base1, len1, base2, len2);
+      } // if/else
+    } // mergeHi(int, int, int, int)
+
+    /**
+     * Merge two runs too long for the scratch array: cut the longer one
+     * in half, find where its middle element belongs in the other, and
+     * rotate so that the two halves of the merge are each a pair of
+     * adjacent runs, which are then merged on their own.
+     */
+    void split(int base1, int len1, int base2, int len2) {
+      T[] a = this.values;
+      int cut1;
+      int cut2;
+      if (len1 >= len2) {
+        cut1 = len1 >>> 1;
+        cut2 = LinWenfeiSort.gallopLeft(a[base1 + cut1], a, base2, len2, 0,
+            this.order);
+      } else {
+        cut2 = len2 >>> 1;
+        cut1 = LinWenfeiSort.gallopRight(a[base2 + cut2], a, base1, len1, 0,
+            this.order);
+      } // if/else
+
+      rotate(a, base1 + cut1, base2, base2 + cut2, ensureCapacity(1));
+      int mid = base1 + cut1 + cut2;
+      mergePair(base1, cut1, base1 + cut1, cut2);
+      mergePair(mid, len1 - cut1, mid + len1 - cut1, len2 - cut2);
+    } // split(int, int, int, int)
+
+    /**
+     * Merge two adjacent sorted runs, skipping the elements of each that
+     * are already in place, as mergeAt does for runs on the stack.
+     */
+    void mergePair(int base1, int len1, int base2, int len2) {
+      if (len1 == 0 || len2 == 0) {
+        return;
+      } // if
+      T[] a = this.values;
+      int k = LinWenfeiSort.gallopRight(a[base2], a, base1, len1, 0,
+          this.order);
+      base1 += k;
+      len1 -= k;
+      if (len1 == 0) {
+        return;
+      } // if
+      len2 = LinWenfeiSort.gallopLeft(a[base1 + len1 - 1], a, base2, len2,
+          len2 - 1, this.order);
+      if (len2 == 0) {
+        return;
+      } // if
+
+      if (len1 <= len2) {
+        mergeLo(base1, len1, base2, len2);
+      } else {
+        mergeHi(base1, len1, base2, len2);
+      } // if/else
+    } // mergePair(int, int, int, int)
+
+    /**
+     * Allocate the scratch array, at its one fixed size, the first time
+     * it is needed.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    T[] ensureCapacity(int minCapacity) {
+      if (this.tmp.length < this.scratch) {
+        this.tmp = (T[]) new Object[this.scratch];
+      } // if
+      return this.tmp;
+    } // ensureCapacity(int)
+  } // class BoundedMergeState<T>
+} // class InPlaceMergeSort
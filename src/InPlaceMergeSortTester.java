@@ -0,0 +1,85 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of InPlaceMergeSort.
+ */
+public class InPlaceMergeSortTester extends SortTester {
+
+  // +--------------+------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  public InPlaceMergeSortTester() {
+    super();
+    // The smallest budget, so that every merge splits
+    this.sorter = InPlaceMergeSort.IN_PLACE;
+  } // InPlaceMergeSortTester()
+
+  // +-------+-------------------------------------------------------
+  // | Tests |
+  // +-------+
+
+  @Test
+  public void stableForAnyBudgetTest() {
+    Random rand = new Random(43);
+    Integer[][] original = new Integer[20_011][];
+    for (int i = 0; i < original.length; i++) {
+      // Few distinct keys, tagged with their original position
+      original[i] = new Integer[] { rand.nextInt(50), i };
+    } // for
+    Integer[][] expected = original.clone();
+    MergeSort.SORTER.sort(expected, (x, y) -> x[0].compareTo(y[0]));
+
+    for (int budget : new int[] { 1, 2, 7, 100, 10_000 }) {
+      Integer[][] vals = original.clone();
+      new InPlaceMergeSort(budget).sort(vals, (x, y) -> x[0].compareTo(y[0]));
+      assertArrayEquals(expected, vals, "budget " + budget);
+    } // for
+    Integer[][] vals = original.clone();
+    InPlaceMergeSort.SORTER.sort(vals, (x, y) -> x[0].compareTo(y[0]));
+    assertArrayEquals(expected, vals, "sqrt budget");
+  } // stableForAnyBudgetTest
+
+  @Test
+  public void runsOfUnequalLengthTest() {
+    // A long run followed by short ones makes lopsided merges
+    Integer[] vals = new Integer[10_000];
+    for (int i = 0; i < vals.length; i++) {
+      vals[i] = (i < 9_000) ? 2 * i : 2 * (vals.length - i) + 1;
+    } // for
+    Integer[] expected = vals.clone();
+    Arrays.sort(expected);
+    InPlaceMergeSort.IN_PLACE.sort(vals, (x, y) -> x.compareTo(y));
+    assertArrayEquals(expected, vals);
+  } // runsOfUnequalLengthTest
+
+  @Test
+  public void scratchWithinBudgetTest() {
+    InPlaceMergeSort sqrt = new InPlaceMergeSort();
+    assertEquals(1000, sqrt.scratchSize(1_000_000));
+    assertEquals(1, sqrt.scratchSize(2));
+    assertEquals(1, new InPlaceMergeSort(1).scratchSize(1_000_000));
+    // Never more than LinWenfeiSort would use
+    assertEquals(50, new InPlaceMergeSort(1 << 20).scratchSize(100));
+    assertThrows(IllegalArgumentException.class,
+        () -> new InPlaceMergeSort(0));
+  } // scratchWithinBudgetTest
+
+  @Test
+  public void rotateTest() {
+    for (int capacity : new int[] { 0, 3, 10 }) {
+      for (int mid = 0; mid <= 10; mid++) {
+        Integer[] vals = { 0, 1, 2, 3, 4, 5, 6, 7, 8, 9 };
+        InPlaceMergeSort.rotate(vals, 0, mid, 10, new Integer[capacity]);
+        for (int i = 0; i < 10; i++) {
+          assertEquals((mid + i) % 10, vals[i]);
+        } // for
+      } // for
+    } // for
+  } // rotateTest
+} // class InPlaceMergeSortTester
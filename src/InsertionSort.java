@@ -1,12 +1,18 @@
 import java.util.Comparator;
 
 /**
- * Sort using insertion sort.
+ * Sort using insertion sort.  Each element's place is found by binary
+ * search, so an insertion costs O(log n) comparisons, and the elements
+ * after it are shifted as one block with System.arraycopy.
+ *
+ * PAIR inserts two elements per pass with a linear scan, moving each
+ * shifted element once for both; it suits cheap comparators, where the
+ * binary search saves little.
  *
  * @author Wenfei Lin
  */
 
-public class InsertionSort implements Sorter {
+public class InsertionSort implements RangeSorter {
 
   // +--------+------------------------------------------------------
   // | Fields |
@@ -17,6 +23,27 @@ public class InsertionSort implements Sorter {
    */
   public static Sorter SORTER = new InsertionSort();
 
+  /**
+   * A sorter that inserts elements two at a time.
+   */
+  public static Sorter PAIR = new Sorter() {
+    @Override
+    public <T> void sort(T[] values, Comparator<? super T> order) {
+      pairInsertionSort(values, order, 0, values.length);
+    } // sort(T[], Comparator<? super T>)
+  };
+
+  /**
+   * The original version of this sorter, which swaps each element into
+   * place one step at a time, for comparison.
+   */
+  static final Sorter SWAPPING = new Sorter() {
+    @Override
+    public <T> void sort(T[] values, Comparator<? super T> order) {
+      swappingSort(values, order);
+    } // sort(T[], Comparator<? super T>)
+  };
+
   // +--------------+------------------------------------------------
   // | Constructors |
   // +--------------+
@@ -32,15 +59,125 @@ public class InsertionSort implements Sorter {
   // +---------+
 
   /**
-   * Sort an array using the insertion sort algorithm.
+   * Sort an array using binary insertion sort.
    * 
    * @param values The array being sorted.
    * @param order The comparator that determines what order the elements in 
    *              the array will be sorted in.
-   * @post The array will be sorted in the order delineated by the comparator.
+   * @post The array will be sorted in the order delineated by the
+   *       comparator, with equal elements in their original order.
    */
   @Override
   public <T> void sort(T[] values, Comparator<? super T> order) {
+    binaryInsertionSort(values, order, 0, values.length, 1);
+  } // sort(T[], Comparator<? super T>)
+
+  /**
+   * Sort values[lo..hi) using binary insertion sort.
+   *
+   * @param values The array holding the range.
+   * @param lo The first index (inclusive) of the range.
+   * @param hi The last index (exclusive) of the range.
+   * @param order The comparator that determines the order.
+   * @post values[lo..hi) is sorted, with equal elements in their original
+   *       order, and the rest of values is unchanged.
+   */
+  @Override
+  public <T> void sort(T[] values, int lo, int hi,
+      Comparator<? super T> order) {
+    binaryInsertionSort(values, order, lo, hi, lo + 1);
+  } // sort(T[], int, int, Comparator<? super T>)
+
+  /**
+   * Sort values[lo..hi), of which values[lo..start) is already sorted, by
+   * inserting each later element after the last element no greater than
+   * it.
+   *
+   * @param values The array being sorted.
+   * @param order The comparator that determines the order.
+   * @param lo The lower bound (inclusive) of the subarray.
+   * @param hi The upper bound (exclusive) of the subarray.
+   * @param start The end of the sorted prefix.
+   * @pre lo <= start <= hi.
+   * @post values[lo..hi) is sorted, with equal elements in their original
+   *       order.
+   */
+  static <T> void binaryInsertionSort(T[] values, Comparator<? super T> order,
+      int lo, int hi, int start) {
+    for (int i = Math.max(start, lo + 1); i < hi; i++) {
+      T key = values[i];
+      int left = lo;
+      int right = i;
+      while (left < right) {
+        int mid = (left + right) >>> 1;
+        if (order.compare(key, values[mid]) < 0) {
+          right = mid;
+        } else {
+          left = mid + 1;
+        } // if/else
+      } // while
+
+      System.arraycopy(values, left, values, left + 1, i - left);
+      values[left] = key;
+      SortProbe.moves(i - left + 1);
+    } // for
+  } // binaryInsertionSort(T[], Comparator<? super T>, int, int, int)
+
+  /**
+   * Sort values[lo..hi) by inserting two elements per pass: the larger
+   * of the pair is inserted first, shifting elements two places, and the
+   * smaller continues the scan from there, shifting them one place.
+   *
+   * @param values The array being sorted.
+   * @param order The comparator that determines the order.
+   * @param lo The lower bound (inclusive) of the subarray.
+   * @param hi The upper bound (exclusive) of the subarray.
+   * @post values[lo..hi) is sorted, with equal elements in their original
+   *       order.
+   */
+  static <T> void pairInsertionSort(T[] values, Comparator<? super T> order,
+      int lo, int hi) {
+    int i = lo + 1;
+    for (; i + 1 < hi; i += 2) {
+      T first = values[i];
+      T second = values[i + 1];
+      // Only a strictly smaller second element goes ahead of the first
+      T large = second;
+      T small = first;
+      if (order.compare(second, first) < 0) {
+        large = first;
+        small = second;
+      } // if
+
+      int j = i - 1;
+      while (j >= lo && order.compare(values[j], large) > 0) {
+        values[j + 2] = values[j];
+        j--;
+      } // while
+      values[j + 2] = large;
+      while (j >= lo && order.compare(values[j], small) > 0) {
+        values[j + 1] = values[j];
+        j--;
+      } // while
+      values[j + 1] = small;
+      SortProbe.moves(i - j + 1);
+    } // for
+
+    // An odd element out is inserted alone
+    if (i < hi) {
+      binaryInsertionSort(values, order, lo, hi, i);
+    } // if
+  } // pairInsertionSort(T[], Comparator<? super T>, int, int)
+
+  /**
+   * Sort an array by swapping each element back until it is in place.
+   * 
+   * @param values The array being sorted.
+   * @param order The comparator that determines what order the elements in 
+   *              the array will be sorted in.
+   * @post The array will be sorted in the order delineated by the comparator.
+   */
+  static <T> void swappingSort(T[] values, Comparator<? super T> order) {
     if (values.length <= 1) {
       // One element arrays are already sorted
       return; 
@@ -53,7 +190,7 @@ public class InsertionSort implements Sorter {
         barrier++;
       } // while
     } // if
-  } // sort(T[], Comparator<? super T>)
+  } // swappingSort(T[], Comparator<? super T>)
 
   /**
    * Inserts the current element at the barrier into the sorted part of 
@@ -65,8 +202,8 @@ public class InsertionSort implements Sorter {
    * @param barrier The rightmost index of the (so-far) sorted part of 
    *                the array values.
    */
-  private <T> void insert(T[] values, Comparator<? super T> order, 
-                          int barrier) {
+  private static <T> void insert(T[] values, Comparator<? super T> order, 
+                                 int barrier) {
     if (order.compare(values[barrier], values[barrier - 1]) <= -1) { 
       // If element should be swapped, keep track of element that 
       // will now be swapped (with the previous element)
@@ -1,3 +1,9 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.util.Comparator;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
 /**
  * Tests of InsertionSort.
  */
@@ -11,4 +17,54 @@ public class InsertionSortTester extends SortTester {
     super();
     this.sorter = InsertionSort.SORTER;
   } // InsertionSortTester()
-} // class InsertionSortTester
\ No newline at end of file
+
+  // +-------+-------------------------------------------------------
+  // | Tests |
+  // +-------+
+
+  @Test
+  public void stableTest() {
+    Random rand = new Random(79);
+    Comparator<Integer[]> byKey = (x, y) -> x[0].compareTo(y[0]);
+    for (int n = 0; n <= 70; n++) {
+      Integer[][] original = new Integer[n][];
+      for (int i = 0; i < n; i++) {
+        // Few distinct keys, tagged with their original position
+        original[i] = new Integer[] { rand.nextInt(5), i };
+      } // for
+      Integer[][] expected = original.clone();
+      MergeSort.SORTER.sort(expected, byKey);
+
+      for (Sorter s : new Sorter[] { InsertionSort.SORTER,
+                                     InsertionSort.PAIR }) {
+        Integer[][] vals = original.clone();
+        s.sort(vals, byKey);
+        assertArrayEquals(expected, vals);
+      } // for
+    } // for
+  } // stableTest
+
+  @Test
+  public void sortedPrefixTest() {
+    Integer[] vals = { 9, 1, 4, 6, 8, 5, 2, 7, 0 };
+    // Only values[1..7) is sorted, and only values[3..7) is new
+    InsertionSort.binaryInsertionSort(vals, Integer::compare, 1, 7, 3);
+    assertArrayEquals(new Integer[] { 9, 1, 2, 4, 5, 6, 8, 7, 0 }, vals);
+  } // sortedPrefixTest
+
+  @Test
+  public void logarithmicComparisonsTest() {
+    int n = 64;
+    Integer[] vals = new Random(83).ints(n).boxed().toArray(Integer[]::new);
+    long[] count = new long[1];
+    InsertionSort.SORTER.sort(vals, (x, y) -> {
+      count[0]++;
+      return x.compareTo(y);
+    });
+    long bound = 0;
+    for (int i = 1; i < n; i++) {
+      bound += 32 - Integer.numberOfLeadingZeros(i);
+    } // for
+    assertTrue(count[0] <= bound);
+  } // logarithmicComparisonsTest
+} // class InsertionSortTester
@@ -0,0 +1,20 @@
+/**
+ * Things that know how to sort arrays of ints without boxing them.
+ *
+ * @author Wenfei Lin
+ */
+public interface IntSorter {
+  /**
+   * Sort an array of ints in place, in ascending order.
+   *
+   * @param values, an array to sort.
+   * @pre
+   *    VALS = values.
+   * @post
+   *    values is a permutation of VALS.
+   * @post
+   *    For all i, 0 < i < values.length,
+   *      values[i-1] <= values[i]
+   */
+  public void sort(int[] values);
+} // interface IntSorter
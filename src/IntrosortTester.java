@@ -0,0 +1,44 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import java.time.Duration;
+import java.util.Arrays;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of Quicksort in introsort mode.
+ */
+public class IntrosortTester extends SortTester {
+
+  // +--------------+------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  public IntrosortTester() {
+    super();
+    this.sorter = Quicksort.INTROSORT;
+  } // IntrosortTester()
+
+  // +-------+-------------------------------------------------------
+  // | Tests |
+  // +-------+
+
+  @Test
+  public void manySameElementsTest() {
+    // Two-way partitioning degrades on these; the depth limit must catch it
+    Integer[] original = new Integer[200_000];
+    Arrays.fill(original, 7);
+    Integer[] expected = original.clone();
+    assertTimeoutPreemptively(Duration.ofSeconds(10),
+        () -> sorter.sort(original, Integer::compare));
+    assertArrayEquals(expected, original);
+  } // manySameElementsTest
+
+  @Test
+  public void heapSortTest() {
+    Integer[] original = { 5, 3, 9, 1, 1, 8, 2, 7, 4, 6, 0 };
+    Integer[] expected = original.clone();
+    Arrays.sort(expected);
+    Quicksort.heapSort(original, Integer::compare, 0, original.length);
+    assertArrayEquals(expected, original);
+  } // heapSortTest
+} // class IntrosortTester
@@ -0,0 +1,323 @@
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Combine many sorted arrays or iterators into one sorted sequence with a
+ * LoserTree, using O(n log k) comparisons for k sources.  Equal elements
+ * come out in the order of their sources, and within a source in their
+ * original order.
+ *
+ * parallelMerge splits the output into pieces at splitter elements
+ * sampled from the sources.  The co-rank of a splitter in each source
+ * (how many of its elements come before the splitter) is found by binary
+ * search, and the pieces are merged independently.
+ *
+ * @author Wenfei Lin
+ */
+public class KWayMerge {
+
+  // +-----------+---------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  // Outputs smaller than this are merged sequentially
+  static final int PARALLEL_THRESHOLD = 1 << 14;
+
+  // Pieces per worker, so uneven pieces still balance
+  static final int PIECES_PER_THREAD = 4;
+
+  // +--------------+------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  private KWayMerge() {
+  } // KWayMerge()
+
+  // +---------+-----------------------------------------------------
+  // | Methods |
+  // +---------+
+
+  /**
+   * Merge sorted arrays into a new array.
+   *
+   * @param sources The arrays, each sorted by order.
+   * @param order The order of the elements.
+   * @return A sorted array of every element of the sources.
+   */
+  public static <T> T[] merge(T[][] sources, Comparator<? super T> order) {
+    T[] merged = newArray(sources);
+    mergeInto(sources, order, new int[sources.length], lengths(sources),
+        merged, 0);
+    return merged;
+  } // merge(T[][], Comparator<? super T>)
+
+  /**
+   * Merge sorted iterators lazily.
+   *
+   * @param sources The iterators, each sorted by order.
+   * @param order The order of the elements.
+   * @return An iterator over every element of the sources, in order.
+   */
+  public static <T> Iterator<T> merge(
+      List<? extends Iterator<? extends T>> sources,
+      Comparator<? super T> order) {
+    return new LoserTree<T>(sources, order);
+  } // merge(List<? extends Iterator<? extends T>>, Comparator<? super T>)
+
+  /**
+   * Merge sorted arrays into a new array using the common pool.
+   *
+   * @param sources The arrays, each sorted by order.
+   * @param order The order of the elements.
+   * @return The same array merge would return.
+   */
+  public static <T> T[] parallelMerge(T[][] sources,
+      Comparator<? super T> order) {
+    return parallelMerge(sources, order, ForkJoinPool.commonPool(),
+        PARALLEL_THRESHOLD);
+  } // parallelMerge(T[][], Comparator<? super T>)
+
+  /**
+   * Merge sorted arrays into a new array in a given pool.
+   *
+   * @param sources The arrays, each sorted by order.
+   * @param order The order of the elements.
+   * @param pool The pool that merges the pieces.
+   * @param threshold The output size below which merging is sequential.
+   * @return The same array merge would return.
+   */
+  static <T> T[] parallelMerge(T[][] sources, Comparator<? super T> order,
+      ForkJoinPool pool, int threshold) {
+    T[] merged = newArray(sources);
+    int pieces = pool.getParallelism() * PIECES_PER_THREAD;
+    if (merged.length < threshold || pieces <= 1) {
+      mergeInto(sources, order, new int[sources.length], lengths(sources),
+          merged, 0);
+      return merged;
+    } // if
+
+    // cuts[p][i] is where piece p starts in source i
+    List<int[]> cuts = new ArrayList<int[]>();
+    cuts.add(new int[sources.length]);
+    for (Splitter<T> splitter : splitters(sources, order, pieces)) {
+      int[] cut = new int[sources.length];
+      for (int i = 0; i < sources.length; i++) {
+        cut[i] = coRank(sources, order, i, splitter);
+      } // for
+      cuts.add(cut);
+    } // for
+    cuts.add(lengths(sources));
+
+    pool.invoke(new PiecesTask<T>(sources, order, merged, cuts, 0,
+        cuts.size() - 1));
+    return merged;
+  } // parallelMerge(T[][], Comparator<? super T>, ForkJoinPool, int)
+
+  /**
+   * Merge sources[i][from[i]..to[i]) for every i into merged[out..).
+   */
+  static <T> void mergeInto(T[][] sources, Comparator<? super T> order,
+      int[] from, int[] to, T[] merged, int out) {
+    List<Iterator<T>> slices = new ArrayList<Iterator<T>>(sources.length);
+    for (int i = 0; i < sources.length; i++) {
+      slices.add(new Slice<T>(sources[i], from[i], to[i]));
+    } // for
+    LoserTree<T> tree = new LoserTree<T>(slices, order);
+    while (tree.hasNext()) {
+      merged[out++] = tree.next();
+    } // while
+  } // mergeInto(T[][], Comparator<? super T>, int[], int[], T[], int)
+
+  /**
+   * Count the elements of source i that come before a splitter in the
+   * merged order.  Ties go to the earlier source, and within the
+   * splitter's own source to the earlier position.
+   *
+   * @return The co-rank of the splitter in source i.
+   */
+  static <T> int coRank(T[][] sources, Comparator<? super T> order, int i,
+      Splitter<T> splitter) {
+    if (i == splitter.source) {
+      return splitter.pos;
+    } // if
+    T[] a = sources[i];
+    T key = sources[splitter.source][splitter.pos];
+    // Before the splitter's source, equal elements come first
+    boolean equalBefore = i < splitter.source;
+    int lo = 0;
+    int hi = a.length;
+    while (lo < hi) {
+      int mid = (lo + hi) >>> 1;
+      int cmp = order.compare(a[mid], key);
+      if (cmp < 0 || (cmp == 0 && equalBefore)) {
+        lo = mid + 1;
+      } else {
+        hi = mid;
+      } // if/else
+    } // while
+    return lo;
+  } // coRank(T[][], Comparator<? super T>, int, Splitter<T>)
+
+  /**
+   * Pick up to pieces - 1 splitters, in merged order, from an evenly
+   * spaced sample of every source.
+   */
+  static <T> List<Splitter<T>> splitters(T[][] sources,
+      Comparator<? super T> order, int pieces) {
+    long total = 0;
+    for (T[] source : sources) {
+      total += source.length;
+    } // for
+    int samplesPerPiece = 8;
+    long step = Math.max(1, total / ((long) pieces * samplesPerPiece));
+
+    List<Splitter<T>> sample = new ArrayList<Splitter<T>>();
+    for (int i = 0; i < sources.length; i++) {
+      for (long p = step / 2; p < sources[i].length; p += step) {
+        sample.add(new Splitter<T>(i, (int) p));
+      } // for
+    } // for
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    Splitter<T>[] sorted = sample.toArray(new Splitter[0]);
+    LinWenfeiSort.SORTER.sort(sorted, (x, y) -> {
+      int cmp = order.compare(sources[x.source][x.pos],
+                              sources[y.source][y.pos]);
+      if (cmp != 0) {
+        return cmp;
+      } else if (x.source != y.source) {
+        return Integer.compare(x.source, y.source);
+      } // if
+      return Integer.compare(x.pos, y.pos);
+    });
+
+    List<Splitter<T>> splitters = new ArrayList<Splitter<T>>();
+    for (int p = 1; p < pieces && sorted.length > 0; p++) {
+      Splitter<T> s = sorted[(int) ((long) p * sorted.length / pieces)];
+      if (splitters.isEmpty() || splitters.get(splitters.size() - 1) != s) {
+        splitters.add(s);
+      } // if
+    } // for
+    return splitters;
+  } // splitters(T[][], Comparator<? super T>, int)
+
+  /**
+   * Make an array big enough for every element of the sources.
+   */
+  @SuppressWarnings("unchecked")
+  private static <T> T[] newArray(T[][] sources) {
+    long total = 0;
+    for (T[] source : sources) {
+      total += source.length;
+    } // for
+    if (total > Integer.MAX_VALUE - 8) {
+      throw new IllegalArgumentException("too many elements to merge");
+    } // if
+    return (T[]) Array.newInstance(
+        sources.getClass().getComponentType().getComponentType(),
+        (int) total);
+  } // newArray(T[][])
+
+  /**
+   * Get the length of each source.
+   */
+  private static int[] lengths(Object[][] sources) {
+    int[] lengths = new int[sources.length];
+    for (int i = 0; i < sources.length; i++) {
+      lengths[i] = sources[i].length;
+    } // for
+    return lengths;
+  } // lengths(Object[][])
+
+  // +---------------+-----------------------------------------------
+  // | Inner Classes |
+  // +---------------+
+
+  /**
+   * An element of a source, identified by where it is.
+   */
+  static class Splitter<T> {
+    final int source;
+    final int pos;
+
+    Splitter(int source, int pos) {
+      this.source = source;
+      this.pos = pos;
+    } // Splitter(int, int)
+  } // class Splitter<T>
+
+  /**
+   * The elements of values[from..to).
+   */
+  static class Slice<T> implements Iterator<T> {
+    final T[] values;
+    final int to;
+    int pos;
+
+    Slice(T[] values, int from, int to) {
+      this.values = values;
+      this.pos = from;
+      this.to = to;
+    } // Slice(T[], int, int)
+
+    @Override
+    public boolean hasNext() {
+      return this.pos < this.to;
+    } // hasNext()
+
+    @Override
+    public T next() {
+      if (this.pos >= this.to) {
+        throw new NoSuchElementException();
+      } // if
+      return this.values[this.pos++];
+    } // next()
+  } // class Slice<T>
+
+  /**
+   * Merge the pieces numbered [lo..hi), each bounded by consecutive cuts.
+   */
+  @SuppressWarnings("serial")
+  static class PiecesTask<T> extends RecursiveAction {
+    final T[][] sources;
+    final Comparator<? super T> order;
+    final T[] merged;
+    final List<int[]> cuts;
+    final int lo;
+    final int hi;
+
+    PiecesTask(T[][] sources, Comparator<? super T> order, T[] merged,
+        List<int[]> cuts, int lo, int hi) {
+      this.sources = sources;
+      this.order = order;
+      this.merged = merged;
+      this.cuts = cuts;
+      this.lo = lo;
+      this.hi = hi;
+    } // PiecesTask(T[][], Comparator<? super T>, T[], List<int[]>, ...)
+
+    @Override
+    protected void compute() {
+      if (this.hi - this.lo > 1) {
+        int mid = (this.lo + this.hi) >>> 1;
+        invokeAll(new PiecesTask<T>(sources, order, merged, cuts, lo, mid),
+            new PiecesTask<T>(sources, order, merged, cuts, mid, hi));
+        return;
+      } // if
+
+      int[] from = this.cuts.get(this.lo);
+      int[] to = this.cuts.get(this.lo + 1);
+      int out = 0;
+      for (int start : from) {
+        out += start;
+      } // for
+      mergeInto(this.sources, this.order, from, to, this.merged, out);
+    } // compute()
+  } // class PiecesTask<T>
+} // class KWayMerge
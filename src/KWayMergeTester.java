@@ -0,0 +1,117 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of KWayMerge.
+ *
+ * @author Wenfei Lin
+ */
+public class KWayMergeTester {
+
+  // +-----------+---------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  // Compares only the key in the high bits of a tagged value
+  static final Comparator<Long> BY_KEY = (x, y) -> Long.compare(x >> 32,
+                                                                 y >> 32);
+
+  // +-------+-------------------------------------------------------
+  // | Tests |
+  // +-------+
+
+  @Test
+  public void mergeTest() {
+    for (int k : new int[] { 0, 1, 2, 3, 17, 300 }) {
+      Long[][] sources = sources(k, 200, new Random(k));
+      assertArrayEquals(expected(sources), KWayMerge.merge(sources, BY_KEY));
+    } // for
+  } // mergeTest
+
+  @Test
+  public void iteratorsTest() {
+    Long[][] sources = sources(40, 500, new Random(31));
+    List<Iterator<Long>> iterators = new ArrayList<Iterator<Long>>();
+    for (Long[] source : sources) {
+      iterators.add(Arrays.asList(source).iterator());
+    } // for
+    List<Long> merged = new ArrayList<Long>();
+    KWayMerge.merge(iterators, BY_KEY).forEachRemaining(merged::add);
+    assertArrayEquals(expected(sources), merged.toArray(new Long[0]));
+  } // iteratorsTest
+
+  @Test
+  public void parallelMergeTest() {
+    ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      for (int k : new int[] { 1, 2, 5, 64, 257 }) {
+        Long[][] sources = sources(k, 4000, new Random(37 + k));
+        assertArrayEquals(expected(sources),
+            KWayMerge.parallelMerge(sources, BY_KEY, pool, 1));
+      } // for
+    } finally {
+      pool.shutdown();
+    } // try/finally
+  } // parallelMergeTest
+
+  @Test
+  public void allEqualParallelTest() {
+    Long[][] sources = new Long[8][1000];
+    for (int i = 0; i < sources.length; i++) {
+      for (int j = 0; j < sources[i].length; j++) {
+        sources[i][j] = (long) i * 1000 + j;
+      } // for
+    } // for
+    Long[] merged = KWayMerge.parallelMerge(sources, (x, y) -> 0,
+        ForkJoinPool.commonPool(), 1);
+    for (int i = 0; i < merged.length; i++) {
+      assertEquals(i, merged[i].longValue());
+    } // for
+  } // allEqualParallelTest
+
+  @Test
+  public void keepsComponentTypeTest() {
+    String[][] sources = { { "a", "c" }, { "b" } };
+    String[] merged = KWayMerge.merge(sources, String::compareTo);
+    assertArrayEquals(new String[] { "a", "b", "c" }, merged);
+  } // keepsComponentTypeTest
+
+  // +---------+-----------------------------------------------------
+  // | Helpers |
+  // +---------+
+
+  /**
+   * Make k sorted sources of up to maxLength tagged values with few
+   * distinct keys, some of them empty.
+   */
+  static Long[][] sources(int k, int maxLength, Random rand) {
+    Long[][] sources = new Long[k][];
+    long tag = 0;
+    for (int i = 0; i < k; i++) {
+      sources[i] = new Long[rand.nextInt(maxLength + 1)];
+      for (int j = 0; j < sources[i].length; j++) {
+        sources[i][j] = ((long) rand.nextInt(50) << 32) | tag++;
+      } // for
+      LinWenfeiSort.SORTER.sort(sources[i], BY_KEY);
+    } // for
+    return sources;
+  } // sources(int, int, Random)
+
+  /**
+   * Concatenate the sources and sort them stably.
+   */
+  static Long[] expected(Long[][] sources) {
+    Long[] all = Arrays.stream(sources).flatMap(Arrays::stream)
+        .toArray(Long[]::new);
+    LinWenfeiSort.SORTER.sort(all, BY_KEY);
+    return all;
+  } // expected(Long[][])
+} // class KWayMergeTester
@@ -0,0 +1,156 @@
+import java.util.Comparator;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * Sorting by a key computed once per element.  The keys are cached in an
+ * array parallel to the values, the indices are sorted by key, and the
+ * permutation is applied to the values in place.  Primitive keys stay in
+ * primitive arrays, so comparisons neither recompute nor unbox them.
+ *
+ * Given a Sorter (as the defaults of Sorter do), the indices are boxed
+ * and sorted by that sorter, so the sort is stable if it is.  Without
+ * one, they are sorted as an int[] with Argsort, which is always stable
+ * and allocates nothing per element.
+ *
+ * @author Wenfei Lin
+ */
+class KeySort {
+
+  // +---------+-----------------------------------------------------
+  // | Methods |
+  // +---------+
+
+  /**
+   * Sort values by the keys keyFn gives them, in keyOrder, with sorter.
+   *
+   * @param sorter The sorter that orders the indices.
+   * @param values The array being sorted.
+   * @param keyFn Computes the key of a value.
+   * @param keyOrder The order of the keys.
+   * @post keyFn has been applied once to each value, and values is sorted
+   *       by key, stably if sorter is stable.
+   */
+  @SuppressWarnings("unchecked")
+  static <T, K> void sortByKey(Sorter sorter, T[] values,
+      Function<? super T, ? extends K> keyFn, Comparator<? super K> keyOrder) {
+    Object[] keys = new Object[values.length];
+    for (int i = 0; i < values.length; i++) {
+      keys[i] = keyFn.apply(values[i]);
+    } // for
+    sortIndices(sorter, values,
+        (i, j) -> keyOrder.compare((K) keys[i], (K) keys[j]));
+  } // sortByKey(Sorter, T[], Function, Comparator)
+
+  /**
+   * Sort values by the long keys keyFn gives them, with sorter.
+   *
+   * @param sorter The sorter that orders the indices.
+   * @param values The array being sorted.
+   * @param keyFn Computes the key of a value.
+   * @post keyFn has been applied once to each value, and values is sorted
+   *       by key, stably if sorter is stable.
+   */
+  static <T> void sortByLongKey(Sorter sorter, T[] values,
+      ToLongFunction<? super T> keyFn) {
+    long[] keys = new long[values.length];
+    for (int i = 0; i < values.length; i++) {
+      keys[i] = keyFn.applyAsLong(values[i]);
+    } // for
+    sortIndices(sorter, values, (i, j) -> Long.compare(keys[i], keys[j]));
+  } // sortByLongKey(Sorter, T[], ToLongFunction)
+
+  /**
+   * Sort values by the int keys keyFn gives them, with sorter.
+   *
+   * @param sorter The sorter that orders the indices.
+   * @param values The array being sorted.
+   * @param keyFn Computes the key of a value.
+   * @post keyFn has been applied once to each value, and values is sorted
+   *       by key, stably if sorter is stable.
+   */
+  static <T> void sortByIntKey(Sorter sorter, T[] values,
+      ToIntFunction<? super T> keyFn) {
+    int[] keys = new int[values.length];
+    for (int i = 0; i < values.length; i++) {
+      keys[i] = keyFn.applyAsInt(values[i]);
+    } // for
+    sortIndices(sorter, values, (i, j) -> Integer.compare(keys[i], keys[j]));
+  } // sortByIntKey(Sorter, T[], ToIntFunction)
+
+  /**
+   * Sort the indices of values with sorter, and permute values to match.
+   *
+   * @param sorter The sorter that orders the indices.
+   * @param values The array being sorted.
+   * @param order Compares the keys at two indices.
+   */
+  static <T> void sortIndices(Sorter sorter, T[] values,
+      Argsort.IndexOrder order) {
+    Integer[] indices = new Integer[values.length];
+    for (int i = 0; i < indices.length; i++) {
+      indices[i] = i;
+    } // for
+    sorter.sort(indices, order::compare);
+    int[] perm = new int[indices.length];
+    for (int i = 0; i < perm.length; i++) {
+      perm[i] = indices[i];
+    } // for
+    Argsort.apply(perm, (Object) values);
+  } // sortIndices(Sorter, T[], Argsort.IndexOrder)
+
+  /**
+   * Sort values by the keys keyFn gives them, in keyOrder.
+   *
+   * @param values The array being sorted.
+   * @param keyFn Computes the key of a value.
+   * @param keyOrder The order of the keys.
+   * @post keyFn has been applied once to each value, and values is stably
+   *       sorted by key.
+   */
+  @SuppressWarnings("unchecked")
+  static <T, K> void sortByKey(T[] values,
+      Function<? super T, ? extends K> keyFn, Comparator<? super K> keyOrder) {
+    Object[] keys = new Object[values.length];
+    for (int i = 0; i < values.length; i++) {
+      keys[i] = keyFn.apply(values[i]);
+    } // for
+    int[] perm = Argsort.sortIndices(keys.length,
+        (i, j) -> keyOrder.compare((K) keys[i], (K) keys[j]));
+    Argsort.apply(perm, (Object) values);
+  } // sortByKey(T[], Function, Comparator)
+
+  /**
+   * Sort values by the long keys keyFn gives them, in ascending order.
+   *
+   * @param values The array being sorted.
+   * @param keyFn Computes the key of a value.
+   * @post keyFn has been applied once to each value, and values is stably
+   *       sorted by key.
+   */
+  static <T> void sortByLongKey(T[] values, ToLongFunction<? super T> keyFn) {
+    long[] keys = new long[values.length];
+    for (int i = 0; i < values.length; i++) {
+      keys[i] = keyFn.applyAsLong(values[i]);
+    } // for
+    Argsort.apply(Argsort.argsort(keys), (Object) values);
+  } // sortByLongKey(T[], ToLongFunction)
+
+  /**
+   * Sort values by the int keys keyFn gives them, in ascending order.
+   *
+   * @param values The array being sorted.
+   * @param keyFn Computes the key of a value.
+   * @post keyFn has been applied once to each value, and values is stably
+   *       sorted by key.
+   */
+  static <T> void sortByIntKey(T[] values, ToIntFunction<? super T> keyFn) {
+    int[] keys = new int[values.length];
+    for (int i = 0; i < values.length; i++) {
+      keys[i] = keyFn.applyAsInt(values[i]);
+    } // for
+    // Radix sorted with the keys packed above their indices
+    Argsort.apply(Argsort.argsort(keys), (Object) values);
+  } // sortByIntKey(T[], ToIntFunction)
+} // class KeySort
@@ -0,0 +1,157 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of sorting by a cached key.
+ *
+ * @author Wenfei Lin
+ */
+public class KeySortTester {
+
+  // +-----------+---------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  static final int SIZE = 10_000;
+
+  static final Sorter[] STABLE = { LinWenfeiSort.SORTER, MergeSort.SORTER,
+                                   InsertionSort.SORTER };
+
+  // +-------+-------------------------------------------------------
+  // | Tests |
+  // +-------+
+
+  @Test
+  public void keyComputedOnceTest() {
+    for (Sorter sorter : new Sorter[] { LinWenfeiSort.SORTER,
+                                        Quicksort.DUAL_PIVOT }) {
+      String[] vals = words();
+      AtomicInteger calls = new AtomicInteger();
+      sorter.sortByKey(vals, (s) -> {
+        calls.incrementAndGet();
+        return s.toLowerCase();
+      });
+      assertEquals(SIZE, calls.get());
+
+      // Quicksort need not keep equal keys in order, so compare keys
+      String[] expected = words();
+      Arrays.sort(expected, Comparator.comparing(String::toLowerCase));
+      assertArrayEquals(lowerCase(expected), lowerCase(vals));
+    } // for
+  } // keyComputedOnceTest
+
+  @Test
+  public void stableByKeyTest() {
+    for (Sorter sorter : STABLE) {
+      String[] vals = words();
+      sorter.sortByKey(vals, (s) -> s.length(), Comparator.reverseOrder());
+      String[] expected = words();
+      Arrays.sort(expected,
+          Comparator.comparing(String::length).reversed());
+      assertArrayEquals(expected, vals);
+    } // for
+  } // stableByKeyTest
+
+  @Test
+  public void longKeyTest() {
+    for (Sorter sorter : STABLE) {
+      String[] vals = words();
+      AtomicInteger calls = new AtomicInteger();
+      sorter.sortByLongKey(vals, (s) -> {
+        calls.incrementAndGet();
+        return Long.parseLong(s, 36) % 97;
+      });
+      assertEquals(SIZE, calls.get());
+      String[] expected = words();
+      Arrays.sort(expected,
+          Comparator.comparingLong((s) -> Long.parseLong(s, 36) % 97));
+      assertArrayEquals(expected, vals);
+    } // for
+  } // longKeyTest
+
+  @Test
+  public void intKeyTest() {
+    for (Sorter sorter : STABLE) {
+      String[] vals = words();
+      sorter.sortByIntKey(vals, (s) -> s.charAt(0));
+      String[] expected = words();
+      Arrays.sort(expected, Comparator.comparingInt((s) -> s.charAt(0)));
+      assertArrayEquals(expected, vals);
+    } // for
+  } // intKeyTest
+
+  @Test
+  public void sortedByThisSorterTest() {
+    // A sorter that sorts backwards shows whose order was used
+    Sorter reversing = new Sorter() {
+      @Override
+      public <T> void sort(T[] values, Comparator<? super T> order) {
+        LinWenfeiSort.SORTER.sort(values, order.reversed());
+      } // sort(T[], Comparator<? super T>)
+    };
+    String[] vals = words();
+    reversing.sortByIntKey(vals, String::length);
+    String[] expected = words();
+    Arrays.sort(expected,
+        Comparator.comparingInt(String::length).reversed());
+    assertArrayEquals(expected, vals);
+  } // sortedByThisSorterTest
+
+  @Test
+  public void argsortKeysTest() {
+    // Without a sorter, Argsort sorts the keys, stably
+    String[] vals = words();
+    KeySort.sortByIntKey(vals, String::length);
+    String[] expected = words();
+    Arrays.sort(expected, Comparator.comparingInt(String::length));
+    assertArrayEquals(expected, vals);
+
+    vals = words();
+    KeySort.sortByLongKey(vals, (s) -> -s.length());
+    expected = words();
+    Arrays.sort(expected, Comparator.comparingLong((s) -> -s.length()));
+    assertArrayEquals(expected, vals);
+
+    vals = words();
+    KeySort.sortByKey(vals, String::toLowerCase, Comparator.naturalOrder());
+    expected = words();
+    Arrays.sort(expected, Comparator.comparing(String::toLowerCase));
+    assertArrayEquals(expected, vals);
+  } // argsortKeysTest
+
+  @Test
+  public void emptyTest() {
+    String[] vals = {};
+    Quicksort.SORTER.sortByIntKey(vals, String::length);
+    assertEquals(0, vals.length);
+  } // emptyTest
+
+  // +---------+-----------------------------------------------------
+  // | Helpers |
+  // +---------+
+
+  /**
+   * Lowercase every word.
+   */
+  static String[] lowerCase(String[] vals) {
+    return Arrays.stream(vals).map(String::toLowerCase).toArray(String[]::new);
+  } // lowerCase(String[])
+
+  /**
+   * Make SIZE short mixed-case words, the same ones every call.
+   */
+  static String[] words() {
+    Random rand = new Random(17);
+    String[] vals = new String[SIZE];
+    for (int i = 0; i < SIZE; i++) {
+      String word = Integer.toString(rand.nextInt(1 << 16), 36);
+      vals[i] = rand.nextBoolean() ? word.toUpperCase() : word;
+    } // for
+    return vals;
+  } // words()
+} // class KeySortTester
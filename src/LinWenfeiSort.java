@@ -13,13 +13,22 @@ import java.util.Comparator;
  * @author ChatGPT, Wenfei Lin
  */
 
-public class LinWenfeiSort implements Sorter {
+public class LinWenfeiSort implements RangeSorter {
   // +-----------+---------------------------------------------------
   // | Constants |
   // +-----------+
 
   // The size of the smaller chunks that TimSort divides the array into
-  private static final int MIN_MERGE = 32;
+  static final int MIN_MERGE = 32;
+
+  // How many times in a row one run must win before merges start galloping
+  static final int MIN_GALLOP = 7;
+
+  // Enough room for the run stack of any int-sized array
+  private static final int MAX_RUNS = 49;
+
+  // The scratch array before the first merge that needs one
+  private static final Object[] EMPTY = new Object[0];
 
   // +--------+------------------------------------------------------
   // | Fields |
@@ -30,6 +39,27 @@ public class LinWenfeiSort implements Sorter {
    */
   public static Sorter SORTER = new LinWenfeiSort();
 
+  /**
+   * The original fixed-chunk version of this sorter, for comparison.
+   */
+  static final Sorter CHUNKED = new Sorter() {
+    @Override
+    public <T> void sort(T[] values, Comparator<? super T> order) {
+      chunkedSort(values, order);
+    } // sort(T[], Comparator<? super T>)
+  };
+
+  /**
+   * A sorter that merges through a per-thread scratch buffer, so repeated
+   * sorts on the same thread do not allocate.
+   */
+  public static Sorter POOLED = new LinWenfeiSort(ScratchBuffer.PER_THREAD);
+
+  /**
+   * Where merge scratch space comes from (null to allocate it per sort).
+   */
+  private final ScratchBuffer buffer;
+
   // +--------------+------------------------------------------------
   // | Constructors |
   // +--------------+
@@ -38,15 +68,26 @@ public class LinWenfeiSort implements Sorter {
    * Create a sorter.
    */
   LinWenfeiSort() {
+    this(null);
   } // LinWenfeiSort()
 
+  /**
+   * Create a sorter that borrows its scratch space from buffer.
+   *
+   * @param buffer The scratch buffer, or null to allocate one per sort.
+   */
+  LinWenfeiSort(ScratchBuffer buffer) {
+    this.buffer = buffer;
+  } // LinWenfeiSort(ScratchBuffer)
+
   // +---------+-----------------------------------------------------
   // | Methods |
   // +---------+
 
   /**
-   * Sort an array using a somewhat modified TimSort (mergeSort +
-   * insertionSort).
+   * Sort an array using TimSort: natural runs are found (descending ones
+   * are reversed), short runs are extended to minRun with insertion sort,
+   * and runs are merged off a stack using galloping merges.
    * 
    * @param values The array being sorted.
    * @param order  The comparator that determines what order the elements in
@@ -55,13 +96,106 @@ public class LinWenfeiSort implements Sorter {
    */
   @Override
   public <T> void sort(T[] values, Comparator<? super T> order) {
+    sortRuns(new MergeState<T>(values, order, this.buffer));
+  } // sort(T[], Comparator<? super T>)
+
+  /**
+   * Sort values[lo..hi) as sort does the whole array.
+   *
+   * @param values The array holding the range.
+   * @param lo     The first index (inclusive) of the range.
+   * @param hi     The last index (exclusive) of the range.
+   * @param order  The comparator that determines the order.
+   * @post values[lo..hi) is sorted, and the rest of values is unchanged.
+   */
+  @Override
+  public <T> void sort(T[] values, int lo, int hi,
+      Comparator<? super T> order) {
+    sortRuns(new MergeState<T>(values, hi - lo, order, this.buffer), lo, hi);
+  } // sort(T[], int, int, Comparator<? super T>)
+
+  /**
+   * Sort the array of a merge state: find and extend its runs, and merge
+   * them with the state, which decides how each merge is done.
+   *
+   * @param state A fresh merge state for the array being sorted.
+   * @post state.values is sorted by state.order, and state has been
+   *       released.
+   */
+  static <T> void sortRuns(MergeState<T> state) {
+    sortRuns(state, 0, state.values.length);
+  } // sortRuns(MergeState<T>)
+
+  /**
+   * Sort values[lo..hi) of a merge state's array, as sortRuns does the
+   * whole array.
+   *
+   * @param state A fresh merge state for the array, sized for the range.
+   * @param lo The first index (inclusive) of the range.
+   * @param hi The last index (exclusive) of the range.
+   * @post state.values[lo..hi) is sorted by state.order, and state has
+   *       been released.
+   */
+  static <T> void sortRuns(MergeState<T> state, int lo, int hi) {
+    T[] values = state.values;
+    Comparator<? super T> order = state.order;
+    int remaining = hi - lo;
+
+    if (remaining < 2) {
+      return;
+    } // if
+
+    // Small ranges are a single run finished off by insertion sort
+    if (remaining < MIN_MERGE) {
+      int runLen = countRunAndMakeAscending(values, order, lo, hi);
+      InsertionSort.binaryInsertionSort(values, order, lo, hi, lo + runLen);
+      return;
+    } // if
+
+    int minRun = minRunLength(remaining);
+
+    do {
+      int runLen = countRunAndMakeAscending(values, order, lo, lo + remaining);
+
+      // Extend short runs to minRun elements; the run already found is
+      // sorted, so only the new elements are inserted, each by binary
+      // search
+      if (runLen < minRun) {
+        int force = Math.min(remaining, minRun);
+        InsertionSort.binaryInsertionSort(values, order, lo, lo + force,
+            lo + runLen);
+        runLen = force;
+      } // if
+
+      state.pushRun(lo, runLen);
+      state.mergeCollapse();
+
+      lo += runLen;
+      remaining -= runLen;
+    } while (remaining != 0);
+
+    state.mergeForceCollapse();
+    state.release();
+  } // sortRuns(MergeState<T>, int, int)
+
+  /**
+   * Sort an array by insertion sorting fixed MIN_MERGE-sized chunks and
+   * merging them bottom-up (the original version of this sorter, kept so
+   * the two can be compared).
+   * 
+   * @param values The array being sorted.
+   * @param order  The comparator that determines what order the elements in
+   *               the array will be sorted in.
+   * @post The array will be sorted in the order delineated by the comparator.
+   */
+  static <T> void chunkedSort(T[] values, Comparator<? super T> order) {
     int arrLen = values.length;
 
     // Sort the small-sized chunks (determined by MIN_MERGE)
-    // of the array using insertion sort:
+    // of the array using binary insertion sort:
     for (int i = 0; i < arrLen; i += MIN_MERGE) {
-      insertionSort(values, order, i,
-          Math.min((i + MIN_MERGE - 1), (arrLen - 1)));
+      InsertionSort.binaryInsertionSort(values, order, i,
+          Math.min(i + MIN_MERGE, arrLen), i);
     } // for
 
     // Merge sorted chunks (using the merge from mergeSort)... keep merging
@@ -71,6 +205,11 @@ public class LinWenfeiSort implements Sorter {
         int mid = Math.min(arrLen, left + size);
         int right = Math.min(arrLen, left + 2 * size);
 
+        // A trailing chunk with no partner is already in place
+        if (mid >= right) {
+          continue;
+        } // if
+
         // Check if the two chunks are already sorted
         if (order.compare(values[mid - 1], values[mid]) <= 0) {
           // Skip the merge if not needed
@@ -80,7 +219,75 @@ public class LinWenfeiSort implements Sorter {
         merge(values, order, left, mid, right);
       } // for
     } // for
-  } // sort(T[], Comparator<? super T>)
+  } // chunkedSort(T[], Comparator<? super T>)
+
+  /**
+   * Find the length of the run starting at lo, reversing it first if it is
+   * strictly descending (strictly, so that reversing keeps the sort stable).
+   * 
+   * @param values The array being sorted.
+   * @param order  The comparator that determines the order.
+   * @param lo     The first index (inclusive) of the run.
+   * @param hi     The highest index (exclusive) the run may reach.
+   * @return The length of the run, which is now ascending.
+   * @pre lo < hi.
+   */
+  static <T> int countRunAndMakeAscending(T[] values,
+      Comparator<? super T> order, int lo, int hi) {
+    int runHi = lo + 1;
+
+    if (runHi == hi) {
+      return 1;
+    } // if
+
+    if (order.compare(values[runHi++], values[lo]) < 0) {
+      // Descending
+      while (runHi < hi
+          && order.compare(values[runHi], values[runHi - 1]) < 0) {
+        runHi++;
+      } // while
+      reverseRange(values, lo, runHi);
+    } else {
+      // Ascending
+      while (runHi < hi
+          && order.compare(values[runHi], values[runHi - 1]) >= 0) {
+        runHi++;
+      } // while
+    } // if/else
+
+    return runHi - lo;
+  } // countRunAndMakeAscending(T[], Comparator<? super T>, int, int)
+
+  /**
+   * Reverse the elements of values[lo..hi).
+   * 
+   * @param values The array holding the range.
+   * @param lo     The first index (inclusive) of the range.
+   * @param hi     The last index (exclusive) of the range.
+   */
+  static <T> void reverseRange(T[] values, int lo, int hi) {
+    hi--;
+    while (lo < hi) {
+      Utils.swap(values, lo++, hi--);
+    } // while
+  } // reverseRange(T[], int, int)
+
+  /**
+   * Compute the minimum run length for an array of length n, chosen so that
+   * n / minRun is a power of two or slightly less than one.
+   * 
+   * @param n The length of the array being sorted.
+   * @return A run length between MIN_MERGE / 2 and MIN_MERGE.
+   */
+  static int minRunLength(int n) {
+    // Becomes 1 if any 1 bits are shifted off
+    int r = 0;
+    while (n >= MIN_MERGE) {
+      r |= (n & 1);
+      n >>= 1;
+    } // while
+    return n + r;
+  } // minRunLength(int)
 
   /**
    * Sort an array using the insertion sort algorithm.
@@ -92,7 +299,7 @@ public class LinWenfeiSort implements Sorter {
    * @param right  The rightmost index of the array
    * @post The array will be sorted in the order delineated by the comparator.
    */
-  private <T> void insertionSort(T[] values, Comparator<? super T> order,
+  static <T> void insertionSort(T[] values, Comparator<? super T> order,
       int left, int right) {
     for (int i = left + 1; i <= right; i++) {
       // Reuse a single key variable
@@ -105,6 +312,7 @@ public class LinWenfeiSort implements Sorter {
       } // while
 
       values[j + 1] = key;
+      SortProbe.moves(i - j);
     } // for
   } // insertionSort(T[], Comparator<? super T>, int, int)
 
@@ -120,8 +328,9 @@ public class LinWenfeiSort implements Sorter {
    * @post The subarray with its boundaries defined by left and right in the
    *       original array is sorted.
    */
-  private <T> void merge(T[] values, Comparator<? super T> order, int left, int mid, int right) {
-    System.out.println("Merge called with left=" + left + ", mid=" + mid + ", right=" + right);
+  private static <T> void merge(T[] values, Comparator<? super T> order,
+      int left, int mid, int right) {
+    SortProbe.merge(left, mid, right);
 
     int leftSize = mid - left;
     int rightSize = right - mid;
@@ -156,4 +365,475 @@ public class LinWenfeiSort implements Sorter {
     // Copy the merged elements back to the original array
     System.arraycopy(merged, 0, values, left, leftSize + rightSize);
   } // merge(T[], Comparator<? super T>, int, int, int)
+
+  // +---------------+-----------------------------------------------
+  // | Inner Classes |
+  // +---------------+
+
+  /**
+   * The run stack and galloping state of a single TimSort.
+   */
+  static class MergeState<T> {
+    final T[] values;
+    final Comparator<? super T> order;
+
+    // The length of the range being sorted, which bounds the scratch space
+    final int length;
+
+    // Where tmp is borrowed from (null to allocate it)
+    final ScratchBuffer buffer;
+
+    // The pending runs; run i spans values[runBase[i] .. + runLen[i])
+    final int[] runBase = new int[MAX_RUNS];
+    final int[] runLen = new int[MAX_RUNS];
+    int stackSize = 0;
+
+    // Adapts up when galloping does not pay off and down when it does
+    int minGallop = MIN_GALLOP;
+
+    // Scratch space for the smaller of the two runs being merged, which
+    // is never more than half the range; allocated on the first merge
+    T[] tmp;
+
+    MergeState(T[] values, Comparator<? super T> order,
+        ScratchBuffer buffer) {
+      this(values, values.length, order, buffer);
+    } // MergeState(T[], Comparator<? super T>, ScratchBuffer)
+
+    @SuppressWarnings("unchecked")
+    MergeState(T[] values, int length, Comparator<? super T> order,
+        ScratchBuffer buffer) {
+      this.values = values;
+      this.length = length;
+      this.order = order;
+      this.buffer = buffer;
+      this.tmp = (T[]) EMPTY;
+    } // MergeState(T[], int, Comparator<? super T>, ScratchBuffer)
+
+    /**
+     * Push a run onto the stack of pending runs.
+     */
+    void pushRun(int base, int len) {
+      this.runBase[this.stackSize] = base;
+      this.runLen[this.stackSize] = len;
+      this.stackSize++;
+    } // pushRun(int, int)
+
+    /**
+     * Merge runs until the stack invariants hold again:
+     * runLen[i - 2] > runLen[i - 1] + runLen[i] and
+     * runLen[i - 1] > runLen[i].
+     */
+    void mergeCollapse() {
+      int[] len = this.runLen;
+      while (this.stackSize > 1) {
+        int n = this.stackSize - 2;
+        if ((n > 0 && len[n - 1] <= len[n] + len[n + 1])
+            || (n > 1 && len[n - 2] <= len[n] + len[n - 1])) {
+          if (len[n - 1] < len[n + 1]) {
+            n--;
+          } // if
+        } else if (len[n] > len[n + 1]) {
+          break;
+        } // if/else
+        mergeAt(n);
+      } // while
+    } // mergeCollapse()
+
+    /**
+     * Merge all the remaining runs into one.
+     */
+    void mergeForceCollapse() {
+      while (this.stackSize > 1) {
+        int n = this.stackSize - 2;
+        if (n > 0 && this.runLen[n - 1] < this.runLen[n + 1]) {
+          n--;
+        } // if
+        mergeAt(n);
+      } // while
+    } // mergeForceCollapse()
+
+    /**
+     * Merge the runs at stack positions i and i + 1.
+     */
+    void mergeAt(int i) {
+      T[] a = this.values;
+      int base1 = this.runBase[i];
+      int len1 = this.runLen[i];
+      int base2 = this.runBase[i + 1];
+      int len2 = this.runLen[i + 1];
+
+      this.runLen[i] = len1 + len2;
+      if (i == this.stackSize - 3) {
+        this.runBase[i + 1] = this.runBase[i + 2];
+        this.runLen[i + 1] = this.runLen[i + 2];
+      } // if
+      this.stackSize--;
+
+      // Elements of run1 that are already in place can be skipped
+      int k = gallopRight(a[base2], a, base1, len1, 0, this.order);
+      base1 += k;
+      len1 -= k;
+      if (len1 == 0) {
+        return;
+      } // if
+
+      // Likewise for the elements at the end of run2
+      len2 = gallopLeft(a[base1 + len1 - 1], a, base2, len2, len2 - 1,
+          this.order);
+      if (len2 == 0) {
+        return;
+      } // if
+
+      SortProbe.merge(base1, base2, base2 + len2);
+
+      if (len1 <= len2) {
+        mergeLo(base1, len1, base2, len2);
+      } else {
+        mergeHi(base1, len1, base2, len2);
+      } // if/else
+    } // mergeAt(int)
+
+    /**
+     * Merge two adjacent runs, copying the first (smaller) one out.
+     */
+    void mergeLo(int base1, int len1, int base2, int len2) {
+      T[] a = this.values;
+      T[] tmp = ensureCapacity(len1);
+      Comparator<? super T> c = this.order;
+      System.arraycopy(a, base1, tmp, 0, len1);
+
+      int cursor1 = 0;
+      int cursor2 = base2;
+      int dest = base1;
+
+      // The first element of run2 is known to come first
+      a[dest++] = a[cursor2++];
+      if (--len2 == 0) {
+        System.arraycopy(tmp, cursor1, a, dest, len1);
+        return;
+      } // if
+      if (len1 == 1) {
+        System.arraycopy(a, cursor2, a, dest, len2);
+        a[dest + len2] = tmp[cursor1];
+        return;
+      } // if
+
+      int minGallop = this.minGallop;
+      outer:
+      while (true) {
+        // How many times in a row each run has won
+        int count1 = 0;
+        int count2 = 0;
+
+        // One element at a time until one run starts winning consistently
+        do {
+          if (c.compare(a[cursor2], tmp[cursor1]) < 0) {
+            a[dest++] = a[cursor2++];
+            count2++;
+            count1 = 0;
+            if (--len2 == 0) {
+              break outer;
+            } // if
+          } else {
+            a[dest++] = tmp[cursor1++];
+            count1++;
+            count2 = 0;
+            if (--len1 == 1) {
+              break outer;
+            } // if
+          } // if/else
+        } while ((count1 | count2) < minGallop);
+
+        // Gallop until neither run is winning consistently any more
+        do {
+          count1 = gallopRight(a[cursor2], tmp, cursor1, len1, 0, c);
+          if (count1 != 0) {
+            System.arraycopy(tmp, cursor1, a, dest, count1);
+            dest += count1;
+            cursor1 += count1;
+            len1 -= count1;
+            if (len1 <= 1) {
+              break outer;
+            } // if
+          } // if
+          a[dest++] = a[cursor2++];
+          if (--len2 == 0) {
+            break outer;
+          } // if
+
+          count2 = gallopLeft(tmp[cursor1], a, cursor2, len2, 0, c);
+          if (count2 != 0) {
+            System.arraycopy(a, cursor2, a, dest, count2);
+            dest += count2;
+            cursor2 += count2;
+            len2 -= count2;
+            if (len2 == 0) {
+              break outer;
+            } // if
+          } // if
+          a[dest++] = tmp[cursor1++];
+          if (--len1 == 1) {
+            break outer;
+          } // if
+          minGallop--;
+        } while (count1 >= MIN_GALLOP || count2 >= MIN_GALLOP);
+
+        // Penalize leaving gallop mode
+        if (minGallop < 0) {
+          minGallop = 0;
+        } // if
+        minGallop += 2;
+      } // while
+      this.minGallop = Math.max(1, minGallop);
+
+      if (len1 == 1) {
+        System.arraycopy(a, cursor2, a, dest, len2);
+        a[dest + len2] = tmp[cursor1];
+      } else if (len1 == 0) {
+        throw new IllegalArgumentException(
+            "Comparison method violates its general contract!");
+      } else {
+        System.arraycopy(tmp, cursor1, a, dest, len1);
+      } // if/else
+    } // mergeLo(int, int, int, int)
+
+    /**
+     * Merge two adjacent runs from the right, copying the second (smaller)
+     * one out.
+     */
+    void mergeHi(int base1, int len1, int base2, int len2) {
+      T[] a = this.values;
+      T[] tmp = ensureCapacity(len2);
+      Comparator<? super T> c = this.order;
+      System.arraycopy(a, base2, tmp, 0, len2);
+
+      int cursor1 = base1 + len1 - 1;
+      int cursor2 = len2 - 1;
+      int dest = base2 + len2 - 1;
+
+      // The last element of run1 is known to come last
+      a[dest--] = a[cursor1--];
+      if (--len1 == 0) {
+        System.arraycopy(tmp, 0, a, dest - (len2 - 1), len2);
+        return;
+      } // if
+      if (len2 == 1) {
+        dest -= len1;
+        cursor1 -= len1;
+        System.arraycopy(a, cursor1 + 1, a, dest + 1, len1);
+        a[dest] = tmp[cursor2];
+        return;
+      } // if
+
+      int minGallop = this.minGallop;
+      outer:
+      while (true) {
+        int count1 = 0;
+        int count2 = 0;
+
+        do {
+          if (c.compare(tmp[cursor2], a[cursor1]) < 0) {
+            a[dest--] = a[cursor1--];
+            count1++;
+            count2 = 0;
+            if (--len1 == 0) {
+              break outer;
+            } // if
+          } else {
+            a[dest--] = tmp[cursor2--];
+            count2++;
+            count1 = 0;
+            if (--len2 == 1) {
+              break outer;
+            } // if
+          } // if/else
+        } while ((count1 | count2) < minGallop);
+
+        do {
+          count1 = len1 - gallopRight(tmp[cursor2], a, base1, len1, len1 - 1,
+              c);
+          if (count1 != 0) {
+            dest -= count1;
+            cursor1 -= count1;
+            len1 -= count1;
+            System.arraycopy(a, cursor1 + 1, a, dest + 1, count1);
+            if (len1 == 0) {
+              break outer;
+            } // if
+          } // if
+          a[dest--] = tmp[cursor2--];
+          if (--len2 == 1) {
+            break outer;
+          } // if
+
+          count2 = len2 - gallopLeft(a[cursor1], tmp, 0, len2, len2 - 1, c);
+          if (count2 != 0) {
+            dest -= count2;
+            cursor2 -= count2;
+            len2 -= count2;
+            System.arraycopy(tmp, cursor2 + 1, a, dest + 1, count2);
+            if (len2 <= 1) {
+              break outer;
+            } // if
+          } // if
+          a[dest--] = a[cursor1--];
+          if (--len1 == 0) {
+            break outer;
+          } // if
+          minGallop--;
+        } while (count1 >= MIN_GALLOP || count2 >= MIN_GALLOP);
+
+        if (minGallop < 0) {
+          minGallop = 0;
+        } // if
+        minGallop += 2;
+      } // while
+      this.minGallop = Math.max(1, minGallop);
+
+      if (len2 == 1) {
+        dest -= len1;
+        cursor1 -= len1;
+        System.arraycopy(a, cursor1 + 1, a, dest + 1, len1);
+        a[dest] = tmp[cursor2];
+      } else if (len2 == 0) {
+        throw new IllegalArgumentException(
+            "Comparison method violates its general contract!");
+      } else {
+        System.arraycopy(tmp, 0, a, dest - (len2 - 1), len2);
+      } // if/else
+    } // mergeHi(int, int, int, int)
+
+    /**
+     * Make sure the scratch array can hold at least minCapacity elements.
+     * The first time it cannot, it is replaced by one big enough for any
+     * merge of this sort.
+     */
+    @SuppressWarnings("unchecked")
+    T[] ensureCapacity(int minCapacity) {
+      if (this.tmp.length < minCapacity) {
+        int size = this.length >>> 1;
+        if (this.buffer == null) {
+          this.tmp = (T[]) new Object[size];
+        } else {
+          this.tmp = (T[]) this.buffer.acquire(size);
+        } // if/else
+      } // if
+      return this.tmp;
+    } // ensureCapacity(int)
+
+    /**
+     * Hand the scratch array back to the buffer, if it came from one.
+     */
+    void release() {
+      if (this.buffer != null && this.tmp.length > 0) {
+        this.buffer.release(this.length >>> 1);
+      } // if
+    } // release()
+  } // class MergeState<T>
+
+  /**
+   * Find where key would be inserted in the sorted range a[base..base+len),
+   * to the left of any equal elements, starting the search at base + hint.
+   * 
+   * @return k such that a[base + k - 1] < key <= a[base + k].
+   */
+  static <T> int gallopLeft(T key, T[] a, int base, int len, int hint,
+      Comparator<? super T> c) {
+    int lastOfs = 0;
+    int ofs = 1;
+
+    if (c.compare(key, a[base + hint]) > 0) {
+      // Gallop right until a[base + hint + lastOfs] < key <= a[.. + ofs]
+      int maxOfs = len - hint;
+      while (ofs < maxOfs && c.compare(key, a[base + hint + ofs]) > 0) {
+        lastOfs = ofs;
+        ofs = (ofs << 1) + 1;
+        if (ofs <= 0) {
+          ofs = maxOfs;
+        } // if
+      } // while
+      ofs = Math.min(ofs, maxOfs);
+      lastOfs += hint;
+      ofs += hint;
+    } else {
+      // Gallop left until a[base + hint - ofs] < key <= a[.. - lastOfs]
+      int maxOfs = hint + 1;
+      while (ofs < maxOfs && c.compare(key, a[base + hint - ofs]) <= 0) {
+        lastOfs = ofs;
+        ofs = (ofs << 1) + 1;
+        if (ofs <= 0) {
+          ofs = maxOfs;
+        } // if
+      } // while
+      ofs = Math.min(ofs, maxOfs);
+      int tmp = lastOfs;
+      lastOfs = hint - ofs;
+      ofs = hint - tmp;
+    } // if/else
+
+    // Binary search a[base + lastOfs + 1 .. base + ofs]
+    lastOfs++;
+    while (lastOfs < ofs) {
+      int m = lastOfs + ((ofs - lastOfs) >>> 1);
+      if (c.compare(key, a[base + m]) > 0) {
+        lastOfs = m + 1;
+      } else {
+        ofs = m;
+      } // if/else
+    } // while
+    return ofs;
+  } // gallopLeft(T, T[], int, int, int, Comparator<? super T>)
+
+  /**
+   * Like gallopLeft, except that key goes to the right of any equal
+   * elements.
+   * 
+   * @return k such that a[base + k - 1] <= key < a[base + k].
+   */
+  static <T> int gallopRight(T key, T[] a, int base, int len, int hint,
+      Comparator<? super T> c) {
+    int lastOfs = 0;
+    int ofs = 1;
+
+    if (c.compare(key, a[base + hint]) < 0) {
+      // Gallop left until a[base + hint - ofs] <= key < a[.. - lastOfs]
+      int maxOfs = hint + 1;
+      while (ofs < maxOfs && c.compare(key, a[base + hint - ofs]) < 0) {
+        lastOfs = ofs;
+        ofs = (ofs << 1) + 1;
+        if (ofs <= 0) {
+          ofs = maxOfs;
+        } // if
+      } // while
+      ofs = Math.min(ofs, maxOfs);
+      int tmp = lastOfs;
+      lastOfs = hint - ofs;
+      ofs = hint - tmp;
+    } else {
+      // Gallop right until a[base + hint + lastOfs] <= key < a[.. + ofs]
+      int maxOfs = len - hint;
+      while (ofs < maxOfs && c.compare(key, a[base + hint + ofs]) >= 0) {
+        lastOfs = ofs;
+        ofs = (ofs << 1) + 1;
+        if (ofs <= 0) {
+          ofs = maxOfs;
+        } // if
+      } // while
+      ofs = Math.min(ofs, maxOfs);
+      lastOfs += hint;
+      ofs += hint;
+    } // if/else
+
+    lastOfs++;
+    while (lastOfs < ofs) {
+      int m = lastOfs + ((ofs - lastOfs) >>> 1);
+      if (c.compare(key, a[base + m]) < 0) {
+        ofs = m;
+      } else {
+        lastOfs = m + 1;
+      } // if/else
+    } // while
+    return ofs;
+  } // gallopRight(T, T[], int, int, int, Comparator<? super T>)
 } // class LinWenfeiSort
\ No newline at end of file
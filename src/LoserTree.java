@@ -0,0 +1,177 @@
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Merge k sorted sources with a tournament (loser) tree.  Each internal
+ * node remembers the source that lost the match played there, so taking
+ * the next element replays only the log2(k) matches on one leaf-to-root
+ * path.
+ *
+ * Ties go to the source with the lower index, so the merge is stable
+ * when earlier sources hold earlier elements.
+ *
+ * @author Wenfei Lin
+ */
+public class LoserTree<T> implements Iterator<T> {
+
+  // +--------+------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /**
+   * The sources being merged.
+   */
+  private final Iterator<? extends T>[] sources;
+
+  /**
+   * The order of the elements.
+   */
+  private final Comparator<? super T> order;
+
+  /**
+   * The next element of each source.
+   */
+  private final Object[] heads;
+
+  /**
+   * Whether each source has run out.
+   */
+  private final boolean[] done;
+
+  /**
+   * tree[0] is the overall winner; tree[1..k) are the losers at the
+   * internal nodes.  Leaf i is at position k + i.
+   */
+  private final int[] tree;
+
+  // +--------------+------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  /**
+   * Create a merge of sorted sources.
+   *
+   * @param sources The sources, each sorted by order.
+   * @param order The order of the elements.
+   */
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  public LoserTree(List<? extends Iterator<? extends T>> sources,
+                   Comparator<? super T> order) {
+    int k = sources.size();
+    this.sources = sources.toArray(new Iterator[k]);
+    this.order = order;
+    this.heads = new Object[k];
+    this.done = new boolean[k];
+    this.tree = new int[Math.max(1, k)];
+
+    for (int i = 0; i < k; i++) {
+      advance(i);
+    } // for
+    build();
+  } // LoserTree(List<? extends Iterator<? extends T>>, Comparator)
+
+  // +---------+-----------------------------------------------------
+  // | Methods |
+  // +---------+
+
+  @Override
+  public boolean hasNext() {
+    return this.heads.length > 0 && !this.done[this.tree[0]];
+  } // hasNext()
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public T next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    } // if
+    int winner = this.tree[0];
+    T result = (T) this.heads[winner];
+    advance(winner);
+    replay(winner);
+    return result;
+  } // next()
+
+  /**
+   * Get the index of the source the next element will come from.
+   *
+   * @return The source index.
+   * @pre hasNext().
+   */
+  public int nextSource() {
+    return this.tree[0];
+  } // nextSource()
+
+  /**
+   * Load the next element of a source into heads.
+   */
+  private void advance(int source) {
+    if (this.sources[source].hasNext()) {
+      this.heads[source] = this.sources[source].next();
+    } else {
+      this.heads[source] = null;
+      this.done[source] = true;
+    } // if/else
+  } // advance(int)
+
+  /**
+   * Play every match from the leaves up.
+   */
+  private void build() {
+    int k = this.heads.length;
+    if (k == 0) {
+      return;
+    } // if
+
+    // Winners of each position, leaves included
+    int[] winners = new int[2 * k];
+    for (int i = 0; i < k; i++) {
+      winners[k + i] = i;
+    } // for
+    for (int t = k - 1; t >= 1; t--) {
+      int a = winners[2 * t];
+      int b = winners[2 * t + 1];
+      if (beats(a, b)) {
+        winners[t] = a;
+        this.tree[t] = b;
+      } else {
+        winners[t] = b;
+        this.tree[t] = a;
+      } // if/else
+    } // for
+    this.tree[0] = (k == 1) ? 0 : winners[1];
+  } // build()
+
+  /**
+   * Replay the matches on the path from a leaf to the root after that
+   * leaf's source has advanced.
+   */
+  private void replay(int source) {
+    int k = this.heads.length;
+    int winner = source;
+    for (int t = (k + source) >> 1; t >= 1; t >>= 1) {
+      if (beats(this.tree[t], winner)) {
+        int tmp = this.tree[t];
+        this.tree[t] = winner;
+        winner = tmp;
+      } // if
+    } // for
+    this.tree[0] = winner;
+  } // replay(int)
+
+  /**
+   * Determine whether source a's head comes before source b's.
+   */
+  @SuppressWarnings("unchecked")
+  private boolean beats(int a, int b) {
+    if (this.done[a]) {
+      return false;
+    } else if (this.done[b]) {
+      return true;
+    } // if
+    int cmp = this.order.compare((T) this.heads[a], (T) this.heads[b]);
+    return cmp < 0 || (cmp == 0 && a < b);
+  } // beats(int, int)
+} // class LoserTree
@@ -0,0 +1,378 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Sort a file of fixed-width binary records without turning the records
+ * into objects.  The file is memory-mapped, an off-heap index holding the
+ * first eight key bytes and the number of each record is sorted with the
+ * partitioning of Quicksort, and the records are then copied to the
+ * output file in index order.
+ *
+ * Keys are compared as unsigned bytes, most significant first.  Only
+ * records whose first eight key bytes tie have their full keys read from
+ * the mapping, and records with equal keys keep their input order.
+ *
+ * A mapping cannot exceed 2 GB, so larger files are mapped in several
+ * segments, each holding a whole number of records.
+ *
+ * @author Wenfei Lin
+ */
+public class MappedRecordSorter {
+
+  // +-----------+---------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  // Largest segment mapped at once
+  static final long MAX_SEGMENT = Integer.MAX_VALUE;
+
+  // Bytes per index entry: the key prefix and the record number
+  private static final int ENTRY = 2 * Long.BYTES;
+
+  // Most records the index can hold in one direct buffer
+  static final long MAX_RECORDS = Integer.MAX_VALUE / ENTRY;
+
+  // +--------+------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /**
+   * The number of bytes in every record.
+   */
+  private final int recordSize;
+
+  /**
+   * Where the key starts within a record.
+   */
+  private final int keyOffset;
+
+  /**
+   * The number of bytes in the key.
+   */
+  private final int keyLength;
+
+  /**
+   * The most bytes mapped by one segment.
+   */
+  private final long segmentLimit;
+
+  // +--------------+------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  /**
+   * Create a sorter for records of recordSize bytes whose key is the
+   * keyLength bytes starting at keyOffset.
+   *
+   * @param recordSize The number of bytes in every record.
+   * @param keyOffset Where the key starts within a record.
+   * @param keyLength The number of bytes in the key.
+   * @pre 0 <= keyOffset and keyOffset + keyLength <= recordSize.
+   */
+  public MappedRecordSorter(int recordSize, int keyOffset, int keyLength) {
+    this(recordSize, keyOffset, keyLength, MAX_SEGMENT);
+  } // MappedRecordSorter(int, int, int)
+
+  /**
+   * Create a sorter that maps at most segmentLimit bytes at a time.
+   *
+   * @param recordSize The number of bytes in every record.
+   * @param keyOffset Where the key starts within a record.
+   * @param keyLength The number of bytes in the key.
+   * @param segmentLimit The most bytes in one mapping.
+   * @pre segmentLimit >= recordSize.
+   */
+  MappedRecordSorter(int recordSize, int keyOffset, int keyLength,
+      long segmentLimit) {
+    if (recordSize <= 0 || keyOffset < 0 || keyLength < 0
+        || keyOffset + keyLength > recordSize) {
+      throw new IllegalArgumentException("key does not fit in the record");
+    } // if
+    if (segmentLimit < recordSize || segmentLimit > MAX_SEGMENT) {
+      throw new IllegalArgumentException("bad segment limit");
+    } // if
+    this.recordSize = recordSize;
+    this.keyOffset = keyOffset;
+    this.keyLength = keyLength;
+    this.segmentLimit = segmentLimit;
+  } // MappedRecordSorter(int, int, int, long)
+
+  // +---------+-----------------------------------------------------
+  // | Methods |
+  // +---------+
+
+  /**
+   * Write the records of one file to another in key order.
+   *
+   * @param in The file of records.
+   * @param out The file the sorted records are written to.
+   * @return The number of records sorted.
+   * @throws IOException if either file cannot be used.
+   * @pre The size of in is a multiple of the record size.
+   */
+  public long sort(Path in, Path out) throws IOException {
+    try (FileChannel source = FileChannel.open(in, StandardOpenOption.READ);
+         FileChannel sink = FileChannel.open(out, StandardOpenOption.READ,
+             StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+             StandardOpenOption.TRUNCATE_EXISTING)) {
+      long size = source.size();
+      if (size % this.recordSize != 0) {
+        throw new IllegalArgumentException(in + " is not a whole number of "
+            + this.recordSize + "-byte records");
+      } // if
+      long count = size / this.recordSize;
+      if (count > MAX_RECORDS) {
+        throw new IllegalArgumentException("too many records for the index");
+      } // if
+      if (count == 0) {
+        return 0;
+      } // if
+
+      Segments records = new Segments(source, FileChannel.MapMode.READ_ONLY,
+          size);
+      Index index = new Index(records, (int) count);
+      index.sort();
+
+      // Copy the records out in index order
+      Segments sorted = new Segments(sink, FileChannel.MapMode.READ_WRITE,
+          size);
+      for (int i = 0; i < count; i++) {
+        long record = index.record(i);
+        MappedByteBuffer from = records.segment(record);
+        MappedByteBuffer to = sorted.segment(i);
+        to.put(sorted.position(i), from, records.position(record),
+            this.recordSize);
+      } // for
+      sorted.force();
+      return count;
+    } // try
+  } // sort(Path, Path)
+
+  // +---------------+-----------------------------------------------
+  // | Inner Classes |
+  // +---------------+
+
+  /**
+   * A file mapped as segments of whole records.
+   */
+  class Segments {
+    final MappedByteBuffer[] maps;
+    final long perSegment;
+
+    Segments(FileChannel channel, FileChannel.MapMode mode, long size)
+        throws IOException {
+      this.perSegment = segmentLimit / recordSize;
+      long bytesPerSegment = this.perSegment * recordSize;
+      int n = (int) ((size + bytesPerSegment - 1) / bytesPerSegment);
+      this.maps = new MappedByteBuffer[n];
+      for (int s = 0; s < n; s++) {
+        long start = s * bytesPerSegment;
+        this.maps[s] = channel.map(mode, start,
+            Math.min(bytesPerSegment, size - start));
+      } // for
+    } // Segments(FileChannel, FileChannel.MapMode, long)
+
+    /**
+     * Get the mapping holding a record.
+     */
+    MappedByteBuffer segment(long record) {
+      return this.maps[(int) (record / this.perSegment)];
+    } // segment(long)
+
+    /**
+     * Get where a record starts in its mapping.
+     */
+    int position(long record) {
+      return (int) (record % this.perSegment) * recordSize;
+    } // position(long)
+
+    void force() {
+      for (MappedByteBuffer map : this.maps) {
+        map.force();
+      } // for
+    } // force()
+  } // class Segments
+
+  /**
+   * The off-heap index of (key prefix, record number) pairs and the
+   * introsort that orders it.
+   */
+  class Index {
+    final Segments records;
+    final LongBuffer entries;
+    final int count;
+
+    Index(Segments records, int count) {
+      this.records = records;
+      this.count = count;
+      this.entries = ByteBuffer.allocateDirect(count * ENTRY).asLongBuffer();
+      for (int i = 0; i < count; i++) {
+        this.entries.put(2 * i, prefix(i));
+        this.entries.put(2 * i + 1, i);
+      } // for
+    } // Index(Segments, int)
+
+    long record(int i) {
+      return this.entries.get(2 * i + 1);
+    } // record(int)
+
+    void sort() {
+      introSort(0, this.count, 2 * Quicksort.floorLog2(this.count));
+    } // sort()
+
+    /**
+     * Read up to eight key bytes of a record as an unsigned big-endian
+     * number, padding short keys with zeros.
+     */
+    long prefix(long record) {
+      ByteBuffer map = this.records.segment(record);
+      int at = this.records.position(record) + keyOffset;
+      if (keyLength >= Long.BYTES) {
+        return map.getLong(at);
+      } // if
+      long prefix = 0;
+      for (int b = 0; b < Long.BYTES; b++) {
+        prefix <<= 8;
+        if (b < keyLength) {
+          prefix |= map.get(at + b) & 0xFF;
+        } // if
+      } // for
+      return prefix;
+    } // prefix(long)
+
+    /**
+     * Compare entries i and j: by prefix, then by the rest of the key,
+     * then by record number.
+     */
+    int compare(int i, int j) {
+      int cmp = Long.compareUnsigned(this.entries.get(2 * i),
+          this.entries.get(2 * j));
+      if (cmp != 0) {
+        return cmp;
+      } // if
+      long a = record(i);
+      long b = record(j);
+      if (keyLength > Long.BYTES) {
+        ByteBuffer mapA = this.records.segment(a);
+        ByteBuffer mapB = this.records.segment(b);
+        int atA = this.records.position(a) + keyOffset;
+        int atB = this.records.position(b) + keyOffset;
+        int k = Long.BYTES;
+        for (; k + Long.BYTES <= keyLength; k += Long.BYTES) {
+          cmp = Long.compareUnsigned(mapA.getLong(atA + k),
+              mapB.getLong(atB + k));
+          if (cmp != 0) {
+            return cmp;
+          } // if
+        } // for
+        for (; k < keyLength; k++) {
+          cmp = Integer.compare(mapA.get(atA + k) & 0xFF,
+              mapB.get(atB + k) & 0xFF);
+          if (cmp != 0) {
+            return cmp;
+          } // if
+        } // for
+      } // if
+      return Long.compare(a, b);
+    } // compare(int, int)
+
+    void swap(int i, int j) {
+      long prefix = this.entries.get(2 * i);
+      long record = this.entries.get(2 * i + 1);
+      this.entries.put(2 * i, this.entries.get(2 * j));
+      this.entries.put(2 * i + 1, this.entries.get(2 * j + 1));
+      this.entries.put(2 * j, prefix);
+      this.entries.put(2 * j + 1, record);
+    } // swap(int, int)
+
+    /**
+     * Sort entries [lb..ub) as in Quicksort.introSort, looping on the
+     * larger side so the stack stays shallow.
+     */
+    void introSort(int lb, int ub, int depthLimit) {
+      while (ub - lb > Quicksort.INSERTION_THRESHOLD) {
+        if (depthLimit-- == 0) {
+          heapSort(lb, ub);
+          return;
+        } // if
+        int pivot = partition(lb, ub);
+        if (pivot - lb < ub - pivot) {
+          introSort(lb, pivot, depthLimit);
+          lb = pivot + 1;
+        } else {
+          introSort(pivot + 1, ub, depthLimit);
+          ub = pivot;
+        } // if/else
+      } // while
+      insertionSort(lb, ub);
+    } // introSort(int, int, int)
+
+    /**
+     * Partition [lb..ub) around the median of the first, middle and last
+     * entries, as in Quicksort.partition.
+     */
+    int partition(int lb, int ub) {
+      int mid = lb + (ub - lb) / 2;
+      int last = ub - 1;
+      int median = (compare(lb, mid) < 0)
+          ? ((compare(mid, last) < 0) ? mid
+              : (compare(lb, last) < 0) ? last : lb)
+          : ((compare(lb, last) < 0) ? lb
+              : (compare(mid, last) < 0) ? last : mid);
+      swap(lb, median);
+
+      int small = lb + 1;
+      int large = ub;
+      while (small < large) {
+        if (compare(small, lb) <= 0) {
+          small++;
+        } else if (compare(large - 1, lb) > 0) {
+          large--;
+        } else {
+          swap(small, --large);
+          small++;
+        } // if
+      } // while
+
+      swap(lb, small - 1);
+      return small - 1;
+    } // partition(int, int)
+
+    void insertionSort(int lb, int ub) {
+      for (int i = lb + 1; i < ub; i++) {
+        for (int j = i; j > lb && compare(j - 1, j) > 0; j--) {
+          swap(j - 1, j);
+        } // for
+      } // for
+    } // insertionSort(int, int)
+
+    void heapSort(int lb, int ub) {
+      int n = ub - lb;
+      for (int i = n / 2 - 1; i >= 0; i--) {
+        siftDown(lb, i, n);
+      } // for
+      for (int end = n - 1; end > 0; end--) {
+        swap(lb, lb + end);
+        siftDown(lb, 0, end);
+      } // for
+    } // heapSort(int, int)
+
+    void siftDown(int lb, int i, int n) {
+      for (int child = 2 * i + 1; child < n; child = 2 * i + 1) {
+        if (child + 1 < n && compare(lb + child, lb + child + 1) < 0) {
+          child++;
+        } // if
+        if (compare(lb + i, lb + child) >= 0) {
+          return;
+        } // if
+        swap(lb + i, lb + child);
+        i = child;
+      } // for
+    } // siftDown(int, int, int)
+  } // class Index
+} // class MappedRecordSorter
@@ -0,0 +1,99 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests of MappedRecordSorter.
+ *
+ * @author Wenfei Lin
+ */
+public class MappedRecordSorterTester {
+
+  // +-----------+---------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  // A 16-byte key and a 48-byte payload
+  static final int RECORD = 64;
+
+  static final int COUNT = 20_000;
+
+  // +---------+-----------------------------------------------------
+  // | Globals |
+  // +---------+
+
+  @TempDir
+  Path dir;
+
+  // +-------+-------------------------------------------------------
+  // | Tests |
+  // +-------+
+
+  @Test
+  public void longKeyTest() throws IOException {
+    // Few distinct first halves, so most prefixes tie
+    assertSorts(new MappedRecordSorter(RECORD, 0, 16), 0, 16, 4);
+  } // longKeyTest
+
+  @Test
+  public void shortKeyTest() throws IOException {
+    assertSorts(new MappedRecordSorter(RECORD, 5, 3), 5, 3, 256);
+  } // shortKeyTest
+
+  @Test
+  public void manySegmentsTest() throws IOException {
+    // Segments of 1000 records stand in for the 2 GB limit
+    assertSorts(new MappedRecordSorter(RECORD, 8, 16, RECORD * 1000 + 7),
+        8, 16, 16);
+  } // manySegmentsTest
+
+  @Test
+  public void emptyFileTest() throws IOException {
+    Path in = Files.write(dir.resolve("empty"), new byte[0]);
+    assertEquals(0, new MappedRecordSorter(RECORD, 0, 16).sort(in,
+        dir.resolve("out")));
+  } // emptyFileTest
+
+  // +---------+-----------------------------------------------------
+  // | Helpers |
+  // +---------+
+
+  /**
+   * Write COUNT random records whose key bytes take few distinct values,
+   * sort them, and compare with a stable sort of the records as byte
+   * arrays.
+   */
+  void assertSorts(MappedRecordSorter sorter, int keyOffset, int keyLength,
+      int distinct) throws IOException {
+    Random rand = new Random(13);
+    byte[][] records = new byte[COUNT][RECORD];
+    ByteBuffer file = ByteBuffer.allocate(COUNT * RECORD);
+    for (int i = 0; i < COUNT; i++) {
+      rand.nextBytes(records[i]);
+      for (int k = 0; k < keyLength; k++) {
+        records[i][keyOffset + k] = (byte) (rand.nextInt(distinct) * 37);
+      } // for
+      file.put(records[i]);
+    } // for
+    Path in = Files.write(dir.resolve("in"), file.array());
+    Path out = dir.resolve("out");
+
+    assertEquals(COUNT, sorter.sort(in, out));
+
+    LinWenfeiSort.SORTER.sort(records, (x, y) -> Arrays.compareUnsigned(
+        x, keyOffset, keyOffset + keyLength, y, keyOffset,
+        keyOffset + keyLength));
+    ByteBuffer expected = ByteBuffer.allocate(COUNT * RECORD);
+    for (byte[] record : records) {
+      expected.put(record);
+    } // for
+    assertArrayEquals(expected.array(), Files.readAllBytes(out));
+  } // assertSorts(MappedRecordSorter, int, int, int)
+} // class MappedRecordSorterTester
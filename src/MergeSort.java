@@ -1,4 +1,3 @@
-import java.util.Arrays;
 import java.util.Comparator;
 
 /**
@@ -7,7 +6,7 @@ import java.util.Comparator;
  * @author Albert, Wenfei Lin
  */
 
-public class MergeSort implements Sorter {
+public class MergeSort implements RangeSorter {
 
   // +--------+------------------------------------------------------
   // | Fields |
@@ -18,6 +17,17 @@ public class MergeSort implements Sorter {
    */
   public static Sorter SORTER = new MergeSort();
 
+  /**
+   * A sorter that merges through a per-thread scratch buffer, so repeated
+   * sorts on the same thread do not allocate.
+   */
+  public static Sorter POOLED = new MergeSort(ScratchBuffer.PER_THREAD);
+
+  /**
+   * Where merge scratch space comes from (null to allocate it per sort).
+   */
+  private final ScratchBuffer buffer;
+
   // +--------------+------------------------------------------------
   // | Constructors |
   // +--------------+
@@ -26,8 +36,18 @@ public class MergeSort implements Sorter {
    * Create a sorter.
    */
   MergeSort() {
+    this(null);
   } // MergeSort()
 
+  /**
+   * Create a sorter that borrows its scratch space from buffer.
+   *
+   * @param buffer The scratch buffer, or null to allocate one per sort.
+   */
+  MergeSort(ScratchBuffer buffer) {
+    this.buffer = buffer;
+  } // MergeSort(ScratchBuffer)
+
   // +---------+-----------------------------------------------------
   // | Methods |
   // +---------+
@@ -42,9 +62,32 @@ public class MergeSort implements Sorter {
    */
   @Override
   public <T> void sort(T[] values, Comparator<? super T> order) {
-    mergeSort(values, order, 0, values.length);
+    sort(values, 0, values.length, order);
   } // sort(T[], Comparator<? super T>)
 
+  /**
+   * Sort values[lo..hi) using the merge sort algorithm.
+   *
+   * @param values The array holding the range.
+   * @param lo The first index (inclusive) of the range.
+   * @param hi The last index (exclusive) of the range.
+   * @param order The comparator that determines the order.
+   * @post values[lo..hi) is sorted, and the rest of values is unchanged.
+   */
+  @Override
+  public <T> void sort(T[] values, int lo, int hi,
+      Comparator<? super T> order) {
+    // Every merge copies out only its left half, which is never more
+    // than half the range, so one scratch array serves the whole sort
+    int scratchSize = (hi - lo) / 2;
+    if (this.buffer == null) {
+      mergeSort(values, order, lo, hi, new Object[scratchSize]);
+    } else {
+      mergeSort(values, order, lo, hi, this.buffer.acquire(scratchSize));
+      this.buffer.release(scratchSize);
+    } // if/else
+  } // sort(T[], int, int, Comparator<? super T>)
+
   /**
    * Recursively divides the array being sorted into subarrays that will be 
    * sorted then merged (combined) back together.
@@ -54,26 +97,31 @@ public class MergeSort implements Sorter {
    *              be sorted in.
    * @param lo The lowest index (inclusive) of the array.
    * @param hi The highest index (exclusive) of the array.
+   * @param scratch Space for merging, at least (hi - lo) / 2 long.
    * @post The array will be sorted completely (depending on lo and hi) 
    *       according to the comparator.
    */
   private static <T> void mergeSort(T[] values, Comparator<? super T> order, 
-                                    int lo, int hi) {
+                                    int lo, int hi, Object[] scratch) {
     if (hi - lo <= 1) {
       return;
     } else {
       int mid = lo + (hi - lo) / 2;
 
-      mergeSort(values, order, lo, mid); 
-      mergeSort(values, order, mid, hi);
+      SortProbe.enter();
+      mergeSort(values, order, lo, mid, scratch); 
+      mergeSort(values, order, mid, hi, scratch);
+      SortProbe.exit();
   
-      merge(values, lo, mid, hi, order);
+      merge(values, lo, mid, hi, order, scratch);
     } // if
-  } // mergeSort(T[], Comparator<? super T>, int, int)
+  } // mergeSort(T[], Comparator<? super T>, int, int, Object[])
 
   /**
    * Merge the values from positions [lo..mid) and [mid..hi) back into
-   * the same part of the array.
+   * the same part of the array.  Only the left subarray is copied out; the
+   * merged values are written over the original positions from the left,
+   * which never overtakes the unread part of the right subarray.
    *
    * @param vals The original array being sorted.
    * @param lo The lowest index (inclusive) of the subarray.
@@ -81,57 +129,41 @@ public class MergeSort implements Sorter {
    * @param hi The highest index (exclusive) of the subarray.
    * @param order The comparator that determines the order the array will 
    *              be sorted in.
+   * @param scratch Space for the left subarray, at least mid - lo long.
    * @pre Each subarray is sorted accorting to comparator.
    * @post The subarray from lo (inclusive) to hi (exlusive) in vals will 
    *       be sorted according to the comparator order.
    */
+  @SuppressWarnings("unchecked")
   private static <T> void merge(T[] vals, int lo, int mid, int hi, 
-                                Comparator<? super T> order) {
-    T[] newVals = Arrays.copyOfRange(vals, lo, hi);
-    int left = lo;
+                                Comparator<? super T> order,
+                                Object[] scratch) {
+    SortProbe.merge(lo, mid, hi);
+    int leftSize = mid - lo;
+    System.arraycopy(vals, lo, scratch, 0, leftSize);
+    int left = 0;
     int right = mid;
-    int newValsIndex = 0;
+    int dest = lo;
 
-    while (left != mid && right != hi) { 
+    while (left != leftSize && right != hi) { 
       // Continue as long as both subarrays have not been completely 
       // traversed through:
       // Compare the elements of each subarray to each other
-      if (order.compare(vals[left], vals[right]) <= 0) {
+      if (order.compare((T) scratch[left], vals[right]) <= 0) {
         // If the element in the left subarray comes before the element 
         // in the right array (as specified by the order comparator), 
-        // add the element from the left subarray to the newVals array
-        newVals[newValsIndex++] = vals[left++];
+        // it goes next (ties favor the left, which keeps the sort stable)
+        vals[dest++] = (T) scratch[left++];
       } else {
         // If the element in the right subarray comes before the element 
         // in the left array (as specified by the order comparator), 
-        // add the element from the right subarray to the newVals array
-        newVals[newValsIndex++] = vals[right++];
+        // it goes next
+        vals[dest++] = vals[right++];
       } // if
     } // while
 
-    // Once one subarray has been fully traversed through, that means 
-    // the other subarray has not been fully traversed through yet
-    if (left == mid) { 
-      // If the left subarray was fully looked at, copy the rest of 
-      // the right subarray into the newVals array (because everything 
-      // is in order from then on)
-      for (; right != hi; newValsIndex++, right++) {
-        newVals[newValsIndex] = vals[right];
-      } // for
-    } else { 
-      for (; left != mid; newValsIndex++, left++) {
-      // If the right subarray was fully looked at, copy the rest of
-      // the left subarray into the newVals array (because everything 
-      // is in order from then on)
-        newVals[newValsIndex] = vals[left];
-      } // for 
-    } // if
-
-    // Copy the now in order version of the two combined subarrays (newVals) 
-    // back into the original array
-    newValsIndex = 0;
-    for (; lo != hi; lo++, newValsIndex++) {
-      vals[lo] = newVals[newValsIndex];
-    } // for
-  } // merge(T[], int, int, int, Comparator<? super T>)
+    // Whatever is left of the right subarray is already in place, so only
+    // the rest of the left subarray needs to be copied back
+    System.arraycopy(scratch, left, vals, dest, leftSize - left);
+  } // merge(T[], int, int, int, Comparator<? super T>, Object[])
 } // class MergeSort
\ No newline at end of file
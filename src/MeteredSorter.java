@@ -0,0 +1,129 @@
+import java.lang.management.ManagementFactory;
+import java.util.Comparator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A Sorter that wraps another and reports what each sort did to a
+ * MetricsSink and as a JFR event (sorting.Sort).
+ *
+ * Sorters that are not being metered pay only for a static boolean check
+ * at each SortProbe hook.
+ *
+ * @author Wenfei Lin
+ */
+public class MeteredSorter implements Sorter {
+
+  // +-----------+---------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  // Measures the bytes allocated by the sorting thread
+  private static final com.sun.management.ThreadMXBean THREADS =
+      (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+  // +--------+------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /**
+   * The sorter doing the work.
+   */
+  private final Sorter sorter;
+
+  /**
+   * The name reported in metrics.
+   */
+  private final String name;
+
+  /**
+   * Where metrics and debug messages go.
+   */
+  private final MetricsSink sink;
+
+  // +--------------+------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  /**
+   * Create a sorter that meters another.
+   *
+   * @param sorter The sorter doing the work.
+   * @param name The name reported in metrics.
+   * @param sink Where metrics and debug messages go.
+   */
+  public MeteredSorter(Sorter sorter, String name, MetricsSink sink) {
+    this.sorter = sorter;
+    this.name = name;
+    this.sink = sink;
+  } // MeteredSorter(Sorter, String, MetricsSink)
+
+  // +---------+-----------------------------------------------------
+  // | Methods |
+  // +---------+
+
+  /**
+   * Sort with the wrapped sorter, then report its metrics.
+   *
+   * @param values The array being sorted.
+   * @param order The comparator that determines the order.
+   * @post The array is sorted, and its metrics have been recorded.
+   */
+  @Override
+  public <T> void sort(T[] values, Comparator<? super T> order) {
+    SortMetrics metrics = measure(values, order);
+    this.sink.record(metrics);
+  } // sort(T[], Comparator<? super T>)
+
+  /**
+   * Sort with the wrapped sorter and return its metrics instead of
+   * recording them.
+   *
+   * @param values The array being sorted.
+   * @param order The comparator that determines the order.
+   * @return What the sort did.
+   */
+  public <T> SortMetrics measure(T[] values, Comparator<? super T> order) {
+    SortMetrics metrics = new SortMetrics(this.name, values.length);
+    // A LongAdder, since parallel sorters compare on many threads
+    LongAdder comparisons = new LongAdder();
+    Comparator<T> counting = (x, y) -> {
+      comparisons.increment();
+      return order.compare(x, y);
+    };
+
+    SortEvent event = new SortEvent();
+    long thread = Thread.currentThread().getId();
+    Object previous = SortProbe.begin(metrics, this.sink);
+    long allocated = THREADS.getThreadAllocatedBytes(thread);
+    long start = System.nanoTime();
+    event.begin();
+    try {
+      this.sorter.sort(values, counting);
+    } finally {
+      event.end();
+      metrics.nanos = System.nanoTime() - start;
+      metrics.scratchBytes = THREADS.getThreadAllocatedBytes(thread)
+          - allocated;
+      SortProbe.end(previous);
+      metrics.comparisons = comparisons.sum();
+    } // try/finally
+
+    if (event.shouldCommit()) {
+      event.sorter = metrics.sorter;
+      event.length = metrics.length;
+      event.comparisons = metrics.comparisons;
+      event.swaps = metrics.swaps;
+      event.moves = metrics.moves;
+      event.merges = metrics.merges;
+      event.maxDepth = metrics.maxDepth;
+      event.scratchBytes = metrics.scratchBytes;
+      event.commit();
+    } // if
+    return metrics;
+  } // measure(T[], Comparator<? super T>)
+
+  @Override
+  public String toString() {
+    return "MeteredSorter(" + this.name + ")";
+  } // toString()
+} // class MeteredSorter
@@ -0,0 +1,152 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of MeteredSorter, as a Sorter and for the metrics it reports.
+ */
+public class MeteredSorterTester extends SortTester {
+
+  // +--------------+------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  public MeteredSorterTester() {
+    super();
+    this.sorter = new MeteredSorter(LinWenfeiSort.SORTER, "LinWenfeiSort",
+                                    MetricsSink.NONE);
+  } // MeteredSorterTester()
+
+  // +-------+-------------------------------------------------------
+  // | Tests |
+  // +-------+
+
+  @Test
+  public void mergeSortMetricsTest() {
+    List<SortMetrics> recorded = new ArrayList<>();
+    Sorter metered = new MeteredSorter(MergeSort.SORTER, "MergeSort",
+                                       recorded::add);
+    Integer[] vals = randomInput(1024);
+    metered.sort(vals, Integer::compare);
+
+    assertEquals(1, recorded.size());
+    SortMetrics metrics = recorded.get(0);
+    assertEquals("MergeSort", metrics.sorter);
+    assertEquals(1024, metrics.length);
+    // n - 1 merges, log2(n) levels, and n log2(n) elements merged
+    assertEquals(1023, metrics.merges);
+    assertEquals(10, metrics.maxDepth);
+    assertEquals(1024 * 10, metrics.moves);
+    assertTrue(metrics.comparisons > 0 && metrics.comparisons < 1024 * 10);
+    assertTrue(metrics.scratchBytes > 0);
+  } // mergeSortMetricsTest
+
+  @Test
+  public void swapsTest() {
+    Sorter insertion = new MeteredSorter(InsertionSort.SWAPPING,
+                                         "insertion", MetricsSink.NONE);
+    Integer[] vals = { 3, 2, 1 };
+    SortMetrics metrics = ((MeteredSorter) insertion)
+        .measure(vals, Integer::compare);
+    assertArrayEquals(new Integer[] { 1, 2, 3 }, vals);
+    assertEquals(3, metrics.swaps);
+    assertEquals(6, metrics.moves);
+  } // swapsTest
+
+  @Test
+  public void debugGoesToSinkTest() {
+    List<String> messages = new ArrayList<>();
+    MetricsSink sink = new MetricsSink() {
+      @Override
+      public void record(SortMetrics metrics) {
+      } // record(SortMetrics)
+
+      @Override
+      public void debug(String message) {
+        messages.add(message);
+      } // debug(String)
+
+      @Override
+      public boolean wantsDebug() {
+        return true;
+      } // wantsDebug()
+    };
+    new MeteredSorter(LinWenfeiSort.CHUNKED, "chunked", sink)
+        .sort(randomInput(100), Integer::compare);
+    assertFalse(messages.isEmpty());
+    assertTrue(messages.get(0).startsWith("Merge called with"));
+  } // debugGoesToSinkTest
+
+  @Test
+  public void debugOnlyWhenWantedTest() {
+    List<String> messages = new ArrayList<>();
+    MetricsSink sink = new MetricsSink() {
+      @Override
+      public void record(SortMetrics metrics) {
+      } // record(SortMetrics)
+
+      @Override
+      public void debug(String message) {
+        messages.add(message);
+      } // debug(String)
+    };
+    new MeteredSorter(LinWenfeiSort.CHUNKED, "chunked", sink)
+        .sort(randomInput(100), Integer::compare);
+    assertTrue(messages.isEmpty());
+    assertFalse(MetricsSink.printingTo(System.out, false).wantsDebug());
+    assertTrue(MetricsSink.printingTo(System.out, true).wantsDebug());
+  } // debugOnlyWhenWantedTest
+
+  @Test
+  public void unmeteredSortsAreNotCountedTest() {
+    List<SortMetrics> recorded = new ArrayList<>();
+    Sorter metered = new MeteredSorter(MergeSort.SORTER, "MergeSort",
+                                       recorded::add);
+    MergeSort.SORTER.sort(randomInput(1000), Integer::compare);
+    metered.sort(new Integer[] { 2, 1 }, Integer::compare);
+    assertEquals(1, recorded.get(0).merges);
+    assertFalse(SortProbe.enabled);
+  } // unmeteredSortsAreNotCountedTest
+
+  @Test
+  public void jfrEventTest() throws Exception {
+    Path file = Files.createTempFile("sort", ".jfr");
+    try (Recording recording = new Recording()) {
+      recording.enable("sorting.Sort");
+      recording.start();
+      new MeteredSorter(Quicksort.INTROSORT, "introsort", MetricsSink.NONE)
+          .sort(randomInput(500), Integer::compare);
+      recording.stop();
+      recording.dump(file);
+      List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+      assertEquals(1, events.size());
+      assertEquals("introsort", events.get(0).getString("sorter"));
+      assertEquals(500, events.get(0).getInt("length"));
+      assertTrue(events.get(0).getLong("comparisons") > 0);
+    } finally {
+      Files.deleteIfExists(file);
+    } // try/finally
+  } // jfrEventTest
+
+  // +---------+-----------------------------------------------------
+  // | Helpers |
+  // +---------+
+
+  static Integer[] randomInput(int n) {
+    Random rand = new Random(3);
+    Integer[] vals = new Integer[n];
+    Arrays.setAll(vals, (i) -> rand.nextInt());
+    return vals;
+  } // randomInput(int)
+} // class MeteredSorterTester
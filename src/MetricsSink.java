@@ -0,0 +1,81 @@
+import java.io.PrintStream;
+
+/**
+ * Somewhere to send the metrics and debug messages of sorts.
+ *
+ * @author Wenfei Lin
+ */
+public interface MetricsSink {
+  /**
+   * A sink that drops everything.
+   */
+  public static final MetricsSink NONE = (metrics) -> { };
+
+  /**
+   * Receive the metrics of a finished sort.
+   *
+   * @param metrics, what the sort did.
+   */
+  public void record(SortMetrics metrics);
+
+  /**
+   * Receive a debug message from inside a sort.  Ignored by default.
+   *
+   * @param message, the message.
+   */
+  public default void debug(String message) {
+  } // debug(String)
+
+  /**
+   * Say whether this sink wants debug messages, so that sorts only build
+   * them when it does.  False by default; a sink that overrides debug
+   * should override this too.
+   *
+   * @return true if debug messages are used.
+   */
+  public default boolean wantsDebug() {
+    return false;
+  } // wantsDebug()
+
+  /**
+   * Receive the choice an AdaptiveSorter made.  Ignored by default.
+   *
+   * @param decision, the sorter chosen and why.
+   */
+  public default void decision(AdaptiveSorter.Decision decision) {
+  } // decision(AdaptiveSorter.Decision)
+
+  /**
+   * Make a sink that prints metrics and decisions, and optionally debug
+   * messages, to a stream.
+   *
+   * @param out, where to print.
+   * @param debug, whether to print debug messages too.
+   * @return the sink.
+   */
+  public static MetricsSink printingTo(PrintStream out, boolean debug) {
+    return new MetricsSink() {
+      @Override
+      public void record(SortMetrics metrics) {
+        out.println(metrics);
+      } // record(SortMetrics)
+
+      @Override
+      public void debug(String message) {
+        if (debug) {
+          out.println(message);
+        } // if
+      } // debug(String)
+
+      @Override
+      public boolean wantsDebug() {
+        return debug;
+      } // wantsDebug()
+
+      @Override
+      public void decision(AdaptiveSorter.Decision decision) {
+        out.println(decision);
+      } // decision(AdaptiveSorter.Decision)
+    };
+  } // printingTo(PrintStream, boolean)
+} // interface MetricsSink
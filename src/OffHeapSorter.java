@@ -0,0 +1,544 @@
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.ToLongFunction;
+
+/**
+ * Sort records that live outside the Java heap.  Each record added is
+ * encoded by a RecordCodec into an arena of direct buffers, and only a
+ * packed long[] of (key prefix, record number) entries is sorted, so the
+ * sort neither chases pointers nor leaves an object graph for the
+ * collector.
+ *
+ * Prefixes are compared as unsigned longs and must agree with the order:
+ * a smaller prefix means a smaller record.  The entries are sorted by
+ * prefix alone with a port of MergeSort; then each group of entries whose
+ * prefixes tie is decoded, each record once, and stably sorted by the
+ * order.  Records that compare equal stay in the order they were added,
+ * and no more than one group of records is on the heap at a time.
+ *
+ * The sorted records are read through a Cursor, which copies out each
+ * record's bytes and decodes a record only when asked.  Nothing handed
+ * out points into the arena, so closing the sorter frees the arena at
+ * once, rather than when the buffers are collected.
+ *
+ * @author Wenfei Lin
+ */
+public class OffHeapSorter<T> implements AutoCloseable {
+
+  // +-----------+---------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  // The size of each arena buffer by default
+  static final int DEFAULT_CHUNK_SIZE = 1 << 20;
+
+  // Ranges of entries this short are insertion sorted
+  static final int INSERTION_THRESHOLD = 16;
+
+  // +---------+-----------------------------------------------------
+  // | Globals |
+  // +---------+
+
+  // The JDK's sun.misc.Unsafe, if present
+  private static final Object UNSAFE;
+
+  // Unsafe.invokeCleaner, which frees a direct buffer
+  private static final Method CLEANER;
+
+  static {
+    Object unsafe = null;
+    Method cleaner = null;
+    try {
+      Class<?> c = Class.forName("sun.misc.Unsafe");
+      Field f = c.getDeclaredField("theUnsafe");
+      f.setAccessible(true);
+      unsafe = f.get(null);
+      cleaner = c.getMethod("invokeCleaner", ByteBuffer.class);
+    } catch (ReflectiveOperationException | RuntimeException e) {
+      unsafe = null;
+      cleaner = null;
+    } // try/catch
+    UNSAFE = unsafe;
+    CLEANER = cleaner;
+  } // static
+
+  // +--------+------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /**
+   * How records are laid out in the arena.
+   */
+  private final RecordCodec<T> codec;
+
+  /**
+   * The order of the records.
+   */
+  private final Comparator<? super T> order;
+
+  /**
+   * The key prefix of each record.
+   */
+  private final ToLongFunction<? super T> prefix;
+
+  /**
+   * The size of each arena buffer (larger records get their own).
+   */
+  private final int chunkSize;
+
+  /**
+   * The arena, or null once closed.
+   */
+  private List<ByteBuffer> chunks = new ArrayList<ByteBuffer>();
+
+  /**
+   * Where each record is: its chunk in the high half, its position in the
+   * low half.
+   */
+  private long[] where = new long[16];
+
+  /**
+   * The number of bytes in each record.
+   */
+  private int[] lengths = new int[16];
+
+  /**
+   * The prefix and number of each record, in pairs.
+   */
+  private long[] entries = new long[32];
+
+  /**
+   * The number of records added.
+   */
+  private int size = 0;
+
+  /**
+   * Where records are encoded before they are copied to the arena.
+   */
+  private final Staging staging = new Staging();
+
+  // +--------------+------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  /**
+   * Create an empty sorter.
+   *
+   * @param codec How records are laid out.
+   * @param order The order of the records.
+   * @param prefix A key prefix for each record that agrees with order
+   *               when compared unsigned.
+   */
+  public OffHeapSorter(RecordCodec<T> codec, Comparator<? super T> order,
+      ToLongFunction<? super T> prefix) {
+    this(codec, order, prefix, DEFAULT_CHUNK_SIZE);
+  } // OffHeapSorter(RecordCodec<T>, Comparator<? super T>, ToLongFunction)
+
+  /**
+   * Create an empty sorter whose arena grows chunkSize bytes at a time.
+   */
+  OffHeapSorter(RecordCodec<T> codec, Comparator<? super T> order,
+      ToLongFunction<? super T> prefix, int chunkSize) {
+    this.codec = codec;
+    this.order = order;
+    this.prefix = prefix;
+    this.chunkSize = chunkSize;
+  } // OffHeapSorter(RecordCodec<T>, Comparator<? super T>, ...)
+
+  // +---------+-----------------------------------------------------
+  // | Methods |
+  // +---------+
+
+  /**
+   * Sort an array by way of an off-heap arena, as a Sorter would.
+   *
+   * @param values The array being sorted.
+   * @param codec How records are laid out.
+   * @param order The order of the records.
+   * @param prefix A key prefix for each record that agrees with order.
+   * @post values is sorted, with equal elements in their original order.
+   */
+  public static <T> void sort(T[] values, RecordCodec<T> codec,
+      Comparator<? super T> order, ToLongFunction<? super T> prefix) {
+    try (OffHeapSorter<T> sorter =
+        new OffHeapSorter<T>(codec, order, prefix)) {
+      for (T value : values) {
+        sorter.add(value);
+      } // for
+      OffHeapSorter<T>.Cursor cursor = sorter.sort();
+      for (int i = 0; cursor.next(); i++) {
+        values[i] = cursor.record();
+      } // for
+    } // try
+  } // sort(T[], RecordCodec<T>, Comparator<? super T>, ToLongFunction)
+
+  /**
+   * The prefix of a long key, which orders as the key does.
+   */
+  public static long longPrefix(long key) {
+    return key ^ Long.MIN_VALUE;
+  } // longPrefix(long)
+
+  /**
+   * The prefix of a String key: its first four chars, which order as
+   * String.compareTo does as far as they go.
+   */
+  public static long stringPrefix(String key) {
+    long packed = 0;
+    for (int i = 0; i < 4; i++) {
+      packed = (packed << 16) | ((i < key.length()) ? key.charAt(i) : 0);
+    } // for
+    return packed;
+  } // stringPrefix(String)
+
+  /**
+   * Copy a record into the arena.
+   *
+   * @param record The record.
+   * @throws IllegalStateException If the sorter is closed.
+   */
+  public void add(T record) {
+    checkOpen();
+    this.staging.reset();
+    try {
+      this.codec.write(record, this.staging.out);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    } // try/catch
+    int length = this.staging.size();
+
+    ByteBuffer chunk = this.chunks.isEmpty() ? null
+        : this.chunks.get(this.chunks.size() - 1);
+    if (chunk == null || chunk.remaining() < length) {
+      chunk = ByteBuffer.allocateDirect(Math.max(this.chunkSize, length));
+      this.chunks.add(chunk);
+    } // if
+
+    if (this.size == this.lengths.length) {
+      this.where = Arrays.copyOf(this.where, 2 * this.size);
+      this.lengths = Arrays.copyOf(this.lengths, 2 * this.size);
+      this.entries = Arrays.copyOf(this.entries, 4 * this.size);
+    } // if
+    this.where[this.size] =
+        ((long) (this.chunks.size() - 1) << 32) | chunk.position();
+    this.lengths[this.size] = length;
+    this.entries[2 * this.size] = this.prefix.applyAsLong(record);
+    this.entries[2 * this.size + 1] = this.size;
+    this.size++;
+    this.staging.copyTo(chunk);
+  } // add(T)
+
+  /**
+   * Get the number of records added.
+   */
+  public int size() {
+    return this.size;
+  } // size()
+
+  /**
+   * Get the number of bytes the arena has reserved.
+   */
+  public long arenaBytes() {
+    checkOpen();
+    long total = 0;
+    for (ByteBuffer chunk : this.chunks) {
+      total += chunk.capacity();
+    } // for
+    return total;
+  } // arenaBytes()
+
+  /**
+   * Sort the records added so far.
+   *
+   * @return A cursor over the records in order, valid until the sorter
+   *         is closed.
+   * @throws IllegalStateException If the sorter is closed.
+   */
+  public Cursor sort() {
+    checkOpen();
+    int n = this.size;
+    sortEntries(this.entries, 0, n, new long[2 * ((n + 1) / 2)]);
+    sortTies(this.entries, n);
+    return new Cursor(Arrays.copyOf(this.entries, 2 * n));
+  } // sort()
+
+  /**
+   * Free the arena.  Cursors and further calls fail afterwards.
+   */
+  @Override
+  public void close() {
+    if (this.chunks == null) {
+      return;
+    } // if
+    List<ByteBuffer> arena = this.chunks;
+    this.chunks = null;
+    for (ByteBuffer chunk : arena) {
+      free(chunk);
+    } // for
+  } // close()
+
+  /**
+   * Stably merge sort entry pairs [lo..hi) by prefix, as
+   * MergeSort.mergeSort does, insertion sorting short ranges and skipping
+   * merges of halves that are already in order.
+   *
+   * @param e The entries, in (prefix, record) pairs.
+   * @param lo The first entry (inclusive) of the range.
+   * @param hi The last entry (exclusive) of the range.
+   * @param scratch Room for half the entries.
+   */
+  void sortEntries(long[] e, int lo, int hi, long[] scratch) {
+    if (hi - lo <= INSERTION_THRESHOLD) {
+      for (int i = lo + 1; i < hi; i++) {
+        long p = e[2 * i];
+        long r = e[2 * i + 1];
+        int j = i;
+        while (j > lo && Long.compareUnsigned(e[2 * j - 2], p) > 0) {
+          e[2 * j] = e[2 * j - 2];
+          e[2 * j + 1] = e[2 * j - 1];
+          j--;
+        } // while
+        e[2 * j] = p;
+        e[2 * j + 1] = r;
+      } // for
+      return;
+    } // if
+
+    int mid = lo + (hi - lo) / 2;
+    SortProbe.enter();
+    sortEntries(e, lo, mid, scratch);
+    sortEntries(e, mid, hi, scratch);
+    SortProbe.exit();
+    if (Long.compareUnsigned(e[2 * mid - 2], e[2 * mid]) <= 0) {
+      return;
+    } // if
+
+    // Copy out the left half and merge over it, as MergeSort.merge does
+    SortProbe.merge(lo, mid, hi);
+    int leftEnd = 2 * (mid - lo);
+    System.arraycopy(e, 2 * lo, scratch, 0, leftEnd);
+    int left = 0;
+    int right = 2 * mid;
+    int dest = 2 * lo;
+    while (left != leftEnd && right != 2 * hi) {
+      if (Long.compareUnsigned(scratch[left], e[right]) <= 0) {
+        e[dest++] = scratch[left++];
+        e[dest++] = scratch[left++];
+      } else {
+        e[dest++] = e[right++];
+        e[dest++] = e[right++];
+      } // if/else
+    } // while
+    System.arraycopy(scratch, left, e, dest, leftEnd - left);
+  } // sortEntries(long[], int, int, long[])
+
+  /**
+   * Sort each group of entries whose prefixes tie by the order, decoding
+   * each of its records once.
+   *
+   * @param e The first n entries, sorted by prefix.
+   * @param n The number of entries.
+   * @post e is sorted by prefix and then stably by the order.
+   */
+  @SuppressWarnings("unchecked")
+  void sortTies(long[] e, int n) {
+    int lo = 0;
+    while (lo < n) {
+      int hi = lo + 1;
+      while (hi < n && e[2 * hi] == e[2 * lo]) {
+        hi++;
+      } // while
+      if (hi - lo > 1) {
+        Object[] group = new Object[hi - lo];
+        long[] records = new long[hi - lo];
+        for (int i = 0; i < group.length; i++) {
+          records[i] = e[2 * (lo + i) + 1];
+          group[i] = decode((int) records[i]);
+        } // for
+        int[] perm = Argsort.sortIndices(group.length,
+            (i, j) -> this.order.compare((T) group[i], (T) group[j]));
+        for (int i = 0; i < perm.length; i++) {
+          e[2 * (lo + i) + 1] = records[perm[i]];
+        } // for
+      } // if
+      lo = hi;
+    } // while
+  } // sortTies(long[], int)
+
+  /**
+   * Get a read-only view of a record's bytes, for use only while the
+   * sorter is open.
+   */
+  ByteBuffer bytes(int record) {
+    checkOpen();
+    long at = this.where[record];
+    int pos = (int) at;
+    return this.chunks.get((int) (at >>> 32)).asReadOnlyBuffer()
+        .limit(pos + this.lengths[record]).position(pos).slice();
+  } // bytes(int)
+
+  /**
+   * Decode a record from the arena.
+   */
+  T decode(int record) {
+    try {
+      return this.codec.read(
+          new DataInputStream(new BufferInput(bytes(record))));
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    } // try/catch
+  } // decode(int)
+
+  /**
+   * Make sure the sorter has not been closed.
+   */
+  private void checkOpen() {
+    if (this.chunks == null) {
+      throw new IllegalStateException("OffHeapSorter is closed");
+    } // if
+  } // checkOpen()
+
+  /**
+   * Release a direct buffer's memory now, where the JDK allows it, rather
+   * than when the buffer is collected.
+   *
+   * @pre Nothing will read buffer, or a view of it, again.
+   */
+  static void free(ByteBuffer buffer) {
+    if (CLEANER != null) {
+      try {
+        CLEANER.invoke(UNSAFE, buffer);
+      } catch (ReflectiveOperationException e) {
+        // The collector will free it instead
+      } // try/catch
+    } // if
+  } // free(ByteBuffer)
+
+  // +---------------+-----------------------------------------------
+  // | Inner Classes |
+  // +---------------+
+
+  /**
+   * The sorted records, one at a time.  Nothing is decoded unless
+   * record() is called.
+   */
+  public class Cursor {
+    private final long[] sorted;
+    private int pos = -1;
+
+    Cursor(long[] sorted) {
+      this.sorted = sorted;
+    } // Cursor(long[])
+
+    /**
+     * Move to the next record.
+     *
+     * @return Whether there is one.
+     */
+    public boolean next() {
+      checkOpen();
+      if (2 * (this.pos + 1) >= this.sorted.length) {
+        this.pos = this.sorted.length / 2;
+        return false;
+      } // if
+      this.pos++;
+      return true;
+    } // next()
+
+    /**
+     * Get the number of the current record, counting from 0 in the order
+     * the records were added.
+     */
+    public int index() {
+      check();
+      return (int) this.sorted[2 * this.pos + 1];
+    } // index()
+
+    /**
+     * Get the key prefix of the current record.
+     */
+    public long prefix() {
+      check();
+      return this.sorted[2 * this.pos];
+    } // prefix()
+
+    /**
+     * Copy the current record's bytes out of the arena, so they stay
+     * readable after the sorter is closed.
+     */
+    public ByteBuffer bytes() {
+      ByteBuffer view = OffHeapSorter.this.bytes(index());
+      return ByteBuffer.allocate(view.remaining()).put(view).flip();
+    } // bytes()
+
+    /**
+     * Decode the current record.
+     */
+    public T record() {
+      return decode(index());
+    } // record()
+
+    /**
+     * Make sure the cursor is on a record.
+     */
+    private void check() {
+      if (this.pos < 0 || 2 * this.pos >= this.sorted.length) {
+        throw new NoSuchElementException();
+      } // if
+    } // check()
+  } // class Cursor
+
+  /**
+   * A reusable buffer that records are encoded into.
+   */
+  static class Staging extends ByteArrayOutputStream {
+    final DataOutputStream out = new DataOutputStream(this);
+
+    /**
+     * Copy everything written since the last reset to dst.
+     */
+    void copyTo(ByteBuffer dst) {
+      dst.put(this.buf, 0, this.count);
+    } // copyTo(ByteBuffer)
+  } // class Staging
+
+  /**
+   * The remaining bytes of a buffer, as a stream.
+   */
+  static class BufferInput extends InputStream {
+    final ByteBuffer buffer;
+
+    BufferInput(ByteBuffer buffer) {
+      this.buffer = buffer;
+    } // BufferInput(ByteBuffer)
+
+    @Override
+    public int read() {
+      return this.buffer.hasRemaining() ? (this.buffer.get() & 0xFF) : -1;
+    } // read()
+
+    @Override
+    public int read(byte[] b, int off, int len) {
+      if (len == 0) {
+        return 0;
+      } else if (!this.buffer.hasRemaining()) {
+        return -1;
+      } // if
+      int n = Math.min(len, this.buffer.remaining());
+      this.buffer.get(b, off, n);
+      return n;
+    } // read(byte[], int, int)
+  } // class BufferInput
+} // class OffHeapSorter
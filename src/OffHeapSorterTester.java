@@ -0,0 +1,197 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Comparator;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of OffHeapSorter.
+ *
+ * @author Wenfei Lin
+ */
+public class OffHeapSorterTester {
+
+  // +-----------+---------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  /**
+   * Pairs of a key and a tag, which the order ignores.
+   */
+  static final RecordCodec<long[]> PAIRS = new RecordCodec<long[]>() {
+    @Override
+    public void write(long[] value, DataOutput out) throws IOException {
+      out.writeLong(value[0]);
+      out.writeLong(value[1]);
+    } // write(long[], DataOutput)
+
+    @Override
+    public long[] read(DataInput in) throws IOException {
+      return new long[] { in.readLong(), in.readLong() };
+    } // read(DataInput)
+
+    @Override
+    public long memorySize(long[] value) {
+      return 32;
+    } // memorySize(long[])
+  };
+
+  // +-------+-------------------------------------------------------
+  // | Tests |
+  // +-------+
+
+  @Test
+  public void stringsTest() {
+    Random rand = new Random(89);
+    for (int n : new int[] { 0, 1, 2, 17, 1000, 20_000 }) {
+      String[] vals = new String[n];
+      for (int i = 0; i < n; i++) {
+        // Long common prefixes, so most prefix comparisons tie
+        vals[i] = ((rand.nextBoolean()) ? "same" : "sam")
+            + rand.nextInt(1000);
+      } // for
+      String[] expected = vals.clone();
+      MergeSort.SORTER.sort(expected, Comparator.naturalOrder());
+      OffHeapSorter.sort(vals, RecordCodec.STRINGS,
+          Comparator.naturalOrder(), OffHeapSorter::stringPrefix);
+      assertArrayEquals(expected, vals);
+    } // for
+  } // stringsTest
+
+  @Test
+  public void stableTest() {
+    Random rand = new Random(97);
+    long[][] vals = new long[5000][];
+    for (int i = 0; i < vals.length; i++) {
+      vals[i] = new long[] { rand.nextInt(20) - 10, i };
+    } // for
+    long[][] expected = vals.clone();
+    Comparator<long[]> byKey = (x, y) -> Long.compare(x[0], y[0]);
+    MergeSort.SORTER.sort(expected, byKey);
+    OffHeapSorter.sort(vals, PAIRS, byKey,
+        (x) -> OffHeapSorter.longPrefix(x[0]));
+    assertArrayEquals(expected, vals);
+  } // stableTest
+
+  @Test
+  public void cursorTest() {
+    try (OffHeapSorter<Long> sorter = new OffHeapSorter<Long>(
+        RecordCodec.LONGS, Long::compare, OffHeapSorter::longPrefix, 64)) {
+      long[] keys = { 5, -3, 12, 0, -3, 7 };
+      for (long key : keys) {
+        sorter.add(key);
+      } // for
+      assertEquals(6, sorter.size());
+      // Six records of eight bytes fit in one 64-byte chunk
+      assertEquals(64, sorter.arenaBytes());
+
+      OffHeapSorter<Long>.Cursor cursor = sorter.sort();
+      int[] indices = new int[keys.length];
+      long[] fromBytes = new long[keys.length];
+      for (int i = 0; cursor.next(); i++) {
+        indices[i] = cursor.index();
+        ByteBuffer bytes = cursor.bytes();
+        assertEquals(Long.BYTES, bytes.remaining());
+        fromBytes[i] = bytes.getLong();
+        assertEquals(OffHeapSorter.longPrefix(fromBytes[i]),
+            cursor.prefix());
+      } // for
+      assertArrayEquals(new int[] { 1, 4, 3, 0, 5, 2 }, indices);
+      assertArrayEquals(new long[] { -3, -3, 0, 5, 7, 12 }, fromBytes);
+      assertFalse(cursor.next());
+      assertThrows(java.util.NoSuchElementException.class, cursor::index);
+    } // try
+  } // cursorTest
+
+  @Test
+  public void largeRecordsTest() {
+    try (OffHeapSorter<String> sorter = new OffHeapSorter<String>(
+        RecordCodec.STRINGS, Comparator.naturalOrder(),
+        OffHeapSorter::stringPrefix, 16)) {
+      String big = "b".repeat(100);
+      sorter.add(big);
+      sorter.add("a");
+      sorter.add("c");
+      OffHeapSorter<String>.Cursor cursor = sorter.sort();
+      assertTrue(cursor.next());
+      assertEquals("a", cursor.record());
+      assertTrue(cursor.next());
+      assertEquals(big, cursor.record());
+      assertTrue(cursor.next());
+      assertEquals("c", cursor.record());
+      assertTrue(sorter.arenaBytes() >= 104 + 16);
+    } // try
+  } // largeRecordsTest
+
+  @Test
+  public void closeTest() {
+    OffHeapSorter<Long> sorter = new OffHeapSorter<Long>(RecordCodec.LONGS,
+        Long::compare, OffHeapSorter::longPrefix);
+    sorter.add(2L);
+    sorter.add(1L);
+    OffHeapSorter<Long>.Cursor cursor = sorter.sort();
+    sorter.close();
+    sorter.close();
+    assertThrows(IllegalStateException.class, cursor::next);
+    assertThrows(IllegalStateException.class, () -> sorter.add(3L));
+    assertThrows(IllegalStateException.class, sorter::arenaBytes);
+  } // closeTest
+
+  @Test
+  public void decodesOnceTest() {
+    // The strings share just two four-char prefixes, so only the order
+    // can tell them apart; each should still be decoded once to sort
+    int[] reads = { 0 };
+    RecordCodec<String> counting = new RecordCodec<String>() {
+      @Override
+      public void write(String value, DataOutput out) throws IOException {
+        RecordCodec.STRINGS.write(value, out);
+      } // write(String, DataOutput)
+
+      @Override
+      public String read(DataInput in) throws IOException {
+        reads[0]++;
+        return RecordCodec.STRINGS.read(in);
+      } // read(DataInput)
+
+      @Override
+      public long memorySize(String value) {
+        return RecordCodec.STRINGS.memorySize(value);
+      } // memorySize(String)
+    };
+    Random rand = new Random(101);
+    String[] vals = new String[5000];
+    for (int i = 0; i < vals.length; i++) {
+      vals[i] = ((i % 2 == 0) ? "same" : "samf") + rand.nextInt(100_000);
+    } // for
+    String[] expected = vals.clone();
+    MergeSort.SORTER.sort(expected, Comparator.naturalOrder());
+    OffHeapSorter.sort(vals, counting, Comparator.naturalOrder(),
+        OffHeapSorter::stringPrefix);
+    assertArrayEquals(expected, vals);
+    // One read per record to sort the ties, and one to read it back
+    assertEquals(2 * vals.length, reads[0]);
+  } // decodesOnceTest
+
+  @Test
+  public void prefixesTest() {
+    long[] keys = { Long.MIN_VALUE, -1, 0, 1, Long.MAX_VALUE };
+    for (int i = 1; i < keys.length; i++) {
+      assertTrue(Long.compareUnsigned(OffHeapSorter.longPrefix(keys[i - 1]),
+          OffHeapSorter.longPrefix(keys[i])) < 0);
+    } // for
+    String[] strings = { "", "a", "ab", "abcd", "abcde", "b", "\uffff" };
+    for (int i = 1; i < strings.length; i++) {
+      assertTrue(Long.compareUnsigned(
+          OffHeapSorter.stringPrefix(strings[i - 1]),
+          OffHeapSorter.stringPrefix(strings[i])) <= 0);
+    } // for
+  } // prefixesTest
+} // class OffHeapSorterTester
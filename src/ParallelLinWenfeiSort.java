@@ -0,0 +1,326 @@
+import java.util.Comparator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Sort using LinWenfeiSort's chunked TimSort, with the chunk insertion
+ * sorts and the merges of each pass spread over a ForkJoinPool.  Merges
+ * that are large enough (typically the last few passes) are themselves
+ * split into independent pieces by binary-searched co-ranks.
+ *
+ * The result is identical to LinWenfeiSort.SORTER, including the relative
+ * order of equal elements.
+ *
+ * @author Wenfei Lin
+ */
+
+public class ParallelLinWenfeiSort implements Sorter {
+  // +-----------+---------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  // Arrays smaller than this are sorted sequentially by default
+  static final int DEFAULT_THRESHOLD = 1 << 13;
+
+  // +--------+------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /**
+   * The one sorter you can access.
+   */
+  public static Sorter SORTER = new ParallelLinWenfeiSort();
+
+  /**
+   * The pool that runs the subtasks.
+   */
+  private final ForkJoinPool pool;
+
+  /**
+   * The number of elements below which work is done sequentially, both for
+   * the whole array and for a single piece of a merge.
+   */
+  private final int threshold;
+
+  // +--------------+------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  /**
+   * Create a sorter that uses the common pool.
+   */
+  ParallelLinWenfeiSort() {
+    this(ForkJoinPool.commonPool(), DEFAULT_THRESHOLD);
+  } // ParallelLinWenfeiSort()
+
+  /**
+   * Create a sorter that uses the common pool and a given threshold.
+   *
+   * @param threshold The size below which sorting is done sequentially.
+   */
+  ParallelLinWenfeiSort(int threshold) {
+    this(ForkJoinPool.commonPool(), threshold);
+  } // ParallelLinWenfeiSort(int)
+
+  /**
+   * Create a sorter that runs in a given pool.
+   *
+   * @param pool The pool that will run the subtasks.
+   * @param threshold The size below which sorting is done sequentially.
+   * @pre threshold >= 1.
+   */
+  ParallelLinWenfeiSort(ForkJoinPool pool, int threshold) {
+    if (threshold < 1) {
+      throw new IllegalArgumentException("threshold must be positive");
+    } // if
+    this.pool = pool;
+    this.threshold = threshold;
+  } // ParallelLinWenfeiSort(ForkJoinPool, int)
+
+  // +---------+-----------------------------------------------------
+  // | Methods |
+  // +---------+
+
+  /**
+   * Sort an array using the chunked TimSort of LinWenfeiSort in parallel.
+   *
+   * @param values The array being sorted.
+   * @param order  The comparator that determines what order the elements in
+   *               the array will be sorted in.
+   * @post The array will be sorted in the order delineated by the comparator.
+   */
+  @Override
+  public <T> void sort(T[] values, Comparator<? super T> order) {
+    int arrLen = values.length;
+
+    if (arrLen < this.threshold || this.pool.getParallelism() <= 1) {
+      LinWenfeiSort.SORTER.sort(values, order);
+      return;
+    } // if
+
+    // Sort the MIN_MERGE-sized chunks, a group of chunks per task
+    int chunks = (arrLen + LinWenfeiSort.MIN_MERGE - 1)
+        / LinWenfeiSort.MIN_MERGE;
+    int chunksPerTask = Math.max(1, this.threshold / LinWenfeiSort.MIN_MERGE);
+    this.pool.invoke(new ChunkTask<T>(values, order, 0, chunks,
+        chunksPerTask));
+
+    // Run each pass of merges in parallel, one pass after another
+    Object[] buffer = new Object[arrLen];
+    for (int size = LinWenfeiSort.MIN_MERGE; size < arrLen; size = size * 2) {
+      int pairs = (arrLen + 2 * size - 1) / (2 * size);
+      this.pool.invoke(new PassTask<T>(values, buffer, order, size, 0, pairs,
+          this.threshold));
+    } // for
+  } // sort(T[], Comparator<? super T>)
+
+  /**
+   * Find how many elements of a[aLo..aHi) are among the first k elements
+   * of the stable merge of a[aLo..aHi) and b[bLo..bHi).
+   *
+   * @param a The array holding both runs.
+   * @param order The comparator that determines the order.
+   * @param aLo The start (inclusive) of the left run.
+   * @param aHi The end (exclusive) of the left run.
+   * @param bLo The start (inclusive) of the right run.
+   * @param bHi The end (exclusive) of the right run.
+   * @param k The number of merged elements being split off.
+   * @return The co-rank of k in the left run.
+   * @pre Both runs are sorted and 0 <= k <= (aHi - aLo) + (bHi - bLo).
+   */
+  static <T> int coRank(T[] a, Comparator<? super T> order, int aLo,
+      int aHi, int bLo, int bHi, int k) {
+    int lo = Math.max(0, k - (bHi - bLo));
+    int hi = Math.min(k, aHi - aLo);
+
+    while (lo < hi) {
+      int i = (lo + hi) >>> 1;
+      int j = k - i;
+      // Equal elements come from the left run first, so a[i] belongs
+      // before b[j - 1] whenever it is not greater
+      if (order.compare(a[aLo + i], a[bLo + j - 1]) <= 0) {
+        lo = i + 1;
+      } else {
+        hi = i;
+      } // if/else
+    } // while
+
+    return lo;
+  } // coRank(T[], Comparator<? super T>, int, int, int, int, int)
+
+  /**
+   * Stably merge values[aLo..aHi) and values[bLo..bHi) into
+   * buffer[out..).
+   *
+   * @param values The array holding both runs.
+   * @param buffer Where the merged elements are written.
+   * @param order The comparator that determines the order.
+   * @param aLo The start (inclusive) of the left run.
+   * @param aHi The end (exclusive) of the left run.
+   * @param bLo The start (inclusive) of the right run.
+   * @param bHi The end (exclusive) of the right run.
+   * @param out The first index of buffer to write.
+   */
+  static <T> void mergeInto(T[] values, Object[] buffer,
+      Comparator<? super T> order, int aLo, int aHi, int bLo, int bHi,
+      int out) {
+    while (aLo < aHi && bLo < bHi) {
+      if (order.compare(values[aLo], values[bLo]) <= 0) {
+        buffer[out++] = values[aLo++];
+      } else {
+        buffer[out++] = values[bLo++];
+      } // if/else
+    } // while
+
+    System.arraycopy(values, aLo, buffer, out, aHi - aLo);
+    System.arraycopy(values, bLo, buffer, out + (aHi - aLo), bHi - bLo);
+  } // mergeInto(T[], Object[], Comparator<? super T>, int, ...)
+
+  // +---------------+-----------------------------------------------
+  // | Inner Classes |
+  // +---------------+
+
+  /**
+   * Insertion sort the chunks numbered [lo..hi).
+   */
+  @SuppressWarnings("serial")
+  static class ChunkTask<T> extends RecursiveAction {
+    final T[] values;
+    final Comparator<? super T> order;
+    final int lo;
+    final int hi;
+    final int grain;
+
+    ChunkTask(T[] values, Comparator<? super T> order, int lo, int hi,
+        int grain) {
+      this.values = values;
+      this.order = order;
+      this.lo = lo;
+      this.hi = hi;
+      this.grain = grain;
+    } // ChunkTask(T[], Comparator<? super T>, int, int, int)
+
+    @Override
+    protected void compute() {
+      if (this.hi - this.lo > this.grain) {
+        int mid = (this.lo + this.hi) >>> 1;
+        invokeAll(new ChunkTask<T>(values, order, lo, mid, grain),
+            new ChunkTask<T>(values, order, mid, hi, grain));
+        return;
+      } // if
+
+      int arrLen = this.values.length;
+      for (int c = this.lo; c < this.hi; c++) {
+        int left = c * LinWenfeiSort.MIN_MERGE;
+        InsertionSort.binaryInsertionSort(this.values, this.order, left,
+            Math.min(left + LinWenfeiSort.MIN_MERGE, arrLen), left);
+      } // for
+    } // compute()
+  } // class ChunkTask<T>
+
+  /**
+   * Perform the merges numbered [lo..hi) of the pass that merges pairs of
+   * runs of length size.
+   */
+  @SuppressWarnings("serial")
+  static class PassTask<T> extends RecursiveAction {
+    final T[] values;
+    final Object[] buffer;
+    final Comparator<? super T> order;
+    final int size;
+    final int lo;
+    final int hi;
+    final int grain;
+
+    PassTask(T[] values, Object[] buffer, Comparator<? super T> order,
+        int size, int lo, int hi, int grain) {
+      this.values = values;
+      this.buffer = buffer;
+      this.order = order;
+      this.size = size;
+      this.lo = lo;
+      this.hi = hi;
+      this.grain = grain;
+    } // PassTask(T[], Object[], Comparator<? super T>, int, int, int, int)
+
+    @Override
+    protected void compute() {
+      // Split while a half still holds at least grain elements
+      if (this.hi - this.lo > 1
+          && (long) (this.hi - this.lo) * this.size >= this.grain) {
+        int mid = (this.lo + this.hi) >>> 1;
+        invokeAll(
+            new PassTask<T>(values, buffer, order, size, lo, mid, grain),
+            new PassTask<T>(values, buffer, order, size, mid, hi, grain));
+        return;
+      } // if
+
+      int arrLen = this.values.length;
+      for (int p = this.lo; p < this.hi; p++) {
+        int left = p * 2 * this.size;
+        int mid = Math.min(arrLen, left + this.size);
+        int right = Math.min(arrLen, left + 2 * this.size);
+
+        // Skip trailing chunks and pairs that are already in order
+        if (mid >= right
+            || this.order.compare(this.values[mid - 1], this.values[mid])
+                <= 0) {
+          continue;
+        } // if
+
+        new MergeTask<T>(values, buffer, order, left, mid, mid, right, left,
+            grain).invoke();
+        System.arraycopy(this.buffer, left, this.values, left, right - left);
+      } // for
+    } // compute()
+  } // class PassTask<T>
+
+  /**
+   * Merge values[aLo..aHi) and values[bLo..bHi) into buffer[out..),
+   * splitting the output by co-rank while it is larger than grain.
+   */
+  @SuppressWarnings("serial")
+  static class MergeTask<T> extends RecursiveAction {
+    final T[] values;
+    final Object[] buffer;
+    final Comparator<? super T> order;
+    final int aLo;
+    final int aHi;
+    final int bLo;
+    final int bHi;
+    final int out;
+    final int grain;
+
+    MergeTask(T[] values, Object[] buffer, Comparator<? super T> order,
+        int aLo, int aHi, int bLo, int bHi, int out, int grain) {
+      this.values = values;
+      this.buffer = buffer;
+      this.order = order;
+      this.aLo = aLo;
+      this.aHi = aHi;
+      this.bLo = bLo;
+      this.bHi = bHi;
+      this.out = out;
+      this.grain = grain;
+    } // MergeTask(T[], Object[], Comparator<? super T>, int, ...)
+
+    @Override
+    protected void compute() {
+      int total = (this.aHi - this.aLo) + (this.bHi - this.bLo);
+
+      if (total <= this.grain) {
+        mergeInto(values, buffer, order, aLo, aHi, bLo, bHi, out);
+        return;
+      } // if
+
+      int k = total / 2;
+      int i = coRank(values, order, aLo, aHi, bLo, bHi, k);
+      int j = k - i;
+      invokeAll(
+          new MergeTask<T>(values, buffer, order, aLo, aLo + i, bLo, bLo + j,
+              out, grain),
+          new MergeTask<T>(values, buffer, order, aLo + i, aHi, bLo + j, bHi,
+              out + k, grain));
+    } // compute()
+  } // class MergeTask<T>
+} // class ParallelLinWenfeiSort
@@ -0,0 +1,58 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of ParallelLinWenfeiSort.
+ */
+public class ParallelLinWenfeiTester extends SortTester {
+
+  // +---------+-----------------------------------------------------
+  // | Globals |
+  // +---------+
+
+  /**
+   * The pool every test instance sorts in, shut down after the last.
+   */
+  static final ForkJoinPool POOL = new ForkJoinPool(4);
+
+  // +--------------+------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  public ParallelLinWenfeiTester() {
+    super();
+    // A tiny threshold so that even the small tests take the parallel path
+    this.sorter = new ParallelLinWenfeiSort(POOL, 1);
+  } // ParallelLinWenfeiTester()
+
+  // +---------+-----------------------------------------------------
+  // | Cleanup |
+  // +---------+
+
+  @AfterAll
+  public static void shutdownPool() {
+    POOL.shutdown();
+  } // shutdownPool()
+
+  // +-------+-------------------------------------------------------
+  // | Tests |
+  // +-------+
+
+  @Test
+  public void matchesSequentialTest() {
+    Random rand = new Random(42);
+    Integer[][] original = new Integer[10_007][];
+    for (int i = 0; i < original.length; i++) {
+      // Few distinct keys, tagged with their original position
+      original[i] = new Integer[] { rand.nextInt(50), i };
+    } // for
+    Integer[][] expected = original.clone();
+    LinWenfeiSort.SORTER.sort(expected, (x, y) -> x[0].compareTo(y[0]));
+    new ParallelLinWenfeiSort(POOL, 64)
+        .sort(original, (x, y) -> x[0].compareTo(y[0]));
+    assertArrayEquals(expected, original);
+  } // matchesSequentialTest
+} // class ParallelLinWenfeiTester
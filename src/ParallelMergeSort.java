@@ -0,0 +1,206 @@
+import java.util.Comparator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Sort using merge sort, with the two halves of every subarray larger than
+ * the grain sorted as parallel subtasks, and merges larger than the grain
+ * split into independent pieces by co-rank (as in ParallelLinWenfeiSort).
+ *
+ * The array and one scratch array of the same length take turns as the
+ * source and destination of each level's merges (ping-pong), so nothing
+ * is copied back between levels and no level allocates.
+ *
+ * Merges are stable and exact, so the result is the same as MergeSort's
+ * whatever the number of threads.
+ *
+ * @author Wenfei Lin
+ */
+public class ParallelMergeSort implements Sorter {
+
+  // +-----------+---------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  // Subarrays this small are sorted sequentially by default
+  static final int DEFAULT_GRAIN = 1 << 13;
+
+  // Subarrays this small are insertion sorted
+  static final int INSERTION_THRESHOLD = 16;
+
+  // +--------+------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /**
+   * The one sorter you can access.
+   */
+  public static Sorter SORTER = new ParallelMergeSort();
+
+  /**
+   * The pool that runs the subtasks.
+   */
+  private final ForkJoinPool pool;
+
+  /**
+   * The size below which sorting and merging are done sequentially.
+   */
+  private final int grain;
+
+  // +--------------+------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  /**
+   * Create a sorter that uses the common pool.
+   */
+  ParallelMergeSort() {
+    this(ForkJoinPool.commonPool(), DEFAULT_GRAIN);
+  } // ParallelMergeSort()
+
+  /**
+   * Create a sorter that uses the common pool and a given grain.
+   *
+   * @param grain The size below which work is done sequentially.
+   */
+  ParallelMergeSort(int grain) {
+    this(ForkJoinPool.commonPool(), grain);
+  } // ParallelMergeSort(int)
+
+  /**
+   * Create a sorter that runs in a given pool.
+   *
+   * @param pool The pool that will run the subtasks.
+   * @param grain The size below which work is done sequentially.
+   * @pre grain >= 1.
+   */
+  ParallelMergeSort(ForkJoinPool pool, int grain) {
+    if (grain < 1) {
+      throw new IllegalArgumentException("grain must be positive");
+    } // if
+    this.pool = pool;
+    this.grain = grain;
+  } // ParallelMergeSort(ForkJoinPool, int)
+
+  // +---------+-----------------------------------------------------
+  // | Methods |
+  // +---------+
+
+  /**
+   * Sort an array using parallel merge sort.
+   *
+   * @param values The array being sorted.
+   * @param order The comparator that determines the order.
+   * @post The array will be sorted in the order delineated by the
+   *       comparator, with equal elements in their original order.
+   */
+  @Override
+  @SuppressWarnings("unchecked")
+  public <T> void sort(T[] values, Comparator<? super T> order) {
+    int arrLen = values.length;
+    if (arrLen < this.grain || this.pool.getParallelism() <= 1) {
+      MergeSort.SORTER.sort(values, order);
+      return;
+    } // if
+
+    this.pool.invoke(new SortTask(values, new Object[arrLen],
+        (Comparator<Object>) order, 0, arrLen, false, this.grain));
+  } // sort(T[], Comparator<? super T>)
+
+  /**
+   * Sort a[lo..hi) and leave the result in b[lo..hi) if toB, or in
+   * a[lo..hi) otherwise, using the other array's [lo..hi) as scratch.
+   *
+   * @param a The array holding the unsorted elements.
+   * @param b The other array of the pair.
+   * @param order The comparator that determines the order.
+   * @param lo The lower bound (inclusive) of the subarray.
+   * @param hi The upper bound (exclusive) of the subarray.
+   * @param toB Whether the sorted elements should end up in b.
+   */
+  static void sequentialSort(Object[] a, Object[] b,
+      Comparator<Object> order, int lo, int hi, boolean toB) {
+    if (hi - lo <= INSERTION_THRESHOLD) {
+      if (hi - lo > 1) {
+        LinWenfeiSort.insertionSort(a, order, lo, hi - 1);
+      } // if
+      if (toB) {
+        System.arraycopy(a, lo, b, lo, hi - lo);
+      } // if
+      return;
+    } // if
+
+    // Sort each half into the other array, then merge it back
+    int mid = lo + (hi - lo) / 2;
+    SortProbe.enter();
+    sequentialSort(a, b, order, lo, mid, !toB);
+    sequentialSort(a, b, order, mid, hi, !toB);
+    SortProbe.exit();
+    merge(toB ? a : b, toB ? b : a, order, lo, mid, hi);
+  } // sequentialSort(Object[], Object[], Comparator<Object>, int, int, ...)
+
+  /**
+   * Merge src[lo..mid) and src[mid..hi) into dst[lo..hi), or just copy
+   * them when they are already in order.
+   */
+  static void merge(Object[] src, Object[] dst, Comparator<Object> order,
+      int lo, int mid, int hi) {
+    if (order.compare(src[mid - 1], src[mid]) <= 0) {
+      System.arraycopy(src, lo, dst, lo, hi - lo);
+    } else {
+      SortProbe.merge(lo, mid, hi);
+      ParallelLinWenfeiSort.mergeInto(src, dst, order, lo, mid, mid, hi, lo);
+    } // if/else
+  } // merge(Object[], Object[], Comparator<Object>, int, int, int)
+
+  // +---------------+-----------------------------------------------
+  // | Inner Classes |
+  // +---------------+
+
+  /**
+   * Sort a[lo..hi) into b if toB, or into a otherwise, forking the halves
+   * while they are larger than grain.
+   */
+  @SuppressWarnings("serial")
+  static class SortTask extends RecursiveAction {
+    final Object[] a;
+    final Object[] b;
+    final Comparator<Object> order;
+    final int lo;
+    final int hi;
+    final boolean toB;
+    final int grain;
+
+    SortTask(Object[] a, Object[] b, Comparator<Object> order, int lo,
+        int hi, boolean toB, int grain) {
+      this.a = a;
+      this.b = b;
+      this.order = order;
+      this.lo = lo;
+      this.hi = hi;
+      this.toB = toB;
+      this.grain = grain;
+    } // SortTask(Object[], Object[], Comparator<Object>, int, int, ...)
+
+    @Override
+    protected void compute() {
+      if (this.hi - this.lo <= this.grain) {
+        sequentialSort(a, b, order, lo, hi, toB);
+        return;
+      } // if
+
+      int mid = this.lo + (this.hi - this.lo) / 2;
+      invokeAll(new SortTask(a, b, order, lo, mid, !toB, grain),
+          new SortTask(a, b, order, mid, hi, !toB, grain));
+
+      Object[] src = this.toB ? this.a : this.b;
+      Object[] dst = this.toB ? this.b : this.a;
+      if (this.order.compare(src[mid - 1], src[mid]) <= 0) {
+        System.arraycopy(src, lo, dst, lo, hi - lo);
+      } else {
+        new ParallelLinWenfeiSort.MergeTask<Object>(src, dst, order, lo, mid,
+            mid, hi, lo, grain).invoke();
+      } // if/else
+    } // compute()
+  } // class SortTask
+} // class ParallelMergeSort
@@ -0,0 +1,69 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of ParallelMergeSort.
+ */
+public class ParallelMergeSortTester extends SortTester {
+
+  // +---------+-----------------------------------------------------
+  // | Globals |
+  // +---------+
+
+  /**
+   * The pool every test instance sorts in, shut down after the last.
+   */
+  static final ForkJoinPool POOL = new ForkJoinPool(4);
+
+  // +--------------+------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  public ParallelMergeSortTester() {
+    super();
+    // A tiny grain so that even the small tests take the parallel path
+    this.sorter = new ParallelMergeSort(POOL, 1);
+  } // ParallelMergeSortTester()
+
+  // +---------+-----------------------------------------------------
+  // | Cleanup |
+  // +---------+
+
+  @AfterAll
+  public static void shutdownPool() {
+    POOL.shutdown();
+  } // shutdownPool()
+
+  // +-------+-------------------------------------------------------
+  // | Tests |
+  // +-------+
+
+  @Test
+  public void sameForAnyThreadCountTest() {
+    Random rand = new Random(41);
+    Integer[][] original = new Integer[20_011][];
+    for (int i = 0; i < original.length; i++) {
+      // Few distinct keys, tagged with their original position
+      original[i] = new Integer[] { rand.nextInt(50), i };
+    } // for
+    Integer[][] expected = original.clone();
+    MergeSort.SORTER.sort(expected, (x, y) -> x[0].compareTo(y[0]));
+
+    for (int threads = 1; threads <= 8; threads *= 2) {
+      ForkJoinPool pool = new ForkJoinPool(threads);
+      try {
+        for (int grain : new int[] { 1, 100, 5000 }) {
+          Integer[][] vals = original.clone();
+          new ParallelMergeSort(pool, grain)
+              .sort(vals, (x, y) -> x[0].compareTo(y[0]));
+          assertArrayEquals(expected, vals);
+        } // for
+      } finally {
+        pool.shutdown();
+      } // try/finally
+    } // for
+  } // sameForAnyThreadCountTest
+} // class ParallelMergeSortTester
@@ -0,0 +1,617 @@
+/**
+ * Sort arrays of ints, longs and doubles using the TimSort of
+ * LinWenfeiSort, without boxing and without a comparator.  Comparisons of
+ * primitives are cheap, so runs are merged element by element rather than
+ * by galloping.
+ *
+ * @author Wenfei Lin
+ */
+
+public class PrimitiveLinWenfeiSort implements IntSorter, LongSorter,
+    DoubleSorter {
+
+  // +-----------+---------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  // Arrays shorter than this are insertion sorted as a single run
+  private static final int MIN_MERGE = LinWenfeiSort.MIN_MERGE;
+
+  // +--------+------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /**
+   * The one sorter you can access.
+   */
+  public static PrimitiveLinWenfeiSort SORTER = new PrimitiveLinWenfeiSort();
+
+  // +--------------+------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  /**
+   * Create a sorter.
+   */
+  PrimitiveLinWenfeiSort() {
+  } // PrimitiveLinWenfeiSort()
+
+  // +---------+-----------------------------------------------------
+  // | Methods |
+  // +---------+
+
+  @Override
+  public void sort(int[] values) {
+    timSort(values, 0, values.length);
+  } // sort(int[])
+
+  @Override
+  public void sort(long[] values) {
+    timSort(values, 0, values.length);
+  } // sort(long[])
+
+  @Override
+  public void sort(double[] values) {
+    int end = Utils.moveNaNsToEnd(values);
+    int negativeZeros = Utils.replaceNegativeZeros(values, end);
+    timSort(values, 0, end);
+    Utils.restoreNegativeZeros(values, end, negativeZeros);
+  } // sort(double[])
+
+  /**
+   * Sort values[lo..hi) by finding natural runs, extending short ones to
+   * minRun with insertion sort, and merging them off a run stack.
+   * 
+   * @param values The array being sorted.
+   * @param lo The lowest index (inclusive) of the range.
+   * @param hi The highest index (exclusive) of the range.
+   * @post values[lo..hi) is sorted.
+   */
+  static void timSort(int[] values, int lo, int hi) {
+    int remaining = hi - lo;
+
+    if (remaining < 2) {
+      return;
+    } // if
+
+    if (remaining < MIN_MERGE) {
+      countRunAndMakeAscending(values, lo, hi);
+      insertionSort(values, lo, hi - 1);
+      return;
+    } // if
+
+    int[] tmp = new int[remaining >>> 1];
+    RunStack runs = new RunStack((base1, len1, base2, len2) ->
+        mergeRuns(values, tmp, base1, len1, base2, len2));
+    int minRun = LinWenfeiSort.minRunLength(remaining);
+
+    do {
+      int runLen = countRunAndMakeAscending(values, lo, lo + remaining);
+      if (runLen < minRun) {
+        int force = Math.min(remaining, minRun);
+        insertionSort(values, lo, lo + force - 1);
+        runLen = force;
+      } // if
+
+      runs.push(lo, runLen);
+      runs.mergeCollapse();
+
+      lo += runLen;
+      remaining -= runLen;
+    } while (remaining != 0);
+
+    runs.mergeForceCollapse();
+  } // timSort(int[], int, int)
+
+  /**
+   * Find the length of the run starting at lo, reversing it if it is
+   * strictly descending.
+   * 
+   * @param values The array being sorted.
+   * @param lo The first index (inclusive) of the run.
+   * @param hi The highest index (exclusive) the run may reach.
+   * @return The length of the run, which is now ascending.
+   */
+  static int countRunAndMakeAscending(int[] values, int lo, int hi) {
+    int runHi = lo + 1;
+
+    if (runHi == hi) {
+      return 1;
+    } // if
+
+    if (values[runHi++] < values[lo]) {
+      while (runHi < hi && values[runHi] < values[runHi - 1]) {
+        runHi++;
+      } // while
+      for (int i = lo, j = runHi - 1; i < j; i++, j--) {
+        Utils.swap(values, i, j);
+      } // for
+    } else {
+      while (runHi < hi && values[runHi] >= values[runHi - 1]) {
+        runHi++;
+      } // while
+    } // if/else
+
+    return runHi - lo;
+  } // countRunAndMakeAscending(int[], int, int)
+
+  /**
+   * Insertion sort values[left..right].
+   * 
+   * @param values The array being sorted.
+   * @param left The leftmost index of the range.
+   * @param right The rightmost index (inclusive) of the range.
+   * @post values[left..right] is sorted.
+   */
+  static void insertionSort(int[] values, int left, int right) {
+    for (int i = left + 1; i <= right; i++) {
+      int key = values[i];
+      int j = i - 1;
+
+      while (j >= left && values[j] > key) {
+        values[j + 1] = values[j];
+        j--;
+      } // while
+
+      values[j + 1] = key;
+    } // for
+  } // insertionSort(int[], int, int)
+
+  /**
+   * Merge the adjacent sorted runs a[base1..base1+len1) and
+   * a[base2..base2+len2), copying only the smaller one out.
+   * 
+   * @param a The array being sorted.
+   * @param tmp Scratch space at least as long as the smaller run.
+   * @param base1 The start of the first run.
+   * @param len1 The length of the first run.
+   * @param base2 The start of the second run (base1 + len1).
+   * @param len2 The length of the second run.
+   */
+  static void mergeRuns(int[] a, int[] tmp, int base1, int len1,
+      int base2, int len2) {
+    // Elements of run1 not greater than run2's first are already in place
+    int first2 = a[base2];
+    while (len1 > 0 && a[base1] <= first2) {
+      base1++;
+      len1--;
+    } // while
+    if (len1 == 0) {
+      return;
+    } // if
+
+    // Likewise for the elements of run2 not less than run1's last
+    int last1 = a[base1 + len1 - 1];
+    while (len2 > 0 && a[base2 + len2 - 1] >= last1) {
+      len2--;
+    } // while
+    if (len2 == 0) {
+      return;
+    } // if
+
+    if (len1 <= len2) {
+      System.arraycopy(a, base1, tmp, 0, len1);
+      int i = 0;
+      int j = base2;
+      int dest = base1;
+      int end2 = base2 + len2;
+      while (i < len1 && j < end2) {
+        if (a[j] < tmp[i]) {
+          a[dest++] = a[j++];
+        } else {
+          a[dest++] = tmp[i++];
+        } // if/else
+      } // while
+      System.arraycopy(tmp, i, a, dest, len1 - i);
+    } else {
+      System.arraycopy(a, base2, tmp, 0, len2);
+      int i = base1 + len1 - 1;
+      int j = len2 - 1;
+      int dest = base2 + len2 - 1;
+      while (i >= base1 && j >= 0) {
+        if (tmp[j] < a[i]) {
+          a[dest--] = a[i--];
+        } else {
+          a[dest--] = tmp[j--];
+        } // if/else
+      } // while
+      System.arraycopy(tmp, 0, a, base1, j + 1);
+    } // if/else
+  } // mergeRuns(int[], int[], int, int, int, int)
+
+  /**
+   * Sort values[lo..hi) by finding natural runs, extending short ones to
+   * minRun with insertion sort, and merging them off a run stack.
+   * 
+   * @param values The array being sorted.
+   * @param lo The lowest index (inclusive) of the range.
+   * @param hi The highest index (exclusive) of the range.
+   * @post values[lo..hi) is sorted.
+   */
+  static void timSort(long[] values, int lo, int hi) {
+    int remaining = hi - lo;
+
+    if (remaining < 2) {
+      return;
+    } // if
+
+    if (remaining < MIN_MERGE) {
+      countRunAndMakeAscending(values, lo, hi);
+      insertionSort(values, lo, hi - 1);
+      return;
+    } // if
+
+    long[] tmp = new long[remaining >>> 1];
+    RunStack runs = new RunStack((base1, len1, base2, len2) ->
+        mergeRuns(values, tmp, base1, len1, base2, len2));
+    int minRun = LinWenfeiSort.minRunLength(remaining);
+
+    do {
+      int runLen = countRunAndMakeAscending(values, lo, lo + remaining);
+      if (runLen < minRun) {
+        int force = Math.min(remaining, minRun);
+        insertionSort(values, lo, lo + force - 1);
+        runLen = force;
+      } // if
+
+      runs.push(lo, runLen);
+      runs.mergeCollapse();
+
+      lo += runLen;
+      remaining -= runLen;
+    } while (remaining != 0);
+
+    runs.mergeForceCollapse();
+  } // timSort(long[], int, int)
+
+  /**
+   * Find the length of the run starting at lo, reversing it if it is
+   * strictly descending.
+   * 
+   * @param values The array being sorted.
+   * @param lo The first index (inclusive) of the run.
+   * @param hi The highest index (exclusive) the run may reach.
+   * @return The length of the run, which is now ascending.
+   */
+  static int countRunAndMakeAscending(long[] values, int lo, int hi) {
+    int runHi = lo + 1;
+
+    if (runHi == hi) {
+      return 1;
+    } // if
+
+    if (values[runHi++] < values[lo]) {
+      while (runHi < hi && values[runHi] < values[runHi - 1]) {
+        runHi++;
+      } // while
+      for (int i = lo, j = runHi - 1; i < j; i++, j--) {
+        Utils.swap(values, i, j);
+      } // for
+    } else {
+      while (runHi < hi && values[runHi] >= values[runHi - 1]) {
+        runHi++;
+      } // while
+    } // if/else
+
+    return runHi - lo;
+  } // countRunAndMakeAscending(long[], int, int)
+
+  /**
+   * Insertion sort values[left..right].
+   * 
+   * @param values The array being sorted.
+   * @param left The leftmost index of the range.
+   * @param right The rightmost index (inclusive) of the range.
+   * @post values[left..right] is sorted.
+   */
+  static void insertionSort(long[] values, int left, int right) {
+    for (int i = left + 1; i <= right; i++) {
+      long key = values[i];
+      int j = i - 1;
+
+      while (j >= left && values[j] > key) {
+        values[j + 1] = values[j];
+        j--;
+      } // while
+
+      values[j + 1] = key;
+    } // for
+  } // insertionSort(long[], int, int)
+
+  /**
+   * Merge the adjacent sorted runs a[base1..base1+len1) and
+   * a[base2..base2+len2), copying only the smaller one out.
+   * 
+   * @param a The array being sorted.
+   * @param tmp Scratch space at least as long as the smaller run.
+   * @param base1 The start of the first run.
+   * @param len1 The length of the first run.
+   * @param base2 The start of the second run (base1 + len1).
+   * @param len2 The length of the second run.
+   */
+  static void mergeRuns(long[] a, long[] tmp, int base1, int len1,
+      int base2, int len2) {
+    // Elements of run1 not greater than run2's first are already in place
+    long first2 = a[base2];
+    while (len1 > 0 && a[base1] <= first2) {
+      base1++;
+      len1--;
+    } // while
+    if (len1 == 0) {
+      return;
+    } // if
+
+    // Likewise for the elements of run2 not less than run1's last
+    long last1 = a[base1 + len1 - 1];
+    while (len2 > 0 && a[base2 + len2 - 1] >= last1) {
+      len2--;
+    } // while
+    if (len2 == 0) {
+      return;
+    } // if
+
+    if (len1 <= len2) {
+      System.arraycopy(a, base1, tmp, 0, len1);
+      int i = 0;
+      int j = base2;
+      int dest = base1;
+      int end2 = base2 + len2;
+      while (i < len1 && j < end2) {
+        if (a[j] < tmp[i]) {
+          a[dest++] = a[j++];
+        } else {
+          a[dest++] = tmp[i++];
+        } // if/else
+      } // while
+      System.arraycopy(tmp, i, a, dest, len1 - i);
+    } else {
+      System.arraycopy(a, base2, tmp, 0, len2);
+      int i = base1 + len1 - 1;
+      int j = len2 - 1;
+      int dest = base2 + len2 - 1;
+      while (i >= base1 && j >= 0) {
+        if (tmp[j] < a[i]) {
+          a[dest--] = a[i--];
+        } else {
+          a[dest--] = tmp[j--];
+        } // if/else
+      } // while
+      System.arraycopy(tmp, 0, a, base1, j + 1);
+    } // if/else
+  } // mergeRuns(long[], long[], int, int, int, int)
+
+  /**
+   * Sort values[lo..hi) by finding natural runs, extending short ones to
+   * minRun with insertion sort, and merging them off a run stack.
+   * 
+   * @param values The array being sorted.
+   * @param lo The lowest index (inclusive) of the range.
+   * @param hi The highest index (exclusive) of the range.
+   * @post values[lo..hi) is sorted.
+   */
+  static void timSort(double[] values, int lo, int hi) {
+    int remaining = hi - lo;
+
+    if (remaining < 2) {
+      return;
+    } // if
+
+    if (remaining < MIN_MERGE) {
+      countRunAndMakeAscending(values, lo, hi);
+      insertionSort(values, lo, hi - 1);
+      return;
+    } // if
+
+    double[] tmp = new double[remaining >>> 1];
+    RunStack runs = new RunStack((base1, len1, base2, len2) ->
+        mergeRuns(values, tmp, base1, len1, base2, len2));
+    int minRun = LinWenfeiSort.minRunLength(remaining);
+
+    do {
+      int runLen = countRunAndMakeAscending(values, lo, lo + remaining);
+      if (runLen < minRun) {
+        int force = Math.min(remaining, minRun);
+        insertionSort(values, lo, lo + force - 1);
+        runLen = force;
+      } // if
+
+      runs.push(lo, runLen);
+      runs.mergeCollapse();
+
+      lo += runLen;
+      remaining -= runLen;
+    } while (remaining != 0);
+
+    runs.mergeForceCollapse();
+  } // timSort(double[], int, int)
+
+  /**
+   * Find the length of the run starting at lo, reversing it if it is
+   * strictly descending.
+   * 
+   * @param values The array being sorted.
+   * @param lo The first index (inclusive) of the run.
+   * @param hi The highest index (exclusive) the run may reach.
+   * @return The length of the run, which is now ascending.
+   */
+  static int countRunAndMakeAscending(double[] values, int lo, int hi) {
+    int runHi = lo + 1;
+
+    if (runHi == hi) {
+      return 1;
+    } // if
+
+    if (values[runHi++] < values[lo]) {
+      while (runHi < hi && values[runHi] < values[runHi - 1]) {
+        runHi++;
+      } // while
+      for (int i = lo, j = runHi - 1; i < j; i++, j--) {
+        Utils.swap(values, i, j);
+      } // for
+    } else {
+      while (runHi < hi && values[runHi] >= values[runHi - 1]) {
+        runHi++;
+      } // while
+    } // if/else
+
+    return runHi - lo;
+  } // countRunAndMakeAscending(double[], int, int)
+
+  /**
+   * Insertion sort values[left..right].
+   * 
+   * @param values The array being sorted.
+   * @param left The leftmost index of the range.
+   * @param right The rightmost index (inclusive) of the range.
+   * @post values[left..right] is sorted.
+   */
+  static void insertionSort(double[] values, int left, int right) {
+    for (int i = left + 1; i <= right; i++) {
+      double key = values[i];
+      int j = i - 1;
+
+      while (j >= left && values[j] > key) {
+        values[j + 1] = values[j];
+        j--;
+      } // while
+
+      values[j + 1] = key;
+    } // for
+  } // insertionSort(double[], int, int)
+
+  /**
+   * Merge the adjacent sorted runs a[base1..base1+len1) and
+   * a[base2..base2+len2), copying only the smaller one out.
+   * 
+   * @param a The array being sorted.
+   * @param tmp Scratch space at least as long as the smaller run.
+   * @param base1 The start of the first run.
+   * @param len1 The length of the first run.
+   * @param base2 The start of the second run (base1 + len1).
+   * @param len2 The length of the second run.
+   */
+  static void mergeRuns(double[] a, double[] tmp, int base1, int len1,
+      int base2, int len2) {
+    // Elements of run1 not greater than run2's first are already in place
+    double first2 = a[base2];
+    while (len1 > 0 && a[base1] <= first2) {
+      base1++;
+      len1--;
+    } // while
+    if (len1 == 0) {
+      return;
+    } // if
+
+    // Likewise for the elements of run2 not less than run1's last
+    double last1 = a[base1 + len1 - 1];
+    while (len2 > 0 && a[base2 + len2 - 1] >= last1) {
+      len2--;
+    } // while
+    if (len2 == 0) {
+      return;
+    } // if
+
+    if (len1 <= len2) {
+      System.arraycopy(a, base1, tmp, 0, len1);
+      int i = 0;
+      int j = base2;
+      int dest = base1;
+      int end2 = base2 + len2;
+      while (i < len1 && j < end2) {
+        if (a[j] < tmp[i]) {
+          a[dest++] = a[j++];
+        } else {
+          a[dest++] = tmp[i++];
+        } // if/else
+      } // while
+      System.arraycopy(tmp, i, a, dest, len1 - i);
+    } else {
+      System.arraycopy(a, base2, tmp, 0, len2);
+      int i = base1 + len1 - 1;
+      int j = len2 - 1;
+      int dest = base2 + len2 - 1;
+      while (i >= base1 && j >= 0) {
+        if (tmp[j] < a[i]) {
+          a[dest--] = a[i--];
+        } else {
+          a[dest--] = tmp[j--];
+        } // if/else
+      } // while
+      System.arraycopy(tmp, 0, a, base1, j + 1);
+    } // if/else
+  } // mergeRuns(double[], double[], int, int, int, int)
+
+  // +---------------+-----------------------------------------------
+  // | Inner Classes |
+  // +---------------+
+
+  /**
+   * Something that merges two adjacent runs of an array.
+   */
+  interface RunMerger {
+    void merge(int base1, int len1, int base2, int len2);
+  } // interface RunMerger
+
+  /**
+   * The stack of pending runs of a TimSort, which keeps the same
+   * invariants as LinWenfeiSort.MergeState.
+   */
+  static class RunStack {
+    final int[] runBase = new int[49];
+    final int[] runLen = new int[49];
+    final RunMerger merger;
+    int stackSize = 0;
+
+    RunStack(RunMerger merger) {
+      this.merger = merger;
+    } // RunStack(RunMerger)
+
+    void push(int base, int len) {
+      this.runBase[this.stackSize] = base;
+      this.runLen[this.stackSize] = len;
+      this.stackSize++;
+    } // push(int, int)
+
+    void mergeCollapse() {
+      int[] len = this.runLen;
+      while (this.stackSize > 1) {
+        int n = this.stackSize - 2;
+        if ((n > 0 && len[n - 1] <= len[n] + len[n + 1])
+            || (n > 1 && len[n - 2] <= len[n] + len[n - 1])) {
+          if (len[n - 1] < len[n + 1]) {
+            n--;
+          } // if
+        } else if (len[n] > len[n + 1]) {
+          break;
+        } // if/else
+        mergeAt(n);
+      } // while
+    } // mergeCollapse()
+
+    void mergeForceCollapse() {
+      while (this.stackSize > 1) {
+        int n = this.stackSize - 2;
+        if (n > 0 && this.runLen[n - 1] < this.runLen[n + 1]) {
+          n--;
+        } // if
+        mergeAt(n);
+      } // while
+    } // mergeForceCollapse()
+
+    void mergeAt(int i) {
+      int base1 = this.runBase[i];
+      int len1 = this.runLen[i];
+      int base2 = this.runBase[i + 1];
+      int len2 = this.runLen[i + 1];
+
+      this.runLen[i] = len1 + len2;
+      if (i == this.stackSize - 3) {
+        this.runBase[i + 1] = this.runBase[i + 2];
+        this.runLen[i + 1] = this.runLen[i + 2];
+      } // if
+      this.stackSize--;
+
+      this.merger.merge(base1, len1, base2, len2);
+    } // mergeAt(int)
+  } // class RunStack
+} // class PrimitiveLinWenfeiSort
@@ -0,0 +1,16 @@
+/**
+ * Tests of PrimitiveLinWenfeiSort.
+ */
+public class PrimitiveLinWenfeiSortTester extends PrimitiveSortTester {
+
+  // +--------------+------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  public PrimitiveLinWenfeiSortTester() {
+    super();
+    this.intSorter = PrimitiveLinWenfeiSort.SORTER;
+    this.longSorter = PrimitiveLinWenfeiSort.SORTER;
+    this.doubleSorter = PrimitiveLinWenfeiSort.SORTER;
+  } // PrimitiveLinWenfeiSortTester()
+} // class PrimitiveLinWenfeiSortTester
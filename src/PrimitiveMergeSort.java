@@ -0,0 +1,198 @@
+/**
+ * Sort arrays of ints, longs and doubles using merge sort, without boxing
+ * and without a comparator.
+ *
+ * @author Albert, Wenfei Lin
+ */
+
+public class PrimitiveMergeSort implements IntSorter, LongSorter,
+    DoubleSorter {
+
+  // +--------+------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /**
+   * The one sorter you can access.
+   */
+  public static PrimitiveMergeSort SORTER = new PrimitiveMergeSort();
+
+  // +--------------+------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  /**
+   * Create a sorter.
+   */
+  PrimitiveMergeSort() {
+  } // PrimitiveMergeSort()
+
+  // +---------+-----------------------------------------------------
+  // | Methods |
+  // +---------+
+
+  @Override
+  public void sort(int[] values) {
+    mergeSort(values, 0, values.length, new int[values.length / 2]);
+  } // sort(int[])
+
+  @Override
+  public void sort(long[] values) {
+    mergeSort(values, 0, values.length, new long[values.length / 2]);
+  } // sort(long[])
+
+  @Override
+  public void sort(double[] values) {
+    int end = Utils.moveNaNsToEnd(values);
+    int negativeZeros = Utils.replaceNegativeZeros(values, end);
+    mergeSort(values, 0, end, new double[end / 2]);
+    Utils.restoreNegativeZeros(values, end, negativeZeros);
+  } // sort(double[])
+
+  /**
+   * Recursively sort the halves of values[lo..hi) and merge them.
+   * 
+   * @param values The array being sorted.
+   * @param lo The lowest index (inclusive) of the subarray.
+   * @param hi The highest index (exclusive) of the subarray.
+   * @param scratch Space for merging, at least (hi - lo) / 2 long.
+   * @post values[lo..hi) is sorted.
+   */
+  static void mergeSort(int[] values, int lo, int hi, int[] scratch) {
+    if (hi - lo <= 1) {
+      return;
+    } // if
+
+    int mid = lo + (hi - lo) / 2;
+    mergeSort(values, lo, mid, scratch);
+    mergeSort(values, mid, hi, scratch);
+    merge(values, lo, mid, hi, scratch);
+  } // mergeSort(int[], int, int, int[])
+
+  /**
+   * Merge the sorted values[lo..mid) and values[mid..hi), copying only the
+   * left half out, as in MergeSort.merge.
+   * 
+   * @param vals The array being sorted.
+   * @param lo The lowest index (inclusive) of the subarray.
+   * @param mid The middle index of the subarray.
+   * @param hi The highest index (exclusive) of the subarray.
+   * @param scratch Space for the left half, at least mid - lo long.
+   * @post vals[lo..hi) is sorted.
+   */
+  static void merge(int[] vals, int lo, int mid, int hi, int[] scratch) {
+    int leftSize = mid - lo;
+    System.arraycopy(vals, lo, scratch, 0, leftSize);
+    int left = 0;
+    int right = mid;
+    int dest = lo;
+
+    while (left != leftSize && right != hi) {
+      if (scratch[left] <= vals[right]) {
+        vals[dest++] = scratch[left++];
+      } else {
+        vals[dest++] = vals[right++];
+      } // if/else
+    } // while
+
+    System.arraycopy(scratch, left, vals, dest, leftSize - left);
+  } // merge(int[], int, int, int, int[])
+
+  /**
+   * Recursively sort the halves of values[lo..hi) and merge them.
+   * 
+   * @param values The array being sorted.
+   * @param lo The lowest index (inclusive) of the subarray.
+   * @param hi The highest index (exclusive) of the subarray.
+   * @param scratch Space for merging, at least (hi - lo) / 2 long.
+   * @post values[lo..hi) is sorted.
+   */
+  static void mergeSort(long[] values, int lo, int hi, long[] scratch) {
+    if (hi - lo <= 1) {
+      return;
+    } // if
+
+    int mid = lo + (hi - lo) / 2;
+    mergeSort(values, lo, mid, scratch);
+    mergeSort(values, mid, hi, scratch);
+    merge(values, lo, mid, hi, scratch);
+  } // mergeSort(long[], int, int, long[])
+
+  /**
+   * Merge the sorted values[lo..mid) and values[mid..hi), copying only the
+   * left half out, as in MergeSort.merge.
+   * 
+   * @param vals The array being sorted.
+   * @param lo The lowest index (inclusive) of the subarray.
+   * @param mid The middle index of the subarray.
+   * @param hi The highest index (exclusive) of the subarray.
+   * @param scratch Space for the left half, at least mid - lo long.
+   * @post vals[lo..hi) is sorted.
+   */
+  static void merge(long[] vals, int lo, int mid, int hi, long[] scratch) {
+    int leftSize = mid - lo;
+    System.arraycopy(vals, lo, scratch, 0, leftSize);
+    int left = 0;
+    int right = mid;
+    int dest = lo;
+
+    while (left != leftSize && right != hi) {
+      if (scratch[left] <= vals[right]) {
+        vals[dest++] = scratch[left++];
+      } else {
+        vals[dest++] = vals[right++];
+      } // if/else
+    } // while
+
+    System.arraycopy(scratch, left, vals, dest, leftSize - left);
+  } // merge(long[], int, int, int, long[])
+
+  /**
+   * Recursively sort the halves of values[lo..hi) and merge them.
+   * 
+   * @param values The array being sorted.
+   * @param lo The lowest index (inclusive) of the subarray.
+   * @param hi The highest index (exclusive) of the subarray.
+   * @param scratch Space for merging, at least (hi - lo) / 2 long.
+   * @post values[lo..hi) is sorted.
+   */
+  static void mergeSort(double[] values, int lo, int hi, double[] scratch) {
+    if (hi - lo <= 1) {
+      return;
+    } // if
+
+    int mid = lo + (hi - lo) / 2;
+    mergeSort(values, lo, mid, scratch);
+    mergeSort(values, mid, hi, scratch);
+    merge(values, lo, mid, hi, scratch);
+  } // mergeSort(double[], int, int, double[])
+
+  /**
+   * Merge the sorted values[lo..mid) and values[mid..hi), copying only the
+   * left half out, as in MergeSort.merge.
+   * 
+   * @param vals The array being sorted.
+   * @param lo The lowest index (inclusive) of the subarray.
+   * @param mid The middle index of the subarray.
+   * @param hi The highest index (exclusive) of the subarray.
+   * @param scratch Space for the left half, at least mid - lo long.
+   * @post vals[lo..hi) is sorted.
+   */
+  static void merge(double[] vals, int lo, int mid, int hi, double[] scratch) {
+    int leftSize = mid - lo;
+    System.arraycopy(vals, lo, scratch, 0, leftSize);
+    int left = 0;
+    int right = mid;
+    int dest = lo;
+
+    while (left != leftSize && right != hi) {
+      if (scratch[left] <= vals[right]) {
+        vals[dest++] = scratch[left++];
+      } else {
+        vals[dest++] = vals[right++];
+      } // if/else
+    } // while
+
+    System.arraycopy(scratch, left, vals, dest, leftSize - left);
+  } // merge(double[], int, int, int, double[])
+} // class PrimitiveMergeSort
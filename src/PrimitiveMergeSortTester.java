@@ -0,0 +1,16 @@
+/**
+ * Tests of PrimitiveMergeSort.
+ */
+public class PrimitiveMergeSortTester extends PrimitiveSortTester {
+
+  // +--------------+------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  public PrimitiveMergeSortTester() {
+    super();
+    this.intSorter = PrimitiveMergeSort.SORTER;
+    this.longSorter = PrimitiveMergeSort.SORTER;
+    this.doubleSorter = PrimitiveMergeSort.SORTER;
+  } // PrimitiveMergeSortTester()
+} // class PrimitiveMergeSortTester
@@ -0,0 +1,361 @@
+/**
+ * Sort arrays of ints, longs and doubles using Quicksort, without boxing
+ * and without a comparator.  Like Quicksort.THREE_WAY, it partitions
+ * into elements smaller than, equal to, and greater than the pivot,
+ * recurses only into the smaller side, and finishes with heapsort if
+ * partitioning goes too deep, so it takes O(n log n) time and O(log n)
+ * stack on any input.
+ *
+ * @author Reed, Wenfei Lin
+ */
+
+public class PrimitiveQuicksort implements IntSorter, LongSorter,
+    DoubleSorter {
+
+  // +-----------+---------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  // Subarrays this small are insertion sorted
+  static final int INSERTION_THRESHOLD = Quicksort.INSERTION_THRESHOLD;
+
+  // +--------+------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /**
+   * The one sorter you can access.
+   */
+  public static PrimitiveQuicksort SORTER = new PrimitiveQuicksort();
+
+  // +--------------+------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  /**
+   * Create a sorter.
+   */
+  PrimitiveQuicksort() {
+  } // PrimitiveQuicksort()
+
+  // +---------+-----------------------------------------------------
+  // | Methods |
+  // +---------+
+
+  @Override
+  public void sort(int[] values) {
+    quickSort(values, 0, values.length, depthLimit(values.length));
+  } // sort(int[])
+
+  @Override
+  public void sort(long[] values) {
+    quickSort(values, 0, values.length, depthLimit(values.length));
+  } // sort(long[])
+
+  @Override
+  public void sort(double[] values) {
+    int end = Utils.moveNaNsToEnd(values);
+    int negativeZeros = Utils.replaceNegativeZeros(values, end);
+    quickSort(values, 0, end, depthLimit(end));
+    Utils.restoreNegativeZeros(values, end, negativeZeros);
+  } // sort(double[])
+
+  /**
+   * Find how many levels of partitioning n elements may take before
+   * heapsort takes over.
+   */
+  static int depthLimit(int n) {
+    return 2 * Quicksort.floorLog2(n);
+  } // depthLimit(int)
+
+  /**
+   * Sort values[lb..ub) by three-way partitioning around the median of
+   * its first, middle and last elements, as in Quicksort.threeWaySort.
+   * 
+   * @param values The array being sorted.
+   * @param lb The lower bound (inclusive) of the subarray being considered.
+   * @param ub The upper bound (exclusive) of the subarray being considered.
+   * @param depthLimit How many more levels of partitioning are allowed.
+   * @post values[lb..ub) is sorted.
+   */
+  static void quickSort(int[] values, int lb, int ub, int depthLimit) {
+    while (ub - lb > INSERTION_THRESHOLD) {
+      if (depthLimit == 0) {
+        heapSort(values, lb, ub);
+        return;
+      } // if
+      depthLimit--;
+
+      Utils.swap(values, lb, medianOfThree(values, lb, lb + (ub - lb) / 2,
+          ub - 1));
+      int pivot = values[lb];
+
+      // Invariant: [lb .. lt) < pivot, [lt .. i) == pivot,
+      // [i .. gt] unknown, and (gt .. ub) > pivot
+      int lt = lb;
+      int i = lb + 1;
+      int gt = ub - 1;
+      while (i <= gt) {
+        if (values[i] < pivot) {
+          Utils.swap(values, lt++, i++);
+        } else if (values[i] > pivot) {
+          Utils.swap(values, i, gt--);
+        } else {
+          i++;
+        } // if
+      } // while
+
+      // Recurse into the smaller outer part and loop on the larger one
+      if (lt - lb < ub - gt - 1) {
+        quickSort(values, lb, lt, depthLimit);
+        lb = gt + 1;
+      } else {
+        quickSort(values, gt + 1, ub, depthLimit);
+        ub = lt;
+      } // if/else
+    } // while
+
+    PrimitiveLinWenfeiSort.insertionSort(values, lb, ub - 1);
+  } // quickSort(int[], int, int, int)
+
+  /**
+   * Find the index of the median of values[a], values[b] and values[c].
+   */
+  static int medianOfThree(int[] values, int a, int b, int c) {
+    if (values[a] < values[b]) {
+      return (values[b] < values[c]) ? b
+          : (values[a] < values[c]) ? c : a;
+    } else {
+      return (values[a] < values[c]) ? a
+          : (values[b] < values[c]) ? c : b;
+    } // if/else
+  } // medianOfThree(int[], int, int, int)
+
+  /**
+   * Sort values[lb..ub) with heapsort.
+   */
+  static void heapSort(int[] values, int lb, int ub) {
+    int size = ub - lb;
+    for (int i = size / 2 - 1; i >= 0; i--) {
+      siftDown(values, lb, i, size);
+    } // for
+    for (int end = size - 1; end > 0; end--) {
+      Utils.swap(values, lb, lb + end);
+      siftDown(values, lb, 0, end);
+    } // for
+  } // heapSort(int[], int, int)
+
+  /**
+   * Move the element at heap position i of the heap rooted at base down
+   * until neither child is larger than it.
+   */
+  static void siftDown(int[] values, int base, int i, int size) {
+    int elem = values[base + i];
+    int child;
+    while ((child = 2 * i + 1) < size) {
+      if (child + 1 < size && values[base + child] < values[base + child + 1]) {
+        child++;
+      } // if
+      if (elem >= values[base + child]) {
+        break;
+      } // if
+      values[base + i] = values[base + child];
+      i = child;
+    } // while
+    values[base + i] = elem;
+  } // siftDown(int[], int, int, int)
+
+  /**
+   * Sort values[lb..ub) by three-way partitioning around the median of
+   * its first, middle and last elements, as in Quicksort.threeWaySort.
+   * 
+   * @param values The array being sorted.
+   * @param lb The lower bound (inclusive) of the subarray being considered.
+   * @param ub The upper bound (exclusive) of the subarray being considered.
+   * @param depthLimit How many more levels of partitioning are allowed.
+   * @post values[lb..ub) is sorted.
+   */
+  static void quickSort(long[] values, int lb, int ub, int depthLimit) {
+    while (ub - lb > INSERTION_THRESHOLD) {
+      if (depthLimit == 0) {
+        heapSort(values, lb, ub);
+        return;
+      } // if
+      depthLimit--;
+
+      Utils.swap(values, lb, medianOfThree(values, lb, lb + (ub - lb) / 2,
+          ub - 1));
+      long pivot = values[lb];
+
+      // Invariant: [lb .. lt) < pivot, [lt .. i) == pivot,
+      // [i .. gt] unknown, and (gt .. ub) > pivot
+      int lt = lb;
+      int i = lb + 1;
+      int gt = ub - 1;
+      while (i <= gt) {
+        if (values[i] < pivot) {
+          Utils.swap(values, lt++, i++);
+        } else if (values[i] > pivot) {
+          Utils.swap(values, i, gt--);
+        } else {
+          i++;
+        } // if
+      } // while
+
+      // Recurse into the smaller outer part and loop on the larger one
+      if (lt - lb < ub - gt - 1) {
+        quickSort(values, lb, lt, depthLimit);
+        lb = gt + 1;
+      } else {
+        quickSort(values, gt + 1, ub, depthLimit);
+        ub = lt;
+      } // if/else
+    } // while
+
+    PrimitiveLinWenfeiSort.insertionSort(values, lb, ub - 1);
+  } // quickSort(long[], int, int, int)
+
+  /**
+   * Find the index of the median of values[a], values[b] and values[c].
+   */
+  static int medianOfThree(long[] values, int a, int b, int c) {
+    if (values[a] < values[b]) {
+      return (values[b] < values[c]) ? b
+          : (values[a] < values[c]) ? c : a;
+    } else {
+      return (values[a] < values[c]) ? a
+          : (values[b] < values[c]) ? c : b;
+    } // if/else
+  } // medianOfThree(long[], int, int, int)
+
+  /**
+   * Sort values[lb..ub) with heapsort.
+   */
+  static void heapSort(long[] values, int lb, int ub) {
+    int size = ub - lb;
+    for (int i = size / 2 - 1; i >= 0; i--) {
+      siftDown(values, lb, i, size);
+    } // for
+    for (int end = size - 1; end > 0; end--) {
+      Utils.swap(values, lb, lb + end);
+      siftDown(values, lb, 0, end);
+    } // for
+  } // heapSort(long[], int, int)
+
+  /**
+   * Move the element at heap position i of the heap rooted at base down
+   * until neither child is larger than it.
+   */
+  static void siftDown(long[] values, int base, int i, int size) {
+    long elem = values[base + i];
+    int child;
+    while ((child = 2 * i + 1) < size) {
+      if (child + 1 < size && values[base + child] < values[base + child + 1]) {
+        child++;
+      } // if
+      if (elem >= values[base + child]) {
+        break;
+      } // if
+      values[base + i] = values[base + child];
+      i = child;
+    } // while
+    values[base + i] = elem;
+  } // siftDown(long[], int, int, int)
+
+  /**
+   * Sort values[lb..ub) by three-way partitioning around the median of
+   * its first, middle and last elements, as in Quicksort.threeWaySort.
+   * 
+   * @param values The array being sorted.
+   * @param lb The lower bound (inclusive) of the subarray being considered.
+   * @param ub The upper bound (exclusive) of the subarray being considered.
+   * @param depthLimit How many more levels of partitioning are allowed.
+   * @post values[lb..ub) is sorted.
+   */
+  static void quickSort(double[] values, int lb, int ub, int depthLimit) {
+    while (ub - lb > INSERTION_THRESHOLD) {
+      if (depthLimit == 0) {
+        heapSort(values, lb, ub);
+        return;
+      } // if
+      depthLimit--;
+
+      Utils.swap(values, lb, medianOfThree(values, lb, lb + (ub - lb) / 2,
+          ub - 1));
+      double pivot = values[lb];
+
+      // Invariant: [lb .. lt) < pivot, [lt .. i) == pivot,
+      // [i .. gt] unknown, and (gt .. ub) > pivot
+      int lt = lb;
+      int i = lb + 1;
+      int gt = ub - 1;
+      while (i <= gt) {
+        if (values[i] < pivot) {
+          Utils.swap(values, lt++, i++);
+        } else if (values[i] > pivot) {
+          Utils.swap(values, i, gt--);
+        } else {
+          i++;
+        } // if
+      } // while
+
+      // Recurse into the smaller outer part and loop on the larger one
+      if (lt - lb < ub - gt - 1) {
+        quickSort(values, lb, lt, depthLimit);
+        lb = gt + 1;
+      } else {
+        quickSort(values, gt + 1, ub, depthLimit);
+        ub = lt;
+      } // if/else
+    } // while
+
+    PrimitiveLinWenfeiSort.insertionSort(values, lb, ub - 1);
+  } // quickSort(double[], int, int, int)
+
+  /**
+   * Find the index of the median of values[a], values[b] and values[c].
+   */
+  static int medianOfThree(double[] values, int a, int b, int c) {
+    if (values[a] < values[b]) {
+      return (values[b] < values[c]) ? b
+          : (values[a] < values[c]) ? c : a;
+    } else {
+      return (values[a] < values[c]) ? a
+          : (values[b] < values[c]) ? c : b;
+    } // if/else
+  } // medianOfThree(double[], int, int, int)
+
+  /**
+   * Sort values[lb..ub) with heapsort.
+   */
+  static void heapSort(double[] values, int lb, int ub) {
+    int size = ub - lb;
+    for (int i = size / 2 - 1; i >= 0; i--) {
+      siftDown(values, lb, i, size);
+    } // for
+    for (int end = size - 1; end > 0; end--) {
+      Utils.swap(values, lb, lb + end);
+      siftDown(values, lb, 0, end);
+    } // for
+  } // heapSort(double[], int, int)
+
+  /**
+   * Move the element at heap position i of the heap rooted at base down
+   * until neither child is larger than it.
+   */
+  static void siftDown(double[] values, int base, int i, int size) {
+    double elem = values[base + i];
+    int child;
+    while ((child = 2 * i + 1) < size) {
+      if (child + 1 < size && values[base + child] < values[base + child + 1]) {
+        child++;
+      } // if
+      if (elem >= values[base + child]) {
+        break;
+      } // if
+      values[base + i] = values[base + child];
+      i = child;
+    } // while
+    values[base + i] = elem;
+  } // siftDown(double[], int, int, int)
+} // class PrimitiveQuicksort
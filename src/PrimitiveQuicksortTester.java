@@ -0,0 +1,16 @@
+/**
+ * Tests of PrimitiveQuicksort.
+ */
+public class PrimitiveQuicksortTester extends PrimitiveSortTester {
+
+  // +--------------+------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  public PrimitiveQuicksortTester() {
+    super();
+    this.intSorter = PrimitiveQuicksort.SORTER;
+    this.longSorter = PrimitiveQuicksort.SORTER;
+    this.doubleSorter = PrimitiveQuicksort.SORTER;
+  } // PrimitiveQuicksortTester()
+} // class PrimitiveQuicksortTester
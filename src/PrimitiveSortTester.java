@@ -0,0 +1,147 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of IntSorter, LongSorter and DoubleSorter objects.
+ *
+ * @author Wenfei Lin
+ */
+public class PrimitiveSortTester {
+
+  // +---------+-----------------------------------------------------
+  // | Globals |
+  // +---------+
+
+  IntSorter intSorter;
+  LongSorter longSorter;
+  DoubleSorter doubleSorter;
+
+  // +-------+-------------------------------------------------------
+  // | Tests |
+  // +-------+
+
+  @Test
+  public void emptyTest() {
+    int[] ints = {};
+    intSorter.sort(ints);
+    assertArrayEquals(new int[] {}, ints);
+    double[] doubles = {};
+    doubleSorter.sort(doubles);
+    assertArrayEquals(new double[] {}, doubles);
+  } // emptyTest
+
+  @Test
+  public void randomIntsTest() {
+    Random rand = new Random(1);
+    for (int n : new int[] { 1, 2, 31, 32, 33, 1000, 5000 }) {
+      int[] original = rand.ints(n).toArray();
+      int[] expected = original.clone();
+      Arrays.sort(expected);
+      intSorter.sort(original);
+      assertArrayEquals(expected, original);
+    } // for
+  } // randomIntsTest
+
+  @Test
+  public void fewUniqueIntsTest() {
+    int[] original = new Random(2).ints(2000, 0, 4).toArray();
+    int[] expected = original.clone();
+    Arrays.sort(expected);
+    intSorter.sort(original);
+    assertArrayEquals(expected, original);
+  } // fewUniqueIntsTest
+
+  @Test
+  public void randomLongsTest() {
+    long[] original = new Random(3).longs(5000).toArray();
+    long[] expected = original.clone();
+    Arrays.sort(expected);
+    longSorter.sort(original);
+    assertArrayEquals(expected, original);
+  } // randomLongsTest
+
+  @Test
+  public void reversedLongsTest() {
+    long[] original = new long[3000];
+    for (int i = 0; i < original.length; i++) {
+      original[i] = Long.MAX_VALUE - i;
+    } // for
+    long[] expected = original.clone();
+    Arrays.sort(expected);
+    longSorter.sort(original);
+    assertArrayEquals(expected, original);
+  } // reversedLongsTest
+
+  @Test
+  public void specialDoublesTest() {
+    double[] original = { 0.0, Double.NaN, -0.0, 1.5, Double.NEGATIVE_INFINITY,
+                          -0.0, Double.POSITIVE_INFINITY, 0.0, -1.5,
+                          Double.NaN, Double.MIN_VALUE, -Double.MIN_VALUE };
+    double[] expected = { Double.NEGATIVE_INFINITY, -1.5, -Double.MIN_VALUE,
+                          -0.0, -0.0, 0.0, 0.0, Double.MIN_VALUE, 1.5,
+                          Double.POSITIVE_INFINITY, Double.NaN, Double.NaN };
+    doubleSorter.sort(original);
+    // assertArrayEquals on doubles distinguishes -0.0 from 0.0
+    assertArrayEquals(expected, original);
+  } // specialDoublesTest
+
+  @Test
+  public void randomDoublesTest() {
+    Random rand = new Random(4);
+    double[] original = new double[5000];
+    for (int i = 0; i < original.length; i++) {
+      int kind = rand.nextInt(20);
+      original[i] = (kind == 0) ? Double.NaN
+          : (kind == 1) ? -0.0
+          : (kind == 2) ? 0.0
+          : rand.nextGaussian();
+    } // for
+    double[] expected = original.clone();
+    Arrays.sort(expected);
+    doubleSorter.sort(original);
+    assertArrayEquals(expected, original);
+  } // randomDoublesTest
+
+  @Test
+  public void allEqualTest() {
+    // Deep enough to overflow the stack if equal keys recurse n deep
+    int[] ints = new int[200_000];
+    intSorter.sort(ints);
+    assertArrayEquals(new int[200_000], ints);
+    long[] longs = new long[200_000];
+    Arrays.fill(longs, -7);
+    long[] expectedLongs = longs.clone();
+    longSorter.sort(longs);
+    assertArrayEquals(expectedLongs, longs);
+    double[] doubles = new double[200_000];
+    Arrays.fill(doubles, 2.5);
+    double[] expectedDoubles = doubles.clone();
+    doubleSorter.sort(doubles);
+    assertArrayEquals(expectedDoubles, doubles);
+  } // allEqualTest
+
+  @Test
+  public void heavyDuplicatesTest() {
+    Random rand = new Random(5);
+    int[] ints = rand.ints(200_000, 0, 3).toArray();
+    int[] expectedInts = ints.clone();
+    Arrays.sort(expectedInts);
+    intSorter.sort(ints);
+    assertArrayEquals(expectedInts, ints);
+    long[] longs = rand.longs(200_000, -2, 2).toArray();
+    long[] expectedLongs = longs.clone();
+    Arrays.sort(expectedLongs);
+    longSorter.sort(longs);
+    assertArrayEquals(expectedLongs, longs);
+    double[] doubles = new double[200_000];
+    for (int i = 0; i < doubles.length; i++) {
+      doubles[i] = (rand.nextInt(3) == 0) ? -0.0 : rand.nextInt(2);
+    } // for
+    double[] expectedDoubles = doubles.clone();
+    Arrays.sort(expectedDoubles);
+    doubleSorter.sort(doubles);
+    assertArrayEquals(expectedDoubles, doubles);
+  } // heavyDuplicatesTest
+} // class PrimitiveSortTester
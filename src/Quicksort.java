@@ -6,7 +6,29 @@ import java.util.Comparator;
  * @author Reed, Wenfei Lin
  */
 
-public class Quicksort implements Sorter {
+public class Quicksort implements RangeSorter {
+
+  // +-----------+---------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  // Introsort insertion sorts subarrays of at most this many elements
+  static final int INSERTION_THRESHOLD = 16;
+
+  // Subarrays of at least this many elements pick a pivot with a ninther
+  static final int NINTHER_THRESHOLD = 128;
+
+  /**
+   * The ways a subarray can be split around its pivot(s).
+   */
+  public enum Partitioning {
+    // Smaller-or-equal to the left of one pivot, greater to the right
+    TWO_WAY,
+    // Smaller, equal, and greater than one pivot (Dutch national flag)
+    THREE_WAY,
+    // Smaller than, between, and greater than two pivots (Yaroslavskiy)
+    DUAL_PIVOT
+  } // enum Partitioning
 
   // +--------+------------------------------------------------------
   // | Fields |
@@ -17,6 +39,34 @@ public class Quicksort implements Sorter {
    */
   public static Sorter SORTER = new Quicksort();
 
+  /**
+   * A sorter that guarantees O(n log n) time and O(log n) stack by
+   * switching to heapsort when partitioning goes too deep.
+   */
+  public static Sorter INTROSORT = new Quicksort(true);
+
+  /**
+   * An introsort that partitions three ways, so runs of equal elements
+   * are set aside after a single pass.
+   */
+  public static Sorter THREE_WAY = new Quicksort(true, Partitioning.THREE_WAY);
+
+  /**
+   * An introsort that partitions around two pivots.
+   */
+  public static Sorter DUAL_PIVOT =
+      new Quicksort(true, Partitioning.DUAL_PIVOT);
+
+  /**
+   * Whether to sort with introsort rather than plain quicksort.
+   */
+  private final boolean introsort;
+
+  /**
+   * How subarrays are partitioned.
+   */
+  private final Partitioning partitioning;
+
   // +--------------+------------------------------------------------
   // | Constructors |
   // +--------------+
@@ -25,8 +75,33 @@ public class Quicksort implements Sorter {
    * Create a sorter.
    */
   Quicksort() {
+    this(false);
   } // Quicksort()
 
+  /**
+   * Create a sorter that may use introsort.
+   *
+   * @param introsort Whether to limit recursion depth and fall back to
+   *                  heapsort.
+   */
+  Quicksort(boolean introsort) {
+    this(introsort, Partitioning.TWO_WAY);
+  } // Quicksort(boolean)
+
+  /**
+   * Create a sorter with a given partitioning scheme.  Without introsort,
+   * THREE_WAY and DUAL_PIVOT still insertion sort small subarrays and
+   * recurse only into the smaller parts, but never switch to heapsort.
+   *
+   * @param introsort Whether to limit recursion depth and fall back to
+   *                  heapsort.
+   * @param partitioning How to partition each subarray.
+   */
+  Quicksort(boolean introsort, Partitioning partitioning) {
+    this.introsort = introsort;
+    this.partitioning = partitioning;
+  } // Quicksort(boolean, Partitioning)
+
   // +---------+-----------------------------------------------------
   // | Methods |
   // +---------+
@@ -41,9 +116,41 @@ public class Quicksort implements Sorter {
    */
   @Override
   public <T> void sort(T[] values, Comparator<? super T> order) {
-    quickSort(values, order, 0, values.length);
+    sort(values, 0, values.length, order);
   } // sort(T[], Comparator<? super T>)
 
+  /**
+   * Sort values[lo..hi) using the quick sort algorithm.
+   *
+   * @param values The array holding the range.
+   * @param lo The first index (inclusive) of the range.
+   * @param hi The last index (exclusive) of the range.
+   * @param order The comparator that determines the order.
+   * @post values[lo..hi) is sorted, and the rest of values is unchanged.
+   */
+  @Override
+  public <T> void sort(T[] values, int lo, int hi,
+      Comparator<? super T> order) {
+    int depthLimit = this.introsort
+        ? 2 * floorLog2(hi - lo)
+        : Integer.MAX_VALUE;
+
+    switch (this.partitioning) {
+      case THREE_WAY:
+        threeWaySort(values, order, lo, hi, depthLimit);
+        break;
+      case DUAL_PIVOT:
+        dualPivotSort(values, order, lo, hi, depthLimit);
+        break;
+      default:
+        if (this.introsort) {
+          introSort(values, order, lo, hi, depthLimit);
+        } else {
+          quickSort(values, order, lo, hi);
+        } // if/else
+    } // switch
+  } // sort(T[], int, int, Comparator<? super T>)
+
   /**
    * Recursively divides the array being sorted into subarrays that
    * will be sorted.
@@ -65,11 +172,275 @@ public class Quicksort implements Sorter {
       // Otherwise, keep partitioning the array recursively into smaller 
       // subarrays that will then be sorted
       int pivot = partition(values, compare, lb, ub);
+      SortProbe.enter();
       quickSort(values, compare, lb, pivot);
       quickSort(values, compare, pivot + 1, ub);
+      SortProbe.exit();
     } // if/else
   } // quickSort(T[], Comparator<? super T>, int, int)
 
+  /**
+   * Sort the subarray [lb .. ub) with introsort: partition while the
+   * depth limit allows, recursing only into the smaller side, heapsort
+   * once the limit is used up, and insertion sort small subarrays.
+   * 
+   * @param values The original array being sorted.
+   * @param order The comparator that determines what order the elements 
+   *              in the array will be sorted in.
+   * @param lb The lower bound (inclusive) of the subarray being considered.
+   * @param ub The upper bound (exclusive) of the subarray being considered.
+   * @param depthLimit How many more levels of partitioning are allowed.
+   * @post The subarray [lb .. ub) is sorted according to the comparator.
+   */
+  static <T> void introSort(T[] values, Comparator<? super T> order,
+                            int lb, int ub, int depthLimit) {
+    while (ub - lb > INSERTION_THRESHOLD) {
+      if (depthLimit == 0) {
+        // Partitioning is going badly, so finish with heapsort
+        heapSort(values, order, lb, ub);
+        return;
+      } // if
+      depthLimit--;
+
+      int pivot = partition(values, order, lb, ub);
+
+      // Recurse into the smaller side and loop on the larger one, so the
+      // stack never holds more than log2(n) frames
+      SortProbe.enter();
+      if (pivot - lb < ub - pivot - 1) {
+        introSort(values, order, lb, pivot, depthLimit);
+        lb = pivot + 1;
+      } else {
+        introSort(values, order, pivot + 1, ub, depthLimit);
+        ub = pivot;
+      } // if/else
+      SortProbe.exit();
+    } // while
+
+    if (ub - lb > 1) {
+      LinWenfeiSort.insertionSort(values, order, lb, ub - 1);
+    } // if
+  } // introSort(T[], Comparator<? super T>, int, int, int)
+
+  /**
+   * Sort the subarray [lb .. ub) like introSort, but partitioning it into
+   * elements smaller than, equal to, and greater than the pivot.  The
+   * equal elements are in their final place and are never looked at again.
+   * 
+   * @param values The original array being sorted.
+   * @param order The comparator that determines the order.
+   * @param lb The lower bound (inclusive) of the subarray being considered.
+   * @param ub The upper bound (exclusive) of the subarray being considered.
+   * @param depthLimit How many more levels of partitioning are allowed.
+   * @post The subarray [lb .. ub) is sorted according to the comparator.
+   */
+  static <T> void threeWaySort(T[] values, Comparator<? super T> order,
+                               int lb, int ub, int depthLimit) {
+    while (ub - lb > INSERTION_THRESHOLD) {
+      if (depthLimit == 0) {
+        heapSort(values, order, lb, ub);
+        return;
+      } // if
+      depthLimit--;
+
+      Utils.swap(values, lb, choosePivot(values, order, lb, ub));
+      T pivot = values[lb];
+
+      // Invariant: [lb .. lt) < pivot, [lt .. i) == pivot,
+      // [i .. gt] unknown, and (gt .. ub) > pivot
+      int lt = lb;
+      int i = lb + 1;
+      int gt = ub - 1;
+      while (i <= gt) {
+        int cmp = order.compare(values[i], pivot);
+        if (cmp < 0) {
+          Utils.swap(values, lt++, i++);
+        } else if (cmp > 0) {
+          Utils.swap(values, i, gt--);
+        } else {
+          i++;
+        } // if
+      } // while
+
+      // Recurse into the smaller outer part and loop on the larger one
+      SortProbe.enter();
+      if (lt - lb < ub - gt - 1) {
+        threeWaySort(values, order, lb, lt, depthLimit);
+        lb = gt + 1;
+      } else {
+        threeWaySort(values, order, gt + 1, ub, depthLimit);
+        ub = lt;
+      } // if/else
+      SortProbe.exit();
+    } // while
+
+    if (ub - lb > 1) {
+      LinWenfeiSort.insertionSort(values, order, lb, ub - 1);
+    } // if
+  } // threeWaySort(T[], Comparator<? super T>, int, int, int)
+
+  /**
+   * Sort the subarray [lb .. ub) like introSort, but partitioning it
+   * around two pivots p <= q into elements less than p, between p and q,
+   * and greater than q.  When the middle part is large, elements equal to
+   * either pivot are moved out of it, since they are already in place.
+   * 
+   * @param values The original array being sorted.
+   * @param order The comparator that determines the order.
+   * @param lb The lower bound (inclusive) of the subarray being considered.
+   * @param ub The upper bound (exclusive) of the subarray being considered.
+   * @param depthLimit How many more levels of partitioning are allowed.
+   * @post The subarray [lb .. ub) is sorted according to the comparator.
+   */
+  static <T> void dualPivotSort(T[] values, Comparator<? super T> order,
+                                int lb, int ub, int depthLimit) {
+    while (ub - lb > INSERTION_THRESHOLD) {
+      if (depthLimit == 0) {
+        heapSort(values, order, lb, ub);
+        return;
+      } // if
+      depthLimit--;
+
+      // Use the tertiles as pivots, smaller one first
+      int third = (ub - lb) / 3;
+      Utils.swap(values, lb, lb + third);
+      Utils.swap(values, ub - 1, ub - 1 - third);
+      if (order.compare(values[lb], values[ub - 1]) > 0) {
+        Utils.swap(values, lb, ub - 1);
+      } // if
+      T p = values[lb];
+      T q = values[ub - 1];
+
+      // Invariant: (lb .. lt) < p, [lt .. i) between, [i .. gt] unknown,
+      // and (gt .. ub - 1) > q
+      int lt = lb + 1;
+      int i = lb + 1;
+      int gt = ub - 2;
+      while (i <= gt) {
+        if (order.compare(values[i], p) < 0) {
+          Utils.swap(values, lt++, i++);
+        } else if (order.compare(values[i], q) > 0) {
+          Utils.swap(values, i, gt--);
+        } else {
+          i++;
+        } // if
+      } // while
+
+      // Put the pivots between the parts
+      Utils.swap(values, lb, --lt);
+      Utils.swap(values, ub - 1, ++gt);
+
+      // The middle part is (lt .. gt); it is all equal when p == q
+      int midLo = lt + 1;
+      int midHi = gt;
+      if (order.compare(p, q) == 0) {
+        midHi = midLo;
+      } else if (midHi - midLo > (ub - lb) / 2) {
+        int k = midLo;
+        int end = midHi - 1;
+        while (k <= end) {
+          if (order.compare(values[k], p) == 0) {
+            Utils.swap(values, k++, midLo++);
+          } else if (order.compare(values[k], q) == 0) {
+            Utils.swap(values, k, end--);
+          } else {
+            k++;
+          } // if
+        } // while
+        midHi = end + 1;
+      } // if/else
+
+      // Recurse into the two smaller parts and loop on the largest
+      int leftLen = lt - lb;
+      int midLen = midHi - midLo;
+      int rightLen = ub - gt - 1;
+      SortProbe.enter();
+      if (leftLen >= midLen && leftLen >= rightLen) {
+        dualPivotSort(values, order, midLo, midHi, depthLimit);
+        dualPivotSort(values, order, gt + 1, ub, depthLimit);
+        ub = lt;
+      } else if (midLen >= rightLen) {
+        dualPivotSort(values, order, lb, lt, depthLimit);
+        dualPivotSort(values, order, gt + 1, ub, depthLimit);
+        lb = midLo;
+        ub = midHi;
+      } else {
+        dualPivotSort(values, order, lb, lt, depthLimit);
+        dualPivotSort(values, order, midLo, midHi, depthLimit);
+        lb = gt + 1;
+      } // if/else
+      SortProbe.exit();
+    } // while
+
+    if (ub - lb > 1) {
+      LinWenfeiSort.insertionSort(values, order, lb, ub - 1);
+    } // if
+  } // dualPivotSort(T[], Comparator<? super T>, int, int, int)
+
+  /**
+   * Sort the subarray [lb .. ub) with heapsort.
+   * 
+   * @param values The original array being sorted.
+   * @param order The comparator that determines the order.
+   * @param lb The lower bound (inclusive) of the subarray.
+   * @param ub The upper bound (exclusive) of the subarray.
+   * @post The subarray [lb .. ub) is sorted according to the comparator.
+   */
+  static <T> void heapSort(T[] values, Comparator<? super T> order,
+                           int lb, int ub) {
+    int size = ub - lb;
+
+    // Build a max-heap, rooted at lb, from the bottom up
+    for (int i = size / 2 - 1; i >= 0; i--) {
+      siftDown(values, order, lb, i, size);
+    } // for
+
+    // Repeatedly move the largest remaining element to the end
+    for (int end = size - 1; end > 0; end--) {
+      Utils.swap(values, lb, lb + end);
+      siftDown(values, order, lb, 0, end);
+    } // for
+  } // heapSort(T[], Comparator<? super T>, int, int)
+
+  /**
+   * Move the element at heap position i down until neither child is
+   * larger than it.
+   * 
+   * @param values The array holding the heap.
+   * @param order The comparator that determines the order.
+   * @param base The index of the root of the heap.
+   * @param i The heap position of the element to move.
+   * @param size The number of elements in the heap.
+   */
+  static <T> void siftDown(T[] values, Comparator<? super T> order,
+                           int base, int i, int size) {
+    T elem = values[base + i];
+    int child;
+    while ((child = 2 * i + 1) < size) {
+      if (child + 1 < size
+          && order.compare(values[base + child],
+                           values[base + child + 1]) < 0) {
+        child++;
+      } // if
+      if (order.compare(elem, values[base + child]) >= 0) {
+        break;
+      } // if
+      values[base + i] = values[base + child];
+      i = child;
+    } // while
+    values[base + i] = elem;
+  } // siftDown(T[], Comparator<? super T>, int, int, int)
+
+  /**
+   * Compute the floor of the base-2 logarithm of n.
+   * 
+   * @param n A non-negative number.
+   * @return floor(log2(n)), or 0 if n is 0.
+   */
+  static int floorLog2(int n) {
+    return (n == 0) ? 0 : 31 - Integer.numberOfLeadingZeros(n);
+  } // floorLog2(int)
+
   /**
    * Select a pivot, partition the subarray from [lb .. ub), and sort 
    * that subarray.
@@ -83,12 +454,11 @@ public class Quicksort implements Sorter {
    * @pre lb and ub are valid indices of the subarray in consideration 
    *      (from 0 to arr.length - 1)
    */
-  private static <T> int partition(T[] arr, Comparator<? super T> order, 
+  static <T> int partition(T[] arr, Comparator<? super T> order, 
                                    int lb, int ub) {
-    // Determine the pivot by taking the median of the lower bound, 
-    // upper bound, and the index that is the middle of the lower and 
-    // upper bounds
-    int pivot = medianOfThree(lb, ub);
+    // Determine the pivot by taking the median of the first, middle, and
+    // last elements (or a ninther, for large subarrays)
+    int pivot = choosePivot(arr, order, lb, ub);
 
     // Swaps the element at the pivot location to the front of the subarray
     Utils.swap(arr, lb, pivot);
@@ -135,50 +505,69 @@ public class Quicksort implements Sorter {
   } // partition(T[], Comparator<? super T>, int, int)
 
   /**
-   * Calculates the median of three values.
+   * Choose a pivot for the subarray [lb .. ub): the median of its first,
+   * middle, and last elements, or for large subarrays the median of the
+   * medians of three evenly spread triples (Tukey's ninther).
    * 
-   * @param left One of the numbers being considered in the median.
-   * @param right The second number being considered in the median.
-   * @return The median of left, right, and the middle valeu of left and right.
-   */
-  private static int medianOfThree(int left, int right) {
-    // find the middle of the left and right
-    int middle = left + (right - left) / 2; 
-    
-    if (left > middle && left > right) {
-      // left is largest, so determine the next largest
-      if (middle >= right) {
-        // middle is median (as it's the second largest)
-        return middle; 
-      } else {
-        // right is median (as it's the second largest)
-        return right; 
-      } // if
-    } // if
+   * @param arr The array being sorted.
+   * @param order The comparator that determines the order.
+   * @param lb The lower bound of the subarray (inclusive).
+   * @param ub The upper bound of the subarray (exclusive).
+   * @return The index of the chosen pivot, in [lb .. ub).
+   * @pre ub - lb >= 1.
+   */
+  static <T> int choosePivot(T[] arr, Comparator<? super T> order,
+                             int lb, int ub) {
+    int last = ub - 1;
+    int middle = lb + (last - lb) / 2;
 
-    if (middle > left && middle > right) {
-      // middle is largest, so determine the next largest
-      if (left >= right) {
-        // left is median (as it's the second largest)
-        return left; 
-      } else { 
-        // right is median (as it's the second largest)
-        return right; 
-      } // if
+    if (ub - lb >= NINTHER_THRESHOLD) {
+      int step = (ub - lb) / 8;
+      int left = medianOfThree(arr, order, lb, lb + step, lb + 2 * step);
+      int mid = medianOfThree(arr, order, middle - step, middle,
+                              middle + step);
+      int right = medianOfThree(arr, order, last - 2 * step, last - step,
+                                last);
+      return medianOfThree(arr, order, left, mid, right);
     } // if
 
-    if (right > middle && right > left) {
-      // right is largest, so determine the next largest
-      if (middle >= left) {
-        // middle is median (as it's the second largest)
-        return middle; 
+    return medianOfThree(arr, order, lb, middle, last);
+  } // choosePivot(T[], Comparator<? super T>, int, int)
+
+  /**
+   * Find which of three positions holds the median of their elements.
+   * 
+   * @param arr The array holding the elements.
+   * @param order The comparator that determines the order.
+   * @param a The index of one of the elements.
+   * @param b The index of another of the elements.
+   * @param c The index of the last of the elements.
+   * @return Whichever of a, b, and c holds the median element.
+   */
+  static <T> int medianOfThree(T[] arr, Comparator<? super T> order,
+                               int a, int b, int c) {
+    if (order.compare(arr[a], arr[b]) < 0) {
+      if (order.compare(arr[b], arr[c]) < 0) {
+        // a < b < c
+        return b;
+      } else if (order.compare(arr[a], arr[c]) < 0) {
+        // a < c <= b
+        return c;
       } else {
-        // left is median (as it's the second largest)
-        return left; 
+        // c <= a < b
+        return a;
       } // if
-    } // if
-
-    // If something goes wrong...
-    return -1;
-  } // medianOfThree(int, int)
+    } else {
+      if (order.compare(arr[a], arr[c]) < 0) {
+        // b <= a < c
+        return a;
+      } else if (order.compare(arr[b], arr[c]) < 0) {
+        // b < c <= a
+        return c;
+      } else {
+        // c <= b <= a
+        return b;
+      } // if
+    } // if/else
+  } // medianOfThree(T[], Comparator<? super T>, int, int, int)
 } // class Quicksort
\ No newline at end of file
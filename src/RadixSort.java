@@ -0,0 +1,446 @@
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Sort without comparisons.  Ints, longs and doubles are sorted by an
+ * LSD radix sort that counts every digit in one pass and then skips the
+ * passes whose digit is the same for every element.  Strings are sorted
+ * by multikey quicksort on one character at a time, and byte arrays by
+ * an MSD radix sort on one byte at a time.
+ *
+ * Small arrays, and the small buckets of the string sorts, are left to
+ * PrimitiveLinWenfeiSort and LinWenfeiSort's insertion sort.
+ *
+ * @author Wenfei Lin
+ */
+public class RadixSort implements IntSorter, LongSorter, DoubleSorter {
+
+  // +-----------+---------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  // Arrays of primitives shorter than this are not radix sorted
+  static final int LSD_THRESHOLD = 256;
+
+  // Buckets of strings no larger than this are insertion sorted
+  static final int BUCKET_THRESHOLD = 32;
+
+  // Buckets of strings larger than this take their pivot from nine chars
+  static final int NINTHER_THRESHOLD = 128;
+
+  // +--------+------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /**
+   * The one sorter you can access, with 8-bit digits.
+   */
+  public static RadixSort SORTER = new RadixSort(8);
+
+  /**
+   * A sorter with 11-bit digits: fewer passes, larger histograms.
+   */
+  public static RadixSort WIDE = new RadixSort(11);
+
+  /**
+   * The number of bits in a digit.
+   */
+  private final int bits;
+
+  // +--------------+------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  /**
+   * Create a sorter whose digits are bits wide.
+   *
+   * @param bits The width of a digit.
+   * @pre 1 <= bits <= 16.
+   */
+  RadixSort(int bits) {
+    if (bits < 1 || bits > 16) {
+      throw new IllegalArgumentException("digits must be 1 to 16 bits");
+    } // if
+    this.bits = bits;
+  } // RadixSort(int)
+
+  // +---------+-----------------------------------------------------
+  // | Methods |
+  // +---------+
+
+  @Override
+  public void sort(int[] values) {
+    int n = values.length;
+    if (n < LSD_THRESHOLD) {
+      PrimitiveLinWenfeiSort.SORTER.sort(values);
+      return;
+    } // if
+
+    int radix = 1 << this.bits;
+    int mask = radix - 1;
+    int passes = (Integer.SIZE + this.bits - 1) / this.bits;
+
+    // Count every digit at once; flipping the sign bit orders negatives
+    // before positives
+    int[][] counts = new int[passes][radix];
+    for (int v : values) {
+      int key = v ^ Integer.MIN_VALUE;
+      for (int p = 0; p < passes; p++) {
+        counts[p][(key >>> (p * this.bits)) & mask]++;
+      } // for
+    } // for
+
+    int[] from = values;
+    int[] to = new int[n];
+    for (int p = 0; p < passes; p++) {
+      int shift = p * this.bits;
+      int[] count = counts[p];
+      if (count[((from[0] ^ Integer.MIN_VALUE) >>> shift) & mask] == n) {
+        continue;
+      } // if
+      toOffsets(count);
+      for (int i = 0; i < n; i++) {
+        int digit = ((from[i] ^ Integer.MIN_VALUE) >>> shift) & mask;
+        to[count[digit]++] = from[i];
+      } // for
+      int[] tmp = from;
+      from = to;
+      to = tmp;
+    } // for
+
+    if (from != values) {
+      System.arraycopy(from, 0, values, 0, n);
+    } // if
+  } // sort(int[])
+
+  @Override
+  public void sort(long[] values) {
+    int n = values.length;
+    if (n < LSD_THRESHOLD) {
+      PrimitiveLinWenfeiSort.SORTER.sort(values);
+      return;
+    } // if
+    sortKeys(values);
+  } // sort(long[])
+
+  @Override
+  public void sort(double[] values) {
+    int n = values.length;
+    if (n < LSD_THRESHOLD) {
+      PrimitiveLinWenfeiSort.SORTER.sort(values);
+      return;
+    } // if
+
+    // Map each double to a long whose signed order is Double.compare's:
+    // negative numbers have every bit but the sign flipped
+    long[] keys = new long[n];
+    for (int i = 0; i < n; i++) {
+      long bits = Double.doubleToLongBits(values[i]);
+      keys[i] = bits ^ ((bits >> 63) & Long.MAX_VALUE);
+    } // for
+    sortKeys(keys);
+    for (int i = 0; i < n; i++) {
+      long key = keys[i];
+      values[i] = Double.longBitsToDouble(key ^ ((key >> 63) & Long.MAX_VALUE));
+    } // for
+  } // sort(double[])
+
+  /**
+   * Sort an array of Strings by their chars, as String.compareTo does.
+   *
+   * @param values The array being sorted.
+   * @post values is sorted in natural order.
+   */
+  public void sort(String[] values) {
+    multikeySort(values, 0, values.length, 0);
+  } // sort(String[])
+
+  /**
+   * Sort an array of byte arrays by their bytes read as unsigned, as
+   * Arrays.compareUnsigned does.  Arrays with the same bytes keep their
+   * order.
+   *
+   * @param values The array being sorted.
+   * @post values is sorted.
+   */
+  public void sort(byte[][] values) {
+    msdSort(values, new byte[values.length][], 0, values.length, 0);
+  } // sort(byte[][])
+
+  /**
+   * LSD radix sort longs.
+   */
+  private void sortKeys(long[] values) {
+    int n = values.length;
+    int radix = 1 << this.bits;
+    int mask = radix - 1;
+    int passes = (Long.SIZE + this.bits - 1) / this.bits;
+
+    int[][] counts = new int[passes][radix];
+    for (long v : values) {
+      long key = v ^ Long.MIN_VALUE;
+      for (int p = 0; p < passes; p++) {
+        counts[p][(int) (key >>> (p * this.bits)) & mask]++;
+      } // for
+    } // for
+
+    long[] from = values;
+    long[] to = new long[n];
+    for (int p = 0; p < passes; p++) {
+      int shift = p * this.bits;
+      int[] count = counts[p];
+      if (count[(int) ((from[0] ^ Long.MIN_VALUE) >>> shift) & mask] == n) {
+        continue;
+      } // if
+      toOffsets(count);
+      for (int i = 0; i < n; i++) {
+        int digit = (int) ((from[i] ^ Long.MIN_VALUE) >>> shift) & mask;
+        to[count[digit]++] = from[i];
+      } // for
+      long[] tmp = from;
+      from = to;
+      to = tmp;
+    } // for
+
+    if (from != values) {
+      System.arraycopy(from, 0, values, 0, n);
+    } // if
+  } // sortKeys(long[])
+
+  /**
+   * Turn digit counts into the index where each digit's bucket starts.
+   */
+  private static void toOffsets(int[] count) {
+    int sum = 0;
+    for (int d = 0; d < count.length; d++) {
+      int c = count[d];
+      count[d] = sum;
+      sum += c;
+    } // for
+  } // toOffsets(int[])
+
+  /**
+   * Sort values[lo..hi), all of which share their first d chars, by
+   * three-way partitioning on char d around a median char.  The two
+   * smaller parts are sorted recursively and the loop goes on with the
+   * largest, so the stack stays O(log n) deep.
+   *
+   * @param values The array being sorted.
+   * @param lo The lower bound (inclusive) of the subarray.
+   * @param hi The upper bound (exclusive) of the subarray.
+   * @param d The index of the char being partitioned on.
+   * @post values[lo..hi) is sorted.
+   */
+  static void multikeySort(String[] values, int lo, int hi, int d) {
+    while (hi - lo > BUCKET_THRESHOLD) {
+      Utils.swap(values, lo, pivotIndex(values, lo, hi, d));
+      int pivot = charAt(values[lo], d);
+
+      // values[lo..lt) < pivot, values[lt..i) == pivot, values[gt..hi) >
+      int lt = lo;
+      int gt = hi;
+      int i = lo + 1;
+      while (i < gt) {
+        int c = charAt(values[i], d);
+        if (c < pivot) {
+          Utils.swap(values, lt++, i++);
+        } else if (c > pivot) {
+          Utils.swap(values, i, --gt);
+        } else {
+          i++;
+        } // if/else
+      } // while
+
+      // Strings that have ended are all equal, so need no more sorting
+      int less = lt - lo;
+      int equal = (pivot < 0) ? 0 : gt - lt;
+      int greater = hi - gt;
+      SortProbe.enter();
+      if (less >= equal && less >= greater) {
+        multikeySort(values, gt, hi, d);
+        if (pivot >= 0) {
+          multikeySort(values, lt, gt, d + 1);
+        } // if
+        hi = lt;
+      } else if (greater >= equal) {
+        multikeySort(values, lo, lt, d);
+        if (pivot >= 0) {
+          multikeySort(values, lt, gt, d + 1);
+        } // if
+        lo = gt;
+      } else {
+        multikeySort(values, lo, lt, d);
+        multikeySort(values, gt, hi, d);
+        lo = lt;
+        hi = gt;
+        d++;
+      } // if/else
+      SortProbe.exit();
+    } // while
+
+    insertionSort(values, lo, hi, d, RadixSort::compareFrom);
+  } // multikeySort(String[], int, int, int)
+
+  /**
+   * Sort values[lo..hi), all of which share their first d bytes, by
+   * distributing them into buckets on byte d.
+   *
+   * @param values The array being sorted.
+   * @param aux Scratch space at least as long as values.
+   * @param lo The lower bound (inclusive) of the subarray.
+   * @param hi The upper bound (exclusive) of the subarray.
+   * @param d The index of the byte being distributed on.
+   * @post values[lo..hi) is sorted.
+   */
+  static void msdSort(byte[][] values, byte[][] aux, int lo, int hi, int d) {
+    msdSort(values, aux, lo, hi, d, new int[Integer.SIZE][], 0);
+  } // msdSort(byte[][], byte[][], int, int, int)
+
+  /**
+   * Sort values[lo..hi) as above, recursing into every bucket but the
+   * largest and looping on that one.  Each recursion is into at most half
+   * of its caller's range, so the stack is at most log2(n) frames deep,
+   * however long a prefix the arrays share, and one count array per
+   * frame, in counts[level], serves every byte that frame looks at.
+   */
+  private static void msdSort(byte[][] values, byte[][] aux, int lo, int hi,
+      int d, int[][] counts, int level) {
+    if (counts[level] == null) {
+      counts[level] = new int[258];
+    } // if
+    int[] count = counts[level];
+
+    while (hi - lo > BUCKET_THRESHOLD) {
+      // Bucket 0 holds the arrays that have ended, bucket b + 1 byte b
+      Arrays.fill(count, 0);
+      for (int i = lo; i < hi; i++) {
+        count[byteAt(values[i], d) + 2]++;
+      } // for
+      for (int b = 0; b < 257; b++) {
+        count[b + 1] += count[b];
+      } // for
+      for (int i = lo; i < hi; i++) {
+        aux[count[byteAt(values[i], d) + 1]++] = values[i];
+      } // for
+      System.arraycopy(aux, 0, values, lo, hi - lo);
+
+      // Arrays that have ended are all equal, so only bytes are sorted
+      int largest = 1;
+      for (int b = 2; b < 257; b++) {
+        if (count[b] - count[b - 1] > count[largest] - count[largest - 1]) {
+          largest = b;
+        } // if
+      } // for
+
+      SortProbe.enter();
+      for (int b = 1; b < 257; b++) {
+        if (b != largest) {
+          msdSort(values, aux, lo + count[b - 1], lo + count[b], d + 1,
+              counts, level + 1);
+        } // if
+      } // for
+      SortProbe.exit();
+
+      hi = lo + count[largest];
+      lo = lo + count[largest - 1];
+      d++;
+    } // while
+
+    insertionSort(values, lo, hi, d, RadixSort::compareFrom);
+  } // msdSort(byte[][], byte[][], int, int, int, int[][], int)
+
+  /**
+   * Find the index of a string in values[lo..hi) whose char d is the
+   * median of three, or for large ranges the median of three medians of
+   * three, spread across the range.
+   */
+  private static int pivotIndex(String[] values, int lo, int hi, int d) {
+    int mid = lo + (hi - lo) / 2;
+    if (hi - lo <= NINTHER_THRESHOLD) {
+      return medianOfThree(values, lo, mid, hi - 1, d);
+    } // if
+    int step = (hi - lo) / 8;
+    return medianOfThree(values,
+        medianOfThree(values, lo, lo + step, lo + 2 * step, d),
+        medianOfThree(values, mid - step, mid, mid + step, d),
+        medianOfThree(values, hi - 1 - 2 * step, hi - 1 - step, hi - 1, d),
+        d);
+  } // pivotIndex(String[], int, int, int)
+
+  /**
+   * Find which of values[a], values[b] and values[c] has the median
+   * char d.
+   */
+  private static int medianOfThree(String[] values, int a, int b, int c,
+      int d) {
+    int x = charAt(values[a], d);
+    int y = charAt(values[b], d);
+    int z = charAt(values[c], d);
+    if (x < y) {
+      return (y < z) ? b : (x < z) ? c : a;
+    } else {
+      return (x < z) ? a : (y < z) ? c : b;
+    } // if/else
+  } // medianOfThree(String[], int, int, int, int)
+
+  /**
+   * Get char d of a string, or -1 past its end.
+   */
+  private static int charAt(String s, int d) {
+    return (d < s.length()) ? s.charAt(d) : -1;
+  } // charAt(String, int)
+
+  /**
+   * Get byte d of an array as unsigned, or -1 past its end.
+   */
+  private static int byteAt(byte[] b, int d) {
+    return (d < b.length) ? (b[d] & 0xFF) : -1;
+  } // byteAt(byte[], int)
+
+  /**
+   * Compare two strings from char d on.
+   */
+  private static int compareFrom(String x, String y, int d) {
+    int n = Math.min(x.length(), y.length());
+    for (int i = d; i < n; i++) {
+      int cmp = x.charAt(i) - y.charAt(i);
+      if (cmp != 0) {
+        return cmp;
+      } // if
+    } // for
+    return x.length() - y.length();
+  } // compareFrom(String, String, int)
+
+  /**
+   * Compare two byte arrays as unsigned from byte d on.
+   */
+  private static int compareFrom(byte[] x, byte[] y, int d) {
+    if (d >= x.length || d >= y.length) {
+      return Integer.compare(x.length, y.length);
+    } // if
+    return java.util.Arrays.compareUnsigned(x, d, x.length, y, d, y.length);
+  } // compareFrom(byte[], byte[], int)
+
+  /**
+   * Insertion sort values[lo..hi), whose first d elements are all equal,
+   * by the rest of each element.
+   */
+  private static <T> void insertionSort(T[] values, int lo, int hi, int d,
+      SuffixOrder<T> order) {
+    if (hi - lo > 1) {
+      Comparator<T> suffixes = (x, y) -> order.compare(x, y, d);
+      LinWenfeiSort.insertionSort(values, suffixes, lo, hi - 1);
+    } // if
+  } // insertionSort(T[], int, int, int, SuffixOrder<T>)
+
+  // +---------------+-----------------------------------------------
+  // | Inner Classes |
+  // +---------------+
+
+  /**
+   * A comparison that may skip a known common prefix.
+   */
+  interface SuffixOrder<T> {
+    int compare(T x, T y, int d);
+  } // interface SuffixOrder<T>
+} // class RadixSort
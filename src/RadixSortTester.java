@@ -0,0 +1,161 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of RadixSort.
+ *
+ * @author Wenfei Lin
+ */
+public class RadixSortTester extends PrimitiveSortTester {
+
+  // +--------------+------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  public RadixSortTester() {
+    super();
+    this.intSorter = RadixSort.SORTER;
+    this.longSorter = RadixSort.SORTER;
+    this.doubleSorter = RadixSort.SORTER;
+  } // RadixSortTester()
+
+  // +-------+-------------------------------------------------------
+  // | Tests |
+  // +-------+
+
+  @Test
+  public void wideDigitsTest() {
+    Random rand = new Random(2);
+    int[] ints = rand.ints(10_000).toArray();
+    long[] longs = rand.longs(10_000).toArray();
+    int[] expectedInts = ints.clone();
+    long[] expectedLongs = longs.clone();
+    Arrays.sort(expectedInts);
+    Arrays.sort(expectedLongs);
+    RadixSort.WIDE.sort(ints);
+    RadixSort.WIDE.sort(longs);
+    assertArrayEquals(expectedInts, ints);
+    assertArrayEquals(expectedLongs, longs);
+  } // wideDigitsTest
+
+  @Test
+  public void narrowKeysTest() {
+    // Only the low digit varies, so every other pass is skipped
+    Random rand = new Random(3);
+    long[] longs = rand.longs(5000, 0, 200).toArray();
+    long[] expected = longs.clone();
+    Arrays.sort(expected);
+    RadixSort.SORTER.sort(longs);
+    assertArrayEquals(expected, longs);
+  } // narrowKeysTest
+
+  @Test
+  public void stringsTest() {
+    Random rand = new Random(4);
+    for (int n : new int[] { 0, 1, 30, 1000, 20_000 }) {
+      String[] vals = new String[n];
+      for (int i = 0; i < n; i++) {
+        // Shared prefixes, empty strings and chars above 0x7f
+        vals[i] = "ab".repeat(rand.nextInt(3))
+            + Integer.toString(rand.nextInt(5000), 7)
+                .substring(rand.nextInt(2))
+            + (rand.nextInt(10) == 0 ? "\u00e9\uffff" : "");
+      } // for
+      String[] expected = vals.clone();
+      Arrays.sort(expected);
+      RadixSort.SORTER.sort(vals);
+      assertArrayEquals(expected, vals);
+    } // for
+  } // stringsTest
+
+  @Test
+  public void byteArraysTest() {
+    Random rand = new Random(5);
+    byte[][] vals = new byte[20_000][];
+    for (int i = 0; i < vals.length; i++) {
+      vals[i] = new byte[rand.nextInt(6)];
+      for (int j = 0; j < vals[i].length; j++) {
+        vals[i][j] = (byte) (rand.nextInt(4) * 85);
+      } // for
+    } // for
+    byte[][] expected = vals.clone();
+    LinWenfeiSort.SORTER.sort(expected, Arrays::compareUnsigned);
+    RadixSort.SORTER.sort(vals);
+    // Equal arrays must also keep their order
+    for (int i = 0; i < vals.length; i++) {
+      assertSame(expected[i], vals[i]);
+    } // for
+  } // byteArraysTest
+
+  @Test
+  public void longSharedPrefixTest() {
+    // Every byte but the last is shared, which once recursed per byte
+    Random rand = new Random(6);
+    byte[][] vals = new byte[64][];
+    String[] strings = new String[64];
+    for (int i = 0; i < vals.length; i++) {
+      vals[i] = new byte[50_000];
+      vals[i][vals[i].length - 1] = (byte) rand.nextInt(256);
+      strings[i] = "x".repeat(50_000 - 1) + (char) rand.nextInt(256);
+    } // for
+    byte[][] expected = vals.clone();
+    LinWenfeiSort.SORTER.sort(expected, Arrays::compareUnsigned);
+    RadixSort.SORTER.sort(vals);
+    for (int i = 0; i < vals.length; i++) {
+      assertSame(expected[i], vals[i]);
+    } // for
+    String[] expectedStrings = strings.clone();
+    Arrays.sort(expectedStrings);
+    RadixSort.SORTER.sort(strings);
+    assertArrayEquals(expectedStrings, strings);
+  } // longSharedPrefixTest
+
+  @Test
+  public void adversarialStringsTest() {
+    // Rank the strings so that the middle string is always the least,
+    // which once recursed once per string
+    int n = 20_000;
+    int[] ids = new int[n];
+    int[] rank = new int[n];
+    for (int i = 0; i < n; i++) {
+      ids[i] = i;
+    } // for
+    int next = 0;
+    int lo = 0;
+    while (n - lo > RadixSort.BUCKET_THRESHOLD) {
+      Utils.swap(ids, lo, lo + (n - lo) / 2);
+      rank[ids[lo]] = next++;
+      // Everything else is greater, so moves to the end in turn
+      for (int gt = n; gt > lo + 1; ) {
+        Utils.swap(ids, lo + 1, --gt);
+      } // for
+      lo++;
+    } // while
+    for (; lo < n; lo++) {
+      rank[ids[lo]] = next++;
+    } // for
+    String[] vals = new String[n];
+    for (int i = 0; i < n; i++) {
+      vals[i] = "" + (char) (0x100 + rank[i]);
+    } // for
+
+    String[] expected = vals.clone();
+    Arrays.sort(expected);
+    Sorter strings = new Sorter() {
+      @Override
+      public <T> void sort(T[] values, Comparator<? super T> order) {
+        RadixSort.SORTER.sort((String[]) values);
+      } // sort(T[], Comparator<? super T>)
+    };
+    SortMetrics metrics = new MeteredSorter(strings, "multikey",
+        MetricsSink.NONE).measure(vals, Comparator.naturalOrder());
+    assertArrayEquals(expected, vals);
+    // Each recursion is into at most half of its range
+    assertTrue(metrics.maxDepth <= 15, "maxDepth " + metrics.maxDepth);
+  } // adversarialStringsTest
+} // class RadixSortTester
@@ -0,0 +1,26 @@
+import java.util.Comparator;
+
+/**
+ * Sorters that can sort part of an array in place, so a caller whose
+ * elements fill only the front of an array (as a SortBuffer's do) need
+ * not copy them out first.
+ *
+ * @author Wenfei Lin
+ */
+interface RangeSorter extends Sorter {
+  /**
+   * Sort values[lo..hi) in place, leaving the rest of the array alone.
+   *
+   * @param values, the array holding the range.
+   * @param lo, the first index (inclusive) of the range.
+   * @param hi, the last index (exclusive) of the range.
+   * @param order, the order by which to sort the values.
+   * @pre
+   *    0 <= lo <= hi <= values.length.
+   * @post
+   *    For all i, lo < i < hi,
+   *      order.compare(values[i-1], values[i]) <= 0
+   */
+  public <T> void sort(T[] values, int lo, int hi,
+      Comparator<? super T> order);
+} // interface RangeSorter
@@ -0,0 +1,109 @@
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * How an ExternalSorter writes records to its spill files and reads them
+ * back.
+ *
+ * @author Wenfei Lin
+ */
+public interface RecordCodec<T> {
+  /**
+   * Longs, eight bytes each.
+   */
+  public static final RecordCodec<Long> LONGS = new RecordCodec<Long>() {
+    @Override
+    public void write(Long value, DataOutput out) throws IOException {
+      out.writeLong(value);
+    } // write(Long, DataOutput)
+
+    @Override
+    public Long read(DataInput in) throws IOException {
+      return in.readLong();
+    } // read(DataInput)
+
+    @Override
+    public long memorySize(Long value) {
+      return 16;
+    } // memorySize(Long)
+  };
+
+  /**
+   * Strings of any length, as a length followed by UTF-8 bytes.
+   */
+  public static final RecordCodec<String> STRINGS = new RecordCodec<String>() {
+    @Override
+    public void write(String value, DataOutput out) throws IOException {
+      byte[] bytes = value.getBytes(java.nio.charset.StandardCharsets.UTF_8);
+      out.writeInt(bytes.length);
+      out.write(bytes);
+    } // write(String, DataOutput)
+
+    @Override
+    public String read(DataInput in) throws IOException {
+      byte[] bytes = new byte[in.readInt()];
+      in.readFully(bytes);
+      return new String(bytes, java.nio.charset.StandardCharsets.UTF_8);
+    } // read(DataInput)
+
+    @Override
+    public long memorySize(String value) {
+      return 40 + value.length();
+    } // memorySize(String)
+  };
+
+  /**
+   * Write one record.
+   *
+   * @param value, the record.
+   * @param out, where to write it.
+   * @throws IOException if out cannot be written.
+   */
+  public void write(T value, DataOutput out) throws IOException;
+
+  /**
+   * Read one record written by write.
+   *
+   * @param in, where to read it from.
+   * @return the record.
+   * @throws IOException if in cannot be read.
+   */
+  public T read(DataInput in) throws IOException;
+
+  /**
+   * Estimate how many bytes of heap a record takes while it is in memory,
+   * which is what the memory budget of an ExternalSorter counts.
+   *
+   * @param value, the record.
+   * @return its approximate size in bytes.
+   */
+  public long memorySize(T value);
+
+  /**
+   * Records that are byte arrays of a fixed width.
+   *
+   * @param width, the number of bytes in every record.
+   * @return a codec for them.
+   */
+  public static RecordCodec<byte[]> fixedWidth(int width) {
+    return new RecordCodec<byte[]>() {
+      @Override
+      public void write(byte[] value, DataOutput out) throws IOException {
+        out.write(value, 0, width);
+      } // write(byte[], DataOutput)
+
+      @Override
+      public byte[] read(DataInput in) throws IOException {
+        byte[] value = new byte[width];
+        in.readFully(value);
+        return value;
+      } // read(DataInput)
+
+      @Override
+      public long memorySize(byte[] value) {
+        return 16 + width;
+      } // memorySize(byte[])
+    };
+  } // fixedWidth(int)
+} // interface RecordCodec
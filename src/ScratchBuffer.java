@@ -0,0 +1,104 @@
+import java.util.Arrays;
+
+/**
+ * A reusable scratch array for merging.  A sorter given a ScratchBuffer
+ * borrows its array instead of allocating one, so repeated sorts of
+ * similarly sized arrays allocate nothing once the array has grown.
+ *
+ * A ScratchBuffer must not be used by two sorts at the same time; use
+ * PER_THREAD to share one buffer per thread instead.
+ *
+ * @author Wenfei Lin
+ */
+public class ScratchBuffer {
+
+  // +-----------+---------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  private static final Object[] EMPTY = new Object[0];
+
+  // The buffers handed out by PER_THREAD
+  private static final ThreadLocal<ScratchBuffer> LOCAL =
+      ThreadLocal.withInitial(ScratchBuffer::new);
+
+  // +--------+------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /**
+   * A buffer that hands each thread its own array.
+   */
+  public static final ScratchBuffer PER_THREAD = new ScratchBuffer() {
+    @Override
+    Object[] acquire(int minCapacity) {
+      return LOCAL.get().acquire(minCapacity);
+    } // acquire(int)
+
+    @Override
+    void release(int used) {
+      LOCAL.get().release(used);
+    } // release(int)
+  };
+
+  /**
+   * The array being reused.
+   */
+  private Object[] array = EMPTY;
+
+  // +--------------+------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  /**
+   * Create an empty buffer that grows on first use.
+   */
+  public ScratchBuffer() {
+  } // ScratchBuffer()
+
+  /**
+   * Create a buffer that can already hold capacity elements.
+   *
+   * @param capacity The initial size of the array.
+   */
+  public ScratchBuffer(int capacity) {
+    this.array = new Object[capacity];
+  } // ScratchBuffer(int)
+
+  // +---------+-----------------------------------------------------
+  // | Methods |
+  // +---------+
+
+  /**
+   * Get an array of at least minCapacity elements, growing the buffer if
+   * it is too small.
+   *
+   * @param minCapacity The number of elements needed.
+   * @return The buffer's array.
+   */
+  Object[] acquire(int minCapacity) {
+    if (this.array.length < minCapacity) {
+      this.array = new Object[minCapacity];
+    } // if
+    return this.array;
+  } // acquire(int)
+
+  /**
+   * Drop the references left in the first used elements of the array, so
+   * the buffer does not keep sorted values alive.
+   *
+   * @param used The number of elements that may have been written.
+   */
+  void release(int used) {
+    Arrays.fill(this.array, 0, Math.min(used, this.array.length), null);
+  } // release(int)
+
+  /**
+   * Get the number of elements the buffer can hold without growing.
+   *
+   * @return The capacity.
+   */
+  public int capacity() {
+    return this.array.length;
+  } // capacity()
+} // class ScratchBuffer
@@ -0,0 +1,119 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that sorters using a ScratchBuffer stop allocating once the
+ * buffer is big enough.
+ *
+ * @author Wenfei Lin
+ */
+public class ScratchBufferTester {
+
+  // +-----------+---------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  // Big enough that a per-sort scratch array would be hundreds of KB
+  static final int SIZE = 100_000;
+
+  // Allowance for the constant-size bookkeeping of a sort
+  static final long SLACK = 1024;
+
+  // +-------+-------------------------------------------------------
+  // | Tests |
+  // +-------+
+
+  @Test
+  public void mergeSortReusesBufferTest() {
+    assertSteadyStateAllocation(new MergeSort(new ScratchBuffer()));
+  } // mergeSortReusesBufferTest
+
+  @Test
+  public void linWenfeiSortReusesBufferTest() {
+    assertSteadyStateAllocation(new LinWenfeiSort(new ScratchBuffer()));
+  } // linWenfeiSortReusesBufferTest
+
+  @Test
+  public void perThreadBufferTest() {
+    assertSteadyStateAllocation(MergeSort.POOLED);
+    assertSteadyStateAllocation(LinWenfeiSort.POOLED);
+  } // perThreadBufferTest
+
+  @Test
+  public void unpooledAllocatesAtMostHalfTest() {
+    Integer[] input = randomInput();
+    Comparator<Integer> order = Integer::compare;
+    for (Sorter sorter : new Sorter[] { MergeSort.SORTER,
+                                        LinWenfeiSort.SORTER }) {
+      Integer[] vals = input.clone();
+      sorter.sort(vals, order);
+      vals = input.clone();
+      long bytes = allocatedBytes(sorter, vals, order);
+      // A reference is at most 8 bytes, plus the array header
+      assertTrue(bytes <= 8L * (SIZE / 2) + 16 + SLACK,
+          sorter + " allocated " + bytes + " bytes");
+    } // for
+  } // unpooledAllocatesAtMostHalfTest
+
+  @Test
+  public void releaseClearsReferencesTest() {
+    ScratchBuffer buffer = new ScratchBuffer();
+    new MergeSort(buffer).sort(randomInput(), Integer::compare);
+    Object[] array = buffer.acquire(0);
+    assertTrue(Arrays.stream(array).allMatch((x) -> x == null));
+  } // releaseClearsReferencesTest
+
+  // +---------+-----------------------------------------------------
+  // | Helpers |
+  // +---------+
+
+  /**
+   * Check that, after warming up, sorting with sorter still sorts and
+   * allocates no more than SLACK bytes.
+   */
+  static void assertSteadyStateAllocation(Sorter sorter) {
+    Integer[] input = randomInput();
+    Integer[] expected = input.clone();
+    Arrays.sort(expected);
+    Comparator<Integer> order = Integer::compare;
+
+    for (int i = 0; i < 20; i++) {
+      sorter.sort(input.clone(), order);
+    } // for
+
+    Integer[] vals = input.clone();
+    long bytes = allocatedBytes(sorter, vals, order);
+    assertArrayEquals(expected, vals);
+    assertTrue(bytes <= SLACK, sorter + " allocated " + bytes + " bytes");
+  } // assertSteadyStateAllocation(Sorter)
+
+  /**
+   * Measure the bytes the current thread allocates while sorting vals.
+   */
+  static long allocatedBytes(Sorter sorter, Integer[] vals,
+                             Comparator<Integer> order) {
+    com.sun.management.ThreadMXBean bean =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    long id = Thread.currentThread().getId();
+    long before = bean.getThreadAllocatedBytes(id);
+    sorter.sort(vals, order);
+    return bean.getThreadAllocatedBytes(id) - before;
+  } // allocatedBytes(Sorter, Integer[], Comparator<Integer>)
+
+  /**
+   * Make SIZE random Integers.
+   */
+  static Integer[] randomInput() {
+    Random rand = new Random(7);
+    Integer[] vals = new Integer[SIZE];
+    for (int i = 0; i < SIZE; i++) {
+      vals[i] = rand.nextInt(SIZE);
+    } // for
+    return vals;
+  } // randomInput()
+} // class ScratchBufferTester
@@ -0,0 +1,156 @@
+import java.util.Comparator;
+
+/**
+ * Find the k smallest elements of an array without sorting all of it.
+ *
+ * select is introselect: Quicksort's three-way partitioning, following
+ * only the part that holds position k and stopping as soon as k lands
+ * among the elements equal to the pivot, with heapsort taking over if
+ * partitioning goes badly (as in Quicksort.threeWaySort).  partialSort
+ * selects and then sorts the first k elements, costing O(n + k log k),
+ * or for very small k keeps the k smallest elements seen so far in a
+ * max-heap.
+ *
+ * @author Wenfei Lin
+ */
+public class Selection {
+
+  // +-----------+---------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  // Largest k for which partialSort uses a bounded heap
+  static final int HEAP_MAX = 32;
+
+  // +--------------+------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  private Selection() {
+  } // Selection()
+
+  // +---------+-----------------------------------------------------
+  // | Methods |
+  // +---------+
+
+  /**
+   * Rearrange values so that values[k] is the element that would be there
+   * if values were sorted, with no greater element before it and no
+   * smaller element after it (C++'s nth_element).
+   *
+   * @param values The array being rearranged.
+   * @param k The position to fill.
+   * @param order The comparator that determines the order.
+   * @return values[k].
+   * @pre 0 <= k < values.length.
+   * @post For all i < k < j, values[i] <= values[k] <= values[j].
+   */
+  public static <T> T select(T[] values, int k, Comparator<? super T> order) {
+    if (k < 0 || k >= values.length) {
+      throw new IndexOutOfBoundsException("k = " + k + " but length = "
+          + values.length);
+    } // if
+
+    int lb = 0;
+    int ub = values.length;
+    int depthLimit = 2 * Quicksort.floorLog2(values.length);
+    while (ub - lb > Quicksort.INSERTION_THRESHOLD) {
+      if (depthLimit == 0) {
+        // Partitioning is going badly, so finish with heapsort
+        Quicksort.heapSort(values, order, lb, ub);
+        return values[k];
+      } // if
+      depthLimit--;
+
+      Utils.swap(values, lb, Quicksort.choosePivot(values, order, lb, ub));
+      T pivot = values[lb];
+
+      // Partition three ways, as Quicksort.threeWaySort does, so that a
+      // run of keys equal to the pivot is settled in one step
+      int lt = lb;
+      int i = lb + 1;
+      int gt = ub - 1;
+      while (i <= gt) {
+        int cmp = order.compare(values[i], pivot);
+        if (cmp < 0) {
+          Utils.swap(values, lt++, i++);
+        } else if (cmp > 0) {
+          Utils.swap(values, i, gt--);
+        } else {
+          i++;
+        } // if
+      } // while
+
+      if (k < lt) {
+        ub = lt;
+      } else if (k > gt) {
+        lb = gt + 1;
+      } else {
+        // k is among the elements equal to the pivot
+        return values[k];
+      } // if/else
+    } // while
+
+    if (ub - lb > 1) {
+      LinWenfeiSort.insertionSort(values, order, lb, ub - 1);
+    } // if
+    return values[k];
+  } // select(T[], int, Comparator<? super T>)
+
+  /**
+   * Put the k smallest elements of values, sorted, at its front.  The
+   * rest of the array is left in no particular order.
+   *
+   * @param values The array being rearranged.
+   * @param k The number of elements wanted.
+   * @param order The comparator that determines the order.
+   * @pre 0 <= k.
+   * @post values[0..min(k, n)) is sorted, and no element after it is
+   *       smaller than values[k - 1].
+   */
+  public static <T> void partialSort(T[] values, int k,
+      Comparator<? super T> order) {
+    if (k < 0) {
+      throw new IllegalArgumentException("k must not be negative");
+    } // if
+    int n = values.length;
+    if (k >= n) {
+      Quicksort.THREE_WAY.sort(values, order);
+    } else if (k <= HEAP_MAX) {
+      heapPartialSort(values, k, order);
+    } else {
+      select(values, k - 1, order);
+      Quicksort.threeWaySort(values, order, 0, k - 1,
+          2 * Quicksort.floorLog2(k));
+    } // if/else
+  } // partialSort(T[], int, Comparator<? super T>)
+
+  /**
+   * Keep the k smallest elements seen so far in a max-heap at the front
+   * of values, then sort the heap.
+   *
+   * @pre 0 <= k < values.length.
+   */
+  static <T> void heapPartialSort(T[] values, int k,
+      Comparator<? super T> order) {
+    if (k == 0) {
+      return;
+    } // if
+    for (int i = k / 2 - 1; i >= 0; i--) {
+      Quicksort.siftDown(values, order, 0, i, k);
+    } // for
+
+    // Anything smaller than the largest kept element replaces it
+    for (int i = k; i < values.length; i++) {
+      if (order.compare(values[i], values[0]) < 0) {
+        Utils.swap(values, 0, i);
+        Quicksort.siftDown(values, order, 0, 0, k);
+      } // if
+    } // for
+
+    for (int end = k - 1; end > 0; end--) {
+      Utils.swap(values, 0, end);
+      Quicksort.siftDown(values, order, 0, 0, end);
+    } // for
+  } // heapPartialSort(T[], int, Comparator<? super T>)
+} // class Selection
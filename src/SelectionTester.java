@@ -0,0 +1,119 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of Selection.
+ *
+ * @author Wenfei Lin
+ */
+public class SelectionTester {
+
+  // +-----------+---------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  static final Comparator<Integer> ORDER = Integer::compare;
+
+  static final int[] KS = { 0, 1, 2, 10, 31, 32, 33, 100, 999, 1000, 4999 };
+
+  // +-------+-------------------------------------------------------
+  // | Tests |
+  // +-------+
+
+  @Test
+  public void selectTest() {
+    for (Integer[] input : inputs(5000)) {
+      Integer[] sorted = input.clone();
+      Arrays.sort(sorted);
+      for (int k : KS) {
+        Integer[] vals = input.clone();
+        assertEquals(sorted[k], Selection.select(vals, k, ORDER));
+        for (int i = 0; i < vals.length; i++) {
+          int cmp = vals[i].compareTo(vals[k]);
+          assertTrue((i < k) ? cmp <= 0 : cmp >= 0);
+        } // for
+      } // for
+    } // for
+  } // selectTest
+
+  @Test
+  public void partialSortTest() {
+    for (Integer[] input : inputs(5000)) {
+      Integer[] sorted = input.clone();
+      Arrays.sort(sorted);
+      for (int k : new int[] { 0, 1, 32, 33, 1000, 5000, 6000 }) {
+        Integer[] vals = input.clone();
+        Selection.partialSort(vals, k, ORDER);
+        int m = Math.min(k, vals.length);
+        assertArrayEquals(Arrays.copyOf(sorted, m), Arrays.copyOf(vals, m));
+        Integer[] all = vals.clone();
+        Arrays.sort(all);
+        assertArrayEquals(sorted, all);
+      } // for
+    } // for
+  } // partialSortTest
+
+  @Test
+  public void duplicatesSelectInLinearTimeTest() {
+    // Ties must not narrow one element at a time into heapsort
+    int n = 100_000;
+    Random rand = new Random(23);
+    for (int distinct : new int[] { 1, 3 }) {
+      Integer[] vals = new Integer[n];
+      for (int i = 0; i < n; i++) {
+        vals[i] = rand.nextInt(distinct);
+      } // for
+      Integer[] sorted = vals.clone();
+      Arrays.sort(sorted);
+      long[] comparisons = new long[1];
+      Integer kth = Selection.select(vals, n / 2, (x, y) -> {
+        comparisons[0]++;
+        return x.compareTo(y);
+      });
+      assertEquals(sorted[n / 2], kth);
+      assertTrue(comparisons[0] < 4L * n,
+          comparisons[0] + " comparisons with " + distinct + " keys");
+    } // for
+  } // duplicatesSelectInLinearTimeTest
+
+  @Test
+  public void topKTest() {
+    Integer[] vals = { 5, 1, 9, 3, 7, 9, 2 };
+    Selection.partialSort(vals, 3, ORDER.reversed());
+    assertArrayEquals(new Integer[] { 9, 9, 7 }, Arrays.copyOf(vals, 3));
+  } // topKTest
+
+  @Test
+  public void badKTest() {
+    assertThrows(IndexOutOfBoundsException.class,
+        () -> Selection.select(new Integer[3], 3, ORDER));
+    assertThrows(IllegalArgumentException.class,
+        () -> Selection.partialSort(new Integer[3], -1, ORDER));
+  } // badKTest
+
+  // +---------+-----------------------------------------------------
+  // | Helpers |
+  // +---------+
+
+  /**
+   * Make random, few-unique, all-equal, ascending and descending inputs.
+   */
+  static Integer[][] inputs(int n) {
+    Random rand = new Random(19);
+    Integer[][] inputs = new Integer[5][n];
+    for (int i = 0; i < n; i++) {
+      inputs[0][i] = rand.nextInt();
+      inputs[1][i] = rand.nextInt(4);
+      inputs[2][i] = 7;
+      inputs[3][i] = i;
+      inputs[4][i] = n - i;
+    } // for
+    return inputs;
+  } // inputs(int)
+} // class SelectionTester
@@ -0,0 +1,393 @@
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * A small timing harness for comparing sorters on different kinds of input.
+ * Usage: java SortBenchmark [suite] [n] [repetitions]
+ *
+ * Suites:
+ *   timsort       LinWenfeiSort against its fixed-chunk version on
+ *                 presorted, reversed and random input.
+ *   partitioning  The Quicksort partitioning schemes on inputs with
+ *                 2 to n distinct values, counting comparisons and swaps.
+ *   scaling       ParallelMergeSort and ParallelLinWenfeiSort on random
+ *                 input with 1, 2, 4, ... up to every available core.
+ *   insertion     The insertion sorts on many arrays of 8 to 64 elements,
+ *                 n elements in all, with a cheap comparator (Integers)
+ *                 and an expensive one (Strings with a long common
+ *                 prefix).
+ *   service       n jobs, mostly small, submitted to a SortService by
+ *                 more and more client threads, reporting throughput and
+ *                 latency percentiles.
+ *
+ * @author Wenfei Lin
+ */
+public class SortBenchmark {
+
+  // +-----------+---------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  // The kinds of input each sorter is run on
+  static final String[] DISTRIBUTIONS = { "presorted", "reversed", "random" };
+
+  // +------+--------------------------------------------------------
+  // | Main |
+  // +------+
+
+  public static void main(String[] args) {
+    String suite = (args.length > 0) ? args[0] : "timsort";
+    int n = (args.length > 1) ? Integer.parseInt(args[1]) : 1_000_000;
+    int reps = (args.length > 2) ? Integer.parseInt(args[2]) : 5;
+
+    switch (suite) {
+      case "timsort":
+        timsortSuite(n, reps);
+        break;
+      case "partitioning":
+        partitioningSuite(n, reps);
+        break;
+      case "scaling":
+        scalingSuite(n, reps);
+        break;
+      case "insertion":
+        insertionSuite(n, reps);
+        break;
+      case "service":
+        serviceSuite(n);
+        break;
+      default:
+        throw new IllegalArgumentException("Unknown suite: " + suite);
+    } // switch
+  } // main(String[])
+
+  // +--------+------------------------------------------------------
+  // | Suites |
+  // +--------+
+
+  /**
+   * Compare LinWenfeiSort with its fixed-chunk version.
+   */
+  static void timsortSuite(int n, int reps) {
+    String[] names = { "LinWenfeiSort (chunked)", "LinWenfeiSort" };
+    Sorter[] sorters = { LinWenfeiSort.CHUNKED, LinWenfeiSort.SORTER };
+
+    System.out.printf("%-26s %-10s %12s %12s%n", "sorter", "input",
+        "ns/element", "cmp/element");
+    for (String distribution : DISTRIBUTIONS) {
+      Integer[] input = generate(distribution, n, new Random(42));
+      for (int s = 0; s < sorters.length; s++) {
+        long nanos = bestTime(sorters[s], input, reps);
+        long comparisons = countComparisons(sorters[s], input);
+        System.out.printf("%-26s %-10s %12.2f %12.2f%n", names[s],
+            distribution, (double) nanos / n, (double) comparisons / n);
+      } // for
+    } // for
+  } // timsortSuite(int, int)
+
+  /**
+   * Compare the Quicksort partitioning schemes as the number of distinct
+   * values grows from 2 to n.
+   */
+  static void partitioningSuite(int n, int reps) {
+    String[] names = { "two-way", "three-way", "dual-pivot" };
+    Sorter[] sorters = { Quicksort.INTROSORT, Quicksort.THREE_WAY,
+                         Quicksort.DUAL_PIVOT };
+
+    System.out.printf("%-12s %10s %12s %12s %12s%n", "partitioning",
+        "distinct", "ns/element", "cmp/element", "swap/element");
+    for (long cardinality = 2; cardinality <= n; cardinality *= 16) {
+      Integer[] input = fewUnique(n, (int) cardinality, new Random(42));
+      for (int s = 0; s < sorters.length; s++) {
+        long nanos = bestTime(sorters[s], input, reps);
+        long comparisons = countComparisons(sorters[s], input);
+        long swaps = countSwaps(sorters[s], input);
+        System.out.printf("%-12s %10d %12.2f %12.2f %12.2f%n", names[s],
+            cardinality, (double) nanos / n, (double) comparisons / n,
+            (double) swaps / n);
+      } // for
+    } // for
+  } // partitioningSuite(int, int)
+
+  /**
+   * Time the parallel sorters in pools of 1 up to every available core,
+   * reporting the speedup over one thread.
+   */
+  static void scalingSuite(int n, int reps) {
+    String[] names = { "ParallelMergeSort", "ParallelLinWenfeiSort" };
+    int cores = Runtime.getRuntime().availableProcessors();
+    Integer[] input = generate("random", n, new Random(42));
+
+    System.out.printf("%-22s %8s %12s %10s%n", "sorter", "threads",
+        "ns/element", "speedup");
+    for (int s = 0; s < names.length; s++) {
+      long single = 0;
+      for (int threads = 1; threads <= cores; threads = nextThreads(threads,
+          cores)) {
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        // With one thread each falls back to its sequential version
+        Sorter sorter = (s == 0)
+            ? new ParallelMergeSort(pool, ParallelMergeSort.DEFAULT_GRAIN)
+            : new ParallelLinWenfeiSort(pool,
+                ParallelLinWenfeiSort.DEFAULT_THRESHOLD);
+        long nanos = bestTime(sorter, input, reps);
+        pool.shutdown();
+        if (threads == 1) {
+          single = nanos;
+        } // if
+        System.out.printf("%-22s %8d %12.2f %10.2f%n", names[s], threads,
+            (double) nanos / n, (double) single / nanos);
+      } // for
+    } // for
+  } // scalingSuite(int, int)
+
+  /**
+   * Compare the swapping, linear, binary and pair insertion sorts on
+   * small arrays with a cheap and an expensive comparator.
+   */
+  static void insertionSuite(int n, int reps) {
+    String[] names = { "swapping", "linear", "binary", "pair" };
+    Sorter linear = new Sorter() {
+      @Override
+      public <T> void sort(T[] values, Comparator<? super T> order) {
+        LinWenfeiSort.insertionSort(values, order, 0, values.length - 1);
+      } // sort(T[], Comparator<? super T>)
+    };
+    Sorter[] sorters = { InsertionSort.SWAPPING, linear, InsertionSort.SORTER,
+                         InsertionSort.PAIR };
+    String prefix = "x".repeat(64);
+
+    System.out.printf("%-10s %-8s %6s %12s %12s%n", "sorter", "compare",
+        "size", "ns/element", "cmp/element");
+    for (int size = 8; size <= 64; size *= 2) {
+      Random rand = new Random(42);
+      Integer[][] ints = new Integer[Math.max(1, n / size)][];
+      String[][] strings = new String[ints.length][];
+      for (int a = 0; a < ints.length; a++) {
+        ints[a] = generate("random", size, rand);
+        strings[a] = new String[size];
+        for (int i = 0; i < size; i++) {
+          strings[a][i] = prefix + ints[a][i];
+        } // for
+      } // for
+
+      for (int s = 0; s < sorters.length; s++) {
+        long nanos = bestTime(sorters[s], ints, Integer::compare, reps);
+        System.out.printf("%-10s %-8s %6d %12.2f %12.2f%n", names[s],
+            "cheap", size, (double) nanos / (ints.length * size),
+            (double) countComparisons(sorters[s], ints[0]) / size);
+        nanos = bestTime(sorters[s], strings, String::compareTo, reps);
+        long[] count = new long[1];
+        sorters[s].sort(strings[0].clone(), (String x, String y) -> {
+          count[0]++;
+          return x.compareTo(y);
+        });
+        System.out.printf("%-10s %-8s %6d %12.2f %12.2f%n", names[s],
+            "costly", size, (double) nanos / (ints.length * size),
+            (double) count[0] / size);
+      } // for
+    } // for
+  } // insertionSuite(int, int)
+
+  /**
+   * Drive a SortService with 1 up to 16 clients per core, each submitting
+   * its share of n jobs as fast as the service admits them.  One job in
+   * sixteen is large enough for the parallel pool.
+   */
+  static void serviceSuite(int n) {
+    int cores = Runtime.getRuntime().availableProcessors();
+    int threshold = SortService.DEFAULT_LARGE_THRESHOLD;
+    Random rand = new Random(42);
+    Integer[][] jobs = new Integer[n][];
+    for (int j = 0; j < n; j++) {
+      int size = (rand.nextInt(16) == 0)
+          ? threshold + rand.nextInt(3 * threshold)
+          : 16 + rand.nextInt(4096);
+      jobs[j] = generate("random", size, rand);
+    } // for
+
+    System.out.printf("%8s %12s %12s %12s %12s %10s%n", "clients",
+        "jobs/s", "p50 us", "p99 us", "max us", "p99 queue");
+    for (int clients = 1; clients <= 16 * cores; clients *= 4) {
+      try (SortService service = new SortService()) {
+        Thread[] threads = new Thread[clients];
+        int share = clients;
+        long start = System.nanoTime();
+        for (int c = 0; c < clients; c++) {
+          int first = c;
+          threads[c] = new Thread(() -> {
+            List<CompletableFuture<Integer[]>> results =
+                new ArrayList<CompletableFuture<Integer[]>>();
+            try {
+              for (int j = first; j < n; j += share) {
+                results.add(service.submit(jobs[j].clone(),
+                    Integer::compare));
+              } // for
+              CompletableFuture.allOf(results.toArray(
+                  new CompletableFuture<?>[0])).join();
+            } catch (InterruptedException e) {
+              Thread.currentThread().interrupt();
+            } // try/catch
+          });
+          threads[c].start();
+        } // for
+        for (Thread thread : threads) {
+          thread.join();
+        } // for
+        long elapsed = System.nanoTime() - start;
+
+        SortService.Histogram latency = service.latency();
+        System.out.printf("%8d %12.0f %12.1f %12.1f %12.1f %10d%n", clients,
+            n * 1e9 / elapsed, latency.percentile(50) / 1e3,
+            latency.percentile(99) / 1e3, latency.max() / 1e3,
+            service.queueDepth().percentile(99));
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      } // try/catch
+    } // for
+  } // serviceSuite(int)
+
+  /**
+   * Double the thread count, but end with exactly cores.
+   */
+  private static int nextThreads(int threads, int cores) {
+    return (threads < cores && threads * 2 > cores) ? cores : threads * 2;
+  } // nextThreads(int, int)
+
+  // +---------+-----------------------------------------------------
+  // | Helpers |
+  // +---------+
+
+  /**
+   * Build an input array of one of the DISTRIBUTIONS.
+   *
+   * @param distribution The name of the distribution.
+   * @param n The number of elements.
+   * @param rand The source of randomness.
+   * @return A new array of n elements.
+   */
+  static Integer[] generate(String distribution, int n, Random rand) {
+    Integer[] vals = new Integer[n];
+    for (int i = 0; i < n; i++) {
+      switch (distribution) {
+        case "presorted":
+          vals[i] = i;
+          break;
+        case "reversed":
+          vals[i] = n - i;
+          break;
+        case "random":
+          vals[i] = rand.nextInt();
+          break;
+        default:
+          throw new IllegalArgumentException("Unknown distribution: "
+              + distribution);
+      } // switch
+    } // for
+    return vals;
+  } // generate(String, int, Random)
+
+  /**
+   * Build an array of n random values drawn from cardinality distinct
+   * ones.
+   *
+   * @param n The number of elements.
+   * @param cardinality The number of distinct values.
+   * @param rand The source of randomness.
+   * @return A new array of n elements.
+   */
+  static Integer[] fewUnique(int n, int cardinality, Random rand) {
+    Integer[] vals = new Integer[n];
+    for (int i = 0; i < n; i++) {
+      vals[i] = rand.nextInt(cardinality);
+    } // for
+    return vals;
+  } // fewUnique(int, int, Random)
+
+  /**
+   * Find the best time over several runs of a sorter on copies of input,
+   * after the same number of warm-up runs.
+   *
+   * @param sorter The sorter being timed.
+   * @param input The values to sort (not modified).
+   * @param reps The number of timed runs.
+   * @return The fastest run, in nanoseconds.
+   */
+  static long bestTime(Sorter sorter, Integer[] input, int reps) {
+    Comparator<Integer> order = Integer::compare;
+    long best = Long.MAX_VALUE;
+    for (int r = 0; r < 2 * reps; r++) {
+      Integer[] vals = input.clone();
+      long start = System.nanoTime();
+      sorter.sort(vals, order);
+      long elapsed = System.nanoTime() - start;
+      if (r >= reps) {
+        best = Math.min(best, elapsed);
+      } // if
+    } // for
+    return best;
+  } // bestTime(Sorter, Integer[], int)
+
+  /**
+   * Find the best time over several runs of a sorter on copies of every
+   * one of many small arrays, after the same number of warm-up runs.
+   *
+   * @param sorter The sorter being timed.
+   * @param inputs The arrays to sort (not modified).
+   * @param order The comparator to sort them with.
+   * @param reps The number of timed runs.
+   * @return The fastest run, in nanoseconds.
+   */
+  static <T> long bestTime(Sorter sorter, T[][] inputs,
+      Comparator<? super T> order, int reps) {
+    long best = Long.MAX_VALUE;
+    for (int r = 0; r < 2 * reps; r++) {
+      T[][] vals = inputs.clone();
+      for (int a = 0; a < vals.length; a++) {
+        vals[a] = vals[a].clone();
+      } // for
+      long start = System.nanoTime();
+      for (T[] val : vals) {
+        sorter.sort(val, order);
+      } // for
+      long elapsed = System.nanoTime() - start;
+      if (r >= reps) {
+        best = Math.min(best, elapsed);
+      } // if
+    } // for
+    return best;
+  } // bestTime(Sorter, T[][], Comparator<? super T>, int)
+
+  /**
+   * Count the comparisons a sorter makes on a copy of input.
+   *
+   * @param sorter The sorter being measured.
+   * @param input The values to sort (not modified).
+   * @return The number of calls to the comparator.
+   */
+  static long countComparisons(Sorter sorter, Integer[] input) {
+    long[] count = new long[1];
+    sorter.sort(input.clone(), (x, y) -> {
+      count[0]++;
+      return Integer.compare(x, y);
+    });
+    return count[0];
+  } // countComparisons(Sorter, Integer[])
+
+  /**
+   * Count the calls to Utils.swap a sorter makes on a copy of input.
+   *
+   * @param sorter The sorter being measured.
+   * @param input The values to sort (not modified).
+   * @return The number of swaps.
+   */
+  static long countSwaps(Sorter sorter, Integer[] input) {
+    MeteredSorter metered = new MeteredSorter(sorter, "", MetricsSink.NONE);
+    return metered.measure(input.clone(), Integer::compare).swaps;
+  } // countSwaps(Sorter, Integer[])
+} // class SortBenchmark
@@ -0,0 +1,190 @@
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.RandomAccess;
+
+/**
+ * A growable list whose backing array a Sorter can sort directly.  The
+ * sorters that can sort a range (LinWenfeiSort, MergeSort, Quicksort and
+ * InsertionSort) sort the elements where they are, even with capacity to
+ * spare; any other sorter sorts whole arrays, so unless the array is
+ * exactly full it is first trimmed to a copy of the elements.  The
+ * collectors of Sorter gather stream elements into one.
+ *
+ * @author Wenfei Lin
+ */
+public class SortBuffer<T> extends AbstractList<T> implements RandomAccess {
+
+  // +-----------+---------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  // The capacity of a new buffer by default
+  static final int DEFAULT_CAPACITY = 16;
+
+  // +--------+------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /**
+   * The elements, in elements[0..size).
+   */
+  private Object[] elements;
+
+  /**
+   * The number of elements.
+   */
+  private int size = 0;
+
+  /**
+   * Whether the elements are known to be sorted.
+   */
+  boolean sorted = false;
+
+  // +--------------+------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  /**
+   * Create an empty buffer.
+   */
+  public SortBuffer() {
+    this(DEFAULT_CAPACITY);
+  } // SortBuffer()
+
+  /**
+   * Create an empty buffer with room for capacity elements.
+   *
+   * @param capacity The number of elements before the buffer grows.
+   */
+  public SortBuffer(int capacity) {
+    this.elements = new Object[Math.max(1, capacity)];
+  } // SortBuffer(int)
+
+  /**
+   * Create a buffer holding the elements of a collection, in its
+   * iteration order.
+   *
+   * @param values The collection, whose toArray is the only copy made.
+   */
+  public SortBuffer(Collection<? extends T> values) {
+    this.elements = values.toArray();
+    this.size = this.elements.length;
+  } // SortBuffer(Collection<? extends T>)
+
+  // +---------+-----------------------------------------------------
+  // | Methods |
+  // +---------+
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public T get(int index) {
+    return (T) this.elements[checkIndex(index)];
+  } // get(int)
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public T set(int index, T value) {
+    T old = (T) this.elements[checkIndex(index)];
+    this.elements[index] = value;
+    this.sorted = false;
+    return old;
+  } // set(int, T)
+
+  @Override
+  public boolean add(T value) {
+    if (this.size == this.elements.length) {
+      grow(this.size + 1);
+    } // if
+    this.elements[this.size++] = value;
+    this.sorted = false;
+    this.modCount++;
+    return true;
+  } // add(T)
+
+  @Override
+  public int size() {
+    return this.size;
+  } // size()
+
+  /**
+   * Sort the elements in their backing array, which is trimmed to a copy
+   * of the elements first if it has spare capacity and the sorter cannot
+   * sort a range.
+   *
+   * @param sorter The sorter to use.
+   * @param order The order of the elements.
+   * @post The buffer is sorted, and equal elements keep their order if
+   *       the sorter is stable.
+   */
+  @SuppressWarnings("unchecked")
+  public void sort(Sorter sorter, Comparator<? super T> order) {
+    if (sorter instanceof RangeSorter) {
+      ((RangeSorter) sorter).sort((T[]) this.elements, 0, this.size, order);
+    } else {
+      // Other sorters sort whole arrays, so spare capacity has to go
+      if (this.elements.length != this.size) {
+        this.elements = Arrays.copyOf(this.elements, this.size);
+      } // if
+      sorter.sort((T[]) this.elements, order);
+    } // if/else
+    this.sorted = true;
+    this.modCount++;
+  } // sort(Sorter, Comparator<? super T>)
+
+  /**
+   * Merge the sorted elements of other into this sorted buffer, with
+   * this buffer's elements first among equals.
+   *
+   * @param other Another sorted buffer, left unchanged.
+   * @param order The order both are sorted in.
+   * @pre Both buffers are sorted by order.
+   */
+  @SuppressWarnings("unchecked")
+  void mergeFrom(SortBuffer<? extends T> other, Comparator<? super T> order) {
+    int len1 = this.size;
+    int len2 = other.size;
+    if (this.elements.length != len1 + len2) {
+      this.elements = Arrays.copyOf(this.elements, len1 + len2);
+    } // if
+    System.arraycopy(other.elements, 0, this.elements, len1, len2);
+    this.size = len1 + len2;
+    this.modCount++;
+    if (len1 == 0 || len2 == 0) {
+      return;
+    } // if
+
+    LinWenfeiSort.MergeState<T> state =
+        new LinWenfeiSort.MergeState<T>((T[]) this.elements, order, null);
+    state.pushRun(0, len1);
+    state.pushRun(len1, len2);
+    state.mergeAt(0);
+  } // mergeFrom(SortBuffer<? extends T>, Comparator<? super T>)
+
+  /**
+   * Get the length of the backing array.
+   */
+  int capacity() {
+    return this.elements.length;
+  } // capacity()
+
+  /**
+   * Make room for at least minCapacity elements, doubling the array.
+   */
+  private void grow(int minCapacity) {
+    int capacity = Math.max(minCapacity, 2 * this.elements.length);
+    this.elements = Arrays.copyOf(this.elements, capacity);
+  } // grow(int)
+
+  /**
+   * Make sure index names an element.
+   */
+  private int checkIndex(int index) {
+    if (index < 0 || index >= this.size) {
+      throw new IndexOutOfBoundsException("index " + index + ", size "
+          + this.size);
+    } // if
+    return index;
+  } // checkIndex(int)
+} // class SortBuffer
@@ -0,0 +1,44 @@
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A JFR event for each sort done by a MeteredSorter.
+ *
+ * @author Wenfei Lin
+ */
+@Name("sorting.Sort")
+@Label("Sort")
+@Category("Sorting")
+@Description("A sort done through a MeteredSorter")
+@StackTrace(false)
+public class SortEvent extends Event {
+  @Label("Sorter")
+  String sorter;
+
+  @Label("Length")
+  int length;
+
+  @Label("Comparisons")
+  long comparisons;
+
+  @Label("Swaps")
+  long swaps;
+
+  @Label("Moves")
+  long moves;
+
+  @Label("Merges")
+  long merges;
+
+  @Label("Max Depth")
+  int maxDepth;
+
+  @Label("Scratch")
+  @DataAmount
+  long scratchBytes;
+} // class SortEvent
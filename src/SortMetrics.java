@@ -0,0 +1,95 @@
+/**
+ * What one sort did: how much work, how deep, and how long.
+ *
+ * Comparisons and wall time cover the whole sort.  The other counts come
+ * from SortProbe hooks inside the sorters and only cover work done on the
+ * thread that called sort.
+ *
+ * @author Wenfei Lin
+ */
+public class SortMetrics {
+
+  // +--------+------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /**
+   * The name of the sorter.
+   */
+  public final String sorter;
+
+  /**
+   * The number of elements sorted.
+   */
+  public final int length;
+
+  /**
+   * Calls to the comparator.
+   */
+  public long comparisons;
+
+  /**
+   * Calls to Utils.swap.
+   */
+  public long swaps;
+
+  /**
+   * Elements written by merges, insertion shifts, and swaps (two each).
+   */
+  public long moves;
+
+  /**
+   * Merges of two runs.
+   */
+  public long merges;
+
+  /**
+   * The deepest level of recursion reached.
+   */
+  public int maxDepth;
+
+  /**
+   * Bytes allocated on the sorting thread during the sort, which is
+   * mostly merge scratch space.
+   */
+  public long scratchBytes;
+
+  /**
+   * Wall-clock time of the sort, in nanoseconds.
+   */
+  public long nanos;
+
+  // The current level of recursion
+  int depth;
+
+  // +--------------+------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  /**
+   * Create empty metrics for a sort.
+   *
+   * @param sorter The name of the sorter.
+   * @param length The number of elements being sorted.
+   */
+  public SortMetrics(String sorter, int length) {
+    this.sorter = sorter;
+    this.length = length;
+  } // SortMetrics(String, int)
+
+  // +---------+-----------------------------------------------------
+  // | Methods |
+  // +---------+
+
+  @Override
+  public String toString() {
+    return this.sorter + ": n=" + this.length
+        + " comparisons=" + this.comparisons
+        + " swaps=" + this.swaps
+        + " moves=" + this.moves
+        + " merges=" + this.merges
+        + " maxDepth=" + this.maxDepth
+        + " scratchBytes=" + this.scratchBytes
+        + " nanos=" + this.nanos;
+  } // toString()
+} // class SortMetrics
@@ -0,0 +1,171 @@
+/**
+ * Hooks the sorters call to report their work to a MeteredSorter.
+ *
+ * While no metered sort is running, every hook is a single read of a
+ * static boolean.  While one is, hooks on the metered thread add to its
+ * SortMetrics and hooks on other threads do nothing.
+ *
+ * @author Wenfei Lin
+ */
+public class SortProbe {
+
+  // +---------+-----------------------------------------------------
+  // | Globals |
+  // +---------+
+
+  // Whether any metered sort is running
+  static boolean enabled = false;
+
+  // The number of metered sorts running, across threads
+  private static int active = 0;
+
+  // The metrics of the metered sort running on each thread, if any
+  private static final ThreadLocal<Metered> CURRENT = new ThreadLocal<>();
+
+  // +-------------+-------------------------------------------------
+  // | Constructor |
+  // +-------------+
+
+  private SortProbe() {
+  } // SortProbe()
+
+  // +---------+-----------------------------------------------------
+  // | Control |
+  // +---------+
+
+  /**
+   * Start sending this thread's hooks to metrics and sink.
+   *
+   * @return Whatever was being metered on this thread before, to be
+   *         passed to end.
+   */
+  static Object begin(SortMetrics metrics, MetricsSink sink) {
+    Metered previous = CURRENT.get();
+    CURRENT.set(new Metered(metrics, sink));
+    synchronized (SortProbe.class) {
+      active++;
+      enabled = true;
+    } // synchronized
+    return previous;
+  } // begin(SortMetrics, MetricsSink)
+
+  /**
+   * Stop metering this thread's sort.
+   *
+   * @param previous The value returned by the matching begin.
+   */
+  static void end(Object previous) {
+    CURRENT.set((Metered) previous);
+    synchronized (SortProbe.class) {
+      active--;
+      enabled = active > 0;
+    } // synchronized
+  } // end(Object)
+
+  // +-------+-------------------------------------------------------
+  // | Hooks |
+  // +-------+
+
+  /**
+   * Record a call to Utils.swap.
+   */
+  static void swap() {
+    if (enabled) {
+      SortMetrics m = metrics();
+      if (m != null) {
+        m.swaps++;
+        m.moves += 2;
+      } // if
+    } // if
+  } // swap()
+
+  /**
+   * Record elements written outside of swaps.
+   *
+   * @param count The number of elements written.
+   */
+  static void moves(long count) {
+    if (enabled) {
+      SortMetrics m = metrics();
+      if (m != null) {
+        m.moves += count;
+      } // if
+    } // if
+  } // moves(long)
+
+  /**
+   * Record a merge of values[left..mid) and values[mid..right), and send
+   * a debug message about it to the sink if the sink wants one.
+   *
+   * @param left The start (inclusive) of the first run.
+   * @param mid The start of the second run.
+   * @param right The end (exclusive) of the second run.
+   */
+  static void merge(int left, int mid, int right) {
+    if (enabled) {
+      Metered current = CURRENT.get();
+      if (current != null) {
+        current.metrics.merges++;
+        current.metrics.moves += right - left;
+        if (current.debug) {
+          current.sink.debug("Merge called with left=" + left + ", mid="
+              + mid + ", right=" + right);
+        } // if
+      } // if
+    } // if
+  } // merge(int, int, int)
+
+  /**
+   * Record entering one more level of recursion.
+   */
+  static void enter() {
+    if (enabled) {
+      SortMetrics m = metrics();
+      if (m != null) {
+        m.depth++;
+        m.maxDepth = Math.max(m.maxDepth, m.depth);
+      } // if
+    } // if
+  } // enter()
+
+  /**
+   * Record leaving a level of recursion.
+   */
+  static void exit() {
+    if (enabled) {
+      SortMetrics m = metrics();
+      if (m != null) {
+        m.depth--;
+      } // if
+    } // if
+  } // exit()
+
+  /**
+   * Get the metrics of this thread's metered sort, if any.
+   */
+  private static SortMetrics metrics() {
+    Metered current = CURRENT.get();
+    return (current == null) ? null : current.metrics;
+  } // metrics()
+
+  // +---------------+-----------------------------------------------
+  // | Inner Classes |
+  // +---------------+
+
+  /**
+   * A metered sort in progress.
+   */
+  private static class Metered {
+    final SortMetrics metrics;
+    final MetricsSink sink;
+
+    // Whether the sink wants debug messages, asked once per sort
+    final boolean debug;
+
+    Metered(SortMetrics metrics, MetricsSink sink) {
+      this.metrics = metrics;
+      this.sink = sink;
+      this.debug = sink.wantsDebug();
+    } // Metered(SortMetrics, MetricsSink)
+  } // class Metered
+} // class SortProbe
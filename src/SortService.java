@@ -0,0 +1,424 @@
+import java.util.Comparator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Run many independent sort jobs concurrently.  Small jobs go to one
+ * executor and large ones to a ForkJoinPool, where they are sorted by
+ * ParallelMergeSort, so a burst of large jobs cannot hold up the small
+ * ones.
+ *
+ * Admission is bounded by a budget of elements: a job waits (submit) or
+ * is refused (trySubmit) while the elements of the jobs already admitted
+ * and not yet finished would exceed it.  Waiting submitters are admitted
+ * in arrival order.
+ *
+ * Every job's latency, from submission to completion, and the number of
+ * jobs waiting to start when each job is admitted, are recorded in
+ * histograms.  A job waits to start from the moment its submitter asks
+ * for room, so submitters blocked on the budget count toward the depth.
+ *
+ * @author Wenfei Lin
+ */
+public class SortService implements AutoCloseable {
+
+  // +-----------+---------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  // Jobs at least this long are large by default
+  static final int DEFAULT_LARGE_THRESHOLD = 1 << 16;
+
+  // Elements admitted at once by default
+  static final int DEFAULT_BUDGET = 1 << 24;
+
+  // +--------+------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /**
+   * Where small jobs run.
+   */
+  private final ExecutorService small;
+
+  /**
+   * Where large jobs run.
+   */
+  private final ForkJoinPool large;
+
+  /**
+   * How large jobs are sorted when there is no hint.
+   */
+  private final Sorter largeSorter;
+
+  /**
+   * The length at which a job is large.
+   */
+  private final int largeThreshold;
+
+  /**
+   * The most elements admitted at once.
+   */
+  private final int budget;
+
+  /**
+   * One permit per element of budget, handed out in arrival order.
+   */
+  private final Semaphore permits;
+
+  /**
+   * The number of jobs admitted but not yet started.
+   */
+  private final AtomicInteger waiting = new AtomicInteger();
+
+  /**
+   * The number of submitters waiting for room in the budget.
+   */
+  private final AtomicInteger blocked = new AtomicInteger();
+
+  /**
+   * Nanoseconds from submission to completion of each job.
+   */
+  private final Histogram latency = new Histogram();
+
+  /**
+   * The number of jobs waiting to start, admitted or blocked on the
+   * budget, as each job is admitted.
+   */
+  private final Histogram queueDepth = new Histogram();
+
+  /**
+   * Whether close has been called.
+   */
+  private volatile boolean closed = false;
+
+  // +--------------+------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  /**
+   * Create a service with a thread per core for each kind of job and the
+   * default threshold and budget.
+   */
+  public SortService() {
+    this(Runtime.getRuntime().availableProcessors(),
+        DEFAULT_LARGE_THRESHOLD, DEFAULT_BUDGET);
+  } // SortService()
+
+  /**
+   * Create a service with its own threads.
+   *
+   * @param threads The number of threads for each kind of job.
+   * @param largeThreshold The length at which a job is large.
+   * @param budget The most elements admitted at once.
+   */
+  public SortService(int threads, int largeThreshold, int budget) {
+    this(Executors.newFixedThreadPool(threads), new ForkJoinPool(threads),
+        largeThreshold, budget);
+  } // SortService(int, int, int)
+
+  /**
+   * Create a service that runs in the given executors, which it shuts
+   * down when closed.  On a JDK with virtual threads, small may be a
+   * thread-per-task executor.
+   *
+   * @param small Where small jobs run.
+   * @param large Where large jobs run.
+   * @param largeThreshold The length at which a job is large.
+   * @param budget The most elements admitted at once.
+   * @pre largeThreshold >= 1 and budget >= 1.
+   */
+  SortService(ExecutorService small, ForkJoinPool large, int largeThreshold,
+      int budget) {
+    if (largeThreshold < 1 || budget < 1) {
+      throw new IllegalArgumentException(
+          "threshold and budget must be positive");
+    } // if
+    this.small = small;
+    this.large = large;
+    this.largeSorter =
+        new ParallelMergeSort(large, ParallelMergeSort.DEFAULT_GRAIN);
+    this.largeThreshold = largeThreshold;
+    this.budget = budget;
+    this.permits = new Semaphore(budget, true);
+  } // SortService(ExecutorService, ForkJoinPool, int, int)
+
+  // +---------+-----------------------------------------------------
+  // | Methods |
+  // +---------+
+
+  /**
+   * Sort an array in the background, waiting for room in the budget.
+   *
+   * @param values The array to sort.
+   * @param order The comparator that determines the order.
+   * @param hint The sorter to use, or null to let the service choose.
+   * @return A future completed with values once it is sorted, or with
+   *         whatever the sort threw.
+   * @throws InterruptedException If interrupted while waiting for room.
+   * @throws RejectedExecutionException If the service is closed.
+   */
+  public <T> CompletableFuture<T[]> submit(T[] values,
+      Comparator<? super T> order, Sorter hint) throws InterruptedException {
+    long submitted = System.nanoTime();
+    int cost = cost(values);
+    checkOpen();
+    this.blocked.incrementAndGet();
+    try {
+      this.permits.acquire(cost);
+    } finally {
+      this.blocked.decrementAndGet();
+    } // try/finally
+    return start(values, order, hint, cost, submitted);
+  } // submit(T[], Comparator<? super T>, Sorter)
+
+  /**
+   * Sort an array in the background with a sorter of the service's
+   * choosing, waiting for room in the budget.
+   *
+   * @see #submit(Object[], Comparator, Sorter)
+   */
+  public <T> CompletableFuture<T[]> submit(T[] values,
+      Comparator<? super T> order) throws InterruptedException {
+    return submit(values, order, null);
+  } // submit(T[], Comparator<? super T>)
+
+  /**
+   * Sort an array in the background if there is room in the budget now.
+   *
+   * @param values The array to sort.
+   * @param order The comparator that determines the order.
+   * @param hint The sorter to use, or null to let the service choose.
+   * @return A future as submit returns, or null if there was no room.
+   * @throws RejectedExecutionException If the service is closed.
+   */
+  public <T> CompletableFuture<T[]> trySubmit(T[] values,
+      Comparator<? super T> order, Sorter hint) {
+    long submitted = System.nanoTime();
+    int cost = cost(values);
+    checkOpen();
+    if (!this.permits.tryAcquire(cost)) {
+      return null;
+    } // if
+    return start(values, order, hint, cost, submitted);
+  } // trySubmit(T[], Comparator<? super T>, Sorter)
+
+  /**
+   * Get the latencies, in nanoseconds, of the jobs completed so far.
+   */
+  public Histogram latency() {
+    return this.latency;
+  } // latency()
+
+  /**
+   * Get the queue depths seen by the jobs admitted so far.
+   */
+  public Histogram queueDepth() {
+    return this.queueDepth;
+  } // queueDepth()
+
+  /**
+   * Get the number of jobs admitted but not yet started.
+   */
+  public int waiting() {
+    return this.waiting.get();
+  } // waiting()
+
+  /**
+   * Get the number of submitters waiting for room in the budget.
+   */
+  public int blocked() {
+    return this.blocked.get();
+  } // blocked()
+
+  /**
+   * Refuse new jobs, let the admitted ones finish, and shut down the
+   * executors.  If interrupted while waiting for the jobs, stop waiting
+   * and return with the interrupt flag set; the jobs still finish.
+   */
+  @Override
+  public void close() {
+    this.closed = true;
+    this.small.shutdown();
+    this.large.shutdown();
+    try {
+      this.small.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+      this.large.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } // try/catch
+  } // close()
+
+  /**
+   * Run an admitted job on the executor for its size.
+   */
+  private <T> CompletableFuture<T[]> start(T[] values,
+      Comparator<? super T> order, Sorter hint, int cost, long submitted) {
+    CompletableFuture<T[]> result = new CompletableFuture<T[]>();
+    boolean isLarge = values.length >= this.largeThreshold;
+    Sorter sorter = (hint != null) ? hint
+        : isLarge ? this.largeSorter : AdaptiveSorter.SORTER;
+    this.queueDepth.record(this.waiting.incrementAndGet()
+        + this.blocked.get());
+
+    Runnable job = () -> {
+      this.waiting.decrementAndGet();
+      try {
+        sorter.sort(values, order);
+        finish(cost, submitted);
+        result.complete(values);
+      } catch (Throwable t) {
+        finish(cost, submitted);
+        result.completeExceptionally(t);
+      } // try/catch
+    };
+    try {
+      if (isLarge) {
+        this.large.execute(job);
+      } else {
+        this.small.execute(job);
+      } // if/else
+    } catch (RejectedExecutionException e) {
+      // Closed between checkOpen and here
+      this.waiting.decrementAndGet();
+      this.permits.release(cost);
+      throw e;
+    } // try/catch
+    return result;
+  } // start(T[], Comparator<? super T>, Sorter, int, long)
+
+  /**
+   * Record a finished job and give back its share of the budget.
+   */
+  private void finish(int cost, long submitted) {
+    this.latency.record(System.nanoTime() - submitted);
+    this.permits.release(cost);
+  } // finish(int, long)
+
+  /**
+   * Find how much of the budget a job takes.  A job larger than the
+   * whole budget takes all of it, so it runs alone rather than never.
+   */
+  private int cost(Object[] values) {
+    return Math.max(1, Math.min(values.length, this.budget));
+  } // cost(Object[])
+
+  /**
+   * Make sure the service is still taking jobs.
+   */
+  private void checkOpen() {
+    if (this.closed) {
+      throw new RejectedExecutionException("SortService is closed");
+    } // if
+  } // checkOpen()
+
+  // +---------------+-----------------------------------------------
+  // | Inner Classes |
+  // +---------------+
+
+  /**
+   * Counts of non-negative values in buckets that are within 1/8 of
+   * each other: one per value below 8, then eight per power of two.
+   * Recording is lock-free.
+   */
+  public static class Histogram {
+
+    // Sub-buckets per power of two, as a shift
+    static final int SUB_BITS = 3;
+
+    // Enough buckets for every non-negative long
+    static final int BUCKETS = (Long.SIZE - SUB_BITS) << SUB_BITS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    /**
+     * Count one value.
+     *
+     * @param value The value.
+     * @pre value >= 0.
+     */
+    public void record(long value) {
+      this.counts.incrementAndGet(bucket(Math.max(0, value)));
+    } // record(long)
+
+    /**
+     * Get the number of values recorded.
+     */
+    public long count() {
+      long total = 0;
+      for (int b = 0; b < BUCKETS; b++) {
+        total += this.counts.get(b);
+      } // for
+      return total;
+    } // count()
+
+    /**
+     * Estimate a percentile of the values recorded.
+     *
+     * @param percent The percentile, from 0 to 100.
+     * @return The smallest value of the bucket that holds the percentile,
+     *         or 0 if nothing has been recorded.
+     */
+    public long percentile(double percent) {
+      long total = count();
+      long rank = (long) Math.ceil(total * percent / 100.0);
+      long seen = 0;
+      for (int b = 0; b < BUCKETS; b++) {
+        seen += this.counts.get(b);
+        if (seen >= Math.max(1, rank)) {
+          return lowest(b);
+        } // if
+      } // for
+      return 0;
+    } // percentile(double)
+
+    /**
+     * Estimate the largest value recorded.
+     */
+    public long max() {
+      for (int b = BUCKETS - 1; b >= 0; b--) {
+        if (this.counts.get(b) != 0) {
+          return lowest(b);
+        } // if
+      } // for
+      return 0;
+    } // max()
+
+    /**
+     * Find the bucket of a value.
+     */
+    static int bucket(long value) {
+      int exp = 63 - Long.numberOfLeadingZeros(value);
+      if (exp < SUB_BITS) {
+        return (int) value;
+      } // if
+      int sub = (int) (value >>> (exp - SUB_BITS)) & ((1 << SUB_BITS) - 1);
+      return ((exp - SUB_BITS + 1) << SUB_BITS) + sub;
+    } // bucket(long)
+
+    /**
+     * Find the smallest value in a bucket.
+     */
+    static long lowest(int bucket) {
+      if (bucket < (1 << SUB_BITS)) {
+        return bucket;
+      } // if
+      int exp = (bucket >>> SUB_BITS) + SUB_BITS - 1;
+      long sub = bucket & ((1 << SUB_BITS) - 1);
+      return ((1L << SUB_BITS) + sub) << (exp - SUB_BITS);
+    } // lowest(int)
+
+    @Override
+    public String toString() {
+      return String.format("count=%d p50=%d p90=%d p99=%d max=%d", count(),
+          percentile(50), percentile(90), percentile(99), max());
+    } // toString()
+  } // class Histogram
+} // class SortService
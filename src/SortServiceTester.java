@@ -0,0 +1,227 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of SortService.
+ */
+public class SortServiceTester {
+
+  // +-------+-------------------------------------------------------
+  // | Tests |
+  // +-------+
+
+  @Test
+  public void smallAndLargeJobsTest() throws Exception {
+    Random rand = new Random(61);
+    try (SortService service = new SortService(2, 1000, 1 << 20)) {
+      List<Integer[]> expected = new ArrayList<Integer[]>();
+      List<CompletableFuture<Integer[]>> results =
+          new ArrayList<CompletableFuture<Integer[]>>();
+      for (int n : new int[] { 0, 1, 10, 999, 1000, 50_000, 3, 20_000 }) {
+        Integer[] vals = rand.ints(n).boxed().toArray(Integer[]::new);
+        Integer[] sorted = vals.clone();
+        Arrays.sort(sorted);
+        expected.add(sorted);
+        results.add(service.submit(vals, Comparator.naturalOrder()));
+      } // for
+      for (int i = 0; i < results.size(); i++) {
+        assertArrayEquals(expected.get(i), results.get(i).get());
+      } // for
+      assertEquals(results.size(), service.latency().count());
+      assertEquals(results.size(), service.queueDepth().count());
+    } // try
+  } // smallAndLargeJobsTest
+
+  @Test
+  public void hintTest() throws Exception {
+    try (SortService service = new SortService(1, 1000, 1000)) {
+      Integer[] vals = { 3, 1, 2 };
+      Sorter reversing = new Sorter() {
+        public <T> void sort(T[] values, Comparator<? super T> order) {
+          InsertionSort.SORTER.sort(values, order.reversed());
+        } // sort(T[], Comparator<? super T>)
+      };
+      assertSame(vals, service.submit(vals, Integer::compare, reversing)
+          .get());
+      assertArrayEquals(new Integer[] { 3, 2, 1 }, vals);
+    } // try
+  } // hintTest
+
+  @Test
+  public void failureTest() throws Exception {
+    try (SortService service = new SortService(1, 1000, 10)) {
+      Comparator<Integer> broken = (x, y) -> {
+        throw new IllegalStateException("broken");
+      };
+      CompletableFuture<Integer[]> result =
+          service.submit(new Integer[] { 2, 1 }, broken);
+      ExecutionException e =
+          assertThrows(ExecutionException.class, result::get);
+      assertTrue(e.getCause() instanceof IllegalStateException);
+      // The failed job gave back its share of the budget
+      Integer[] zeros = new Integer[10];
+      Arrays.fill(zeros, 0);
+      assertNotNull(service.trySubmit(zeros, broken, InsertionSort.SORTER));
+    } // try
+  } // failureTest
+
+  @Test
+  public void backpressureTest() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    Comparator<Integer> waiting = (x, y) -> {
+      try {
+        release.await();
+      } catch (InterruptedException e) {
+        throw new IllegalStateException(e);
+      } // try/catch
+      return Integer.compare(x, y);
+    };
+    try (SortService service = new SortService(
+        Executors.newFixedThreadPool(2), new ForkJoinPool(1), 1000, 10)) {
+      CompletableFuture<Integer[]> first = service.trySubmit(
+          new Integer[] { 2, 1, 0, 5, 4, 3 }, waiting, null);
+      assertNotNull(first);
+      // 6 of the 10 elements are taken until the first job finishes
+      assertNull(service.trySubmit(new Integer[5], Integer::compare, null));
+      CompletableFuture<Integer[]> fits =
+          service.trySubmit(new Integer[] { 9, 8, 7, 6 }, Integer::compare,
+              null);
+      assertNotNull(fits);
+      assertArrayEquals(new Integer[] { 6, 7, 8, 9 }, fits.get());
+
+      // Too big for the whole budget, so it waits until it can run alone
+      Integer[] huge = new Integer[] { 3, 2, 1, 0, 9, 8, 7, 6, 5, 4, 10 };
+      CompletableFuture<CompletableFuture<Integer[]>> blocked =
+          CompletableFuture.supplyAsync(() -> {
+            try {
+              return service.submit(huge, Integer::compare);
+            } catch (InterruptedException e) {
+              throw new IllegalStateException(e);
+            } // try/catch
+          });
+      Thread.sleep(50);
+      assertTrue(!blocked.isDone());
+      release.countDown();
+      first.get();
+      assertEquals(Integer.valueOf(10), blocked.get().get()[10]);
+    } // try
+  } // backpressureTest
+
+  @Test
+  public void blockedDepthTest() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    Comparator<Integer> waiting = (x, y) -> {
+      try {
+        release.await();
+      } catch (InterruptedException e) {
+        throw new IllegalStateException(e);
+      } // try/catch
+      return Integer.compare(x, y);
+    };
+    try (SortService service = new SortService(
+        Executors.newFixedThreadPool(2), new ForkJoinPool(1), 1000, 10)) {
+      CompletableFuture<Integer[]> first = service.trySubmit(
+          new Integer[] { 2, 1, 0, 5, 4, 3 }, waiting, null);
+      assertNotNull(first);
+      CompletableFuture<CompletableFuture<Integer[]>> second =
+          CompletableFuture.supplyAsync(() -> {
+            try {
+              return service.submit(new Integer[] { 5, 4, 3, 2, 1, 0 },
+                  Integer::compare);
+            } catch (InterruptedException e) {
+              throw new IllegalStateException(e);
+            } // try/catch
+          });
+      while (service.blocked() == 0) {
+        Thread.sleep(1);
+      } // while
+      // trySubmit barges past the blocked submitter, which still counts
+      CompletableFuture<Integer[]> third = service.trySubmit(
+          new Integer[] { 1, 0 }, Integer::compare, null);
+      assertNotNull(third);
+      third.get();
+      long depth = service.queueDepth().max();
+      release.countDown();
+      first.get();
+      second.get().get();
+      assertTrue(depth >= 2);
+      assertEquals(0, service.blocked());
+    } // try
+  } // blockedDepthTest
+
+  @Test
+  public void closedTest() throws Exception {
+    SortService service = new SortService(1, 1000, 1000);
+    CompletableFuture<Integer[]> pending =
+        service.submit(new Integer[] { 2, 1 }, Integer::compare);
+    service.close();
+    assertTrue(pending.isDone());
+    assertThrows(RejectedExecutionException.class,
+        () -> service.submit(new Integer[] { 1 }, Integer::compare));
+  } // closedTest
+
+  @Test
+  public void interruptedCloseTest() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    Comparator<Integer> waiting = (x, y) -> {
+      try {
+        release.await();
+      } catch (InterruptedException e) {
+        throw new IllegalStateException(e);
+      } // try/catch
+      return Integer.compare(x, y);
+    };
+    SortService service = new SortService(1, 1000, 1000);
+    CompletableFuture<Integer[]> pending =
+        service.submit(new Integer[] { 2, 1 }, waiting);
+
+    // close stops waiting for the job and keeps the interrupt
+    Thread.currentThread().interrupt();
+    service.close();
+    assertTrue(Thread.interrupted());
+    assertTrue(!pending.isDone());
+
+    release.countDown();
+    assertArrayEquals(new Integer[] { 1, 2 }, pending.get());
+  } // interruptedCloseTest
+
+  @Test
+  public void histogramTest() {
+    SortService.Histogram hist = new SortService.Histogram();
+    assertEquals(0, hist.percentile(99));
+    for (long v = 1; v <= 1000; v++) {
+      hist.record(v);
+    } // for
+    assertEquals(1000, hist.count());
+    // Buckets are within an eighth of their values
+    assertTrue(Math.abs(hist.percentile(50) - 500) <= 500 / 8);
+    assertTrue(Math.abs(hist.percentile(99) - 990) <= 990 / 8);
+    assertTrue(hist.max() <= 1000 && hist.max() > 1000 - 1000 / 8);
+    for (int b = 0; b < SortService.Histogram.BUCKETS; b++) {
+      long low = SortService.Histogram.lowest(b);
+      assertEquals(b, SortService.Histogram.bucket(low));
+      if (low > 0) {
+        assertEquals(b - 1, SortService.Histogram.bucket(low - 1));
+      } // if
+    } // for
+    assertEquals(SortService.Histogram.BUCKETS - 1,
+        SortService.Histogram.bucket(Long.MAX_VALUE));
+  } // histogramTest
+} // class SortServiceTester
@@ -0,0 +1,790 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Randomized checks of every sorter on many sizes and input shapes.
+ * Each sort is checked for the properties every sort must have (the
+ * output is a permutation of the input, in order), for stability when
+ * the sorter promises it, and for comparison counts and running times
+ * that rule out quadratic behavior when the sorter guarantees O(n log n).
+ * The APIs that sort without being Sorters (KWayMerge, ExternalSorter,
+ * OffHeapSorter, KeySort, and RadixSort on Strings and byte arrays) are
+ * checked the same way, through adapters or against Arrays.sort.
+ *
+ * Among the input shapes is McIlroy's quicksort killer, which builds an
+ * input as a sorter runs by fixing the values of elements only when the
+ * sorter compares them, so that the sorter's pivots are always the
+ * smallest elements.
+ *
+ * Every input is generated from the seed, so a failure reports the seed,
+ * sorter, shape and size to reproduce it.  Sizes go up to 100,000 by
+ * default; run with -Dstress.maxSize=10000000 for production scale, and
+ * with -Dstress.seed=S to try another seed.
+ *
+ * @author Wenfei Lin
+ */
+public class SortStressTester {
+
+  // +-----------+---------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  // The seed every input is generated from
+  static final long SEED = Long.getLong("stress.seed", 20240601L);
+
+  // The largest size tested
+  static final int MAX_SIZE = Integer.getInteger("stress.maxSize", 100_000);
+
+  // Sizes above this are only tested on the cheaper shapes
+  static final int LARGE = 100_000;
+
+  // The sizes tested, up to MAX_SIZE: every small size around the
+  // insertion thresholds, then powers of ten
+  static final int[] SIZES = { 0, 1, 2, 3, 4, 5, 7, 8, 15, 16, 17, 31, 32,
+      33, 63, 64, 65, 100, 127, 128, 129, 1000, 4096, 10_000, 100_000,
+      1_000_000, 10_000_000 };
+
+  // The input shapes
+  static final String[] SHAPES = { "random", "sorted", "reversed", "equal",
+      "few-unique", "sawtooth", "organ-pipe", "mostly-sorted", "killer" };
+
+  // The shapes tested at sizes above LARGE
+  static final List<String> LARGE_SHAPES =
+      List.of("random", "sorted", "few-unique");
+
+  // Comparisons allowed per n log2(n), and per n, for O(n log n) sorters.
+  // Introsort on the killer input levels off near 5.6 n log2(n); a
+  // quadratic sorter passes 100 n log2(n) by n = 4096.
+  static final double COMPARISONS_PER_NLOGN = 8.0;
+  static final double COMPARISONS_PER_N = 32.0;
+
+  // How many sorted chunks the KWayMerge adapters merge
+  static final int MERGE_WAYS = 7;
+
+  // The ExternalSorter adapters' memory budget (1000 records) and fan-in
+  static final long EXTERNAL_BUDGET = 16_000;
+  static final int EXTERNAL_FAN_IN = 4;
+
+  // The prefix every string shares in the radix sort checks with one
+  static final String SHARED_PREFIX = "shared/".repeat(10);
+
+  // Nanoseconds allowed per n log2(n), plus a fixed allowance
+  static final double NANOS_PER_NLOGN = 1000.0;
+  static final long NANOS_FIXED = 500_000_000L;
+
+  // +---------+-----------------------------------------------------
+  // | Sorters |
+  // +---------+
+
+  /**
+   * The comparison sorters tested, including sorters wrapped around the
+   * other APIs that sort.
+   */
+  static final Candidate[] SORTERS = {
+    new Candidate("InsertionSort", InsertionSort.SORTER, true, false, 4096),
+    new Candidate("InsertionSort.PAIR", InsertionSort.PAIR, true, false,
+        4096),
+    new Candidate("MergeSort", MergeSort.SORTER, true, true),
+    new Candidate("MergeSort.POOLED", MergeSort.POOLED, true, true),
+    // Plain quicksort has no guard against bad pivots
+    new Candidate("Quicksort", Quicksort.SORTER, false, false, 4096),
+    new Candidate("Quicksort.INTROSORT", Quicksort.INTROSORT, false, true),
+    new Candidate("Quicksort.THREE_WAY", Quicksort.THREE_WAY, false, true),
+    new Candidate("Quicksort.DUAL_PIVOT", Quicksort.DUAL_PIVOT, false, true),
+    new Candidate("LinWenfeiSort", LinWenfeiSort.SORTER, true, true),
+    new Candidate("LinWenfeiSort.CHUNKED", LinWenfeiSort.CHUNKED, true,
+        true),
+    new Candidate("LinWenfeiSort.POOLED", LinWenfeiSort.POOLED, true, true),
+    new Candidate("InPlaceMergeSort", InPlaceMergeSort.SORTER, true, true),
+    new Candidate("InPlaceMergeSort.IN_PLACE", InPlaceMergeSort.IN_PLACE,
+        true, true),
+    new Candidate("ParallelLinWenfeiSort", ParallelLinWenfeiSort.SORTER,
+        true, true),
+    new Candidate("ParallelMergeSort", ParallelMergeSort.SORTER, true,
+        true),
+    new Candidate("AdaptiveSorter", AdaptiveSorter.SORTER, false, true),
+    new Candidate("AdaptiveSorter.STABLE", AdaptiveSorter.STABLE, true,
+        true),
+    new Candidate("Argsort", new Sorter() {
+      @Override
+      public <T> void sort(T[] values, Comparator<? super T> order) {
+        Argsort.apply(Argsort.argsort(values, order), (Object) values);
+      } // sort(T[], Comparator<? super T>)
+    }, true, true),
+    new Candidate("Selection.partialSort", new Sorter() {
+      @Override
+      public <T> void sort(T[] values, Comparator<? super T> order) {
+        Selection.partialSort(values, values.length, order);
+      } // sort(T[], Comparator<? super T>)
+    }, false, true),
+    new Candidate("StreamingSorter", new Sorter() {
+      @Override
+      public <T> void sort(T[] values, Comparator<? super T> order) {
+        try (StreamingSorter<T> sorter = new StreamingSorter<T>(order)) {
+          // Several batches, so runs are merged too
+          int batch = Math.max(1, values.length / 3);
+          for (int i = 0; i < values.length; i += batch) {
+            sorter.add(Arrays.copyOfRange(values, i,
+                Math.min(values.length, i + batch)));
+          } // for
+          int[] next = new int[1];
+          sorter.spliterator().forEachRemaining(
+              (value) -> values[next[0]++] = value);
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        } // try/catch
+      } // sort(T[], Comparator<? super T>)
+    }, true, true),
+    new Candidate("KeySort.sortByKey", new Sorter() {
+      @Override
+      public <T> void sort(T[] values, Comparator<? super T> order) {
+        KeySort.sortByKey(values, (value) -> value, order);
+      } // sort(T[], Comparator<? super T>)
+    }, true, true),
+    new Candidate("KWayMerge.merge", new Sorter() {
+      @Override
+      public <T> void sort(T[] values, Comparator<? super T> order) {
+        kWayMerge(values, order, "arrays");
+      } // sort(T[], Comparator<? super T>)
+    }, true, true),
+    new Candidate("KWayMerge.parallelMerge", new Sorter() {
+      @Override
+      public <T> void sort(T[] values, Comparator<? super T> order) {
+        kWayMerge(values, order, "parallel");
+      } // sort(T[], Comparator<? super T>)
+    }, true, true),
+    new Candidate("KWayMerge.merge(iterators)", new Sorter() {
+      @Override
+      public <T> void sort(T[] values, Comparator<? super T> order) {
+        kWayMerge(values, order, "iterators");
+      } // sort(T[], Comparator<? super T>)
+    }, true, true),
+    new Candidate("ExternalSorter", new Sorter() {
+      @Override
+      public <T> void sort(T[] values, Comparator<? super T> order) {
+        externalSort(values, order, false);
+      } // sort(T[], Comparator<? super T>)
+    }, true, true),
+    new Candidate("ExternalSorter (compressed)", new Sorter() {
+      @Override
+      public <T> void sort(T[] values, Comparator<? super T> order) {
+        externalSort(values, order, true);
+      } // sort(T[], Comparator<? super T>)
+    }, true, true),
+    new Candidate("OffHeapSorter", new Sorter() {
+      @Override
+      public <T> void sort(T[] values, Comparator<? super T> order) {
+        OffHeapSorter.sort(values, byPosition(values), order,
+            SortStressTester::prefix);
+      } // sort(T[], Comparator<? super T>)
+    }, true, true),
+  };
+
+  /**
+   * The primitive sorters tested.
+   */
+  static final PrimitiveCandidate[] PRIMITIVE_SORTERS = {
+    new PrimitiveCandidate("PrimitiveQuicksort", PrimitiveQuicksort.SORTER,
+        PrimitiveQuicksort.SORTER, PrimitiveQuicksort.SORTER, true,
+        Integer.MAX_VALUE),
+    new PrimitiveCandidate("PrimitiveMergeSort", PrimitiveMergeSort.SORTER,
+        PrimitiveMergeSort.SORTER, PrimitiveMergeSort.SORTER, true,
+        Integer.MAX_VALUE),
+    new PrimitiveCandidate("PrimitiveLinWenfeiSort",
+        PrimitiveLinWenfeiSort.SORTER, PrimitiveLinWenfeiSort.SORTER,
+        PrimitiveLinWenfeiSort.SORTER, true, Integer.MAX_VALUE),
+    new PrimitiveCandidate("RadixSort", RadixSort.SORTER, RadixSort.SORTER,
+        RadixSort.SORTER, true, Integer.MAX_VALUE),
+    new PrimitiveCandidate("RadixSort.WIDE", RadixSort.WIDE, RadixSort.WIDE,
+        RadixSort.WIDE, true, Integer.MAX_VALUE),
+    new PrimitiveCandidate("BranchlessQuicksort",
+        BranchlessQuicksort.SORTER, BranchlessQuicksort.SORTER,
+        BranchlessQuicksort.SORTER, true, Integer.MAX_VALUE),
+  };
+
+  // +-------+-------------------------------------------------------
+  // | Tests |
+  // +-------+
+
+  @Test
+  public void comparisonSortersTest() {
+    for (Candidate candidate : SORTERS) {
+      for (String shape : SHAPES) {
+        for (int n : sizes(candidate.maxSize, shape)) {
+          check(candidate, shape, n);
+        } // for
+      } // for
+    } // for
+  } // comparisonSortersTest
+
+  @Test
+  public void primitiveSortersTest() {
+    for (PrimitiveCandidate candidate : PRIMITIVE_SORTERS) {
+      for (String shape : SHAPES) {
+        if (shape.equals("killer")) {
+          // The killer needs a comparator to adapt to
+          continue;
+        } // if
+        for (int n : sizes(candidate.maxSize, shape)) {
+          check(candidate, shape, n);
+        } // for
+      } // for
+    } // for
+  } // primitiveSortersTest
+
+  @Test
+  public void keySortersTest() {
+    for (String shape : SHAPES) {
+      if (shape.equals("killer")) {
+        continue;
+      } // if
+      for (int n : sizes(Integer.MAX_VALUE, shape)) {
+        checkKeySorts(shape, n);
+      } // for
+    } // for
+  } // keySortersTest
+
+  @Test
+  public void radixSortersTest() {
+    for (RadixSort radix : new RadixSort[] { RadixSort.SORTER,
+        RadixSort.WIDE }) {
+      for (String shape : SHAPES) {
+        if (shape.equals("killer")) {
+          continue;
+        } // if
+        for (int n : sizes(Integer.MAX_VALUE, shape)) {
+          checkRadix(radix, shape, n, "");
+          // Every string shares a long prefix, which the radix sorts
+          // must get through without a level of recursion per char
+          checkRadix(radix, shape, n, SHARED_PREFIX);
+        } // for
+      } // for
+    } // for
+  } // radixSortersTest
+
+  @Test
+  public void killerDefeatsPlainQuicksortTest() {
+    // The harness would catch a quadratic sorter: the killer makes plain
+    // quicksort compare far more than an O(n log n) sorter may
+    int n = 4096;
+    Integer[] input = killer(Quicksort.SORTER, n);
+    long comparisons = countComparisons(Quicksort.SORTER, input);
+    assertTrue(comparisons > comparisonLimit(n),
+        "killer gave only " + comparisons + " comparisons");
+  } // killerDefeatsPlainQuicksortTest
+
+  @Test
+  public void shapesAreReproducibleTest() {
+    for (String shape : SHAPES) {
+      if (!shape.equals("killer")) {
+        assertArrayEquals(keys(shape, 1000, random(shape, 1000)),
+            keys(shape, 1000, random(shape, 1000)), shape);
+      } // if
+    } // for
+    assertArrayEquals(killer(Quicksort.INTROSORT, 1000),
+        killer(Quicksort.INTROSORT, 1000));
+  } // shapesAreReproducibleTest
+
+  // +--------+------------------------------------------------------
+  // | Checks |
+  // +--------+
+
+  /**
+   * Sort one input with a comparison sorter and check the result.
+   */
+  static void check(Candidate candidate, String shape, int n) {
+    String where = describe(candidate.name, shape, n);
+    int[] keys = shape.equals("killer")
+        ? toInts(killer(candidate.sorter, n))
+        : keys(shape, n, random(shape, n));
+
+    Tagged[] vals = new Tagged[n];
+    for (int i = 0; i < n; i++) {
+      vals[i] = new Tagged(keys[i], i);
+    } // for
+    long[] comparisons = new long[1];
+    long start = System.nanoTime();
+    candidate.sorter.sort(vals, (x, y) -> {
+      comparisons[0]++;
+      return Integer.compare(x.key, y.key);
+    });
+    long elapsed = System.nanoTime() - start;
+
+    // A permutation: every tag once, with its own key
+    boolean[] seen = new boolean[n];
+    for (int i = 0; i < n; i++) {
+      Tagged t = vals[i];
+      if (t == null || seen[t.tag] || keys[t.tag] != t.key) {
+        fail(where + ": not a permutation at " + i);
+      } // if
+      seen[t.tag] = true;
+    } // for
+    for (int i = 1; i < n; i++) {
+      if (vals[i - 1].key > vals[i].key) {
+        fail(where + ": out of order at " + i);
+      } else if (candidate.stable && vals[i - 1].key == vals[i].key
+          && vals[i - 1].tag > vals[i].tag) {
+        fail(where + ": equal keys out of order at " + i);
+      } // if
+    } // for
+
+    if (candidate.guaranteed) {
+      assertTrue(comparisons[0] <= comparisonLimit(n),
+          where + ": " + comparisons[0] + " comparisons");
+      assertTrue(elapsed <= timeLimit(n), where + ": " + elapsed + " ns");
+    } // if
+  } // check(Candidate, String, int)
+
+  /**
+   * Sort one input, as ints, longs and doubles, with a primitive sorter
+   * and check the result against Arrays.sort.
+   */
+  static void check(PrimitiveCandidate candidate, String shape, int n) {
+    String where = describe(candidate.name, shape, n);
+    int[] keys = keys(shape, n, random(shape, n));
+
+    int[] ints = keys.clone();
+    int[] expectedInts = keys.clone();
+    Arrays.sort(expectedInts);
+    long start = System.nanoTime();
+    candidate.ints.sort(ints);
+    long elapsed = System.nanoTime() - start;
+    assertArrayEquals(expectedInts, ints, where + " (int)");
+
+    // Spread the keys over the whole range of longs
+    long[] longs = new long[n];
+    for (int i = 0; i < n; i++) {
+      longs[i] = (long) keys[i] * 0x9E3779B97F4A7C15L;
+    } // for
+    long[] expectedLongs = longs.clone();
+    Arrays.sort(expectedLongs);
+    candidate.longs.sort(longs);
+    assertArrayEquals(expectedLongs, longs, where + " (long)");
+
+    // Halves, so there are fractions, with NaNs and both zeros mixed in
+    double[] doubles = new double[n];
+    for (int i = 0; i < n; i++) {
+      doubles[i] = (keys[i] % 97 == 0) ? Double.NaN
+          : (keys[i] % 89 == 0) ? -0.0
+          : keys[i] / 2.0;
+    } // for
+    double[] expectedDoubles = doubles.clone();
+    Arrays.sort(expectedDoubles);
+    candidate.doubles.sort(doubles);
+    assertArrayEquals(expectedDoubles, doubles, where + " (double)");
+
+    if (candidate.guaranteed) {
+      assertTrue(elapsed <= timeLimit(n), where + ": " + elapsed + " ns");
+    } // if
+  } // check(PrimitiveCandidate, String, int)
+
+  /**
+   * Sort one input by int and by long keys with KeySort and check the
+   * result against a stable sort by key.
+   */
+  static void checkKeySorts(String shape, int n) {
+    String where = describe("KeySort", shape, n);
+    int[] keys = keys(shape, n, random(shape, n));
+    Tagged[] expected = new Tagged[n];
+    for (int i = 0; i < n; i++) {
+      expected[i] = new Tagged(keys[i], i);
+    } // for
+    Tagged[] byInt = expected.clone();
+    Tagged[] byLong = expected.clone();
+    MergeSort.SORTER.sort(expected, (x, y) -> Integer.compare(x.key, y.key));
+
+    long start = System.nanoTime();
+    KeySort.sortByIntKey(byInt, (t) -> t.key);
+    long elapsed = System.nanoTime() - start;
+    assertArrayEquals(expected, byInt, where + " (int)");
+    assertTrue(elapsed <= timeLimit(n), where + ": " + elapsed + " ns");
+
+    // Spread the keys over the whole range of longs, in the same order
+    KeySort.sortByLongKey(byLong, (t) -> t.key * 0x1_0000_0001L);
+    assertArrayEquals(expected, byLong, where + " (long)");
+  } // checkKeySorts(String, int)
+
+  /**
+   * Sort one input as Strings and as byte arrays with a RadixSort and
+   * check the result against Arrays.sort, which is stable, so arrays with
+   * the same bytes must come out in the same order.
+   */
+  static void checkRadix(RadixSort radix, String shape, int n,
+      String prefix) {
+    String where = describe("RadixSort", shape, n)
+        + ((prefix.isEmpty()) ? "" : " with a shared prefix");
+    int[] keys = keys(shape, n, random(shape, n));
+
+    String[] strings = new String[n];
+    for (int i = 0; i < n; i++) {
+      // Varying lengths, and chars past Latin-1 for some keys
+      strings[i] = prefix + Integer.toString(keys[i], 36)
+          + ((keys[i] % 7 == 0) ? "\u0391" : "");
+    } // for
+    String[] expectedStrings = strings.clone();
+    Arrays.sort(expectedStrings);
+    long start = System.nanoTime();
+    radix.sort(strings);
+    long elapsed = System.nanoTime() - start;
+    assertArrayEquals(expectedStrings, strings, where + " (String)");
+    assertTrue(elapsed <= timeLimit(n), where + ": " + elapsed + " ns");
+
+    byte[][] bytes = new byte[n][];
+    for (int i = 0; i < n; i++) {
+      bytes[i] = strings[i].getBytes(StandardCharsets.UTF_8);
+    } // for
+    byte[][] expectedBytes = bytes.clone();
+    Arrays.sort(expectedBytes, Arrays::compareUnsigned);
+    start = System.nanoTime();
+    radix.sort(bytes);
+    elapsed = System.nanoTime() - start;
+    // The same arrays, not just equal ones, so equal bytes kept order
+    for (int i = 0; i < n; i++) {
+      assertSame(expectedBytes[i], bytes[i], where + " (byte[]) at " + i);
+    } // for
+    assertTrue(elapsed <= timeLimit(n), where + ": " + elapsed + " ns");
+  } // checkRadix(RadixSort, String, int, String)
+
+  /**
+   * Describe a case well enough to run it again.
+   */
+  static String describe(String sorter, String shape, int n) {
+    return sorter + " on " + n + " " + shape + " elements (-Dstress.seed="
+        + SEED + ")";
+  } // describe(String, String, int)
+
+  /**
+   * The most comparisons an O(n log n) sorter may make on n elements.
+   */
+  static long comparisonLimit(int n) {
+    return (long) (COMPARISONS_PER_NLOGN * n * log2(n)
+        + COMPARISONS_PER_N * n);
+  } // comparisonLimit(int)
+
+  /**
+   * The longest an O(n log n) sorter may take on n elements.
+   */
+  static long timeLimit(int n) {
+    return (long) (NANOS_PER_NLOGN * n * log2(n)) + NANOS_FIXED;
+  } // timeLimit(int)
+
+  static double log2(int n) {
+    return Math.log(Math.max(2, n)) / Math.log(2);
+  } // log2(int)
+
+  // +----------+----------------------------------------------------
+  // | Adapters |
+  // +----------+
+
+  /**
+   * Sort by cutting the array into uneven chunks, sorting each, and
+   * merging them with KWayMerge: as arrays ("arrays"), as arrays in
+   * parallel pieces ("parallel"), or as iterators ("iterators").
+   */
+  @SuppressWarnings("unchecked")
+  static <T> void kWayMerge(T[] values, Comparator<? super T> order,
+      String how) {
+    int k = Math.min(MERGE_WAYS, values.length + 1);
+    T[][] chunks = (T[][]) new Object[k][];
+    int from = 0;
+    for (int c = 0; c < k; c++) {
+      // Chunk c gets a share proportional to c + 1, the last the rest
+      int to = (c == k - 1) ? values.length
+          : from + (int) ((long) values.length * 2 * (c + 1) / (k * (k + 1)));
+      chunks[c] = Arrays.copyOfRange(values, from, to);
+      LinWenfeiSort.SORTER.sort(chunks[c], order);
+      from = to;
+    } // for
+
+    T[] merged;
+    switch (how) {
+      case "arrays":
+        merged = KWayMerge.merge(chunks, order);
+        break;
+      case "parallel":
+        // A low threshold, so even small inputs are cut into pieces
+        merged = KWayMerge.parallelMerge(chunks, order,
+            ForkJoinPool.commonPool(), 2);
+        break;
+      default:
+        List<Iterator<T>> sources = new ArrayList<Iterator<T>>();
+        for (T[] chunk : chunks) {
+          sources.add(Arrays.asList(chunk).iterator());
+        } // for
+        merged = (T[]) new Object[values.length];
+        Iterator<T> it = KWayMerge.merge(sources, order);
+        for (int i = 0; it.hasNext(); i++) {
+          merged[i] = it.next();
+        } // for
+    } // switch
+    System.arraycopy(merged, 0, values, 0, values.length);
+  } // kWayMerge(T[], Comparator<? super T>, String)
+
+  /**
+   * Sort with an ExternalSorter whose budget is small enough that inputs
+   * of more than a few thousand elements spill many runs and take more
+   * than one merge pass.  The run files go in a fresh directory, which
+   * must be empty again afterwards.
+   */
+  static <T> void externalSort(T[] values, Comparator<? super T> order,
+      boolean compress) {
+    try {
+      Path dir = Files.createTempDirectory("stress");
+      ExternalSorter<T> sorter = new ExternalSorter<T>(byPosition(values),
+          order, EXTERNAL_BUDGET, EXTERNAL_FAN_IN, compress, dir);
+      List<T> input = Arrays.asList(values.clone());
+      int[] next = new int[1];
+      sorter.sort(input.iterator(), (value) -> values[next[0]++] = value);
+      Files.delete(dir);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    } // try/catch
+  } // externalSort(T[], Comparator<? super T>, boolean)
+
+  /**
+   * A codec that writes each value as its position in values, and reads
+   * the value at that position back, so any array can be written to run
+   * files or an arena however its elements are typed.
+   */
+  static <T> RecordCodec<T> byPosition(T[] values) {
+    T[] original = values.clone();
+    Map<T, Integer> positions = new IdentityHashMap<T, Integer>();
+    for (int i = 0; i < original.length; i++) {
+      positions.put(original[i], i);
+    } // for
+    return new RecordCodec<T>() {
+      @Override
+      public void write(T value, DataOutput out) throws IOException {
+        out.writeInt(positions.get(value));
+      } // write(T, DataOutput)
+
+      @Override
+      public T read(DataInput in) throws IOException {
+        return original[in.readInt()];
+      } // read(DataInput)
+
+      @Override
+      public long memorySize(T value) {
+        return 16;
+      } // memorySize(T)
+    };
+  } // byPosition(T[])
+
+  /**
+   * The OffHeapSorter prefix of a value: its key, for the Tagged values
+   * that check sorts by key, and a constant (so every comparison falls
+   * back to the order) for anything else.
+   */
+  static long prefix(Object value) {
+    return (value instanceof Tagged)
+        ? OffHeapSorter.longPrefix(((Tagged) value).key)
+        : 0;
+  } // prefix(Object)
+
+  // +--------+------------------------------------------------------
+  // | Inputs |
+  // +--------+
+
+  /**
+   * Get the sizes to test a sorter on with a shape.
+   */
+  static int[] sizes(int maxSize, String shape) {
+    return Arrays.stream(SIZES)
+        .filter((n) -> n <= MAX_SIZE && n <= maxSize)
+        .filter((n) -> n <= LARGE || LARGE_SHAPES.contains(shape))
+        .toArray();
+  } // sizes(int, String)
+
+  /**
+   * Get the source of randomness for one input, which depends only on
+   * the seed, the shape and the size.
+   */
+  static Random random(String shape, int n) {
+    return new Random(SEED * 31 + shape.hashCode() * 1_000_003L + n);
+  } // random(String, int)
+
+  /**
+   * Generate n keys of a shape.
+   */
+  static int[] keys(String shape, int n, Random rand) {
+    int[] keys = new int[n];
+    for (int i = 0; i < n; i++) {
+      switch (shape) {
+        case "random":
+          keys[i] = rand.nextInt();
+          break;
+        case "sorted":
+          keys[i] = i;
+          break;
+        case "reversed":
+          keys[i] = n - i;
+          break;
+        case "equal":
+          keys[i] = 42;
+          break;
+        case "few-unique":
+          keys[i] = rand.nextInt(4);
+          break;
+        case "sawtooth":
+          keys[i] = i % 97;
+          break;
+        case "organ-pipe":
+          keys[i] = Math.min(i, n - i);
+          break;
+        case "mostly-sorted":
+          keys[i] = i;
+          break;
+        default:
+          throw new IllegalArgumentException("Unknown shape: " + shape);
+      } // switch
+    } // for
+    if (shape.equals("mostly-sorted")) {
+      for (int s = 0; s < n / 100 + 1 && n > 1; s++) {
+        int i = rand.nextInt(n);
+        int j = rand.nextInt(n);
+        int tmp = keys[i];
+        keys[i] = keys[j];
+        keys[j] = tmp;
+      } // for
+    } // if
+    return keys;
+  } // keys(String, int, Random)
+
+  /**
+   * Build an input that is as bad as possible for a sorter with
+   * McIlroy's adversary: every element starts as "gas", greater than any
+   * value yet given out, and is frozen to the next smallest value only
+   * when the sorter compares it with another gas element.  The element
+   * that looks like a pivot is kept as gas for as long as possible.
+   *
+   * @param sorter The sorter to defeat.
+   * @param n The size of the input.
+   * @return The values, a permutation of 0 .. n - 1.
+   */
+  static Integer[] killer(Sorter sorter, int n) {
+    int[] val = new int[n];
+    Arrays.fill(val, n);
+    int[] state = { 0, -1 };
+    Integer[] indices = new Integer[n];
+    for (int i = 0; i < n; i++) {
+      indices[i] = i;
+    } // for
+    sorter.sort(indices, (x, y) -> {
+      if (val[x] == n && val[y] == n) {
+        val[(x == state[1]) ? x : y] = state[0]++;
+      } // if
+      if (val[x] == n) {
+        state[1] = x;
+      } else if (val[y] == n) {
+        state[1] = y;
+      } // if
+      return Integer.compare(val[x], val[y]);
+    });
+
+    Integer[] input = new Integer[n];
+    for (int i = 0; i < n; i++) {
+      input[i] = (val[i] == n) ? state[0]++ : val[i];
+    } // for
+    return input;
+  } // killer(Sorter, int)
+
+  /**
+   * Count the comparisons a sorter makes on a copy of input.
+   */
+  static long countComparisons(Sorter sorter, Integer[] input) {
+    long[] count = new long[1];
+    sorter.sort(input.clone(), (x, y) -> {
+      count[0]++;
+      return x.compareTo(y);
+    });
+    return count[0];
+  } // countComparisons(Sorter, Integer[])
+
+  static int[] toInts(Integer[] values) {
+    return Arrays.stream(values).mapToInt(Integer::intValue).toArray();
+  } // toInts(Integer[])
+
+  // +---------------+-----------------------------------------------
+  // | Inner Classes |
+  // +---------------+
+
+  /**
+   * A key and the position it started at.
+   */
+  static class Tagged {
+    final int key;
+    final int tag;
+
+    Tagged(int key, int tag) {
+      this.key = key;
+      this.tag = tag;
+    } // Tagged(int, int)
+  } // class Tagged
+
+  /**
+   * A comparison sorter and what it promises.
+   */
+  static class Candidate {
+    final String name;
+    final Sorter sorter;
+    final boolean stable;
+    final boolean guaranteed;
+    final int maxSize;
+
+    Candidate(String name, Sorter sorter, boolean stable,
+        boolean guaranteed) {
+      this(name, sorter, stable, guaranteed, Integer.MAX_VALUE);
+    } // Candidate(String, Sorter, boolean, boolean)
+
+    Candidate(String name, Sorter sorter, boolean stable,
+        boolean guaranteed, int maxSize) {
+      this.name = name;
+      this.sorter = sorter;
+      this.stable = stable;
+      this.guaranteed = guaranteed;
+      this.maxSize = maxSize;
+    } // Candidate(String, Sorter, boolean, boolean, int)
+  } // class Candidate
+
+  /**
+   * A primitive sorter and what it promises.
+   */
+  static class PrimitiveCandidate {
+    final String name;
+    final IntSorter ints;
+    final LongSorter longs;
+    final DoubleSorter doubles;
+    final boolean guaranteed;
+    final int maxSize;
+
+    PrimitiveCandidate(String name, IntSorter ints, LongSorter longs,
+        DoubleSorter doubles, boolean guaranteed, int maxSize) {
+      this.name = name;
+      this.ints = ints;
+      this.longs = longs;
+      this.doubles = doubles;
+      this.guaranteed = guaranteed;
+      this.maxSize = maxSize;
+    } // PrimitiveCandidate(String, IntSorter, LongSorter, ...)
+  } // class PrimitiveCandidate
+} // class SortStressTester
@@ -1,4 +1,11 @@
+import java.util.Collection;
 import java.util.Comparator;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+import java.util.stream.Collector;
+import java.util.stream.Stream;
 
 /**
  * Things that know how to sort homogeneous collections.
@@ -22,4 +29,128 @@ public interface Sorter {
    *      order.compare(vals[i-1], vals[i]) <= 0
    */
   public <T> void sort(T[] values, Comparator<? super T> order);
+
+  /**
+   * Sort an array by a key computed once for each value, rather than
+   * once per comparison.  This sorter orders the values by their cached
+   * keys, so the sort is stable if this sorter is.
+   *
+   * @param values, an array to sort.
+   * @param keyFn, computes the key of a value.
+   * @post
+   *    vals is sorted by the natural order of the keys, and equal keys
+   *    keep their order if this sorter is stable.
+   */
+  public default <T, K extends Comparable<? super K>> void sortByKey(
+      T[] values, Function<? super T, ? extends K> keyFn) {
+    KeySort.sortByKey(this, values, keyFn, Comparator.naturalOrder());
+  } // sortByKey(T[], Function)
+
+  /**
+   * Sort an array by a key computed once for each value.
+   *
+   * @param values, an array to sort.
+   * @param keyFn, computes the key of a value.
+   * @param keyOrder, the order of the keys.
+   * @post
+   *    vals is sorted by keyOrder applied to the keys, and equal keys
+   *    keep their order if this sorter is stable.
+   */
+  public default <T, K> void sortByKey(T[] values,
+      Function<? super T, ? extends K> keyFn, Comparator<? super K> keyOrder) {
+    KeySort.sortByKey(this, values, keyFn, keyOrder);
+  } // sortByKey(T[], Function, Comparator)
+
+  /**
+   * Sort an array by a long key computed once for each value.
+   *
+   * @param values, an array to sort.
+   * @param keyFn, computes the key of a value.
+   * @post
+   *    vals is sorted by ascending key, and equal keys keep their order
+   *    if this sorter is stable.
+   */
+  public default <T> void sortByLongKey(T[] values,
+      ToLongFunction<? super T> keyFn) {
+    KeySort.sortByLongKey(this, values, keyFn);
+  } // sortByLongKey(T[], ToLongFunction)
+
+  /**
+   * Sort an array by an int key computed once for each value.
+   *
+   * @param values, an array to sort.
+   * @param keyFn, computes the key of a value.
+   * @post
+   *    vals is sorted by ascending key, and equal keys keep their order
+   *    if this sorter is stable.
+   */
+  public default <T> void sortByIntKey(T[] values,
+      ToIntFunction<? super T> keyFn) {
+    KeySort.sortByIntKey(this, values, keyFn);
+  } // sortByIntKey(T[], ToIntFunction)
+
+  /**
+   * Sort a list in place.  A SortBuffer is sorted in its backing array;
+   * other lists are copied to an array once and written back.
+   *
+   * @param list, a list to sort, whose set must work.
+   * @param order, the order by which to sort the values.
+   * @post
+   *    list is sorted by order.
+   */
+  public default <T> void sort(List<T> list, Comparator<? super T> order) {
+    CollectionSort.sort(this, list, order);
+  } // sort(List<T>, Comparator<? super T>)
+
+  /**
+   * Sort the elements of any collection into a new list.
+   *
+   * @param values, the collection (not modified).
+   * @param order, the order by which to sort the values.
+   * @return
+   *    A new list of the values, sorted by order.
+   */
+  public default <T> List<T> sortedCopy(Collection<? extends T> values,
+      Comparator<? super T> order) {
+    return CollectionSort.sortedCopy(this, values, order);
+  } // sortedCopy(Collection<? extends T>, Comparator<? super T>)
+
+  /**
+   * Sort the elements of a stream.
+   *
+   * @param stream, the stream, which is consumed.
+   * @param order, the order by which to sort the values.
+   * @return
+   *    A stream of the elements, sorted by order.
+   */
+  public default <T> Stream<T> sorted(Stream<T> stream,
+      Comparator<? super T> order) {
+    return stream.collect(toSortedList(order)).stream();
+  } // sorted(Stream<T>, Comparator<? super T>)
+
+  /**
+   * Collect a stream into a growable buffer and sort it once at the end.
+   *
+   * @param order, the order by which to sort the values.
+   * @return
+   *    A collector of a list of the elements, sorted by order.
+   */
+  public default <T> Collector<T, ?, List<T>> toSortedList(
+      Comparator<? super T> order) {
+    return CollectionSort.toSortedList(this, order);
+  } // toSortedList(Comparator<? super T>)
+
+  /**
+   * Collect a parallel stream by sorting each partition on its own and
+   * merging the partitions as they are combined.
+   *
+   * @param order, the order by which to sort the values.
+   * @return
+   *    A collector of a list of the elements, sorted by order; equal
+   *    elements keep their order if this sorter is stable.
+   */
+  public default <T> Collector<T, ?, List<T>> toSortedListMerging(
+      Comparator<? super T> order) {
+    return CollectionSort.toSortedListMerging(this, order);
+  } // toSortedListMerging(Comparator<? super T>)
 } // interface Sorter
\ No newline at end of file
@@ -0,0 +1,710 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Sort a stream of elements that arrive in batches.  Each batch is sorted
+ * with LinWenfeiSort and kept as a run, and runs are merged with
+ * LinWenfeiSort's galloping merge whenever the newest run is at least as
+ * long as the one before it, so there are only logarithmically many.
+ *
+ * Everything below a watermark can be emitted at any time, and whatever
+ * is left can be read as a Spliterator or a Flow.Publisher.  With a
+ * RecordCodec, the runs in memory are merged and spilled to a file
+ * whenever they hold more than maxBuffered elements.  Spill files are
+ * merged in tiers: every ExternalSorter.DEFAULT_FAN_IN files of one level
+ * become one file of the next, so each element is rewritten only once
+ * per level, logarithmically many times in all.
+ *
+ * The spill files being read by a spliterator, stream or publisher stay
+ * registered with the sorter until they are read to the end, so a reader
+ * that stops early loses nothing: closing the stream, cancelling the
+ * subscription, an exception from the consumer, or closing the sorter
+ * deletes them.
+ *
+ * Elements that compare equal come out in the order they were added.  A
+ * StreamingSorter must not be used by two threads at once.
+ *
+ * @author Wenfei Lin
+ */
+public class StreamingSorter<T> implements AutoCloseable {
+
+  // +--------+------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /**
+   * The order of the elements.
+   */
+  private final Comparator<? super T> order;
+
+  /**
+   * The most elements kept in memory before spilling.
+   */
+  private final long maxBuffered;
+
+  /**
+   * Writes and reads spill files (null to keep everything in memory).
+   */
+  private final ExternalSorter<T> spiller;
+
+  /**
+   * The spilled runs, oldest first; all are older than any run in memory.
+   * Their levels never increase from oldest to newest.
+   */
+  private final List<FileCursor> spilled = new ArrayList<FileCursor>();
+
+  /**
+   * The spilled runs handed to a spliterator or publisher, until close.
+   */
+  private final List<FileCursor> draining = new ArrayList<FileCursor>();
+
+  /**
+   * The runs in memory, oldest first.
+   */
+  private final List<ArrayCursor<T>> runs = new ArrayList<ArrayCursor<T>>();
+
+  /**
+   * The number of elements held in runs.
+   */
+  private long buffered;
+
+  // +--------------+------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  /**
+   * Create a sorter that keeps everything in memory.
+   *
+   * @param order The order of the elements.
+   */
+  public StreamingSorter(Comparator<? super T> order) {
+    this.order = order;
+    this.maxBuffered = Long.MAX_VALUE;
+    this.spiller = null;
+  } // StreamingSorter(Comparator<? super T>)
+
+  /**
+   * Create a sorter that spills to tempDir once it holds more than
+   * maxBuffered elements in memory.
+   *
+   * @param order The order of the elements.
+   * @param maxBuffered The most elements to keep in memory.
+   * @param codec How elements are written to spill files.
+   * @param tempDir Where spill files are created.
+   * @pre maxBuffered > 0.
+   */
+  public StreamingSorter(Comparator<? super T> order, long maxBuffered,
+      RecordCodec<T> codec, Path tempDir) {
+    if (maxBuffered <= 0) {
+      throw new IllegalArgumentException("maxBuffered must be positive");
+    } // if
+    this.order = order;
+    this.maxBuffered = maxBuffered;
+    this.spiller = new ExternalSorter<T>(codec, order, Long.MAX_VALUE,
+        ExternalSorter.DEFAULT_FAN_IN, false, tempDir);
+  } // StreamingSorter(Comparator<? super T>, long, RecordCodec<T>, Path)
+
+  // +---------+-----------------------------------------------------
+  // | Methods |
+  // +---------+
+
+  /**
+   * Add a batch of elements.
+   *
+   * @param batch The elements (the array itself is not kept or changed).
+   * @throws IOException if a spill file cannot be written.
+   */
+  public void add(T[] batch) throws IOException {
+    if (batch.length == 0) {
+      return;
+    } // if
+    T[] run = batch.clone();
+    LinWenfeiSort.SORTER.sort(run, this.order);
+    this.runs.add(new ArrayCursor<T>(run));
+    this.buffered += run.length;
+
+    // Keep the runs in memory decreasing in length
+    int n = this.runs.size();
+    while (n > 1 && this.runs.get(n - 2).remaining()
+        <= this.runs.get(n - 1).remaining()) {
+      mergeLastRuns();
+      n--;
+    } // while
+
+    if (this.buffered > this.maxBuffered) {
+      spill();
+    } // if
+  } // add(T[])
+
+  /**
+   * Add a batch of elements.
+   *
+   * @param batch The elements.
+   * @throws IOException if a spill file cannot be written.
+   */
+  @SuppressWarnings("unchecked")
+  public void add(Collection<? extends T> batch) throws IOException {
+    add((T[]) batch.toArray());
+  } // add(Collection<? extends T>)
+
+  /**
+   * Get the number of elements added and not yet emitted.
+   *
+   * @return The number of elements.
+   */
+  public long size() {
+    long size = this.buffered;
+    for (FileCursor cursor : this.spilled) {
+      size += cursor.remaining();
+    } // for
+    return size;
+  } // size()
+
+  /**
+   * Emit, in order, every element that is less than watermark.
+   *
+   * @param watermark The element that bounds what is emitted.
+   * @param output Receives the emitted elements.
+   * @return The number of elements emitted.
+   * @throws IOException if a spill file cannot be read.
+   * @post No remaining element is less than watermark.
+   */
+  public long emitBelow(T watermark, Consumer<? super T> output)
+      throws IOException {
+    List<Iterator<T>> sources = new ArrayList<Iterator<T>>();
+    for (Cursor<T> cursor : cursors()) {
+      sources.add(new Below(cursor, watermark));
+    } // for
+
+    long emitted = 0;
+    try {
+      LoserTree<T> tree = new LoserTree<T>(sources, this.order);
+      while (tree.hasNext()) {
+        output.accept(tree.next());
+        emitted++;
+      } // while
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    } // try/catch
+
+    // Let go of what was emitted
+    this.spilled.removeIf((cursor) -> !cursor.hasNext());
+    this.runs.removeIf((cursor) -> !cursor.hasNext());
+    this.buffered = 0;
+    for (ArrayCursor<T> cursor : this.runs) {
+      cursor.compact();
+      this.buffered += cursor.remaining();
+    } // for
+    return emitted;
+  } // emitBelow(T, Consumer<? super T>)
+
+  /**
+   * Take every remaining element, in order.  The sorter is left empty,
+   * and elements added later are not part of the result.  A caller that
+   * stops early should close the sorter to delete the spill files left.
+   *
+   * @return The merged elements.
+   */
+  public Spliterator<T> spliterator() {
+    return drain();
+  } // spliterator()
+
+  /**
+   * Take every remaining element, in order, as a stream whose close
+   * deletes the spill files it has not read to the end.
+   *
+   * @return A stream of the merged elements.
+   */
+  public Stream<T> stream() {
+    Drain output = drain();
+    return StreamSupport.stream(output, false).onClose(output::release);
+  } // stream()
+
+  /**
+   * Take every remaining element, in order, as a publisher for a single
+   * subscriber.  Elements are delivered on the thread that requests them.
+   * Cancelling the subscription deletes the spill files not yet read.
+   *
+   * @return A publisher of the merged elements.
+   */
+  public Flow.Publisher<T> publisher() {
+    Drain output = drain();
+    boolean[] subscribed = { false };
+    return (subscriber) -> {
+      synchronized (subscribed) {
+        if (subscribed[0]) {
+          subscriber.onSubscribe(new Emission<T>(
+              Spliterators.emptySpliterator(), subscriber, () -> { }));
+          subscriber.onError(new IllegalStateException(
+              "only one subscriber is allowed"));
+          return;
+        } // if
+        subscribed[0] = true;
+      } // synchronized
+      subscriber.onSubscribe(
+          new Emission<T>(output, subscriber, output::release));
+    };
+  } // publisher()
+
+  /**
+   * Delete any spill files.
+   *
+   * @throws IOException if a file cannot be deleted.
+   */
+  @Override
+  public void close() throws IOException {
+    for (FileCursor cursor : this.spilled) {
+      cursor.close();
+    } // for
+    for (FileCursor cursor : this.draining) {
+      cursor.close();
+    } // for
+    this.spilled.clear();
+    this.draining.clear();
+    this.runs.clear();
+    this.buffered = 0;
+  } // close()
+
+  /**
+   * Hand every run to a new Drain, leaving the sorter empty but still
+   * responsible for the spill files until they are closed.
+   */
+  private Drain drain() {
+    long size = size();
+    Drain output = new Drain(size, new LoserTree<T>(cursors(), this.order),
+        new ArrayList<FileCursor>(this.spilled));
+    this.draining.removeIf((cursor) -> cursor.closed);
+    this.draining.addAll(this.spilled);
+    this.spilled.clear();
+    this.runs.clear();
+    this.buffered = 0;
+    return output;
+  } // drain()
+
+  /**
+   * Get every run, oldest first.
+   */
+  private List<Cursor<T>> cursors() {
+    List<Cursor<T>> cursors = new ArrayList<Cursor<T>>(this.spilled);
+    cursors.addAll(this.runs);
+    return cursors;
+  } // cursors()
+
+  /**
+   * Merge the two newest runs in memory.
+   */
+  @SuppressWarnings("unchecked")
+  private void mergeLastRuns() {
+    int n = this.runs.size();
+    ArrayCursor<T> older = this.runs.get(n - 2);
+    ArrayCursor<T> newer = this.runs.get(n - 1);
+    int len1 = older.remaining();
+    int len2 = newer.remaining();
+
+    T[] merged = (T[]) new Object[len1 + len2];
+    System.arraycopy(older.values, older.pos, merged, 0, len1);
+    System.arraycopy(newer.values, newer.pos, merged, len1, len2);
+    LinWenfeiSort.MergeState<T> state =
+        new LinWenfeiSort.MergeState<T>(merged, this.order, null);
+    state.pushRun(0, len1);
+    state.pushRun(len1, len2);
+    state.mergeAt(0);
+
+    this.runs.remove(n - 1);
+    this.runs.set(n - 2, new ArrayCursor<T>(merged));
+  } // mergeLastRuns()
+
+  /**
+   * Merge the runs in memory into one spill file, then merge the newest
+   * spill files while DEFAULT_FAN_IN of them share a level.
+   */
+  private void spill() throws IOException {
+    while (this.runs.size() > 1) {
+      mergeLastRuns();
+    } // while
+    ArrayCursor<T> run = this.runs.get(0);
+    ExternalSorter.Run file = this.spiller.write(run.values, run.pos,
+        run.values.length);
+    this.spilled.add(new FileCursor(file, 0));
+    this.runs.clear();
+    this.buffered = 0;
+
+    int fanIn = ExternalSorter.DEFAULT_FAN_IN;
+    int n = this.spilled.size();
+    while (n >= fanIn
+        && this.spilled.get(n - fanIn).level == this.spilled.get(n - 1).level) {
+      // The newest files are the lowest level, so these fanIn are adjacent
+      // in age and merging them keeps equal elements in order
+      List<FileCursor> group =
+          new ArrayList<FileCursor>(this.spilled.subList(n - fanIn, n));
+      ExternalSorter.Run merged;
+      try {
+        merged = this.spiller.write(new LoserTree<T>(group, this.order));
+      } catch (UncheckedIOException e) {
+        throw e.getCause();
+      } // try/catch
+      for (FileCursor cursor : group) {
+        cursor.close();
+      } // for
+      this.spilled.subList(n - fanIn, n).clear();
+      this.spilled.add(new FileCursor(merged, group.get(0).level + 1));
+      n = this.spilled.size();
+    } // while
+  } // spill()
+
+  // +---------------+-----------------------------------------------
+  // | Inner Classes |
+  // +---------------+
+
+  /**
+   * A sorted run being read from the front.
+   */
+  interface Cursor<T> extends Iterator<T> {
+    /**
+     * Get the next element without taking it.
+     *
+     * @pre hasNext().
+     */
+    T peek();
+  } // interface Cursor<T>
+
+  /**
+   * A run in memory.
+   */
+  static class ArrayCursor<T> implements Cursor<T> {
+    T[] values;
+    int pos;
+
+    ArrayCursor(T[] values) {
+      this.values = values;
+    } // ArrayCursor(T[])
+
+    int remaining() {
+      return this.values.length - this.pos;
+    } // remaining()
+
+    /**
+     * Drop the elements already taken.
+     */
+    void compact() {
+      if (this.pos > 0) {
+        this.values = Arrays.copyOfRange(this.values, this.pos,
+            this.values.length);
+        this.pos = 0;
+      } // if
+    } // compact()
+
+    @Override
+    public boolean hasNext() {
+      return this.pos < this.values.length;
+    } // hasNext()
+
+    @Override
+    public T peek() {
+      return this.values[this.pos];
+    } // peek()
+
+    @Override
+    public T next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      } // if
+      return this.values[this.pos++];
+    } // next()
+  } // class ArrayCursor<T>
+
+  /**
+   * A spilled run, deleted once it has been read to the end.
+   */
+  class FileCursor implements Cursor<T> {
+    final ExternalSorter.Run run;
+    final ExternalSorter<T>.RunReader reader;
+
+    // How many times its elements have been merged into a new file
+    final int level;
+    T head;
+    boolean hasHead;
+
+    // Whether the reader is closed and the file deleted
+    boolean closed;
+
+    FileCursor(ExternalSorter.Run run, int level) throws IOException {
+      this.run = run;
+      this.reader = spiller.open(run);
+      this.level = level;
+    } // FileCursor(ExternalSorter.Run, int)
+
+    long remaining() {
+      return this.reader.remaining + (this.hasHead ? 1 : 0);
+    } // remaining()
+
+    @Override
+    public boolean hasNext() {
+      return this.hasHead || this.reader.hasNext();
+    } // hasNext()
+
+    @Override
+    public T peek() {
+      if (!this.hasHead) {
+        this.head = this.reader.next();
+        this.hasHead = true;
+      } // if
+      return this.head;
+    } // peek()
+
+    @Override
+    public T next() {
+      T value = peek();
+      this.head = null;
+      this.hasHead = false;
+      if (!this.reader.hasNext()) {
+        try {
+          close();
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        } // try/catch
+      } // if
+      return value;
+    } // next()
+
+    /**
+     * Close the reader and delete the file, unless that is done already.
+     * A cursor that fails to close stays open, so it can be tried again.
+     */
+    void close() throws IOException {
+      if (!this.closed) {
+        this.reader.close();
+        this.run.delete();
+        this.closed = true;
+      } // if
+    } // close()
+  } // class FileCursor
+
+  /**
+   * The merge of every run, read once.  The spill files it merges are
+   * closed as each is read to the end, or all at once by release.
+   */
+  class Drain extends Spliterators.AbstractSpliterator<T> {
+    final LoserTree<T> tree;
+    final List<FileCursor> files;
+
+    Drain(long size, LoserTree<T> tree, List<FileCursor> files) {
+      super(size, Spliterator.ORDERED | Spliterator.SORTED
+          | Spliterator.SIZED);
+      this.tree = tree;
+      this.files = files;
+    } // Drain(long, LoserTree<T>, List<FileCursor>)
+
+    @Override
+    public boolean tryAdvance(Consumer<? super T> action) {
+      if (!this.tree.hasNext()) {
+        return false;
+      } // if
+      try {
+        action.accept(this.tree.next());
+      } catch (RuntimeException e) {
+        // The caller will not read on, so let go of the files now
+        try {
+          release();
+        } catch (UncheckedIOException suppressed) {
+          e.addSuppressed(suppressed);
+        } // try/catch
+        throw e;
+      } // try/catch
+      return true;
+    } // tryAdvance(Consumer<? super T>)
+
+    @Override
+    public Comparator<? super T> getComparator() {
+      return order;
+    } // getComparator()
+
+    /**
+     * Close every spill file not yet read to the end.
+     *
+     * @throws UncheckedIOException if a file cannot be deleted; it stays
+     *         registered, so closing the sorter tries again.
+     */
+    void release() {
+      IOException failure = null;
+      for (FileCursor cursor : this.files) {
+        try {
+          cursor.close();
+        } catch (IOException e) {
+          failure = (failure == null) ? e : failure;
+        } // try/catch
+      } // for
+      if (failure != null) {
+        throw new UncheckedIOException(failure);
+      } // if
+    } // release()
+  } // class Drain
+
+  /**
+   * The elements of a cursor that are less than a watermark.
+   */
+  class Below implements Iterator<T> {
+    final Cursor<T> cursor;
+    final T watermark;
+
+    Below(Cursor<T> cursor, T watermark) {
+      this.cursor = cursor;
+      this.watermark = watermark;
+    } // Below(Cursor<T>, T)
+
+    @Override
+    public boolean hasNext() {
+      return this.cursor.hasNext()
+          && order.compare(this.cursor.peek(), this.watermark) < 0;
+    } // hasNext()
+
+    @Override
+    public T next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      } // if
+      return this.cursor.next();
+    } // next()
+  } // class Below
+
+  /**
+   * Delivers the elements of a spliterator to one subscriber as they are
+   * requested.  Nothing is locked: the request that raises the demand
+   * from zero delivers until the demand is used up, and a request made
+   * meanwhile (from onNext or another thread) only adds to it.  cancel
+   * just sets a flag the delivering loop checks before every element, so
+   * it returns at once.
+   *
+   * Once the emission ends, by cancel, an error or completion, release
+   * runs exactly once, on whichever thread holds the demand: cancel adds
+   * a unit of demand, so either it raises the demand from zero and
+   * releases, or the deliverer already running sees the flag and does.
+   */
+  static class Emission<T> implements Flow.Subscription {
+    final Spliterator<T> output;
+    final Flow.Subscriber<? super T> subscriber;
+
+    // Lets go of what output holds once nothing more will be read
+    final Runnable release;
+
+    // Elements requested and not yet delivered (Long.MAX_VALUE for
+    // unbounded)
+    final AtomicLong demand = new AtomicLong();
+
+    // Set by cancel, and once onComplete or onError has been sent
+    volatile boolean cancelled;
+
+    // Set by a request that was not positive, reported by the deliverer
+    volatile boolean invalid;
+
+    Emission(Spliterator<T> output, Flow.Subscriber<? super T> subscriber,
+        Runnable release) {
+      this.output = output;
+      this.subscriber = subscriber;
+      this.release = release;
+    } // Emission(Spliterator<T>, Flow.Subscriber<? super T>, Runnable)
+
+    @Override
+    public void request(long n) {
+      if (this.cancelled) {
+        return;
+      } // if
+      long added = n;
+      if (n <= 0) {
+        // Make some demand so that a deliverer is sure to report it
+        this.invalid = true;
+        added = 1;
+      } // if
+      if (addDemand(added) == 0) {
+        deliver();
+      } // if
+    } // request(long)
+
+    @Override
+    public void cancel() {
+      if (this.cancelled) {
+        return;
+      } // if
+      this.cancelled = true;
+      if (addDemand(1) == 0) {
+        release();
+      } // if
+    } // cancel()
+
+    /**
+     * Add to the demand, saturating at Long.MAX_VALUE.
+     *
+     * @return The demand before.
+     */
+    private long addDemand(long n) {
+      return this.demand.getAndUpdate(
+          (d) -> (d + n < 0) ? Long.MAX_VALUE : d + n);
+    } // addDemand(long)
+
+    /**
+     * Run release, leaving any failure for the sorter's close to report,
+     * since a subscriber may not hear of anything after a cancel.
+     */
+    private void release() {
+      try {
+        this.release.run();
+      } catch (UncheckedIOException e) {
+        // The files stay registered with the sorter, which retries
+      } // try/catch
+    } // release()
+
+    /**
+     * Send elements until the demand is used up, the elements run out, or
+     * the subscription is cancelled.
+     */
+    private void deliver() {
+      long pending = this.demand.get();
+      try {
+        while (true) {
+          long sent = 0;
+          while (sent != pending) {
+            if (this.cancelled) {
+              release();
+              return;
+            } else if (this.invalid) {
+              this.cancelled = true;
+              release();
+              this.subscriber.onError(new IllegalArgumentException(
+                  "requests must be positive"));
+              return;
+            } else if (!this.output.tryAdvance(this.subscriber::onNext)) {
+              this.cancelled = true;
+              release();
+              this.subscriber.onComplete();
+              return;
+            } // if
+            sent++;
+          } // while
+          pending = this.demand.addAndGet(-sent);
+          if (pending == 0) {
+            return;
+          } // if
+        } // while
+      } catch (RuntimeException e) {
+        this.cancelled = true;
+        release();
+        this.subscriber.onError(e);
+      } // try/catch
+    } // deliver()
+  } // class Emission<T>
+} // class StreamingSorter
@@ -0,0 +1,375 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.Spliterator;
+import java.util.concurrent.Flow;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests of StreamingSorter.
+ *
+ * @author Wenfei Lin
+ */
+public class StreamingSorterTester {
+
+  // +-----------+---------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  static final int BATCHES = 200;
+
+  static final int BATCH = 250;
+
+  // +---------+-----------------------------------------------------
+  // | Globals |
+  // +---------+
+
+  @TempDir
+  Path dir;
+
+  // +-------+-------------------------------------------------------
+  // | Tests |
+  // +-------+
+
+  @Test
+  public void inMemoryTest() throws IOException {
+    assertSorts(new StreamingSorter<Long>(StreamingSorterTester::byKey));
+  } // inMemoryTest
+
+  @Test
+  public void spillingTest() throws IOException {
+    assertSorts(new StreamingSorter<Long>(StreamingSorterTester::byKey,
+        1000, RecordCodec.LONGS, dir));
+    assertEquals(0, countFiles());
+  } // spillingTest
+
+  @Test
+  public void manySpillsTest() throws IOException {
+    // More spills than the fan-in, so spill files get merged
+    assertSorts(new StreamingSorter<Long>(StreamingSorterTester::byKey,
+        BATCH / 2, RecordCodec.LONGS, dir));
+    assertEquals(0, countFiles());
+  } // manySpillsTest
+
+  @Test
+  public void tieredSpillsTest() throws IOException {
+    // Every batch spills; 200 spills with a fan-in of 64 leave three
+    // merged files and eight fresh ones, rather than merging everything
+    // spilled so far each time
+    StreamingSorter<Long> sorter = new StreamingSorter<Long>(
+        StreamingSorterTester::byKey, BATCH / 2, RecordCodec.LONGS, dir);
+    Long[] input = input();
+    for (int b = 0; b < BATCHES; b++) {
+      sorter.add(Arrays.copyOfRange(input, b * BATCH, (b + 1) * BATCH));
+    } // for
+    int fanIn = ExternalSorter.DEFAULT_FAN_IN;
+    assertEquals(BATCHES / fanIn + BATCHES % fanIn, countFiles());
+
+    Long[] output = StreamSupport.stream(sorter.spliterator(), false)
+        .toArray(Long[]::new);
+    LinWenfeiSort.SORTER.sort(input, StreamingSorterTester::byKey);
+    assertArrayEquals(input, output);
+    sorter.close();
+    assertEquals(0, countFiles());
+  } // tieredSpillsTest
+
+  @Test
+  public void earlyStopTest() throws IOException {
+    // Closing a stream that was only partly read deletes the spill files
+    StreamingSorter<Long> sorter = spilledSorter();
+    assertTrue(countFiles() > 0);
+    try (Stream<Long> sorted = sorter.stream()) {
+      assertEquals(10, sorted.limit(10).count());
+    } // try
+    assertEquals(0, countFiles());
+
+    // As does closing the sorter, after a spliterator is abandoned
+    sorter = spilledSorter();
+    assertTrue(sorter.spliterator().tryAdvance((x) -> { }));
+    assertTrue(countFiles() > 0);
+    sorter.close();
+    assertEquals(0, countFiles());
+
+    // And an exception from the consumer
+    Spliterator<Long> output = spilledSorter().spliterator();
+    assertThrows(IllegalStateException.class, () -> output.tryAdvance(
+        (x) -> {
+          throw new IllegalStateException("stop");
+        }));
+    assertEquals(0, countFiles());
+  } // earlyStopTest
+
+  @Test
+  public void cancelDeletesSpillsTest() throws IOException {
+    StreamingSorter<Long> sorter = spilledSorter();
+    long[] received = { 0 };
+    sorter.publisher().subscribe(new Flow.Subscriber<Long>() {
+      Flow.Subscription subscription;
+
+      @Override
+      public void onSubscribe(Flow.Subscription subscription) {
+        this.subscription = subscription;
+        subscription.request(10);
+      } // onSubscribe(Flow.Subscription)
+
+      @Override
+      public void onNext(Long item) {
+        if (++received[0] == 5) {
+          this.subscription.cancel();
+        } // if
+      } // onNext(Long)
+
+      @Override
+      public void onError(Throwable e) {
+        throw new AssertionError(e);
+      } // onError(Throwable)
+
+      @Override
+      public void onComplete() {
+        throw new AssertionError("completed after cancel");
+      } // onComplete()
+    });
+    assertEquals(5, received[0]);
+    assertEquals(0, countFiles());
+
+    // A cancel with no delivery running releases the files itself
+    Flow.Subscription[] held = new Flow.Subscription[1];
+    spilledSorter().publisher().subscribe(new Flow.Subscriber<Long>() {
+      @Override
+      public void onSubscribe(Flow.Subscription subscription) {
+        held[0] = subscription;
+      } // onSubscribe(Flow.Subscription)
+
+      @Override
+      public void onNext(Long item) {
+      } // onNext(Long)
+
+      @Override
+      public void onError(Throwable e) {
+      } // onError(Throwable)
+
+      @Override
+      public void onComplete() {
+      } // onComplete()
+    });
+    assertTrue(countFiles() > 0);
+    held[0].cancel();
+    assertEquals(0, countFiles());
+  } // cancelDeletesSpillsTest
+
+  @Test
+  public void watermarkTest() throws IOException {
+    try (StreamingSorter<Long> sorter = new StreamingSorter<Long>(
+        StreamingSorterTester::byKey, 3000, RecordCodec.LONGS, dir)) {
+      Random rand = new Random(23);
+      List<Long> emitted = new ArrayList<Long>();
+      List<Long> added = new ArrayList<Long>();
+      int tag = 0;
+      for (int b = 0; b < BATCHES; b++) {
+        // Keys arrive roughly in time order, up to 500 late
+        Long[] batch = new Long[BATCH];
+        for (int i = 0; i < BATCH; i++) {
+          long key = Math.max(0, b * 100 + rand.nextInt(1000) - 500);
+          batch[i] = tagged(key, tag++);
+        } // for
+        sorter.add(batch);
+        added.addAll(Arrays.asList(batch));
+        int before = emitted.size();
+        sorter.emitBelow(tagged(b * 100 - 500, 0), emitted::add);
+        assertTrue(isSorted(emitted.subList(before, emitted.size())));
+      } // for
+      assertEquals(added.size() - emitted.size(), sorter.size());
+      sorter.spliterator().forEachRemaining(emitted::add);
+
+      Long[] expected = added.toArray(new Long[0]);
+      LinWenfeiSort.SORTER.sort(expected, StreamingSorterTester::byKey);
+      assertArrayEquals(expected, emitted.toArray(new Long[0]));
+    } // try
+    assertEquals(0, countFiles());
+  } // watermarkTest
+
+  @Test
+  public void publisherTest() throws IOException {
+    StreamingSorter<Long> sorter =
+        new StreamingSorter<Long>(StreamingSorterTester::byKey);
+    Long[] input = input();
+    for (int b = 0; b < BATCHES; b++) {
+      sorter.add(Arrays.copyOfRange(input, b * BATCH, (b + 1) * BATCH));
+    } // for
+
+    // Request one element at a time from inside onNext
+    List<Long> received = new ArrayList<Long>();
+    boolean[] completed = { false };
+    sorter.publisher().subscribe(new Flow.Subscriber<Long>() {
+      Flow.Subscription subscription;
+
+      @Override
+      public void onSubscribe(Flow.Subscription subscription) {
+        this.subscription = subscription;
+        subscription.request(1);
+      } // onSubscribe(Flow.Subscription)
+
+      @Override
+      public void onNext(Long item) {
+        received.add(item);
+        this.subscription.request(1);
+      } // onNext(Long)
+
+      @Override
+      public void onError(Throwable e) {
+        throw new AssertionError(e);
+      } // onError(Throwable)
+
+      @Override
+      public void onComplete() {
+        completed[0] = true;
+      } // onComplete()
+    });
+
+    assertTrue(completed[0]);
+    LinWenfeiSort.SORTER.sort(input, StreamingSorterTester::byKey);
+    assertArrayEquals(input, received.toArray(new Long[0]));
+  } // publisherTest
+
+  @Test
+  public void cancelFromAnotherThreadTest() throws Exception {
+    StreamingSorter<Long> sorter =
+        new StreamingSorter<Long>(StreamingSorterTester::byKey);
+    Long[] input = input();
+    sorter.add(input);
+
+    // Cancel from another thread while onNext is running under an
+    // unbounded request; the cancel must not wait for the emission
+    long[] received = { 0 };
+    boolean[] cancelReturned = { false };
+    sorter.publisher().subscribe(new Flow.Subscriber<Long>() {
+      Flow.Subscription subscription;
+
+      @Override
+      public void onSubscribe(Flow.Subscription subscription) {
+        this.subscription = subscription;
+        subscription.request(Long.MAX_VALUE);
+      } // onSubscribe(Flow.Subscription)
+
+      @Override
+      public void onNext(Long item) {
+        if (++received[0] == 100) {
+          Thread canceller = new Thread(this.subscription::cancel);
+          canceller.start();
+          try {
+            canceller.join(5000);
+          } catch (InterruptedException e) {
+            throw new AssertionError(e);
+          } // try/catch
+          cancelReturned[0] = !canceller.isAlive();
+        } // if
+      } // onNext(Long)
+
+      @Override
+      public void onError(Throwable e) {
+        throw new AssertionError(e);
+      } // onError(Throwable)
+
+      @Override
+      public void onComplete() {
+        throw new AssertionError("completed after cancel");
+      } // onComplete()
+    });
+
+    assertTrue(cancelReturned[0]);
+    assertEquals(100, received[0]);
+  } // cancelFromAnotherThreadTest
+
+  // +---------+-----------------------------------------------------
+  // | Helpers |
+  // +---------+
+
+  /**
+   * Add BATCHES batches of tagged random keys, then check the whole
+   * output is stably sorted and the sorter is empty.
+   */
+  static void assertSorts(StreamingSorter<Long> sorter) throws IOException {
+    Long[] input = input();
+    for (int b = 0; b < BATCHES; b++) {
+      sorter.add(Arrays.asList(input).subList(b * BATCH, (b + 1) * BATCH));
+    } // for
+    assertEquals(input.length, sorter.size());
+
+    List<Long> output = StreamSupport.stream(sorter.spliterator(), false)
+        .collect(Collectors.toList());
+    LinWenfeiSort.SORTER.sort(input, StreamingSorterTester::byKey);
+    assertArrayEquals(input, output.toArray(new Long[0]));
+    assertEquals(0, sorter.size());
+    sorter.close();
+  } // assertSorts(StreamingSorter<Long>)
+
+  /**
+   * Make a sorter that has spilled every batch of input() to a file.
+   */
+  StreamingSorter<Long> spilledSorter() throws IOException {
+    StreamingSorter<Long> sorter = new StreamingSorter<Long>(
+        StreamingSorterTester::byKey, BATCH / 2, RecordCodec.LONGS, dir);
+    sorter.add(input());
+    return sorter;
+  } // spilledSorter()
+
+  /**
+   * Make BATCHES * BATCH keys with many duplicates, tagged with their
+   * position.
+   */
+  static Long[] input() {
+    Random rand = new Random(29);
+    Long[] input = new Long[BATCHES * BATCH];
+    for (int i = 0; i < input.length; i++) {
+      input[i] = tagged(rand.nextInt(5000), i);
+    } // for
+    return input;
+  } // input()
+
+  /**
+   * Put a key in the high bits and a tag in the low bits.
+   */
+  static Long tagged(long key, int tag) {
+    return (key << 32) | tag;
+  } // tagged(long, int)
+
+  /**
+   * Compare only the keys of tagged values.
+   */
+  static int byKey(Long x, Long y) {
+    return Long.compare(x >> 32, y >> 32);
+  } // byKey(Long, Long)
+
+  /**
+   * Determine whether tagged values are sorted by key.
+   */
+  static boolean isSorted(List<Long> vals) {
+    for (int i = 1; i < vals.size(); i++) {
+      if (byKey(vals.get(i - 1), vals.get(i)) > 0) {
+        return false;
+      } // if
+    } // for
+    return true;
+  } // isSorted(List<Long>)
+
+  /**
+   * Count the files left in the temporary directory.
+   */
+  long countFiles() throws IOException {
+    try (Stream<Path> files = Files.list(dir)) {
+      return files.count();
+    } // try
+  } // countFiles()
+} // class StreamingSorterTester
@@ -0,0 +1,14 @@
+/**
+ * Tests of Quicksort with three-way partitioning.
+ */
+public class ThreeWayQuicksortTester extends SortTester {
+
+  // +--------------+------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  public ThreeWayQuicksortTester() {
+    super();
+    this.sorter = Quicksort.THREE_WAY;
+  } // ThreeWayQuicksortTester()
+} // class ThreeWayQuicksortTester
@@ -3,6 +3,10 @@
  * @author Wenfei Lin
  */
 public class Utils {
+  // +---------+-----------------------------------------------------
+  // | Methods |
+  // +---------+
+
   /**
    * Swap two elements in an array (copied from SamR's code).
    * 
@@ -13,8 +17,122 @@ public class Utils {
    * @post The elements originally at indices i and j resepctively are swapped.
    */
   public static <T> void swap(T[] vals, int i, int j) {
+    SortProbe.swap();
     T tmp = vals[i];
     vals[i] = vals[j];
     vals[j] = tmp;
   } // swap(T[], int, int)
+
+  /**
+   * Swap two elements in an array of ints.
+   * 
+   * @param vals The array where the swapping takes place.
+   * @param i The index of one of the elements being swapped.
+   * @param j The index of the other element being swapped.
+   * @pre i and j are valid indices of the array (from 0 to vals.length - 1).
+   * @post The elements originally at indices i and j resepctively are swapped.
+   */
+  public static void swap(int[] vals, int i, int j) {
+    int tmp = vals[i];
+    vals[i] = vals[j];
+    vals[j] = tmp;
+  } // swap(int[], int, int)
+
+  /**
+   * Swap two elements in an array of longs.
+   * 
+   * @param vals The array where the swapping takes place.
+   * @param i The index of one of the elements being swapped.
+   * @param j The index of the other element being swapped.
+   * @pre i and j are valid indices of the array (from 0 to vals.length - 1).
+   * @post The elements originally at indices i and j resepctively are swapped.
+   */
+  public static void swap(long[] vals, int i, int j) {
+    long tmp = vals[i];
+    vals[i] = vals[j];
+    vals[j] = tmp;
+  } // swap(long[], int, int)
+
+  /**
+   * Swap two elements in an array of doubles.
+   * 
+   * @param vals The array where the swapping takes place.
+   * @param i The index of one of the elements being swapped.
+   * @param j The index of the other element being swapped.
+   * @pre i and j are valid indices of the array (from 0 to vals.length - 1).
+   * @post The elements originally at indices i and j resepctively are swapped.
+   */
+  public static void swap(double[] vals, int i, int j) {
+    double tmp = vals[i];
+    vals[i] = vals[j];
+    vals[j] = tmp;
+  } // swap(double[], int, int)
+
+  /**
+   * Move every NaN to the end of an array of doubles, so the rest can be
+   * sorted with plain < comparisons.
+   * 
+   * @param vals The array being prepared for sorting.
+   * @return The index of the first NaN (vals.length if there are none).
+   * @post vals[0..result) holds no NaN and vals[result..] is all NaN.
+   */
+  public static int moveNaNsToEnd(double[] vals) {
+    int end = vals.length;
+    for (int i = end - 1; i >= 0; i--) {
+      if (Double.isNaN(vals[i])) {
+        swap(vals, i, --end);
+      } // if
+    } // for
+    return end;
+  } // moveNaNsToEnd(double[])
+
+  /**
+   * Turn every -0.0 in vals[0..end) into 0.0, since < cannot tell them
+   * apart.
+   * 
+   * @param vals The array being prepared for sorting.
+   * @param end The end (exclusive) of the range to check.
+   * @return The number of -0.0 values replaced.
+   */
+  public static int replaceNegativeZeros(double[] vals, int end) {
+    int count = 0;
+    for (int i = 0; i < end; i++) {
+      if (vals[i] == 0.0 && Double.doubleToRawLongBits(vals[i]) != 0L) {
+        vals[i] = 0.0;
+        count++;
+      } // if
+    } // for
+    return count;
+  } // replaceNegativeZeros(double[], int)
+
+  /**
+   * Put back count negative zeros at the start of the zeros of a sorted
+   * range, undoing replaceNegativeZeros.
+   * 
+   * @param vals The array that was sorted.
+   * @param end The end (exclusive) of the sorted range.
+   * @param count The number of -0.0 values that were replaced.
+   * @pre vals[0..end) is sorted and holds at least count zeros.
+   */
+  public static void restoreNegativeZeros(double[] vals, int end, int count) {
+    if (count == 0) {
+      return;
+    } // if
+
+    // Binary search for the first zero
+    int lo = 0;
+    int hi = end;
+    while (lo < hi) {
+      int mid = (lo + hi) >>> 1;
+      if (vals[mid] < 0.0) {
+        lo = mid + 1;
+      } else {
+        hi = mid;
+      } // if/else
+    } // while
+
+    for (int i = lo; i < lo + count; i++) {
+      vals[i] = -0.0;
+    } // for
+  } // restoreNegativeZeros(double[], int, int)
 } // class Utils
\ No newline at end of file